@@ -13,6 +13,7 @@ import net.xqhs.graphs.matcher.Match;
 import net.xqhs.graphs.matcher.MonitorPack;
 import net.xqhs.graphs.matchingPlatform.GMPImplementation;
 import net.xqhs.graphs.matchingPlatform.GraphMatchingPlatform;
+import net.xqhs.graphs.matchingPlatform.MatchDelta;
 import net.xqhs.graphs.matchingPlatform.TrackingGraph;
 import net.xqhs.graphs.matchingPlatform.TrackingGraph.ChangeNotificationReceiver;
 import net.xqhs.graphs.pattern.GraphPattern;
@@ -155,17 +156,47 @@ public class CCMImplementation extends Unit implements ContinuousContextMatching
 		return continuousMatching;
 	}
 
+	/**
+	 * Brings the matching sequence up to date and notifies the targets of the changes in the complete matches: targets
+	 * are notified once of each match that appeared and, if they are {@link MatchChangeReceiver} instances, of each
+	 * match that disappeared, so that the cost of notifications depends on the changes rather than on all the matches.
+	 */
 	protected void getMatching()
 	{
 		while(matchingPlatform.getMathingSequence() < matchingPlatform.getGraphSequence())
 		{
-			Set<Match> matches = matchingPlatform.incrementSequence();
-			for(Match m : matches)
-				for(Entry<ContextPattern, Set<MatchNotificationTarget>> entry : notificationTargets.entrySet())
-					if((entry.getKey() == null) || (entry.getKey() == m.getPattern()))
-						for(MatchNotificationTarget tg : entry.getValue())
-							if(tg.allMatches || (m.getK() <= tg.k))
-								tg.receiver.receiveMatchNotification(this, m);
+			Map<GraphPattern, MatchDelta> deltas = ((GMPImplementation) matchingPlatform).incrementSequenceDelta(0);
+			if(deltas == null)
+				break;
+			for(Entry<GraphPattern, MatchDelta> delta : deltas.entrySet())
+			{
+				notifyTargets(notificationTargets.get(null), delta.getValue());
+				notifyTargets(notificationTargets.get(delta.getKey()), delta.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Notifies a set of targets of the changes in the matches of a pattern.
+	 *
+	 * @param targets
+	 *            - the targets; may be <code>null</code>.
+	 * @param delta
+	 *            - the changes.
+	 */
+	protected void notifyTargets(Set<MatchNotificationTarget> targets, MatchDelta delta)
+	{
+		if(targets == null)
+			return;
+		for(MatchNotificationTarget tg : targets)
+		{
+			for(Match m : delta.getAppeared())
+				if(tg.allMatches || (m.getK() <= tg.k))
+					tg.receiver.receiveMatchNotification(this, m);
+			if(tg.receiver instanceof MatchChangeReceiver)
+				for(Match m : delta.getDisappeared())
+					if(tg.allMatches || (m.getK() <= tg.k))
+						((MatchChangeReceiver) tg.receiver).receiveMatchRemovalNotification(this, m);
 		}
 	}
 
@@ -118,20 +118,23 @@ public class ContextGraph extends PrincipalGraph implements TickReceiver
 				ContextEdge e = (ContextEdge) component;
 				Node from = e.getFrom();
 				Node to = e.getTo();
+				// the label index returns live views, so existing nodes are retrieved before adding anything
 				Collection<Node> fromExisting = getNodesNamed(from.getLabel());
+				Node fromNode = fromExisting.isEmpty() ? null : fromExisting.iterator().next();
 				Collection<Node> toExisting = getNodesNamed(to.getLabel());
+				Node toNode = toExisting.isEmpty() ? null : toExisting.iterator().next();
 
-				if(!fromExisting.isEmpty())
-					e.setFrom(fromExisting.iterator().next());
+				if(fromNode != null)
+					e.setFrom(fromNode);
 				else
 					super.performOperation(e.getFrom(), Operation.ADD, externalCall);
 
-				if(!toExisting.isEmpty())
-					e.setTo(toExisting.iterator().next());
+				if(toNode != null)
+					e.setTo(toNode);
 				else
 					super.performOperation(e.getTo(), Operation.ADD, externalCall);
 
-				if(!fromExisting.isEmpty() && !toExisting.isEmpty())
+				if((fromNode != null) && (toNode != null))
 					for(Edge existing : nodes.get(e.getFrom()).getOutEdges())
 						if((existing.getTo() == e.getTo()) && (existing.getLabel().equals(e.getLabel())))
 							// edge is existing
@@ -161,7 +164,6 @@ public class ContextGraph extends PrincipalGraph implements TickReceiver
 			throw new IllegalArgumentException("Generic nodes are not allowed");
 		if((component instanceof Node) && ((Node) component).getLabel().startsWith(NodeP.NODEP_LABEL))
 			throw new IllegalArgumentException("Generic nodes are not allowed");
-		// TODO this is not efficient -- a index of labels should be used
 		if((component instanceof Node) && !getNodesNamed(((Node) component).getLabel()).isEmpty())
 			throw new IllegalArgumentException("Multiple nodes with the same name are not allowed");
 
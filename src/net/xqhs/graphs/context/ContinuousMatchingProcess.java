@@ -34,6 +34,29 @@ public interface ContinuousMatchingProcess
 		public void receiveMatchNotification(ContinuousMatchingProcess platform, Match m);
 	}
 
+	/**
+	 * A {@link MatchNotificationReceiver} that is also notified when a match for which it has been notified does not
+	 * hold anymore. A receiver is notified of each match only once, when it appears, so that it can keep track of the
+	 * current matches by only processing the changes.
+	 *
+	 * @author Andrei Olaru
+	 *
+	 * @since 1.6
+	 */
+	public interface MatchChangeReceiver extends MatchNotificationReceiver
+	{
+		/**
+		 * The method is called by a {@link ContinuousMatchingProcess} when a match for which the receiver has been
+		 * notified does not hold anymore, because of changes in the matched graph.
+		 *
+		 * @param platform
+		 *            - the platform that issued the notification.
+		 * @param m
+		 *            - the match that does not hold anymore.
+		 */
+		public void receiveMatchRemovalNotification(ContinuousMatchingProcess platform, Match m);
+	}
+
 	/**
 	 * Registers a {@link MatchNotificationReceiver} as target for notifications for new matches below or with a
 	 * specified <i>k</i> (see {@link Match}.
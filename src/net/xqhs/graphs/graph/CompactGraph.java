@@ -0,0 +1,1312 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.graphs.graph;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import net.xqhs.util.logging.Unit;
+
+/**
+ * A {@link Graph} implementation with the same behavior as {@link SimpleGraph}, but with a much smaller memory
+ * footprint.
+ * <p>
+ * Each node and each edge is given a dense integer identifier (identifiers of removed components are reused). The
+ * endpoints of edges are kept in primitive arrays, indexed by edge identifier, and the adjacency lists of nodes are kept
+ * as lists of edge identifiers in a growable slab of integers (see {@link IntLists}). The labels of nodes are interned in
+ * a symbol table, so that the nodes with a certain label are also kept as a list of integers.
+ * <p>
+ * As in {@link SimpleGraph}, components are identified by reference, an edge may be contained in the graph without its
+ * adjacent nodes, and an edge is connected to its adjacent nodes whenever they are added. The identifiers of components
+ * are also available, for algorithms that can work directly with integers.
+ * <p>
+ * Collections returned by this class are unmodifiable views on the internal structures. They should not be kept across
+ * changes to the graph.
+ *
+ * @author Andrei Olaru
+ */
+public class CompactGraph extends Unit implements Graph
+{
+	/**
+	 * Open addressing hash table mapping objects, by reference, to non-negative integers. It uses linear probing and
+	 * does not allocate anything when adding entries, except for growing the table.
+	 *
+	 * @author Andrei Olaru
+	 */
+	protected static class IdentityIndex
+	{
+		/**
+		 * The keys. Empty slots are <code>null</code>.
+		 */
+		Object[]	keys;
+		/**
+		 * The values, at the same positions as the keys.
+		 */
+		int[]		values;
+		/**
+		 * The number of entries.
+		 */
+		int			size	= 0;
+
+		/**
+		 * Creates an empty index.
+		 */
+		public IdentityIndex()
+		{
+			keys = new Object[16];
+			values = new int[16];
+		}
+
+		/**
+		 * Computes the first slot to look into, for a key.
+		 *
+		 * @param key
+		 *            - the key.
+		 * @param mask
+		 *            - the length of the table minus 1.
+		 * @return the slot.
+		 */
+		static int slot(Object key, int mask)
+		{
+			int h = System.identityHashCode(key) * 0x9E3779B9;
+			return (h ^ (h >>> 16)) & mask;
+		}
+
+		/**
+		 * Retrieves the value for a key.
+		 *
+		 * @param key
+		 *            - the key.
+		 * @return the value, or -1 if the key is not in the index.
+		 */
+		public int get(Object key)
+		{
+			int mask = keys.length - 1;
+			for(int i = slot(key, mask);; i = (i + 1) & mask)
+			{
+				if(keys[i] == key)
+					return values[i];
+				if(keys[i] == null)
+					return -1;
+			}
+		}
+
+		/**
+		 * Puts a new key in the index. The key must not already be in the index.
+		 *
+		 * @param key
+		 *            - the key.
+		 * @param value
+		 *            - the value.
+		 */
+		public void put(Object key, int value)
+		{
+			if((size + 1) * 2 > keys.length)
+				grow();
+			int mask = keys.length - 1;
+			int i = slot(key, mask);
+			while(keys[i] != null)
+				i = (i + 1) & mask;
+			keys[i] = key;
+			values[i] = value;
+			size++;
+		}
+
+		/**
+		 * Removes a key from the index, if it is there. Entries following the removed one are shifted back, so that no
+		 * deletion markers are necessary.
+		 *
+		 * @param key
+		 *            - the key.
+		 */
+		public void remove(Object key)
+		{
+			int mask = keys.length - 1;
+			int i = slot(key, mask);
+			while(keys[i] != key)
+			{
+				if(keys[i] == null)
+					return;
+				i = (i + 1) & mask;
+			}
+			keys[i] = null;
+			size--;
+			for(int j = (i + 1) & mask; keys[j] != null; j = (j + 1) & mask)
+			{
+				int home = slot(keys[j], mask);
+				// move the entry in the free slot if the free slot is between its home slot and its current slot
+				if(((j - home) & mask) >= ((j - i) & mask))
+				{
+					keys[i] = keys[j];
+					values[i] = values[j];
+					keys[j] = null;
+					i = j;
+				}
+			}
+		}
+
+		/**
+		 * Doubles the size of the table.
+		 */
+		protected void grow()
+		{
+			Object[] oldKeys = keys;
+			int[] oldValues = values;
+			keys = new Object[oldKeys.length * 2];
+			values = new int[oldKeys.length * 2];
+			int mask = keys.length - 1;
+			for(int j = 0; j < oldKeys.length; j++)
+				if(oldKeys[j] != null)
+				{
+					int i = slot(oldKeys[j], mask);
+					while(keys[i] != null)
+						i = (i + 1) & mask;
+					keys[i] = oldKeys[j];
+					values[i] = oldValues[j];
+				}
+		}
+	}
+
+	/**
+	 * A set of lists of integers, all stored in the same slab (array) of integers. Each list occupies a contiguous block
+	 * in the slab; when a block becomes full, the list is moved at the end of the slab in a block twice as large. The
+	 * slab is compacted when more than half of it is unused.
+	 * <p>
+	 * Order of elements in a list is not preserved when removing elements.
+	 *
+	 * @author Andrei Olaru
+	 */
+	protected static class IntLists
+	{
+		/**
+		 * The initial capacity of a list, when the first element is added to it.
+		 */
+		static final int	INITIAL_CAPACITY	= 2;
+
+		/**
+		 * The slab.
+		 */
+		int[]				slab				= new int[64];
+		/**
+		 * The first unused position at the end of the slab.
+		 */
+		int					top					= 0;
+		/**
+		 * The number of positions in the slab that belong to abandoned blocks.
+		 */
+		int					waste				= 0;
+		/**
+		 * For each list, the offset of its block in the slab.
+		 */
+		int[]				offset				= new int[16];
+		/**
+		 * For each list, the size of its block.
+		 */
+		int[]				capacity			= new int[16];
+		/**
+		 * For each list, the number of elements.
+		 */
+		int[]				count				= new int[16];
+
+		/**
+		 * Makes sure that lists with the given identifier can be stored.
+		 *
+		 * @param list
+		 *            - the identifier of the list.
+		 */
+		void ensureList(int list)
+		{
+			if(list >= offset.length)
+			{
+				int newLength = Math.max(offset.length * 2, list + 1);
+				offset = Arrays.copyOf(offset, newLength);
+				capacity = Arrays.copyOf(capacity, newLength);
+				count = Arrays.copyOf(count, newLength);
+			}
+		}
+
+		/**
+		 * @param list
+		 *            - the identifier of the list.
+		 * @return the number of elements in the list.
+		 */
+		public int size(int list)
+		{
+			return list < count.length ? count[list] : 0;
+		}
+
+		/**
+		 * @param list
+		 *            - the identifier of the list.
+		 * @param index
+		 *            - the index of the element in the list.
+		 * @return the element.
+		 */
+		public int get(int list, int index)
+		{
+			return slab[offset[list] + index];
+		}
+
+		/**
+		 * Adds an element at the end of a list.
+		 *
+		 * @param list
+		 *            - the identifier of the list.
+		 * @param value
+		 *            - the element.
+		 */
+		public void add(int list, int value)
+		{
+			ensureList(list);
+			if(count[list] == capacity[list])
+			{
+				int newCapacity = Math.max(INITIAL_CAPACITY, capacity[list] * 2);
+				if(top + newCapacity > slab.length)
+				{
+					compact(newCapacity);
+					if(top + newCapacity > slab.length)
+						slab = Arrays.copyOf(slab, Math.max(slab.length * 2, top + newCapacity));
+				}
+				System.arraycopy(slab, offset[list], slab, top, count[list]);
+				waste += capacity[list];
+				offset[list] = top;
+				capacity[list] = newCapacity;
+				top += newCapacity;
+			}
+			slab[offset[list] + count[list]] = value;
+			count[list]++;
+		}
+
+		/**
+		 * Removes an element from a list, by replacing it with the last element in the list.
+		 *
+		 * @param list
+		 *            - the identifier of the list.
+		 * @param value
+		 *            - the element.
+		 * @return <code>true</code> if the element was found.
+		 */
+		public boolean remove(int list, int value)
+		{
+			if(list >= count.length)
+				return false;
+			int start = offset[list];
+			int end = start + count[list];
+			for(int i = start; i < end; i++)
+				if(slab[i] == value)
+				{
+					slab[i] = slab[end - 1];
+					count[list]--;
+					return true;
+				}
+			return false;
+		}
+
+		/**
+		 * Empties a list and releases its block.
+		 *
+		 * @param list
+		 *            - the identifier of the list.
+		 */
+		public void clear(int list)
+		{
+			if(list >= count.length)
+				return;
+			waste += capacity[list];
+			offset[list] = 0;
+			capacity[list] = 0;
+			count[list] = 0;
+		}
+
+		/**
+		 * Moves all blocks at the beginning of the slab, if the wasted space is significant.
+		 *
+		 * @param needed
+		 *            - space that will be needed immediately after the compaction.
+		 */
+		void compact(int needed)
+		{
+			if(waste * 2 < slab.length)
+				return;
+			int[] newSlab = new int[Math.max(64, (top - waste + needed) * 2)];
+			int newTop = 0;
+			for(int list = 0; list < offset.length; list++)
+				if(capacity[list] > 0)
+				{
+					System.arraycopy(slab, offset[list], newSlab, newTop, count[list]);
+					offset[list] = newTop;
+					newTop += capacity[list];
+				}
+			slab = newSlab;
+			top = newTop;
+			waste = 0;
+		}
+	}
+
+	/**
+	 * Iterator over the slots of an array of components, skipping empty slots. It is fail-fast with respect to changes
+	 * in the graph.
+	 *
+	 * @param <T>
+	 *            - the type of the components.
+	 */
+	protected class SlotIterator<T> implements Iterator<T>
+	{
+		/**
+		 * The array of components.
+		 */
+		T[]	slots;
+		/**
+		 * Number of used slots in the array.
+		 */
+		int	limit;
+		/**
+		 * The next slot to return.
+		 */
+		int	next;
+		/**
+		 * The value of {@link CompactGraph#modCount} when the iterator was created.
+		 */
+		int	expectedModCount	= modCount;
+
+		/**
+		 * @param components
+		 *            - the array of components.
+		 * @param used
+		 *            - the number of used slots in the array.
+		 */
+		SlotIterator(T[] components, int used)
+		{
+			slots = components;
+			limit = used;
+			next = advance(0);
+		}
+
+		/**
+		 * @param from
+		 *            - the slot to start from.
+		 * @return the first non-empty slot, starting from the given one.
+		 */
+		int advance(int from)
+		{
+			int i = from;
+			while((i < limit) && (slots[i] == null))
+				i++;
+			return i;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return next < limit;
+		}
+
+		@Override
+		public T next()
+		{
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if(next >= limit)
+				throw new NoSuchElementException();
+			T ret = slots[next];
+			next = advance(next + 1);
+			return ret;
+		}
+
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * View on one of the {@link IntLists} of the graph, translating identifiers into components. The lists and the
+	 * component arrays are retrieved at each access, as they may be replaced when the graph changes.
+	 *
+	 * @param <T>
+	 *            - the type of the components.
+	 */
+	protected abstract class ListView<T> extends AbstractCollection<T>
+	{
+		/**
+		 * The identifier of the list.
+		 */
+		int	list;
+
+		/**
+		 * @param listId
+		 *            - the identifier of the list.
+		 */
+		ListView(int listId)
+		{
+			list = listId;
+		}
+
+		/**
+		 * @return the lists that the list belongs to.
+		 */
+		abstract IntLists lists();
+
+		/**
+		 * @param id
+		 *            - a component identifier.
+		 * @return the component.
+		 */
+		abstract T component(int id);
+
+		@Override
+		public Iterator<T> iterator()
+		{
+			// the list cannot change while the iterator is valid, so its block is located only once
+			final IntLists lists = lists();
+			return new Iterator<T>() {
+				int[]	slab				= lists.slab;
+				int		position			= lists.size(list) > 0 ? lists.offset[list] : 0;
+				int		end					= position + lists.size(list);
+				int		expectedModCount	= modCount;
+
+				@Override
+				public boolean hasNext()
+				{
+					return position < end;
+				}
+
+				@Override
+				public T next()
+				{
+					if(modCount != expectedModCount)
+						throw new ConcurrentModificationException();
+					if(position >= end)
+						throw new NoSuchElementException();
+					return component(slab[position++]);
+				}
+
+				@Override
+				public void remove()
+				{
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public int size()
+		{
+			return lists().size(list);
+		}
+	}
+
+	/**
+	 * View on the incoming or outgoing edges of a node.
+	 */
+	protected class EdgeListView extends ListView<Edge>
+	{
+		/**
+		 * <code>true</code> for outgoing edges, <code>false</code> for incoming edges.
+		 */
+		boolean	out;
+
+		/**
+		 * @param nodeId
+		 *            - the identifier of the node.
+		 * @param outgoing
+		 *            - <code>true</code> for outgoing edges, <code>false</code> for incoming edges.
+		 */
+		EdgeListView(int nodeId, boolean outgoing)
+		{
+			super(nodeId);
+			out = outgoing;
+		}
+
+		@Override
+		IntLists lists()
+		{
+			return out ? outLists : inLists;
+		}
+
+		@Override
+		Edge component(int id)
+		{
+			return edgeObjects[id];
+		}
+	}
+
+	/**
+	 * Value used for an edge endpoint that is not in the graph.
+	 */
+	protected static final int		NONE				= -1;
+
+	/**
+	 * The description of the graph.
+	 */
+	protected GraphDescription		graphDescription	= null;
+
+	/**
+	 * The nodes, by identifier. Unused slots are <code>null</code>.
+	 */
+	protected Node[]				nodeObjects			= new Node[16];
+	/**
+	 * The label symbol of each node, by identifier.
+	 */
+	protected int[]					nodeLabels			= new int[16];
+	/**
+	 * The number of slots of {@link #nodeObjects} that have ever been used.
+	 */
+	protected int					nodeTop				= 0;
+	/**
+	 * The number of nodes in the graph.
+	 */
+	protected int					nodeCount			= 0;
+	/**
+	 * Identifiers of removed nodes, available for reuse.
+	 */
+	protected int[]					freeNodes			= new int[16];
+	/**
+	 * The number of elements in {@link #freeNodes}.
+	 */
+	protected int					freeNodeCount		= 0;
+	/**
+	 * Node &rarr; identifier.
+	 */
+	protected IdentityIndex			nodeIds				= new IdentityIndex();
+
+	/**
+	 * The edges, by identifier. Unused slots are <code>null</code>.
+	 */
+	protected Edge[]				edgeObjects			= new Edge[16];
+	/**
+	 * The identifier of the source node of each edge, or {@link #NONE} if the node is not in the graph.
+	 */
+	protected int[]					edgeFrom			= new int[16];
+	/**
+	 * The identifier of the destination node of each edge, or {@link #NONE} if the node is not in the graph.
+	 */
+	protected int[]					edgeTo				= new int[16];
+	/**
+	 * The number of slots of {@link #edgeObjects} that have ever been used.
+	 */
+	protected int					edgeTop				= 0;
+	/**
+	 * The number of edges in the graph.
+	 */
+	protected int					edgeCount			= 0;
+	/**
+	 * Identifiers of removed edges, available for reuse.
+	 */
+	protected int[]					freeEdges			= new int[16];
+	/**
+	 * The number of elements in {@link #freeEdges}.
+	 */
+	protected int					freeEdgeCount		= 0;
+	/**
+	 * Edge &rarr; identifier.
+	 */
+	protected IdentityIndex			edgeIds				= new IdentityIndex();
+	/**
+	 * Edge endpoints that are not in the graph &rarr; identifier of their pending lists (see {@link #pendingOut} and
+	 * {@link #pendingIn}). A node is in the index only while edges in the graph are waiting for it.
+	 */
+	protected IdentityIndex			pendingIds			= new IdentityIndex();
+	/**
+	 * Edges waiting for their source node to be added, by pending list identifier.
+	 */
+	protected IntLists				pendingOut			= new IntLists();
+	/**
+	 * Edges waiting for their destination node to be added, by pending list identifier.
+	 */
+	protected IntLists				pendingIn			= new IntLists();
+	/**
+	 * The number of pending list identifiers that have ever been used.
+	 */
+	protected int					pendingTop			= 0;
+	/**
+	 * Pending list identifiers that are not used anymore, available for reuse.
+	 */
+	protected int[]					freePending			= new int[16];
+	/**
+	 * The number of elements in {@link #freePending}.
+	 */
+	protected int					freePendingCount	= 0;
+
+	/**
+	 * Outgoing edges of each node, by node identifier.
+	 */
+	protected IntLists				outLists			= new IntLists();
+	/**
+	 * Incoming edges of each node, by node identifier.
+	 */
+	protected IntLists				inLists				= new IntLists();
+	/**
+	 * Nodes with each label, by label symbol.
+	 */
+	protected IntLists				labelLists			= new IntLists();
+
+	/**
+	 * Label &rarr; symbol.
+	 */
+	protected Map<String, Integer>	symbols				= new HashMap<String, Integer>();
+	/**
+	 * Symbol &rarr; label.
+	 */
+	protected List<String>			symbolNames			= new ArrayList<String>();
+	/**
+	 * The value of {@link SimpleNode#relabelCount} for which the label symbols of the nodes are known to be up to date.
+	 */
+	protected long					labelsVersion		= 0;
+
+	/**
+	 * Counter of structural changes, used by iterators to detect concurrent modifications.
+	 */
+	protected int					modCount			= 0;
+
+	/**
+	 * Creates an empty graph.
+	 */
+	public CompactGraph()
+	{
+		super();
+		labelsVersion = SimpleNode.relabelCount.get();
+	}
+
+	@Override
+	public Graph setDescription(GraphDescription description)
+	{
+		graphDescription = description;
+		return this;
+	}
+
+	@Override
+	public GraphDescription getDescription()
+	{
+		return graphDescription;
+	}
+
+	@Override
+	public CompactGraph addNode(Node node)
+	{
+		return add(node);
+	}
+
+	/**
+	 * Warning: the function will not add the nodes to the graph, only the edge between them. Nodes must be added
+	 * separately.
+	 *
+	 * @param edge
+	 *            : the edge to add
+	 * @return the updated graph
+	 */
+	@Override
+	public CompactGraph addEdge(Edge edge)
+	{
+		return add(edge);
+	}
+
+	/**
+	 * This is the only method that actually adds a component to the graph. Any other methods call (should call) this
+	 * method.
+	 */
+	@Override
+	public CompactGraph add(GraphComponent component)
+	{
+		if(component == null)
+			throw new IllegalArgumentException("null components not allowed");
+
+		if(component instanceof Node)
+		{
+			Node node = (Node) component;
+			if(nodeIds.get(node) >= 0)
+			{
+				lw("node [] already present. Not re-added.", node);
+				return this;
+			}
+			checkLabels();
+			int id = allocateNode();
+			nodeObjects[id] = node;
+			nodeIds.put(node, id);
+			nodeLabels[id] = intern(node.getLabel());
+			labelLists.add(nodeLabels[id], id);
+			nodeCount++;
+			int pending = pendingIds.get(node);
+			if(pending != NONE)
+			{
+				// connect with the edges waiting for the node
+				for(int i = 0; i < pendingOut.size(pending); i++)
+				{
+					int e = pendingOut.get(pending, i);
+					edgeFrom[e] = id;
+					outLists.add(id, e);
+				}
+				for(int i = 0; i < pendingIn.size(pending); i++)
+				{
+					int e = pendingIn.get(pending, i);
+					edgeTo[e] = id;
+					inLists.add(id, e);
+				}
+				pendingOut.clear(pending);
+				pendingIn.clear(pending);
+				discardPending(node);
+			}
+		}
+		else if(component instanceof Edge)
+		{
+			Edge edge = (Edge) component;
+			if(edgeIds.get(edge) >= 0)
+			{
+				lw("edge [] already present. Not re-added.", edge);
+				return this;
+			}
+			int id = allocateEdge();
+			edgeObjects[id] = edge;
+			edgeIds.put(edge, id);
+			edgeCount++;
+			edgeFrom[id] = nodeIds.get(edge.getFrom());
+			if(edgeFrom[id] != NONE)
+				outLists.add(edgeFrom[id], id);
+			else
+				pendingOut.add(pendingList(edge.getFrom()), id);
+			edgeTo[id] = nodeIds.get(edge.getTo());
+			if(edgeTo[id] != NONE)
+				inLists.add(edgeTo[id], id);
+			else
+				pendingIn.add(pendingList(edge.getTo()), id);
+		}
+		else
+			throw new IllegalArgumentException("Given component is not one of Node, Edge.");
+		modCount++;
+		return this;
+	}
+
+	@Override
+	public CompactGraph addAll(Collection<? extends GraphComponent> components)
+	{
+		for(GraphComponent comp : components)
+			add(comp);
+		return this;
+	}
+
+	@Override
+	public CompactGraph removeNode(Node node)
+	{
+		return remove(node);
+	}
+
+	@Override
+	public CompactGraph removeEdge(Edge edge)
+	{
+		return remove(edge);
+	}
+
+	/**
+	 * This is the only method that actually removes a component from the graph. Any other methods call (should call)
+	 * this method.
+	 * <p>
+	 * As in {@link SimpleGraph}, removing a node does not remove its adjacent edges; they remain in the graph, without
+	 * the removed endpoint.
+	 */
+	@Override
+	public CompactGraph remove(GraphComponent component)
+	{
+		if(component == null)
+			throw new IllegalArgumentException("given components is null.");
+		if(component instanceof Node)
+		{
+			int id = nodeIds.get(component);
+			if(id < 0)
+				return (CompactGraph) lr(this, "component [] not contained", component);
+			checkLabels();
+			// the adjacent edges wait for the node to be added again
+			int pending = pendingList((Node) component);
+			for(int i = 0; i < outLists.size(id); i++)
+			{
+				edgeFrom[outLists.get(id, i)] = NONE;
+				pendingOut.add(pending, outLists.get(id, i));
+			}
+			for(int i = 0; i < inLists.size(id); i++)
+			{
+				edgeTo[inLists.get(id, i)] = NONE;
+				pendingIn.add(pending, inLists.get(id, i));
+			}
+			discardPending((Node) component);
+			outLists.clear(id);
+			inLists.clear(id);
+			labelLists.remove(nodeLabels[id], id);
+			nodeIds.remove(component);
+			nodeObjects[id] = null;
+			nodeCount--;
+			freeNodes = push(freeNodes, freeNodeCount++, id);
+		}
+		else if(component instanceof Edge)
+		{
+			int id = edgeIds.get(component);
+			if(id < 0)
+				return (CompactGraph) lr(this, "component [] not contained", component);
+			Edge edge = (Edge) component;
+			if(edgeFrom[id] != NONE)
+				outLists.remove(edgeFrom[id], id);
+			else
+			{
+				pendingOut.remove(pendingIds.get(edge.getFrom()), id);
+				discardPending(edge.getFrom());
+			}
+			if(edgeTo[id] != NONE)
+				inLists.remove(edgeTo[id], id);
+			else
+			{
+				pendingIn.remove(pendingIds.get(edge.getTo()), id);
+				discardPending(edge.getTo());
+			}
+			edgeIds.remove(component);
+			edgeObjects[id] = null;
+			edgeCount--;
+			freeEdges = push(freeEdges, freeEdgeCount++, id);
+		}
+		else
+			throw new IllegalArgumentException("Given component is not one of Node, Edge.");
+		modCount++;
+		return this;
+	}
+
+	@Override
+	public CompactGraph removeAll(Collection<? extends GraphComponent> components)
+	{
+		for(GraphComponent comp : components)
+			remove(comp);
+		return this;
+	}
+
+	@Override
+	public int n()
+	{
+		return nodeCount;
+	}
+
+	@Override
+	public int m()
+	{
+		return edgeCount;
+	}
+
+	@Override
+	public int size()
+	{
+		return n();
+	}
+
+	@Override
+	public Collection<Node> getNodes()
+	{
+		return new AbstractCollection<Node>() {
+			@Override
+			public Iterator<Node> iterator()
+			{
+				return new SlotIterator<Node>(nodeObjects, nodeTop);
+			}
+
+			@Override
+			public int size()
+			{
+				return nodeCount;
+			}
+
+			@Override
+			public boolean contains(Object o)
+			{
+				return nodeIds.get(o) >= 0;
+			}
+		};
+	}
+
+	@Override
+	public Collection<Edge> getEdges()
+	{
+		return new AbstractCollection<Edge>() {
+			@Override
+			public Iterator<Edge> iterator()
+			{
+				return new SlotIterator<Edge>(edgeObjects, edgeTop);
+			}
+
+			@Override
+			public int size()
+			{
+				return edgeCount;
+			}
+
+			@Override
+			public boolean contains(Object o)
+			{
+				return edgeIds.get(o) >= 0;
+			}
+		};
+	}
+
+	@Override
+	public Collection<GraphComponent> getComponents()
+	{
+		Collection<GraphComponent> ret = new HashSet<GraphComponent>(getNodes());
+		ret.addAll(getEdges());
+		return ret;
+	}
+
+	@Override
+	public Collection<Edge> getOutEdges(Node node)
+	{
+		return new EdgeListView(checkedNodeId(node), true);
+	}
+
+	@Override
+	public Collection<Edge> getInEdges(Node node)
+	{
+		return new EdgeListView(checkedNodeId(node), false);
+	}
+
+	@Override
+	public boolean contains(GraphComponent component)
+	{
+		if(component instanceof Node)
+			return nodeIds.get(component) >= 0;
+		if(component instanceof Edge)
+			return edgeIds.get(component) >= 0;
+		throw new IllegalArgumentException("Given component is not one of Node, Edge.");
+	}
+
+	@Override
+	public Collection<Node> getNodesNamed(String name)
+	{
+		checkLabels();
+		Integer symbol = symbols.get(name);
+		if(symbol == null)
+			return Collections.emptySet();
+		return new ListView<Node>(symbol.intValue()) {
+			@Override
+			IntLists lists()
+			{
+				checkLabels();
+				return labelLists;
+			}
+
+			@Override
+			Node component(int id)
+			{
+				return nodeObjects[id];
+			}
+		};
+	}
+
+	/**
+	 * @param node
+	 *            - a node.
+	 * @return the identifier of the node, or -1 if the node is not in the graph.
+	 */
+	public int getNodeId(Node node)
+	{
+		return nodeIds.get(node);
+	}
+
+	/**
+	 * @param edge
+	 *            - an edge.
+	 * @return the identifier of the edge, or -1 if the edge is not in the graph.
+	 */
+	public int getEdgeId(Edge edge)
+	{
+		return edgeIds.get(edge);
+	}
+
+	/**
+	 * @param id
+	 *            - a node identifier.
+	 * @return the node with the identifier, or <code>null</code> if there is none.
+	 */
+	public Node getNode(int id)
+	{
+		return id < nodeTop ? nodeObjects[id] : null;
+	}
+
+	/**
+	 * @param id
+	 *            - an edge identifier.
+	 * @return the edge with the identifier, or <code>null</code> if there is none.
+	 */
+	public Edge getEdge(int id)
+	{
+		return id < edgeTop ? edgeObjects[id] : null;
+	}
+
+	/**
+	 * @return an upper bound for node identifiers.
+	 */
+	public int getNodeIdBound()
+	{
+		return nodeTop;
+	}
+
+	/**
+	 * @return an upper bound for edge identifiers.
+	 */
+	public int getEdgeIdBound()
+	{
+		return edgeTop;
+	}
+
+	/**
+	 * @param edgeId
+	 *            - an edge identifier.
+	 * @return the identifier of the source node of the edge, or -1 if the node is not in the graph.
+	 */
+	public int getFromId(int edgeId)
+	{
+		return edgeFrom[edgeId];
+	}
+
+	/**
+	 * @param edgeId
+	 *            - an edge identifier.
+	 * @return the identifier of the destination node of the edge, or -1 if the node is not in the graph.
+	 */
+	public int getToId(int edgeId)
+	{
+		return edgeTo[edgeId];
+	}
+
+	/**
+	 * @param nodeId
+	 *            - a node identifier.
+	 * @return the symbol of the label of the node.
+	 */
+	public int getLabelId(int nodeId)
+	{
+		checkLabels();
+		return nodeLabels[nodeId];
+	}
+
+	/**
+	 * @param symbol
+	 *            - a label symbol.
+	 * @return the label.
+	 */
+	public String getLabel(int symbol)
+	{
+		return symbolNames.get(symbol);
+	}
+
+	/**
+	 * @param nodeId
+	 *            - a node identifier.
+	 * @return the number of outgoing edges of the node.
+	 */
+	public int getOutDegree(int nodeId)
+	{
+		return outLists.size(nodeId);
+	}
+
+	/**
+	 * @param nodeId
+	 *            - a node identifier.
+	 * @param index
+	 *            - the index of the edge, between 0 and the out degree of the node.
+	 * @return the identifier of the outgoing edge.
+	 */
+	public int getOutEdgeId(int nodeId, int index)
+	{
+		return outLists.get(nodeId, index);
+	}
+
+	/**
+	 * @param nodeId
+	 *            - a node identifier.
+	 * @return the number of incoming edges of the node.
+	 */
+	public int getInDegree(int nodeId)
+	{
+		return inLists.size(nodeId);
+	}
+
+	/**
+	 * @param nodeId
+	 *            - a node identifier.
+	 * @param index
+	 *            - the index of the edge, between 0 and the in degree of the node.
+	 * @return the identifier of the incoming edge.
+	 */
+	public int getInEdgeId(int nodeId, int index)
+	{
+		return inLists.get(nodeId, index);
+	}
+
+	/**
+	 * Returns a display of the graph that shows the number of nodes and edges, the list of nodes and the list of edges,
+	 * in the same format as {@link SimpleGraph#toString()}.
+	 */
+	@Override
+	public String toString()
+	{
+		String ret = "G";
+		if(graphDescription != null)
+			ret += " " + graphDescription.toString() + " ";
+		ret += "[" + n() + ", " + m() + "] ";
+		List<Node> list = new ArrayList<Node>(getNodes());
+		Collections.sort(list, new NodeAlphaComparator());
+		ret += list.toString();
+		for(Edge e : getEdges())
+			ret += "\n" + e.toString();
+		return ret;
+	}
+
+	/**
+	 * @param node
+	 *            - a node.
+	 * @return the identifier of the node.
+	 * @throws IllegalArgumentException
+	 *             if the node is not in the graph.
+	 */
+	protected int checkedNodeId(Node node)
+	{
+		int id = nodeIds.get(node);
+		if(id < 0)
+			throw new IllegalArgumentException("node " + node + " is not in graph");
+		return id;
+	}
+
+	/**
+	 * Retrieves the identifier of the pending lists of a node that is not in the graph, allocating one if the node has
+	 * no pending lists yet.
+	 *
+	 * @param node
+	 *            - the node.
+	 * @return the identifier of the pending lists.
+	 */
+	protected int pendingList(Node node)
+	{
+		int pending = pendingIds.get(node);
+		if(pending == NONE)
+		{
+			pending = (freePendingCount > 0) ? freePending[--freePendingCount] : pendingTop++;
+			pendingIds.put(node, pending);
+		}
+		return pending;
+	}
+
+	/**
+	 * Releases the pending lists of a node, if no edges are waiting for it anymore.
+	 *
+	 * @param node
+	 *            - the node.
+	 */
+	protected void discardPending(Node node)
+	{
+		int pending = pendingIds.get(node);
+		if((pending != NONE) && (pendingOut.size(pending) == 0) && (pendingIn.size(pending) == 0))
+		{
+			pendingOut.clear(pending);
+			pendingIn.clear(pending);
+			pendingIds.remove(node);
+			freePending = push(freePending, freePendingCount++, pending);
+		}
+	}
+
+	/**
+	 * @return a free node identifier, with the arrays indexed by node identifiers large enough to hold it.
+	 */
+	protected int allocateNode()
+	{
+		if(freeNodeCount > 0)
+			return freeNodes[--freeNodeCount];
+		if(nodeTop == nodeObjects.length)
+		{
+			nodeObjects = Arrays.copyOf(nodeObjects, nodeTop * 2);
+			nodeLabels = Arrays.copyOf(nodeLabels, nodeTop * 2);
+		}
+		return nodeTop++;
+	}
+
+	/**
+	 * @return a free edge identifier, with the arrays indexed by edge identifiers large enough to hold it.
+	 */
+	protected int allocateEdge()
+	{
+		if(freeEdgeCount > 0)
+			return freeEdges[--freeEdgeCount];
+		if(edgeTop == edgeObjects.length)
+		{
+			edgeObjects = Arrays.copyOf(edgeObjects, edgeTop * 2);
+			edgeFrom = Arrays.copyOf(edgeFrom, edgeTop * 2);
+			edgeTo = Arrays.copyOf(edgeTo, edgeTop * 2);
+		}
+		return edgeTop++;
+	}
+
+	/**
+	 * Puts a value in an array used as a stack, growing the array if necessary.
+	 *
+	 * @param stack
+	 *            - the array.
+	 * @param position
+	 *            - the position to put the value in.
+	 * @param value
+	 *            - the value.
+	 * @return the array, or a larger copy of it.
+	 */
+	protected static int[] push(int[] stack, int position, int value)
+	{
+		int[] ret = (position < stack.length) ? stack : Arrays.copyOf(stack, stack.length * 2);
+		ret[position] = value;
+		return ret;
+	}
+
+	/**
+	 * Retrieves the symbol for a label, creating it if necessary.
+	 *
+	 * @param label
+	 *            - the label (may be <code>null</code>).
+	 * @return the symbol.
+	 */
+	protected int intern(String label)
+	{
+		Integer symbol = symbols.get(label);
+		if(symbol != null)
+			return symbol.intValue();
+		symbols.put(label, new Integer(symbolNames.size()));
+		symbolNames.add(label);
+		return symbolNames.size() - 1;
+	}
+
+	/**
+	 * Checks that no node has been relabeled since labels were last interned (see {@link SimpleNode#relabelCount}). If
+	 * any node was relabeled, the labels of all nodes are interned again.
+	 */
+	protected void checkLabels()
+	{
+		long version = SimpleNode.relabelCount.get();
+		if(version == labelsVersion)
+			return;
+		labelLists = new IntLists();
+		for(int id = 0; id < nodeTop; id++)
+			if(nodeObjects[id] != null)
+			{
+				nodeLabels[id] = intern(nodeObjects[id].getLabel());
+				labelLists.add(nodeLabels[id], id);
+			}
+		labelsVersion = version;
+	}
+}
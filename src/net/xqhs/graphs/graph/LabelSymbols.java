@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.graphs.graph;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A global table of symbols for the labels of nodes and edges, so that labels can be compared as integers. The same
+ * label always has the same symbol, and different labels have different symbols. {@link SimpleNode} and
+ * {@link SimpleEdge} instances cache the symbol of their label (see {@link SimpleNode#getLabelSymbol()} and
+ * {@link SimpleEdge#getLabelSymbol()}).
+ * <p>
+ * The <code>null</code> label has the symbol {@link #NULL_LABEL} and the empty label has the symbol
+ * {@link #EMPTY_LABEL}, so that unlabeled edges (having a <code>null</code> or empty label) have symbols that are not
+ * greater than {@link #EMPTY_LABEL}. The symbol {@link #NO_SYMBOL} is not used by any label.
+ * <p>
+ * Symbols are never released, so the table contains all labels for which symbols have been retrieved.
+ *
+ * @author Andrei Olaru
+ *
+ * @since 1.6
+ */
+public class LabelSymbols
+{
+	/**
+	 * A value that is not the symbol of any label, used for symbols that have not been retrieved yet.
+	 */
+	public static final int								NO_SYMBOL	= 0;
+	/**
+	 * The symbol of the <code>null</code> label.
+	 */
+	public static final int								NULL_LABEL	= -1;
+	/**
+	 * The symbol of the empty label.
+	 */
+	public static final int								EMPTY_LABEL	= 1;
+
+	/**
+	 * Label &rarr; symbol.
+	 */
+	protected static final ConcurrentMap<String, Integer>	symbols		= new ConcurrentHashMap<String, Integer>();
+
+	static
+	{
+		symbols.put("", new Integer(EMPTY_LABEL));
+	}
+
+	/**
+	 * Retrieves the symbol for a label, creating it if necessary.
+	 *
+	 * @param label
+	 *            - the label.
+	 * @return the symbol.
+	 */
+	public static int getSymbol(String label)
+	{
+		if(label == null)
+			return NULL_LABEL;
+		Integer symbol = symbols.get(label);
+		if(symbol == null)
+			synchronized(symbols)
+			{
+				symbol = symbols.get(label);
+				if(symbol == null)
+				{
+					symbol = new Integer(EMPTY_LABEL + symbols.size());
+					symbols.put(label, symbol);
+				}
+			}
+		return symbol.intValue();
+	}
+
+	/**
+	 * @return the number of labels in the table, including the empty label.
+	 */
+	public static int getSymbolCount()
+	{
+		return symbols.size();
+	}
+}
@@ -12,6 +12,8 @@
 package net.xqhs.graphs.graph;
 
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+
 import net.xqhs.graphs.representation.AbstractVisualizableGraphComponent;
 
 /**
@@ -28,10 +30,22 @@ public class SimpleEdge extends AbstractVisualizableGraphComponent implements Ed
 	 */
 	private static final long serialVersionUID = 3564476601107009433L;
 
+	/**
+	 * Counts the label changes performed on any {@link SimpleEdge} instance after the edge was created. It is used by
+	 * text representations to know when a cached rendering may have become stale, and by {@link SimpleGraph} to know
+	 * when its index of edges by label must be rebuilt.
+	 */
+	static final AtomicLong	relabelCount	= new AtomicLong(0);
+
 	/**
 	 * The label of the edge.
 	 */
 	protected String	label	= null; // FIXME: support null labels throughout the source
+	/**
+	 * The symbol of the label in {@link LabelSymbols}, or {@link LabelSymbols#NO_SYMBOL} if it has not been retrieved
+	 * since the last change of the label.
+	 */
+	protected transient int	labelSymbol	= LabelSymbols.NO_SYMBOL;
 	/**
 	 * The source of the edge.
 	 */
@@ -68,10 +82,38 @@ public class SimpleEdge extends AbstractVisualizableGraphComponent implements Ed
 	@Override
 	public Edge setLabel(String label)
 	{
+		if(this.label == null ? label != null : !this.label.equals(label))
+			relabelCount.incrementAndGet();
 		this.label = label;
+		labelSymbol = LabelSymbols.NO_SYMBOL;
 		return this;
 	}
 
+	/**
+	 * Retrieves the symbol of the label of the edge (see {@link LabelSymbols}). The symbol is cached until the label
+	 * changes, so that labels can be compared as integers.
+	 *
+	 * @return the symbol of the label.
+	 *
+	 * @since 1.6
+	 */
+	public int getLabelSymbol()
+	{
+		int symbol = labelSymbol;
+		if(symbol == LabelSymbols.NO_SYMBOL)
+			labelSymbol = symbol = LabelSymbols.getSymbol(label);
+		return symbol;
+	}
+
+	/**
+	 * @return the number of label changes performed so far on {@link SimpleEdge} instances (see
+	 *         {@link #relabelCount}).
+	 */
+	public static long getRelabelCount()
+	{
+		return relabelCount.get();
+	}
+
 	@Override
 	public Node getFrom()
 	{
@@ -11,8 +11,15 @@
  ******************************************************************************/
 package net.xqhs.graphs.graph;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -21,11 +28,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
-import java.util.Scanner;
 import java.util.Set;
 
 import net.xqhs.graphs.pattern.NodeP;
 import net.xqhs.graphs.representation.linear.LinearGraphRepresentation;
+import net.xqhs.graphs.util.MappedFileReader;
 import net.xqhs.util.logging.Unit;
 import net.xqhs.util.logging.UnitComponent;
 
@@ -103,6 +110,80 @@ public class SimpleGraph extends Unit implements Graph
 		}
 	}
 
+	/**
+	 * Key in the index of edges by labels (see {@link SimpleGraph#getEdgesLabeled(String, String, String)}): the label
+	 * of the source node, of the edge, and of the destination node. A <code>null</code> part stands for any label.
+	 *
+	 * @author Andrei Olaru
+	 */
+	protected static class EdgeKey
+	{
+		/**
+		 * Label of the source node.
+		 */
+		String	fromLabel;
+		/**
+		 * Label of the edge.
+		 */
+		String	edgeLabel;
+		/**
+		 * Label of the destination node.
+		 */
+		String	toLabel;
+
+		/**
+		 * Creates a new key.
+		 *
+		 * @param from
+		 *            - label of the source node.
+		 * @param edge
+		 *            - label of the edge.
+		 * @param to
+		 *            - label of the destination node.
+		 */
+		public EdgeKey(String from, String edge, String to)
+		{
+			fromLabel = from;
+			edgeLabel = edge;
+			toLabel = to;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if(!(obj instanceof EdgeKey))
+				return false;
+			EdgeKey key = (EdgeKey) obj;
+			return same(fromLabel, key.fromLabel) && same(edgeLabel, key.edgeLabel) && same(toLabel, key.toLabel);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int hash = (fromLabel == null) ? 0 : fromLabel.hashCode();
+			hash = hash * 31 + ((edgeLabel == null) ? 0 : edgeLabel.hashCode());
+			return hash * 31 + ((toLabel == null) ? 0 : toLabel.hashCode());
+		}
+
+		/**
+		 * @param label1
+		 *            - a label (may be <code>null</code>).
+		 * @param label2
+		 *            - another label (may be <code>null</code>).
+		 * @return <code>true</code> if the labels are both <code>null</code> or equal.
+		 */
+		protected static boolean same(String label1, String label2)
+		{
+			return (label1 == null) ? (label2 == null) : label1.equals(label2);
+		}
+
+		@Override
+		public String toString()
+		{
+			return fromLabel + "-" + edgeLabel + "->" + toLabel;
+		}
+	}
+
 	/**
 	 * Separator between edges.
 	 */
@@ -117,6 +198,10 @@ public class SimpleGraph extends Unit implements Graph
 	 * Character that marks the destination end of an oriented edge.
 	 */
 	public static char				EDGE_TARGET			= '>';
+	/**
+	 * Initial size of the buffer used for reading graphs (it will grow if single edges are longer).
+	 */
+	protected static final int		READ_BUFFER_SIZE	= 1 << 16;
 
 	/**
 	 * The description of the graph.
@@ -130,6 +215,47 @@ public class SimpleGraph extends Unit implements Graph
 	 * The edges.
 	 */
 	protected Set<Edge>				edges				= null;
+	/**
+	 * Edges in the graph that are adjacent to nodes which are not (yet) in the graph, indexed by the missing node. When
+	 * the node is added, its {@link NodeData} is taken from here, so that adding a node only costs as much as the number
+	 * of its adjacent edges. When a node is removed, its adjacent edges that remain in the graph are placed here.
+	 * <p>
+	 * For this to work, the adjacent nodes of an edge should not change while the edge is in the graph.
+	 */
+	protected Map<Node, NodeData>	pendingEndpoints	= null;
+	/**
+	 * Index of the nodes in the graph, by their label. It is kept in sync by {@link #add(GraphComponent)} and
+	 * {@link #remove(GraphComponent)}. Labels changed after the node has been added are detected by means of
+	 * {@link SimpleNode#relabelCount}, in which case the index is rebuilt.
+	 */
+	protected Map<String, Set<Node>>	labelIndex			= null;
+	/**
+	 * The value of {@link SimpleNode#relabelCount} for which {@link #labelIndex} is known to be up to date.
+	 */
+	protected long					labelIndexVersion	= 0;
+	/**
+	 * Index of the edges in the graph, by the labels of the edge and of its adjacent nodes, including wildcard keys (see
+	 * {@link EdgeKey}). It is <code>null</code> until the first call to
+	 * {@link #getEdgesLabeled(String, String, String)}, after which it is kept in sync by {@link #add(GraphComponent)}
+	 * and {@link #remove(GraphComponent)}. Labels changed after the edge has been added are detected by means of
+	 * {@link SimpleNode#relabelCount} and {@link SimpleEdge#relabelCount}, in which case the index is rebuilt.
+	 */
+	protected Map<EdgeKey, Set<Edge>>	edgeIndex			= null;
+	/**
+	 * The sum of {@link SimpleNode#relabelCount} and {@link SimpleEdge#relabelCount} for which {@link #edgeIndex} is
+	 * known to be up to date.
+	 */
+	protected long					edgeIndexVersion	= 0;
+	/**
+	 * While <code>true</code>, the label index and the edge index are considered up to date and are never rebuilt, so
+	 * that they can be read concurrently. See {@link #setIndexesFrozen(boolean)}.
+	 */
+	protected boolean				indexesFrozen		= false;
+	/**
+	 * The number of changes (additions and removals of components) made to the graph. See
+	 * {@link #getModificationCount()}.
+	 */
+	protected long					modificationCount	= 0;
 
 	/**
 	 * Creates an empty graph.
@@ -139,6 +265,9 @@ public class SimpleGraph extends Unit implements Graph
 		super();
 		nodes = new HashMap<Node, SimpleGraph.NodeData>();
 		edges = new HashSet<Edge>();
+		pendingEndpoints = new HashMap<Node, NodeData>();
+		labelIndex = new HashMap<String, Set<Node>>();
+		labelIndexVersion = SimpleNode.relabelCount.get();
 	}
 
 	@Override
@@ -189,17 +318,13 @@ public class SimpleGraph extends Unit implements Graph
 			Node node = (Node) component;
 			if(!contains(node))
 			{
-				Set<Edge> outEdges = new HashSet<Edge>();
-				Set<Edge> inEdges = new HashSet<Edge>();
 				// connect with potentially existing edges
-				for(Edge e : edges)
-				{
-					if(e.getFrom() == node)
-						outEdges.add(e);
-					if(e.getTo() == node)
-						inEdges.add(e);
-				}
-				nodes.put(node, new NodeData(inEdges, outEdges));
+				NodeData data = pendingEndpoints.remove(node);
+				if(data == null)
+					data = new NodeData(new HashSet<Edge>(), new HashSet<Edge>());
+				nodes.put(node, data);
+				indexLabel(node);
+				modificationCount++;
 			}
 			else
 				lw("node [] already present. Not re-added.", node);
@@ -210,12 +335,17 @@ public class SimpleGraph extends Unit implements Graph
 			if(!contains(edge))
 			{
 				edges.add(edge);
-				if(contains(edge.getFrom()))
-					// connect 'from' node
-					nodes.get(edge.getFrom()).getOutEdges().add(edge);
-				if(contains(edge.getTo()))
-					// connect 'to' node
-					nodes.get(edge.getTo()).getInEdges().add(edge);
+				if(edgeIndex != null)
+					indexEdge(edge);
+				// connect 'from' node, or wait for it
+				NodeData from = endpointData(edge.getFrom(), true);
+				if(from != null)
+					from.getOutEdges().add(edge);
+				// connect 'to' node, or wait for it
+				NodeData to = endpointData(edge.getTo(), true);
+				if(to != null)
+					to.getInEdges().add(edge);
+				modificationCount++;
 			}
 			else
 				lw("edge [] already present. Not re-added.", edge);
@@ -257,21 +387,82 @@ public class SimpleGraph extends Unit implements Graph
 		if(!contains(component))
 			lr(this, "component [] not contained", component);
 		if(component instanceof Node)
-			nodes.remove(component);
+		{
+			NodeData data = nodes.remove(component);
+			if(data != null)
+			{
+				modificationCount++;
+				unindexLabel((Node) component);
+				if(!data.getInEdges().isEmpty() || !data.getOutEdges().isEmpty())
+					// the adjacent edges remain in the graph, waiting for the node to be re-added
+					pendingEndpoints.put((Node) component, data);
+			}
+		}
 		else if(component instanceof Edge)
 		{
 			Edge edge = (Edge) component;
-			if(contains(edge.getFrom()))
-				nodes.get(edge.getFrom()).getOutEdges().remove(edge);
-			if(contains(edge.getTo()))
-				nodes.get(edge.getTo()).getInEdges().remove(edge);
-			edges.remove(edge);
+			if(edges.remove(edge))
+			{
+				modificationCount++;
+				if(edgeIndex != null)
+					unindexEdge(edge);
+				NodeData from = endpointData(edge.getFrom(), false);
+				if(from != null)
+					from.getOutEdges().remove(edge);
+				NodeData to = endpointData(edge.getTo(), false);
+				if(to != null)
+					to.getInEdges().remove(edge);
+				discardPending(edge.getFrom());
+				discardPending(edge.getTo());
+			}
 		}
 		else
 			throw new IllegalArgumentException("Given component is not one of Node, Edge.");
 		return this;
 	}
 
+	/**
+	 * Retrieves the structure holding the edges adjacent to a node: the {@link NodeData} of the node, if it is in the
+	 * graph, or its entry in {@link #pendingEndpoints} otherwise.
+	 *
+	 * @param node
+	 *            - the node (may be <code>null</code>).
+	 * @param create
+	 *            - if <code>true</code> and the node is neither in the graph nor in {@link #pendingEndpoints}, a new
+	 *            entry will be created in {@link #pendingEndpoints}.
+	 * @return the {@link NodeData}, or <code>null</code> if the node is <code>null</code> or if there is no entry and
+	 *         none was created.
+	 */
+	protected NodeData endpointData(Node node, boolean create)
+	{
+		if(node == null)
+			return null;
+		NodeData data = nodes.get(node);
+		if(data == null)
+		{
+			data = pendingEndpoints.get(node);
+			if((data == null) && create)
+			{
+				data = new NodeData(new HashSet<Edge>(), new HashSet<Edge>());
+				pendingEndpoints.put(node, data);
+			}
+		}
+		return data;
+	}
+
+	/**
+	 * Removes the entry of a node in {@link #pendingEndpoints}, if no edges wait for the node any more.
+	 *
+	 * @param node
+	 *            - the node (may be <code>null</code>).
+	 */
+	protected void discardPending(Node node)
+	{
+		NodeData data = pendingEndpoints.get(node);
+		if((data != null) && data.getInEdges().isEmpty() && data.getOutEdges().isEmpty())
+			pendingEndpoints.remove(node);
+	}
+
 	@Override
 	public Graph removeAll(Collection<? extends GraphComponent> components)
 	{
@@ -280,6 +471,21 @@ public class SimpleGraph extends Unit implements Graph
 		return this;
 	}
 
+	/**
+	 * Returns the number of changes made to the graph: each addition or removal of a node or of an edge increments the
+	 * count. Structures computed from the graph can use the count to check that the graph has not changed since their
+	 * computation. Changes of labels are not counted (see {@link SimpleNode#getRelabelCount()} and
+	 * {@link SimpleEdge#getRelabelCount()}).
+	 *
+	 * @return the number of changes.
+	 *
+	 * @since 1.6
+	 */
+	public long getModificationCount()
+	{
+		return modificationCount;
+	}
+
 	@Override
 	public GraphDescription getDescription()
 	{
@@ -350,14 +556,238 @@ public class SimpleGraph extends Unit implements Graph
 		throw new IllegalArgumentException("Given component is not one of Node, Edge.");
 	}
 
+	/**
+	 * The returned collection is an unmodifiable view of the internal label index; it should not be kept across
+	 * changes to the graph.
+	 */
 	@Override
 	public Collection<Node> getNodesNamed(String name)
 	{
-		Collection<Node> ret = new HashSet<Node>();
+		checkLabelIndex();
+		Set<Node> ret = labelIndex.get(name);
+		if(ret == null)
+			return Collections.emptySet();
+		return Collections.unmodifiableSet(ret);
+	}
+
+	/**
+	 * Adds a node to the label index.
+	 *
+	 * @param node
+	 *            - the node to index.
+	 */
+	protected void indexLabel(Node node)
+	{
+		if(checkLabelIndex())
+			// the node was already indexed by the rebuild
+			return;
+		Set<Node> bucket = labelIndex.get(node.getLabel());
+		if(bucket == null)
+		{
+			bucket = new HashSet<Node>();
+			labelIndex.put(node.getLabel(), bucket);
+		}
+		bucket.add(node);
+	}
+
+	/**
+	 * Removes a node from the label index.
+	 *
+	 * @param node
+	 *            - the node to remove from the index.
+	 */
+	protected void unindexLabel(Node node)
+	{
+		if(checkLabelIndex())
+			// the node was already left out by the rebuild
+			return;
+		Set<Node> bucket = labelIndex.get(node.getLabel());
+		if(bucket != null)
+		{
+			bucket.remove(node);
+			if(bucket.isEmpty())
+				labelIndex.remove(node.getLabel());
+		}
+	}
+
+	/**
+	 * Checks that no node has been relabeled since the label index was last validated. If any node was relabeled, the
+	 * label index is rebuilt from the set of nodes.
+	 *
+	 * @return <code>true</code> if the index has been rebuilt.
+	 */
+	protected boolean checkLabelIndex()
+	{
+		long version = SimpleNode.relabelCount.get();
+		if((version == labelIndexVersion) || indexesFrozen)
+			return false;
+		labelIndex.clear();
 		for(Node node : nodes.keySet())
-			if(node.getLabel().equals(name))
-				ret.add(node);
-		return ret;
+		{
+			Set<Node> bucket = labelIndex.get(node.getLabel());
+			if(bucket == null)
+			{
+				bucket = new HashSet<Node>();
+				labelIndex.put(node.getLabel(), bucket);
+			}
+			bucket.add(node);
+		}
+		labelIndexVersion = version;
+		return true;
+	}
+
+	/**
+	 * Retrieves the edges in the graph that have the specified labels, for the edge and for its adjacent nodes. A
+	 * <code>null</code> argument stands for any label. Unlabeled edges (having a <code>null</code> or empty label) are
+	 * retrieved by specifying an empty edge label. Nodes having a <code>null</code> label can only be retrieved by a
+	 * <code>null</code> argument.
+	 * <p>
+	 * The first call builds an index of the edges by these labels (under all combinations of specified and any labels),
+	 * which is afterwards kept in sync with the graph. The returned collection is an unmodifiable view of the index; it
+	 * should not be kept across changes to the graph.
+	 *
+	 * @param fromLabel
+	 *            - the label of the source node, or <code>null</code> for any label.
+	 * @param edgeLabel
+	 *            - the label of the edge, the empty string for unlabeled edges, or <code>null</code> for any label.
+	 * @param toLabel
+	 *            - the label of the destination node, or <code>null</code> for any label.
+	 * @return the edges with the specified labels.
+	 */
+	public Collection<Edge> getEdgesLabeled(String fromLabel, String edgeLabel, String toLabel)
+	{
+		if((fromLabel == null) && (edgeLabel == null) && (toLabel == null))
+			return getEdges();
+		if(edgeIndex == null)
+		{
+			edgeIndex = new HashMap<EdgeKey, Set<Edge>>();
+			edgeIndexVersion = -1;
+		}
+		checkEdgeIndex();
+		Set<Edge> ret = edgeIndex.get(new EdgeKey(fromLabel, edgeLabel, toLabel));
+		if(ret == null)
+			return Collections.emptySet();
+		return Collections.unmodifiableSet(ret);
+	}
+
+	/**
+	 * Freezes or unfreezes the label index and the edge index of the graph. Before freezing, the indexes are built (if
+	 * necessary) and brought up to date. While frozen, the indexes are not rebuilt when nodes or edges are relabeled
+	 * (relabeling is detected by means of counters which are global to all graphs), so that several threads can read
+	 * them concurrently, as long as the graph is not changed. After unfreezing, relabelings are detected again at the
+	 * next access.
+	 *
+	 * @param frozen
+	 *            - <code>true</code> to freeze the indexes, <code>false</code> to unfreeze them.
+	 * @return the graph itself.
+	 *
+	 * @since 1.6
+	 */
+	public SimpleGraph setIndexesFrozen(boolean frozen)
+	{
+		if(frozen && !indexesFrozen)
+		{
+			getEdgesLabeled(null, "", null);
+			checkLabelIndex();
+		}
+		indexesFrozen = frozen;
+		return this;
+	}
+
+	/**
+	 * Adds an edge to the edge index, under all of its keys.
+	 *
+	 * @param edge
+	 *            - the edge to index.
+	 */
+	protected void indexEdge(Edge edge)
+	{
+		if(checkEdgeIndex())
+			// the edge was already indexed by the rebuild
+			return;
+		putEdge(edge);
+	}
+
+	/**
+	 * Removes an edge from the edge index.
+	 *
+	 * @param edge
+	 *            - the edge to remove from the index.
+	 */
+	protected void unindexEdge(Edge edge)
+	{
+		if(checkEdgeIndex())
+			// the edge was already left out by the rebuild
+			return;
+		for(EdgeKey key : edgeKeys(edge))
+		{
+			Set<Edge> bucket = edgeIndex.get(key);
+			if(bucket != null)
+			{
+				bucket.remove(edge);
+				if(bucket.isEmpty())
+					edgeIndex.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Adds an edge to the buckets of the edge index corresponding to all of its keys.
+	 *
+	 * @param edge
+	 *            - the edge.
+	 */
+	protected void putEdge(Edge edge)
+	{
+		for(EdgeKey key : edgeKeys(edge))
+		{
+			Set<Edge> bucket = edgeIndex.get(key);
+			if(bucket == null)
+			{
+				bucket = new HashSet<Edge>();
+				edgeIndex.put(key, bucket);
+			}
+			bucket.add(edge);
+		}
+	}
+
+	/**
+	 * Computes the keys under which an edge is indexed: all combinations of its labels (the edge label being the empty
+	 * string for unlabeled edges) and wildcards, except for the key with wildcards only.
+	 *
+	 * @param edge
+	 *            - the edge.
+	 * @return the keys.
+	 */
+	protected static EdgeKey[] edgeKeys(Edge edge)
+	{
+		String from = (edge.getFrom() != null) ? edge.getFrom().getLabel() : null;
+		String label = (edge.getLabel() != null) ? edge.getLabel() : "";
+		String to = (edge.getTo() != null) ? edge.getTo().getLabel() : null;
+		EdgeKey[] keys = new EdgeKey[7];
+		for(int i = 0; i < 7; i++)
+			// each bit of i + 1 selects whether a part of the key is specified or is a wildcard
+			keys[i] = new EdgeKey(((i + 1) & 4) != 0 ? from : null, ((i + 1) & 2) != 0 ? label : null,
+					((i + 1) & 1) != 0 ? to : null);
+		return keys;
+	}
+
+	/**
+	 * Checks that no node or edge has been relabeled since the edge index was last validated. If any was relabeled,
+	 * the edge index is rebuilt from the set of edges.
+	 *
+	 * @return <code>true</code> if the index has been rebuilt.
+	 */
+	protected boolean checkEdgeIndex()
+	{
+		long version = SimpleNode.relabelCount.get() + SimpleEdge.relabelCount.get();
+		if((version == edgeIndexVersion) || indexesFrozen)
+			return false;
+		edgeIndex.clear();
+		for(Edge edge : edges)
+			putEdge(edge);
+		edgeIndexVersion = version;
+		return true;
 	}
 
 	/**
@@ -480,99 +910,341 @@ public class SimpleGraph extends Unit implements Graph
 	 * <li>labeled bi-directional edges should begin and end with a dash ( - label here - )
 	 * <li>all spaces between elements are accepted and ignored
 	 * </ul>
-	 * The newly read edges and nodes are added on the existing structure, if any.
+	 * The newly read edges and nodes are added on the existing structure, if any. Nodes are identified by their label:
+	 * a label that already exists in the graph refers to the existing node.
+	 * <p>
+	 * The stream is read with the default character set and it is closed at the end. See {@link #readFrom(Reader)}.
 	 *
 	 * @param input
 	 *            - a stream to read from
 	 * @return the enriched {@link SimpleGraph} instance
 	 */
 	public SimpleGraph readFrom(InputStream input)
+	{
+		return readFrom(new InputStreamReader(input));
+	}
+
+	/**
+	 * Reads the structure of the graph from a file, in the format described in {@link #readFrom(InputStream)}, using
+	 * the default character set.
+	 *
+	 * @param file
+	 *            - the file to read from.
+	 * @param memoryMapped
+	 *            - if <code>true</code>, the file is mapped in memory (see {@link MappedFileReader}) instead of being read
+	 *            through a stream.
+	 * @return the enriched {@link SimpleGraph} instance
+	 * @throws IOException
+	 *             - if the file cannot be opened.
+	 */
+	public SimpleGraph readFrom(File file, boolean memoryMapped) throws IOException
+	{
+		if(memoryMapped)
+			return readFrom(new MappedFileReader(file, Charset.defaultCharset()));
+		return readFrom(new InputStreamReader(new FileInputStream(file)));
+	}
+
+	/**
+	 * Reads the structure of the graph in the format described in {@link #readFrom(InputStream)}. The reader is closed
+	 * at the end.
+	 * <p>
+	 * The input is read in one pass, in chunks, and each edge is parsed as soon as it is complete, directly from the
+	 * buffer. Only the labels of nodes and edges are created as new strings. Nodes are looked up by label in a map that
+	 * is kept for the duration of the reading, and, for labels not read before, in the nodes that already exist in the
+	 * graph.
+	 *
+	 * @param input
+	 *            - the reader to read from.
+	 * @return the enriched {@link SimpleGraph} instance
+	 */
+	public SimpleGraph readFrom(Reader input)
 	{
 		UnitComponent log = (UnitComponent) new UnitComponent().setLink(getUnitName());
-		// .setUnitName("test").setLogLevel(Level.ALL);
-		Scanner scan = new Scanner(input);
-		while(scan.hasNextLine())
+		long start = System.nanoTime();
+		int edgesBefore = m();
+		Map<String, Node> readNodes = new HashMap<String, Node>();
+
+		char[] buffer = new char[READ_BUFFER_SIZE];
+		int length = 0; // number of characters in the buffer
+		int segmentStart = 0; // start of the current edge in the buffer
+		int scan = 0; // next character to examine
+		boolean skipLF = false; // the previous character was a CR, so a LF should be ignored
+		boolean lineStarted = false; // there are characters in the current line (including separators)
+		boolean lineHasSeparators = false; // there were edge separators in the current line
+		int emptyEdges = 0; // empty edges that are ignored if they are at the end of the line
+		boolean endOfInput = false;
+		try
 		{
-			String line = scan.nextLine();
-			String edgeReads[] = line.split(Character.toString(EDGE_SEPARATOR));
-			for(String edgeRead : edgeReads) // each element is an edge
+			while(true)
 			{
-				log.lf("new edge: ", edgeRead);
-
-				boolean bidirectional = true;
-
-				String[] parts1 = edgeRead.split(Character.toString(EDGE_LINE), 2); // identify first dash (beginning of
-																					// edge)
-				if(parts1.length < 2) // two parts: source node and edge name+destination node
+				if(scan == length)
 				{
-					parts1 = edgeRead.split(Character.toString(EDGE_TARGET), 2);
-					if(parts1.length < 2)
+					if(endOfInput)
+						break;
+					// move the current edge at the beginning and fill the rest of the buffer
+					if(segmentStart > 0)
 					{
-						log.le("input corrupted");
+						System.arraycopy(buffer, segmentStart, buffer, 0, length - segmentStart);
+						length -= segmentStart;
+						scan -= segmentStart;
+						segmentStart = 0;
+					}
+					if(length == buffer.length)
+						buffer = Arrays.copyOf(buffer, buffer.length * 2);
+					int read = input.read(buffer, length, buffer.length - length);
+					if(read < 0)
+						endOfInput = true;
+					else
+						length += read;
+					continue;
+				}
+				char c = buffer[scan];
+				if(skipLF)
+				{
+					skipLF = false;
+					if(c == '\n')
+					{
+						scan++;
+						segmentStart = scan;
 						continue;
 					}
-					bidirectional = false;
 				}
-				String node1name = parts1[0].trim(); // source node
-				String node2name = null;
-				String edgeName = null;
-				String[] parts2 = parts1[1].split(Character.toString(EDGE_TARGET)); // split destination node from edge
-				if((parts2.length < 1) || (parts2.length > 2)) // no appearance or 1 appearance
+				boolean endOfLine = (c == '\n') || (c == '\r') || (c == '\u2028') || (c == '\u2029') || (c == '\u0085');
+				if(!endOfLine && (c != EDGE_SEPARATOR))
 				{
-					log.le("input corrupted");
+					lineStarted = true;
+					scan++;
 					continue;
 				}
-
-				Node node1 = null;
-				Node node2 = null;
-
-				if(parts2.length == 2) // unidirectional edge
+				// an edge has ended
+				if(scan > segmentStart)
 				{
-					bidirectional = false;
-					node2name = parts2[1].trim();
-					if((parts2[0].length() > 0) && (parts2[0].charAt(parts2[0].length() - 1) == '-'))
-						edgeName = parts2[0].substring(0, parts2[0].length() - 1).trim();
-					else
-						edgeName = parts2[0].trim();
+					for(; emptyEdges > 0; emptyEdges--)
+						log.le("input corrupted");
+					readEdge(buffer, segmentStart, scan, readNodes, log);
 				}
+				else if(c == EDGE_SEPARATOR || lineHasSeparators)
+					// empty edges are only relevant if followed by non-empty edges
+					emptyEdges++;
 				else
+					// the line is empty
+					log.le("input corrupted");
+				if(c == EDGE_SEPARATOR)
 				{
-					int idx = parts1[1].lastIndexOf(EDGE_LINE);
-					if(idx < 0) // edge is just '-' (the one detected earlier)
-						node2name = parts2[0].trim();
-					else
-					{ // there is another dash somewhere that marks the end of the edge name
-						node2name = parts1[1].substring(idx + 1).trim();
-						edgeName = parts1[1].substring(0, idx).trim();
-					}
-				}
-				if((edgeName != null) && (edgeName.length() == 0))
-					edgeName = null;
-				// log.trace("[" + parts1.toString() + "] [" + parts2.toString() + "]");
-				log.lf("[] [] []", node1name, node2name, edgeName);
-
-				if(getNodesNamed(node1name).isEmpty())
-				{
-					node1 = new SimpleNode(node1name);
-					addNode(node1);
+					lineStarted = true;
+					lineHasSeparators = true;
 				}
 				else
-					node1 = getNodesNamed(node1name).iterator().next();
-
-				if(getNodesNamed(node2name).isEmpty())
 				{
-					node2 = new SimpleNode(node2name);
-					addNode(node2);
+					lineStarted = false;
+					lineHasSeparators = false;
+					emptyEdges = 0;
+					skipLF = (c == '\r');
 				}
-				else
-					node2 = getNodesNamed(node2name).iterator().next();
-
-				addEdge(new SimpleEdge(node1, node2, edgeName));
-				if(bidirectional)
-					addEdge(new SimpleEdge(node2, node1, edgeName));
+				scan++;
+				segmentStart = scan;
+			}
+			// last line, if not terminated
+			if(scan > segmentStart)
+			{
+				for(; emptyEdges > 0; emptyEdges--)
+					log.le("input corrupted");
+				readEdge(buffer, segmentStart, scan, readNodes, log);
+			}
+			else if(lineStarted && !lineHasSeparators)
+				log.le("input corrupted");
+		} catch(IOException e)
+		{
+			log.le("reading failed: []", e);
+		} finally
+		{
+			try
+			{
+				input.close();
+			} catch(IOException e)
+			{
+				log.le("closing input failed: []", e);
 			}
 		}
-		scan.close();
+
+		long time = System.nanoTime() - start;
+		int readEdges = m() - edgesBefore;
+		log.li("read [] edges in [] ms ([] edges/s)", new Integer(readEdges), new Long(time / 1000000), new Long(
+				time > 0 ? (long) (readEdges * 1e9 / time) : 0));
 		return this;
 	}
+
+	/**
+	 * Parses one edge, from a portion of a buffer, and adds it to the graph, together with its nodes, if they do not
+	 * exist.
+	 * <p>
+	 * The parsing follows exactly the rules of the original, <code>split</code>-based parser: the edge begins at the
+	 * first {@link #EDGE_LINE} (or the first {@link #EDGE_TARGET}, if there is no {@link #EDGE_LINE}); after that, at
+	 * most one {@link #EDGE_TARGET} is allowed (not counting the ones at the end of the edge); without any, the edge
+	 * is bi-directional and its label is delimited by the last {@link #EDGE_LINE}.
+	 *
+	 * @param buffer
+	 *            - the buffer.
+	 * @param start
+	 *            - the position of the first character of the edge.
+	 * @param end
+	 *            - the position after the last character of the edge.
+	 * @param readNodes
+	 *            - nodes read so far, by label.
+	 * @param log
+	 *            - the log to use.
+	 */
+	protected void readEdge(char[] buffer, int start, int end, Map<String, Node> readNodes, UnitComponent log)
+	{
+		boolean bidirectional = true;
+		int restStart = indexOf(buffer, start, end, EDGE_LINE); // identify first dash (beginning of edge)
+		if(restStart < 0)
+		{
+			restStart = indexOf(buffer, start, end, EDGE_TARGET);
+			if(restStart < 0)
+			{
+				log.le("input corrupted");
+				return;
+			}
+			bidirectional = false;
+		}
+		int sourceEnd = restStart;
+		restStart++;
+		// split destination node from edge; trailing target marks are ignored
+		int restEnd = end;
+		while((restEnd > restStart) && (buffer[restEnd - 1] == EDGE_TARGET))
+			restEnd--;
+		if((restEnd == restStart) && (end > restStart))
+		{ // only target marks
+			log.le("input corrupted");
+			return;
+		}
+		int target = indexOf(buffer, restStart, restEnd, EDGE_TARGET);
+		if((target >= 0) && (indexOf(buffer, target + 1, restEnd, EDGE_TARGET) >= 0))
+		{ // more than one target mark
+			log.le("input corrupted");
+			return;
+		}
+
+		String node1name = trimmed(buffer, start, sourceEnd);
+		String node2name = null;
+		String edgeName = null;
+		if(target >= 0)
+		{ // unidirectional edge
+			bidirectional = false;
+			node2name = trimmed(buffer, target + 1, restEnd);
+			if((target > restStart) && (buffer[target - 1] == EDGE_LINE))
+				edgeName = trimmed(buffer, restStart, target - 1);
+			else
+				edgeName = trimmed(buffer, restStart, target);
+		}
+		else
+		{
+			int idx = lastIndexOf(buffer, restStart, end, EDGE_LINE);
+			if(idx < 0) // edge is just '-' (the one detected earlier)
+				node2name = trimmed(buffer, restStart, restEnd);
+			else
+			{ // there is another dash somewhere that marks the end of the edge name
+				node2name = trimmed(buffer, idx + 1, end);
+				edgeName = trimmed(buffer, restStart, idx);
+			}
+		}
+		if((edgeName != null) && (edgeName.length() == 0))
+			edgeName = null;
+		log.lf("[] [] []", node1name, node2name, edgeName);
+
+		Node node1 = readNode(node1name, readNodes);
+		Node node2 = readNode(node2name, readNodes);
+		addEdge(new SimpleEdge(node1, node2, edgeName));
+		if(bidirectional)
+			addEdge(new SimpleEdge(node2, node1, edgeName));
+	}
+
+	/**
+	 * Retrieves the node with the given label, creating and adding it to the graph if there is none.
+	 *
+	 * @param name
+	 *            - the label.
+	 * @param readNodes
+	 *            - nodes read so far, by label.
+	 * @return the node.
+	 */
+	protected Node readNode(String name, Map<String, Node> readNodes)
+	{
+		Node node = readNodes.get(name);
+		if(node == null)
+		{
+			Collection<Node> existing = getNodesNamed(name);
+			if(existing.isEmpty())
+			{
+				node = new SimpleNode(name);
+				addNode(node);
+			}
+			else
+				node = existing.iterator().next();
+			readNodes.put(name, node);
+		}
+		return node;
+	}
+
+	/**
+	 * @param buffer
+	 *            - a buffer.
+	 * @param start
+	 *            - the start of the searched area.
+	 * @param end
+	 *            - the end of the searched area.
+	 * @param c
+	 *            - the character to search for.
+	 * @return the position of the first occurrence of the character, or -1 if none.
+	 */
+	protected static int indexOf(char[] buffer, int start, int end, char c)
+	{
+		for(int i = start; i < end; i++)
+			if(buffer[i] == c)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * @param buffer
+	 *            - a buffer.
+	 * @param start
+	 *            - the start of the searched area.
+	 * @param end
+	 *            - the end of the searched area.
+	 * @param c
+	 *            - the character to search for.
+	 * @return the position of the last occurrence of the character, or -1 if none.
+	 */
+	protected static int lastIndexOf(char[] buffer, int start, int end, char c)
+	{
+		for(int i = end - 1; i >= start; i--)
+			if(buffer[i] == c)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Creates a string from a portion of a buffer, leaving out leading and trailing whitespace, in the same manner as
+	 * {@link String#trim()}.
+	 *
+	 * @param buffer
+	 *            - the buffer.
+	 * @param start
+	 *            - the start of the portion.
+	 * @param end
+	 *            - the end of the portion.
+	 * @return the string.
+	 */
+	protected static String trimmed(char[] buffer, int start, int end)
+	{
+		int s = start;
+		int e = end;
+		while((s < e) && (buffer[s] <= ' '))
+			s++;
+		while((e > s) && (buffer[e - 1] <= ' '))
+			e--;
+		return new String(buffer, s, e - s);
+	}
 }
@@ -12,6 +12,7 @@
 package net.xqhs.graphs.graph;
 
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
 import net.xqhs.graphs.representation.AbstractVisualizableGraphComponent;
 
 /**
@@ -28,10 +29,21 @@ public class SimpleNode extends AbstractVisualizableGraphComponent implements No
 	 */
 	private static final long serialVersionUID = 9073121395731771182L;
 
+	/**
+	 * Counts the label changes performed on any {@link SimpleNode} instance after the node was created. It is used by
+	 * {@link SimpleGraph} as a relabel hook, in order to know when its label index may have become stale.
+	 */
+	static final AtomicLong	relabelCount	= new AtomicLong(0);
+
 	/**
 	 * The label of the node
 	 */
-	protected String	label	= null;
+	protected String		label			= null;
+	/**
+	 * The symbol of the label in {@link LabelSymbols}, or {@link LabelSymbols#NO_SYMBOL} if it has not been retrieved
+	 * since the last change of the label.
+	 */
+	protected transient int	labelSymbol		= LabelSymbols.NO_SYMBOL;
 	
 	/**
 	 * Constructs a new node with the specified label and empty edge adjacency lists - representing an unconnected node.
@@ -59,10 +71,38 @@ public class SimpleNode extends AbstractVisualizableGraphComponent implements No
 	@Override
 	public Node setLabel(String label)
 	{
+		if(this.label == null ? label != null : !this.label.equals(label))
+			relabelCount.incrementAndGet();
 		this.label = label;
+		labelSymbol = LabelSymbols.NO_SYMBOL;
 		return this;
 	}
 
+	/**
+	 * Retrieves the symbol of the label of the node (see {@link LabelSymbols}). The symbol is cached until the label
+	 * changes, so that labels can be compared as integers.
+	 *
+	 * @return the symbol of the label.
+	 *
+	 * @since 1.6
+	 */
+	public int getLabelSymbol()
+	{
+		int symbol = labelSymbol;
+		if(symbol == LabelSymbols.NO_SYMBOL)
+			labelSymbol = symbol = LabelSymbols.getSymbol(label);
+		return symbol;
+	}
+
+	/**
+	 * @return the number of label changes performed so far on {@link SimpleNode} instances (see
+	 *         {@link #relabelCount}).
+	 */
+	public static long getRelabelCount()
+	{
+		return relabelCount.get();
+	}
+
 	// @Override
 	// public boolean equals(Object obj)
 	// {
@@ -25,7 +25,8 @@ public class HyperNode extends SimpleNode
 	 */
 	Graph						nodeContents;
 	/**
-	 * The representation for the content of the node, which is returned on the call of {@link #toString()}.
+	 * The representation for the content of the node, which is returned on the call of {@link #toString()}. It is
+	 * incremental, so it is only re-built if the contents (if they are a tracking graph) have changed.
 	 */
 	TextGraphRepresentation		representation;
 
@@ -44,6 +45,7 @@ public class HyperNode extends SimpleNode
 			throw new IllegalArgumentException("null content graph not allowed");
 		nodeContents = graph;
 		representation = new TextGraphRepresentation(nodeContents).setLayout("", "", 0);
+		representation.setIncremental(true);
 	}
 
 	/**
@@ -56,14 +58,14 @@ public class HyperNode extends SimpleNode
 	@Override
 	public HyperNode setLabel(String nodeLabel)
 	{
-		label = nodeLabel;
+		super.setLabel(nodeLabel);
 		return this;
 	}
 
 	@Override
 	public String toString()
 	{
-		// FIXME: should the output be cashed?
+		// the output is cached by the representation, if the contents notify their changes
 		return representation.update().toString();
 	}
 }
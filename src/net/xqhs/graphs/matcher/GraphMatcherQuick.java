@@ -13,21 +13,30 @@ package net.xqhs.graphs.matcher;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.PriorityQueue;
 import java.util.SortedSet;
 import java.util.TreeSet;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import net.xqhs.graphs.graph.Edge;
 import net.xqhs.graphs.graph.Graph;
+import net.xqhs.graphs.graph.LabelSymbols;
 import net.xqhs.graphs.graph.Node;
+import net.xqhs.graphs.graph.SimpleEdge;
+import net.xqhs.graphs.graph.SimpleGraph;
+import net.xqhs.graphs.graph.SimpleNode;
+import net.xqhs.graphs.matcher.Match.Candidacy;
 import net.xqhs.graphs.matcher.Match.MatchComparator;
-import net.xqhs.graphs.pattern.EdgeP;
 import net.xqhs.graphs.pattern.GraphPattern;
 import net.xqhs.graphs.pattern.NodeP;
 import net.xqhs.graphs.representation.VisualizableGraphComponent;
@@ -60,7 +69,8 @@ public class GraphMatcherQuick implements GraphMatchingProcess
 	public static class EdgeComparator implements Comparator<Edge>
 	{
 		/**
-		 * Link to the object measuring performance of the algorithm in terms of number of compared edges.
+		 * Link to the object measuring performance of the algorithm in terms of number of compared edges. May be
+		 * <code>null</code>.
 		 */
 		private MonitorPack	monitorLink	= null;
 		
@@ -68,7 +78,8 @@ public class GraphMatcherQuick implements GraphMatchingProcess
 		 * Creates an new edge comparator.
 		 * 
 		 * @param monitor
-		 *            - the object measuring performance in terms of edge matches.
+		 *            - the object measuring performance in terms of edge matches; <code>null</code> if performance
+		 *            should not be measured.
 		 */
 		public EdgeComparator(MonitorPack monitor)
 		{
@@ -82,7 +93,8 @@ public class GraphMatcherQuick implements GraphMatchingProcess
 				return -1;
 			if(e2.getLabel() == null)
 				return 1;
-			monitorLink.incrementEdgeLabelComparison();
+			if(monitorLink != null)
+				monitorLink.incrementEdgeLabelComparison();
 			if(!e1.getLabel().equals(e2.getLabel()))
 				return e1.getLabel().compareTo(e2.getLabel());
 			return e1.hashCode() - e2.hashCode();
@@ -130,10 +142,10 @@ public class GraphMatcherQuick implements GraphMatchingProcess
 		public int compare(Match m1, Match m2)
 		{
 			// single-edge matches (in case distances is defined)
-			if((m1.solvedPart.m() == 1) && (m2.solvedPart.m() == 1) && (distances != null))
+			if((m1.getSize() == 1) && (m2.getSize() == 1) && (distances != null))
 			{
-				Edge e1 = m1.solvedPart.getEdges().iterator().next();
-				Edge e2 = m2.solvedPart.getEdges().iterator().next();
+				Edge e1 = m1.patternIndex.edges[m1.solvedEdges.nextSetBit(0)];
+				Edge e2 = m2.patternIndex.edges[m2.solvedEdges.nextSetBit(0)];
 				int result = Math.min(distances.get(e1.getFrom()).intValue(), distances.get(e1.getTo()).intValue())
 						- Math.min(distances.get(e2.getFrom()).intValue(), distances.get(e2.getTo()).intValue());
 				// dbg(D_G.D_MATCHING_INITIAL, "compare [] [] : [] (for [] vs [])", result, e1, e2, m1.id, m2.id);
@@ -146,6 +158,286 @@ public class GraphMatcherQuick implements GraphMatchingProcess
 		}
 	}
 	
+	/**
+	 * Counts of the comparisons performed when testing the match between edges (see
+	 * {@link GraphMatcherQuick#isMatch(Edge, Edge, ComparisonCounts)}). The counts are accumulated locally, e.g. for all
+	 * the graph edges tried against a pattern edge, and are afterwards added to the {@link MonitorPack}.
+	 */
+	protected static class ComparisonCounts
+	{
+		/**
+		 * Number of edge reference operations.
+		 */
+		protected int	edgeReferences	= 0;
+		/**
+		 * Number of node label comparisons.
+		 */
+		protected int	nodeLabels		= 0;
+		/**
+		 * Number of edge label comparisons.
+		 */
+		protected int	edgeLabels		= 0;
+		
+		/**
+		 * Creates counts of zero. The constructor is public so that the counts can also be created by extending
+		 * classes in other packages.
+		 */
+		public ComparisonCounts()
+		{
+			// nothing to do
+		}
+		
+		/**
+		 * Adds the counts to the performance indicators of a monitor, and resets the counts.
+		 * 
+		 * @param monitor
+		 *            - the monitor.
+		 */
+		public void addTo(MonitorPack monitor)
+		{
+			if(edgeReferences > 0)
+				monitor.incrementEdgeReferenceOperation(edgeReferences);
+			if(nodeLabels > 0)
+				monitor.incrementNodeLabelComparison(nodeLabels);
+			if(edgeLabels > 0)
+				monitor.incrementEdgeLabelComparison(edgeLabels);
+			edgeReferences = nodeLabels = edgeLabels = 0;
+		}
+	}
+	
+	/**
+	 * Index of the initial (single-edge) matches, used while they are created, so that the candidates of a new initial
+	 * match can be found without checking all existing matches. Initial matches are indexed by their pattern edge, by
+	 * their graph edge, and by the graph node corresponding to each of their pattern nodes.
+	 */
+	protected static class InitialMatchIndex
+	{
+		/**
+		 * The index of the pattern.
+		 */
+		protected PatternIndex					patternIndex;
+		/**
+		 * The registry numbering the matches.
+		 */
+		protected MatchRegistry					registry;
+		/**
+		 * For each pattern edge (by index), the initial matches of that edge.
+		 */
+		protected MatchSet[]					byPatternEdge;
+		/**
+		 * For each pattern node (by index), the initial matches containing the node, by the corresponding graph node.
+		 */
+		protected List<Map<Node, MatchSet>>		byNode;
+		/**
+		 * The initial matches of each graph edge.
+		 */
+		protected Map<Edge, MatchSet>			byGraphEdge	= new HashMap<Edge, MatchSet>();
+		/**
+		 * For each pattern edge (by index), the indexes of the pattern edges that have no common node with it.
+		 */
+		protected int[][]						nonAdjacent;
+		
+		/**
+		 * Creates an empty index.
+		 * 
+		 * @param index
+		 *            - the index of the pattern.
+		 * @param matchRegistry
+		 *            - the registry numbering the matches.
+		 */
+		protected InitialMatchIndex(PatternIndex index, MatchRegistry matchRegistry)
+		{
+			patternIndex = index;
+			registry = matchRegistry;
+			byPatternEdge = new MatchSet[index.m()];
+			for(int i = 0; i < index.m(); i++)
+				byPatternEdge[i] = new MatchSet(registry);
+			byNode = new ArrayList<Map<Node, MatchSet>>();
+			for(int i = 0; i < index.n(); i++)
+				byNode.add(new HashMap<Node, MatchSet>());
+			nonAdjacent = new int[index.m()][];
+			for(int i = 0; i < index.m(); i++)
+			{
+				int[] others = new int[index.m()];
+				int count = 0;
+				for(int j = 0; j < index.m(); j++)
+					if((index.edgeFrom[j] != index.edgeFrom[i]) && (index.edgeFrom[j] != index.edgeTo[i])
+							&& (index.edgeTo[j] != index.edgeFrom[i]) && (index.edgeTo[j] != index.edgeTo[i]))
+						others[count++] = j;
+				nonAdjacent[i] = Arrays.copyOf(others, count);
+			}
+		}
+		
+		/**
+		 * Adds an initial match to the index.
+		 * 
+		 * @param m
+		 *            - the match.
+		 */
+		protected void add(Match m)
+		{
+			int edge = m.solvedEdges.nextSetBit(0);
+			byPatternEdge[edge].add(m);
+			addTo(byGraphEdge, m.edgeFunction[edge].get(0), m);
+			addTo(byNode.get(patternIndex.edgeFrom[edge]), m.nodeFunction[patternIndex.edgeFrom[edge]], m);
+			addTo(byNode.get(patternIndex.edgeTo[edge]), m.nodeFunction[patternIndex.edgeTo[edge]], m);
+		}
+		
+		/**
+		 * Adds a match to the set associated with a key.
+		 * 
+		 * @param <K>
+		 *            - the type of the keys.
+		 * @param map
+		 *            - the map of sets.
+		 * @param key
+		 *            - the key.
+		 * @param m
+		 *            - the match.
+		 */
+		protected <K> void addTo(Map<K, MatchSet> map, K key, Match m)
+		{
+			if(!map.containsKey(key))
+				map.put(key, new MatchSet(registry));
+			map.get(key).add(m);
+		}
+		
+		/**
+		 * Finds the indexed matches that have a common pattern node with a new initial match, corresponding to the same
+		 * graph node. These are the only possible immediate merge candidates of the new match.
+		 * 
+		 * @param m
+		 *            - the new match.
+		 * @return the matches.
+		 */
+		protected MatchSet getAdjacentMatches(Match m)
+		{
+			int edge = m.solvedEdges.nextSetBit(0);
+			MatchSet result = new MatchSet(registry);
+			for(int node : new int[] { patternIndex.edgeFrom[edge], patternIndex.edgeTo[edge] })
+			{
+				MatchSet matches = byNode.get(node).get(m.nodeFunction[node]);
+				if(matches != null)
+					result.addAll(matches);
+			}
+			// matches of the same pattern edge intersect with the new match
+			result.removeAll(byPatternEdge[edge]);
+			return result;
+		}
+		
+		/**
+		 * Finds the indexed matches that have no common pattern node and no common graph edge with a new initial match.
+		 * These are outer merge candidates of the new match.
+		 * 
+		 * @param m
+		 *            - the new match.
+		 * @return the matches.
+		 */
+		protected MatchSet getOuterMatches(Match m)
+		{
+			int edge = m.solvedEdges.nextSetBit(0);
+			MatchSet result = new MatchSet(registry);
+			for(int other : nonAdjacent[edge])
+				result.addAll(byPatternEdge[other]);
+			MatchSet sameEdge = byGraphEdge.get(m.edgeFunction[edge].get(0));
+			if(sameEdge != null)
+				result.removeAll(sameEdge);
+			return result;
+		}
+	}
+	
+	/**
+	 * Iterator over the matches with a <i>k</i> lower than or equal to a threshold, which grows matches only when a new
+	 * match is requested. See {@link GraphMatcherQuick#getMatchIterator(int)}.
+	 * 
+	 * @author Andrei Olaru
+	 * 
+	 * @since 1.6
+	 */
+	protected class LazyMatchIterator implements Iterator<Match>
+	{
+		/**
+		 * The threshold for matches.
+		 */
+		protected int				threshold;
+		/**
+		 * The iterator over the matches existing when the iteration started; it is <code>null</code> after all existing
+		 * matches have been checked.
+		 */
+		protected Iterator<Match>	existing;
+		/**
+		 * The next match to return, if already found.
+		 */
+		protected Match				next	= null;
+		/**
+		 * The last returned match, if it has not been discarded.
+		 */
+		protected Match				last	= null;
+		
+		/**
+		 * Creates the iterator. The matching process must be initialized.
+		 * 
+		 * @param k
+		 *            - the threshold for matches.
+		 */
+		protected LazyMatchIterator(int k)
+		{
+			threshold = k;
+			existing = allMatches.iterator();
+		}
+		
+		@Override
+		public boolean hasNext()
+		{
+			if(next != null)
+				return true;
+			if(existing != null)
+			{
+				while(existing.hasNext())
+				{
+					Match m = existing.next();
+					if(!m.isValid())
+						existing.remove();
+					else if(m.k <= threshold)
+					{
+						next = m;
+						return true;
+					}
+				}
+				// no matches are generated before all existing matches are checked, as the list would change
+				existing = null;
+			}
+			List<Match> grown = growMatches(threshold, true);
+			if(grown.isEmpty())
+				return false;
+			next = grown.get(0);
+			return true;
+		}
+		
+		@Override
+		public Match next()
+		{
+			if(!hasNext())
+				throw new NoSuchElementException();
+			last = next;
+			next = null;
+			return last;
+		}
+		
+		/**
+		 * Discards the last returned match: the match is invalidated, so it will not be grown any further, and it will
+		 * be removed from the list of matches when found invalid.
+		 */
+		@Override
+		public void remove()
+		{
+			if(last == null)
+				throw new IllegalStateException();
+			invalidateMatch(last);
+			last = null;
+		}
+	}
+	
 	/**
 	 * The graph to match the pattern to (G).
 	 */
@@ -154,6 +446,24 @@ public class GraphMatcherQuick implements GraphMatchingProcess
 	 * The pattern to match to the graph (GP).
 	 */
 	protected GraphPattern			pattern;
+	/**
+	 * The numbering of the nodes and edges of the pattern, shared by all matches. It is created when the matching is
+	 * initialized.
+	 */
+	protected PatternIndex			patternIndex	= null;
+	/**
+	 * The plan of the pattern, shared with other matchers of the same pattern. Created by
+	 * {@link #initializeMatching()}.
+	 */
+	protected PatternPlan			patternPlan		= null;
+	/**
+	 * The registry numbering the matches. It is created when the matching is initialized.
+	 */
+	protected MatchRegistry			matchRegistry	= null;
+	/**
+	 * The index of initial matches, only used while they are created by {@link #addInitialMatches()}.
+	 */
+	protected InitialMatchIndex		initialIndex	= null;
 	
 	/**
 	 * The {@link MonitorPack} instance to use for performance information and visualization.
@@ -187,6 +497,34 @@ public class GraphMatcherQuick implements GraphMatchingProcess
 	 */
 	protected int					kThreshold		= 0;
 	
+	/**
+	 * The executor used for the parallel parts of the matching process. If <code>null</code>, all matching is done in
+	 * the calling thread. See {@link #setExecutor(ExecutorService, int)}.
+	 */
+	protected ExecutorService		executor		= null;
+	/**
+	 * The maximum number of tasks in which a parallel computation is split.
+	 */
+	protected int					parallelism		= 1;
+	/**
+	 * If <code>true</code>, merged matches equivalent to existing matches are rejected. See
+	 * {@link #setDeduplication(boolean)}.
+	 */
+	protected boolean				deduplicate		= false;
+	/**
+	 * The merged matches, by signature (see {@link Match#getSignature()}), if deduplication is active.
+	 */
+	protected Map<Long, Match>		matchSignatures	= null;
+	/**
+	 * If <code>true</code>, the start vertex and the order of pattern edges are chosen according to the number of graph
+	 * edges compatible with each pattern edge. See {@link #setSelectivityOrdering(boolean)}.
+	 */
+	protected boolean				bySelectivity	= false;
+	/**
+	 * The pattern edges that are used for initial matches, in the order in which initial matches are created.
+	 */
+	protected List<Edge>			initialEdges	= null;
+	
 	/**
 	 * Initializes a matcher. Does not do any matching.
 	 * 
@@ -218,6 +556,80 @@ public class GraphMatcherQuick implements GraphMatchingProcess
 		return this;
 	}
 	
+	/**
+	 * Sets the executor to use for matching in parallel (e.g. a <code>ForkJoinPool</code>, or any other
+	 * {@link ExecutorService}). The following computations are run in parallel:
+	 * <ul>
+	 * <li>the search for graph edges matching each edge of the pattern, when creating initial matches;
+	 * <li>the merges of a match with all of its merge candidates, when growing matches (except when matches are grown
+	 * until the first satisfactory match is found, as by {@link #getNextMatch()}).
+	 * </ul>
+	 * The results of the parallel computations are applied in the same order as in sequential matching, so the
+	 * matches that are found are the same.
+	 * <p>
+	 * The executor is not shut down by the matcher.
+	 * 
+	 * @param executorService
+	 *            - the executor; <code>null</code> for sequential matching (the default).
+	 * @param maxTasks
+	 *            - the maximum number of tasks in which a computation is split; usually, the number of threads of the
+	 *            executor.
+	 * @return the matcher itself.
+	 * 
+	 * @since 1.6
+	 */
+	public GraphMatcherQuick setExecutor(ExecutorService executorService, int maxTasks)
+	{
+		executor = executorService;
+		parallelism = Math.max(1, maxTasks);
+		return this;
+	}
+	
+	/**
+	 * Activates the rejection of merged matches that are equivalent to already existing matches (see
+	 * {@link Match#isEquivalent(Match)}). Merged matches are looked up by their signature (see
+	 * {@link Match#getSignature()}). If an equivalent match exists, the merge candidates of the new match are added to
+	 * the candidates of the existing match, and the new match is discarded before being added to the queue.
+	 * <p>
+	 * The merge candidates of the two merged matches are updated so that the same match is normally not created twice,
+	 * so deduplication is inactive by default. It should be activated before the initialization of the matching
+	 * process.
+	 * 
+	 * @param active
+	 *            - <code>true</code> to reject equivalent merged matches.
+	 * @return the matcher itself.
+	 * 
+	 * @since 1.6
+	 */
+	public GraphMatcherQuick setDeduplication(boolean active)
+	{
+		deduplicate = active;
+		return this;
+	}
+	
+	/**
+	 * Activates the ordering of the matching process according to the selectivity of pattern edges in the graph. The
+	 * number of graph edges compatible with each pattern edge is estimated from the label statistics of the graph (see
+	 * {@link #estimateCandidateCount(Edge)}); initial matches are created for the most selective pattern edges first,
+	 * and the start vertex is the endpoint of the most selective pattern edge having the fewest graph nodes with the
+	 * same label (see {@link #selectStartVertex()}). The matches that are found do not depend on this ordering.
+	 * <p>
+	 * For graphs that are not {@link SimpleGraph} instances there are no label statistics and the ordering is that of
+	 * the plan of the pattern (see {@link PatternPlan}), as when the option is inactive (the default). It should be
+	 * activated before the initialization of the matching process.
+	 * 
+	 * @param active
+	 *            - <code>true</code> to order the matching process according to the selectivity of pattern edges.
+	 * @return the matcher itself.
+	 * 
+	 * @since 1.6
+	 */
+	public GraphMatcherQuick setSelectivityOrdering(boolean active)
+	{
+		bySelectivity = active;
+		return this;
+	}
+	
 	/**
 	 * Initializes the matching progress, by creating the match comparator and adding the initial matches to the match
 	 * queue.
@@ -227,6 +639,12 @@ public class GraphMatcherQuick implements GraphMatchingProcess
 	public GraphMatcherQuick initializeMatching()
 	{
 		allMatches = new ArrayList<Match>();
+		patternPlan = PatternPlan.getPlan(pattern);
+		patternIndex = patternPlan.getIndex();
+		matchRegistry = new MatchRegistry();
+		matchSignatures = deduplicate ? new HashMap<Long, Match>() : null;
+		initialEdges = (bySelectivity && (graph instanceof SimpleGraph)) ? orderBySelectivity(patternPlan
+				.getInitialEdges()) : patternPlan.getInitialEdges();
 		matchQueue = initializeMatchQueue();
 		addInitialMatches();
 		initialState = true;
@@ -257,6 +675,8 @@ public class GraphMatcherQuick implements GraphMatchingProcess
 		allMatches.clear();
 		matchQueue = null;
 		allMatches = null;
+		matchRegistry = null;
+		matchSignatures = null;
 		return this;
 	}
 	
@@ -344,6 +764,22 @@ public class GraphMatcherQuick implements GraphMatchingProcess
 		return result;
 	}
 	
+	/**
+	 * The iterator first returns satisfactory matches from the list of existing matches, and then grows matches, as in
+	 * {@link #getNextMatch()}, each time a new match is requested. Discarded matches are invalidated, and their merge
+	 * candidates are released.
+	 * <p>
+	 * If the matching process has not been already initialized, the initial matches are created when the iterator is
+	 * created.
+	 */
+	@Override
+	public Iterator<Match> getMatchIterator(int k)
+	{
+		if((matchQueue == null) || (allMatches == null))
+			initializeMatching();
+		return new LazyMatchIterator(k);
+	}
+	
 	@Override
 	public List<Match> getAllCompleteMatches()
 	{
@@ -400,52 +836,18 @@ public class GraphMatcherQuick implements GraphMatchingProcess
 	 * Decides which is the "start vertex" in the pattern (maximum value of in-degree minus out-degree).
 	 * <p>
 	 * Then, computes the distances of each vertex in the pattern from the start vertex.
+	 * <p>
+	 * Both are taken from the plan of the pattern (see {@link PatternPlan}), which is computed only once for all
+	 * matchers of the pattern, unless selectivity ordering is active (see {@link #setSelectivityOrdering(boolean)}).
 	 * 
 	 * @return the distance map.
 	 */
 	protected Map<Node, Integer> computeVertexDistances()
 	{
-		/**
-		 * Vertices ordered by out-degree (minus in-degree) (first is greatest).
-		 * 
-		 * Other criteria assure that the sorting will always be the same.
-		 */
-		SortedSet<Node> vertexSet = new TreeSet<Node>(new Comparator<Node>() {
-			@Override
-			public int compare(Node n1, Node n2)
-			{
-				monitor.incrementNodeReferenceOperation();
-				int out1 = pattern.getOutEdges(n1).size() - pattern.getInEdges(n1).size();
-				int out2 = pattern.getOutEdges(n2).size() - pattern.getInEdges(n2).size();
-				if(out1 != out2)
-					return -(out1 - out2);
-				if(n1 instanceof NodeP && n2 instanceof NodeP)
-				{
-					monitor.incrementNodeReferenceOperation();
-					NodeP n1P = (NodeP) n1, n2P = (NodeP) n2;
-					if(n1P.isGeneric() && n2P.isGeneric())
-					{
-						if(n1P.genericIndex() == n2P.genericIndex())
-							return n1P.hashCode() - n2P.hashCode();
-						return n1P.genericIndex() - n2P.genericIndex();
-					}
-					if(n1P.isGeneric())
-						return -1;
-					if(n2P.isGeneric())
-						return 1;
-				}
-				monitor.incrementNodeLabelComparison();
-				if(n1.getLabel().equals(n2.getLabel()))
-					return n1.hashCode() - n2.hashCode();
-				return n1.getLabel().compareTo(n2.getLabel());
-			}
-		});
-		vertexSet.addAll(pattern.getNodes());
-		monitor.dbg(D_G.D_MATCHING_INITIAL, "sorted vertex set: []", vertexSet);
 		/**
 		 * The start vertex.
 		 */
-		Node vMP = vertexSet.first();
+		Node vMP = selectStartVertex();
 		monitor.lf("start vertex: ", vMP);
 		if(monitor.getVisual() != null && vMP instanceof VisualizableGraphComponent)
 			monitor.getVisual().feedLine(pattern, (VisualizableGraphComponent) vMP, "start vertex");
@@ -453,166 +855,312 @@ public class GraphMatcherQuick implements GraphMatchingProcess
 		/*
 		 * Distances of vertices relative to the start vertex. Used in sorting single-edge matches in the match queue.
 		 */
-		final Map<Node, Integer> distances = pattern.computeDistancesFromUndirected(vMP);
+		final Map<Node, Integer> distances = (vMP == patternPlan.getStartVertex()) ? patternPlan.getDistances()
+				: pattern.computeDistancesFromUndirected(vMP);
 		monitor.dbg(D_G.D_MATCHING_INITIAL, "vertex distances: []", distances);
 		
 		return distances;
 	}
 	
+	/**
+	 * Chooses the start vertex of the pattern. If selectivity ordering is active (see
+	 * {@link #setSelectivityOrdering(boolean)}), it is the endpoint of the first pattern edge in {@link #initialEdges}
+	 * (the most selective one) which has fewer graph nodes with the same label (generic nodes correspond to all graph
+	 * nodes). Otherwise, it is the start vertex in the plan of the pattern.
+	 * 
+	 * @return the start vertex.
+	 */
+	protected Node selectStartVertex()
+	{
+		if(!bySelectivity || !(graph instanceof SimpleGraph) || initialEdges.isEmpty())
+			return patternPlan.getStartVertex();
+		Edge eP = initialEdges.get(0);
+		return (estimateNodeCount(eP.getTo()) < estimateNodeCount(eP.getFrom())) ? eP.getTo() : eP.getFrom();
+	}
+	
+	/**
+	 * Sorts pattern edges by their estimated number of matching graph edges (see
+	 * {@link #estimateCandidateCount(Edge)}). Pattern edges with the same estimate keep their relative order.
+	 * 
+	 * @param patternEdges
+	 *            - the pattern edges.
+	 * @return a new list of the pattern edges, most selective first.
+	 */
+	protected List<Edge> orderBySelectivity(List<Edge> patternEdges)
+	{
+		final Map<Edge, Integer> estimates = new HashMap<Edge, Integer>();
+		for(Edge eP : patternEdges)
+			estimates.put(eP, new Integer(estimateCandidateCount(eP)));
+		List<Edge> ordered = new ArrayList<Edge>(patternEdges);
+		Collections.sort(ordered, new Comparator<Edge>() {
+			@Override
+			public int compare(Edge e1, Edge e2)
+			{
+				return estimates.get(e1).intValue() - estimates.get(e2).intValue();
+			}
+		});
+		monitor.lf("pattern edges by selectivity: []", estimates);
+		return ordered;
+	}
+	
+	/**
+	 * Estimates the number of graph edges that match a pattern edge, as the number of graph edges with compatible
+	 * labels. For a {@link SimpleGraph}, the number is read from its index of edges by label (see
+	 * {@link #getCandidateEdges(SimpleGraph, Edge)}), which is kept in sync with the graph as it changes (also for
+	 * {@link net.xqhs.graphs.matchingPlatform.TrackingGraph} instances), so the estimate is obtained without going
+	 * through any edges. For other graphs, it is the number of edges in the graph.
+	 * 
+	 * @param eP
+	 *            - the edge in the pattern.
+	 * @return the estimated number of matching graph edges.
+	 */
+	protected int estimateCandidateCount(Edge eP)
+	{
+		if(!(graph instanceof SimpleGraph))
+			return graph.m();
+		SimpleGraph indexedGraph = (SimpleGraph) graph;
+		String fromLabel = isGenericNode(eP.getFrom()) ? null : eP.getFrom().getLabel();
+		String toLabel = isGenericNode(eP.getTo()) ? null : eP.getTo().getLabel();
+		if(eP.getLabel() == null)
+			return indexedGraph.getEdgesLabeled(fromLabel, null, toLabel).size();
+		int count = indexedGraph.getEdgesLabeled(fromLabel, "", toLabel).size();
+		if(eP.getLabel().length() > 0)
+			count += indexedGraph.getEdgesLabeled(fromLabel, eP.getLabel(), toLabel).size();
+		return count;
+	}
+	
+	/**
+	 * Estimates the number of graph nodes that match a pattern node, as the number of graph nodes with the same label,
+	 * or the number of all graph nodes for a generic node.
+	 * 
+	 * @param nodeP
+	 *            - the node in the pattern.
+	 * @return the estimated number of matching graph nodes.
+	 */
+	protected int estimateNodeCount(Node nodeP)
+	{
+		if(isGenericNode(nodeP))
+			return graph.n();
+		return graph.getNodesNamed(nodeP.getLabel()).size();
+	}
+	
+	/**
+	 * @param nodeP
+	 *            - a node in the pattern.
+	 * @return <code>true</code> if the node is a generic pattern node, which matches graph nodes with any label.
+	 */
+	protected static boolean isGenericNode(Node nodeP)
+	{
+		return (nodeP instanceof NodeP) && ((NodeP) nodeP).isGeneric();
+	}
+	
 	/**
 	 * Add initial (i.e. all single-edge) matches to the match queue.
+	 * <p>
+	 * If the graph is a {@link SimpleGraph}, each pattern edge is only tried against the graph edges having compatible
+	 * labels (see {@link #getCandidateEdges(SimpleGraph, Edge)}); otherwise, it is tried against all graph edges. If an
+	 * executor is set, the graph edges matching each pattern edge are searched in parallel; the matches are afterwards
+	 * created in the calling thread, in the order of the pattern edges.
 	 */
 	protected void addInitialMatches()
 	{
 		@SuppressWarnings("unchecked")
-		Comparator<Match> comparator = (Comparator<Match>) matchQueue.comparator();
+		final Comparator<Match> comparator = (Comparator<Match>) matchQueue.comparator();
 		
-		/**
-		 * Ordered pattern edges, according to label.
-		 */
-		SortedSet<Edge> sortedEdges = new TreeSet<Edge>(new EdgeComparator(monitor));
-		sortedEdges.addAll(pattern.getEdges());
+		// pattern edges ordered according to label (or selectivity), with no generic pattern edges in initial matches
+		List<Edge> patternEdges = initialEdges;
 		
 		/**
-		 * Ordered graph edges, according to label.
+		 * Ordered graph edges, according to label. Only needed if the graph does not index its edges by label.
 		 */
-		SortedSet<Edge> sortedGraphEdges = new TreeSet<Edge>(new EdgeComparator(monitor));
-		sortedGraphEdges.addAll(graph.getEdges());
+		SortedSet<Edge> sortedGraphEdges = null;
+		if(!(graph instanceof SimpleGraph))
+		{
+			sortedGraphEdges = new TreeSet<Edge>(new EdgeComparator(monitor));
+			sortedGraphEdges.addAll(graph.getEdges());
+		}
+		
+		List<List<Edge>> matchingEdges;
+		if((executor == null) || (patternEdges.size() < 2))
+		{
+			matchingEdges = new ArrayList<List<Edge>>();
+			for(Edge eP : patternEdges)
+				matchingEdges.add(getMatchingEdges(eP, sortedGraphEdges));
+		}
+		else
+		{
+			if(sortedGraphEdges == null)
+				// the index is built (if necessary) before being read by several threads
+				((SimpleGraph) graph).getEdgesLabeled(null, "", null);
+			final SortedSet<Edge> graphEdges = sortedGraphEdges;
+			List<Callable<List<Edge>>> tasks = new ArrayList<Callable<List<Edge>>>();
+			for(final Edge eP : patternEdges)
+				tasks.add(new Callable<List<Edge>>() {
+					@Override
+					public List<Edge> call()
+					{
+						return getMatchingEdges(eP, graphEdges);
+					}
+				});
+			matchingEdges = runTasks(tasks);
+		}
 		
 		// for each edge in the pattern, create an id and build a match.
-		int edgeId = 0;
-		for(Edge eP : sortedEdges)
+		initialIndex = new InitialMatchIndex(patternIndex, matchRegistry);
+		for(int edgeId = 0; edgeId < patternEdges.size(); edgeId++)
 		{
-			// no generic pattern edges in initial matches
-			if(!((eP instanceof EdgeP) && ((EdgeP) eP).isGeneric()))
+			Edge eP = patternEdges.get(edgeId);
+			int matchId = 0;
+			monitor.lf("edge [] has id []", eP, new Integer(edgeId));
+			for(Edge e : matchingEdges.get(edgeId))
 			{
-				int matchId = 0;
-				monitor.lf("edge [] has id []", eP, new Integer(edgeId));
-				for(Edge e : sortedGraphEdges)
+				Match m = addInitialMatch(e, eP, edgeId + ":" + matchId);
+				monitor.incrementMatchCount();
+				monitor.lf("new initial match: [] [] : []", m.id, eP, e);
+				
+				if(D_G.D_MATCHING_INITIAL.toBool())
 				{
-					monitor.dbg(D_G.D_MATCHING_INITIAL, "trying edges: [] : []", eP, e);
-					if(isMatch(eP, e))
-					{
-						Match m = addInitialMatch(e, eP, edgeId + ":" + matchId);
-						monitor.incrementMatchCount();
-						monitor.lf("new initial match: [] [] : []", m.id, m.solvedPart.getEdges().iterator().next(),
-								m.matchedGraph.getEdges().iterator().next());
-						
-						if(D_G.D_MATCHING_INITIAL.toBool())
-						{
-							monitor.dbg(D_G.D_MATCHING_INITIAL, "=======");
-							String dbg_match = "=============== match queue ===============================> ";
-							Match[] dbg_sorted = matchQueue.toArray(new Match[1]);
-							if(comparator != null)
-								Arrays.sort(dbg_sorted, comparator);
-							for(Match mdbg : dbg_sorted)
-								if(mdbg.isValid())
-									dbg_match += mdbg.id + ", ";
-							monitor.dbg(D_G.D_MATCHING_INITIAL, dbg_match);
-						}
-						
-						matchId++;
-					}
+					monitor.dbg(D_G.D_MATCHING_INITIAL, "=======");
+					String dbg_match = "=============== match queue ===============================> ";
+					Match[] dbg_sorted = matchQueue.toArray(new Match[1]);
+					if(comparator != null)
+						Arrays.sort(dbg_sorted, comparator);
+					for(Match mdbg : dbg_sorted)
+						if(mdbg.isValid())
+							dbg_match += mdbg.id + ", ";
+					monitor.dbg(D_G.D_MATCHING_INITIAL, dbg_match);
 				}
-				edgeId++;
+				
+				matchId++;
 			}
 		}
+		initialIndex = null;
 		
-		String string = "[\n ";
-		if(!matchQueue.isEmpty())
+		final Match[] sorted = matchQueue.toArray(new Match[matchQueue.size()]);
+		if((monitor.getVisual() != null) && (sorted.length > 0))
 		{
-			Match[] sorted = matchQueue.toArray(new Match[1]);
 			if(comparator != null)
 				Arrays.sort(sorted, comparator);
-			if(monitor.getVisual() != null)
-				monitor.getVisual().feedLine("initial matches: " + matchQueue.size());
+			monitor.getVisual().feedLine("initial matches: " + matchQueue.size());
 			for(Match m : sorted)
 				if(m.isValid())
-				{
-					string += m.toString() + ", \n";
-					if(monitor.getVisual() != null)
-						monitor.getVisual().feedLine(m, "initial match");
-				}
+					monitor.getVisual().feedLine(m, "initial match");
+		}
+		// the list of initial matches is only produced if it is actually logged
+		monitor.lf("initial matches []: []-------------------------", new Integer(matchQueue.size()), new Object() {
+			@Override
+			public String toString()
+			{
+				if(comparator != null)
+					Arrays.sort(sorted, comparator);
+				StringBuilder string = new StringBuilder("[\n ");
+				for(Match m : sorted)
+					if(m.isValid())
+						string.append(m.toString()).append(", \n");
+				return string.append("]").toString();
+			}
+		});
+	}
+	
+	/**
+	 * Finds the graph edges that match a pattern edge (see {@link #isMatch(Edge, Edge)}). This method may be called
+	 * from several threads at once, so it does not modify the state of the matcher.
+	 * 
+	 * @param eP
+	 *            - the edge in the pattern.
+	 * @param sortedGraphEdges
+	 *            - all graph edges, ordered by an {@link EdgeComparator}; if <code>null</code>, the graph must be a
+	 *            {@link SimpleGraph} and the candidate edges are retrieved from its index (see
+	 *            {@link #getCandidateEdges(SimpleGraph, Edge)}).
+	 * @return the matching graph edges, in the order of the {@link EdgeComparator}.
+	 */
+	protected List<Edge> getMatchingEdges(Edge eP, SortedSet<Edge> sortedGraphEdges)
+	{
+		List<Edge> result = new ArrayList<Edge>();
+		ComparisonCounts counts = new ComparisonCounts();
+		for(Edge e : (sortedGraphEdges != null) ? sortedGraphEdges : getCandidateEdges((SimpleGraph) graph, eP))
+		{
+			monitor.dbg(D_G.D_MATCHING_INITIAL, "trying edges: [] : []", eP, e);
+			if(isMatch(eP, e, counts))
+				result.add(e);
+		}
+		counts.addTo(monitor);
+		return result;
+	}
+	
+	/**
+	 * Retrieves the edges of a graph which are compatible with a pattern edge, as far as labels are concerned (see
+	 * {@link #isMatch(Edge, Edge)}), by means of the index of edges by label of the graph (see
+	 * {@link SimpleGraph#getEdgesLabeled(String, String, String)}). Generic pattern nodes and unlabeled pattern edges
+	 * correspond to wildcards; unlabeled graph edges are compatible with any pattern edge.
+	 * 
+	 * @param indexedGraph
+	 *            - the graph.
+	 * @param eP
+	 *            - the edge in the pattern.
+	 * @return the compatible edges, ordered by an {@link EdgeComparator}.
+	 */
+	protected SortedSet<Edge> getCandidateEdges(SimpleGraph indexedGraph, Edge eP)
+	{
+		String fromLabel = isGenericNode(eP.getFrom()) ? null : eP.getFrom().getLabel();
+		String toLabel = isGenericNode(eP.getTo()) ? null : eP.getTo().getLabel();
+		
+		SortedSet<Edge> candidates = new TreeSet<Edge>(new EdgeComparator(monitor));
+		if(eP.getLabel() == null)
+			candidates.addAll(indexedGraph.getEdgesLabeled(fromLabel, null, toLabel));
+		else
+		{
+			candidates.addAll(indexedGraph.getEdgesLabeled(fromLabel, "", toLabel));
+			if(eP.getLabel().length() > 0)
+				candidates.addAll(indexedGraph.getEdgesLabeled(fromLabel, eP.getLabel(), toLabel));
 		}
-		string += "]";
-		monitor.lf("initial matches []: []-------------------------", new Integer(matchQueue.size()), string);
+		return candidates;
 	}
 	
 	/**
 	 * Create a single-edge match and add it to the matching queue; also add matches from the queue to its merge
 	 * candidate list (as well as adding the match to other matches' merge candidates)
+	 * <p>
+	 * Only the existing matches that have a common pattern node with the new match, corresponding to the same graph
+	 * node, are checked for being immediate merge candidates; the matches that have no common pattern node with the new
+	 * match are its outer merge candidates, except for those containing the same graph edge. Both are found by means
+	 * of {@link #initialIndex}.
 	 * 
-	 * @param g
-	 *            - the graph.
-	 * @param p
-	 *            - the pattern.
 	 * @param e
 	 *            - the edge in the graph.
 	 * @param eP
 	 *            - the edge in the pattern.
 	 * @param matchID
 	 *            - the id for the new match.
-	 * @param m
-	 *            - the match to add to the queue.
-	 * @param queue
-	 *            - the match queue.
-	 * @param monitor
-	 *            - the monitoring instance.
 	 * @return the newly created and configured match.
 	 */
 	protected Match addInitialMatch(Edge e, Edge eP, String matchID)
 	{
-		Match m = new Match(graph, pattern, e, eP, matchID);
+		Match m = new Match(graph, patternIndex, matchRegistry, e, eP, matchID);
 		
-		// take all matches already in the queue and see if they are compatible
-		for(Match mi : matchQueue)
+		// check matches sharing a pattern node (and the corresponding graph node) with the new match
+		for(Match mi : initialIndex.getAdjacentMatches(m))
 		{
-			if(!mi.isValid())
-				continue;
-			boolean accept = false;
-			boolean reject = false;
-			// reject if: the two matches intersect (contain common pattern edges)
-			monitor.incrementEdgeReferenceOperation(2); // single-edge matches
-			// FIXME optimize the operation?
-			if(new HashSet<Edge>(m.solvedPart.getEdges()).removeAll(mi.solvedPart.getEdges())
-					|| new HashSet<Edge>(m.matchedGraph.getEdges()).removeAll(mi.matchedGraph.getEdges()))
-				reject = true;
-			else
-				// build merge candidates
-				// iterate on the frontier of the potential candidate
-				// TODO: it should iterate on the frontier of the candidate with a shorter frontier
-				for(Map.Entry<Node, AtomicInteger> frontierV : mi.frontier.entrySet())
-				{
-					// accept if: the two matches contain the same node and the node corresponds, in both matches, to
-					// the same node in G
-					// reject if: the two matches contain the same node and the node corresponds, in the two matches, to
-					// different nodes in G
-					if(m.frontier.containsKey(frontierV.getKey()))
-					{
-						if(!accept && m.nodeFunction.get(frontierV.getKey()) == mi.nodeFunction.get(frontierV.getKey()))
-							accept = true;
-						if(m.nodeFunction.get(frontierV.getKey()) != mi.nodeFunction.get(frontierV.getKey()))
-						{
-							reject = true;
-							break;
-						}
-						monitor.incrementNodeReferenceOperation(2);
-					}
-				}
-			if(!reject)
+			Candidacy candidacy = getInitialCandidacy(m, mi);
+			if(candidacy == Candidacy.IMMEDIATE)
+			{ // then each match is a merge candidate for the other
+				m.mergeCandidates.add(mi);
+				mi.mergeCandidates.add(m);
+			}
+			else if(candidacy == Candidacy.OUTER)
 			{
-				if(accept)
-				{ // then each match is a merge candidate for the other
-					m.mergeCandidates.add(mi);
-					mi.mergeCandidates.add(m);
-				}
-				else
-				{
-					m.mergeOuterCandidates.add(mi);
-					mi.mergeOuterCandidates.add(m);
-				}
+				m.mergeOuterCandidates.add(mi);
+				mi.mergeOuterCandidates.add(m);
 			}
 		}
+		// matches with no common pattern node are outer candidates, unless they contain the same graph edge
+		for(Match mi : initialIndex.getOuterMatches(m))
+			if(mi.isValid())
+			{
+				m.mergeOuterCandidates.add(mi);
+				mi.mergeOuterCandidates.add(m);
+			}
+		initialIndex.add(m);
 		// add the match to the queue
 		matchQueue.add(m);
 		allMatches.add(m);
@@ -620,7 +1168,35 @@ public class GraphMatcherQuick implements GraphMatchingProcess
 	}
 	
 	/**
-	 * Test the match between two edges: matching from and to nodes, matching label.
+	 * Checks if a new single-edge match may be merged with an existing match. The matches are not modified.
+	 * 
+	 * @param m
+	 *            - the new match.
+	 * @param mi
+	 *            - the existing match.
+	 * @return {@link Candidacy#IMMEDIATE} if the matches have common nodes, that correspond to the same graph nodes;
+	 *         {@link Candidacy#OUTER} if they have no common nodes; {@link Candidacy#NONE} if they intersect, or if any
+	 *         common node corresponds to different graph nodes, or if the existing match is not valid.
+	 */
+	protected Candidacy getInitialCandidacy(Match m, Match mi)
+	{
+		if(!mi.isValid())
+			return Candidacy.NONE;
+		// reject if: the two matches intersect (contain common pattern edges or common graph edges)
+		monitor.incrementEdgeReferenceOperation(2); // single-edge matches
+		if(m.intersects(mi))
+			return Candidacy.NONE;
+		// accept if: the two matches contain the same frontier node and the node corresponds, in both matches, to the
+		// same node in G
+		// reject if: the two matches contain the same frontier node and the node corresponds, in the two matches, to
+		// different nodes in G
+		return m.getCandidacyInternal(mi, monitor);
+	}
+	
+	/**
+	 * Test the match between two edges: matching from and to nodes, matching label. The comparisons are counted in the
+	 * monitor. The test itself is done by {@link #isMatch(Edge, Edge, ComparisonCounts)}, which is the method to
+	 * override in order to change how edges are matched.
 	 * 
 	 * @param eP
 	 *            - the edge in the pattern (eP in EP).
@@ -630,34 +1206,76 @@ public class GraphMatcherQuick implements GraphMatchingProcess
 	 */
 	protected boolean isMatch(Edge eP, Edge e)
 	{
-		monitor.incrementEdgeReferenceOperation();
-		
-		Node fromP = eP.getFrom();
-		Node toP = eP.getTo();
-		boolean fromGeneric = (fromP instanceof NodeP) && ((NodeP) fromP).isGeneric();
-		boolean toGeneric = (toP instanceof NodeP) && ((NodeP) toP).isGeneric();
+		ComparisonCounts counts = new ComparisonCounts();
+		boolean result = isMatch(eP, e, counts);
+		counts.addTo(monitor);
+		return result;
+	}
+	
+	/**
+	 * Test the match between two edges: matching from and to nodes, matching label. The comparisons are counted in the
+	 * given counts, rather than in the monitor, so that this method can be used for many pairs of edges without
+	 * updating the shared counters of the monitor for each pair.
+	 * <p>
+	 * The labels of {@link SimpleNode} and {@link SimpleEdge} instances are compared by means of their symbols (see
+	 * {@link LabelSymbols}); other labels are compared as strings.
+	 * 
+	 * @param eP
+	 *            - the edge in the pattern (eP in EP).
+	 * @param e
+	 *            - the edge in the graph (eP in E).
+	 * @param counts
+	 *            - the counts of comparisons, to update.
+	 * @return <code>true</code> if the edges match.
+	 */
+	protected boolean isMatch(Edge eP, Edge e, ComparisonCounts counts)
+	{
+		counts.edgeReferences++;
 		
-		monitor.incrementNodeLabelComparison();
+		counts.nodeLabels++;
 		// reject if: the from node of eP is not generic and does not have the same label as the from node of e
-		if(!fromGeneric && !fromP.getLabel().equals(e.getFrom().getLabel()))
+		if(!isGenericNode(eP.getFrom()) && !isSameLabel(eP.getFrom(), e.getFrom()))
 			return false;
 		// reject if: the to node of eP is not generic and does not have the same label as the to node of e
-		monitor.incrementNodeLabelComparison();
-		if(!toGeneric && !toP.getLabel().equals(e.getTo().getLabel()))
+		counts.nodeLabels++;
+		if(!isGenericNode(eP.getTo()) && !isSameLabel(eP.getTo(), e.getTo()))
 			return false;
 		
 		// accept if: eP is not labeled
 		// accept if: e is not labeled (or has a void label)
 		// accept if: eP has the same label as e
+		if((eP instanceof SimpleEdge) && (e instanceof SimpleEdge))
+		{
+			int symbolP = ((SimpleEdge) eP).getLabelSymbol();
+			if(symbolP == LabelSymbols.NULL_LABEL)
+				return true;
+			int symbol = ((SimpleEdge) e).getLabelSymbol();
+			if(symbol <= LabelSymbols.EMPTY_LABEL)
+				return true;
+			counts.edgeLabels++;
+			return symbolP == symbol;
+		}
 		if(eP.getLabel() == null)
 			return true;
 		if((e.getLabel() == null) || (e.getLabel().equals("")))
 			return true;
-		monitor.incrementEdgeLabelComparison();
-		if((e.getLabel() != null) && eP.getLabel().equals(e.getLabel()))
-			return true;
+		counts.edgeLabels++;
 		// reject otherwise (e and eP are labeled and labels don't match)
-		return false;
+		return eP.getLabel().equals(e.getLabel());
+	}
+	
+	/**
+	 * @param nodeP
+	 *            - a node in the pattern.
+	 * @param node
+	 *            - a node in the graph.
+	 * @return <code>true</code> if the nodes have the same label.
+	 */
+	protected static boolean isSameLabel(Node nodeP, Node node)
+	{
+		if((nodeP instanceof SimpleNode) && (node instanceof SimpleNode))
+			return ((SimpleNode) nodeP).getLabelSymbol() == ((SimpleNode) node).getLabelSymbol();
+		return nodeP.getLabel().equals(node.getLabel());
 	}
 	
 	/**
@@ -687,6 +1305,11 @@ public class GraphMatcherQuick implements GraphMatchingProcess
 			Match m = matchQueue.poll(); // matches are sorted according to the criteria above
 			if(!m.isValid())
 				continue;
+			if((executor != null) && !stopAtFirstMatch && (m.mergeCandidates.size() > 1))
+			{
+				result.addAll(mergeWithCandidates(m, threshold));
+				continue;
+			}
 			for(Iterator<Match> itm = m.mergeCandidates.iterator(); itm.hasNext();)
 			{
 				// remove the candidate from the list, and the current match from the candidate's list
@@ -694,30 +1317,249 @@ public class GraphMatcherQuick implements GraphMatchingProcess
 				itm.remove();
 				if(!mc.isValid())
 					continue;
-				mc.mergeCandidates.remove(m);
-				monitor.lf("merging \t []\n \t\t\t and \t\t []", m, mc);
-				Match mr = addMergeMatch(m, mc);
-				if(mr != null) // merge should never fail
+				Match mr = mergeCandidate(m, mc);
+				if((mr != null) && (mr.k <= threshold))
 				{
-					monitor.lf("new match:\t []\n", mr);
-					if(monitor.getVisual() != null)
-						monitor.getVisual().feedLine(m, mc, mr, "new match [k=" + mr.k + "]");
-					monitor.incrementMergeCount();
-					monitor.incrementMatchCount();
-					if(mr.k <= threshold)
+					result.add(mr);
+					if(stopAtFirstMatch)
+					{
+						// the match is not a candidate of other matches, so it must remain in the queue until it has
+						// been merged with all of its candidates
+						if(itm.hasNext())
+							matchQueue.add(m);
+						return result;
+					}
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Merges a match with one of its merge candidates, which has already been removed from the candidates of the
+	 * match, and adds the result to the queue.
+	 * 
+	 * @param m
+	 *            - the match.
+	 * @param mc
+	 *            - the candidate.
+	 * @return the merged match, or <code>null</code> if it was rejected as equivalent to an existing match.
+	 */
+	protected Match mergeCandidate(Match m, Match mc)
+	{
+		mc.mergeCandidates.remove(m);
+		monitor.lf("merging \t []\n \t\t\t and \t\t []", m, mc);
+		Match mr = addMergeMatch(m, mc);
+		if(mr != null) // merge should never fail, but the result may be rejected
+		{
+			monitor.lf("new match:\t []\n", mr);
+			if(monitor.getVisual() != null)
+				monitor.getVisual().feedLine(m, mc, mr, "new match [k=" + mr.k + "]");
+			monitor.incrementMergeCount();
+			monitor.incrementMatchCount();
+		}
+		else
+		{
+			monitor.lf("merge rejected, as an equivalent match exists\n");
+			if(monitor.getVisual() != null)
+				monitor.getVisual().feedLine("merge rejected");
+		}
+		return mr;
+	}
+	
+	/**
+	 * Searches for the <code>n</code> matches of lowest <i>k</i>, but with <i>k</i> not greater than
+	 * <code>maxK</code>, growing matches best-first: matches are taken from the queue in the order given by the match
+	 * comparator (lower <i>k</i> first) and merged with their candidates, as in {@link #growMatches(int, boolean)}.
+	 * <p>
+	 * The search stops as soon as no match in the queue could lead to a match with a lower <i>k</i> than the
+	 * <code>n</code> best matches found so far, or than <code>maxK</code> (see {@link Match#getMergedKLowerBound()}),
+	 * and then the result is exact; or when the time budget is exceeded, and then the result contains the best matches
+	 * found so far. The queue is not reordered, so later calls of the other methods continue the matching process
+	 * normally.
+	 */
+	@Override
+	public List<Match> getTopMatches(int n, int maxK, long timeBudget)
+	{
+		if((matchQueue == null) || (allMatches == null))
+			initializeMatching();
+		long deadline = System.nanoTime() + timeBudget * 1000000;
+		Comparator<Match> byK = new Comparator<Match>() {
+			@Override
+			public int compare(Match m1, Match m2)
+			{
+				return m1.k - m2.k;
+			}
+		};
+		// the best matches found, the worst first
+		PriorityQueue<Match> best = new PriorityQueue<Match>(Math.max(1, n), Collections.reverseOrder(byK));
+		for(Iterator<Match> it = allMatches.iterator(); it.hasNext();)
+		{
+			Match m = it.next();
+			if(!m.isValid())
+				it.remove();
+			else
+				addTopMatch(best, m, n, maxK);
+		}
+		
+		// a match in the queue that could still lead to a better match
+		Match promising = null;
+		while(!matchQueue.isEmpty() && (n > 0))
+		{
+			if((timeBudget > 0) && (System.nanoTime() - deadline > 0))
+				break;
+			// the lower bound of a match only grows, as its candidates are merged or invalidated
+			if((promising == null) || !canImprove(promising, best, n, maxK))
+			{
+				promising = null;
+				for(Match mq : matchQueue)
+					if(canImprove(mq, best, n, maxK))
 					{
-						result.add(mr);
-						if(stopAtFirstMatch)
-							return result;
+						promising = mq;
+						break;
 					}
+				if(promising == null)
+					// proven: all further matches result from matches in the queue
+					break;
+			}
+			Match m = matchQueue.poll();
+			if(m == promising)
+				promising = null;
+			if(!m.isValid())
+				continue;
+			for(Iterator<Match> itm = m.mergeCandidates.iterator(); itm.hasNext();)
+			{
+				if((timeBudget > 0) && (System.nanoTime() - deadline > 0))
+				{
+					// the remaining candidates will be merged later
+					matchQueue.add(m);
+					break;
 				}
-				else
+				Match mc = itm.next();
+				itm.remove();
+				if(!mc.isValid())
+					continue;
+				Match mr = mergeCandidate(m, mc);
+				if(mr != null)
+					addTopMatch(best, mr, n, maxK);
+			}
+		}
+		
+		List<Match> result = new ArrayList<Match>(best);
+		Collections.sort(result, byK);
+		return result;
+	}
+	
+	/**
+	 * Checks if a match could lead, by merges, to a match that would be added to the best matches found by
+	 * {@link #getTopMatches(int, int, long)}.
+	 * 
+	 * @param m
+	 *            - the match.
+	 * @param best
+	 *            - the best matches, the worst first.
+	 * @param n
+	 *            - the maximum number of best matches.
+	 * @param maxK
+	 *            - the maximum <i>k</i> of best matches.
+	 * @return <code>true</code> if the match could lead to a better match.
+	 */
+	protected static boolean canImprove(Match m, PriorityQueue<Match> best, int n, int maxK)
+	{
+		if(!m.isValid())
+			return false;
+		int bound = m.getMergedKLowerBound();
+		return (best.size() < n) ? (bound <= maxK) : (bound < best.peek().k);
+	}
+	
+	/**
+	 * Adds a match to the best matches found by {@link #getTopMatches(int, int, long)}, if it is good enough.
+	 * 
+	 * @param best
+	 *            - the best matches, the worst first.
+	 * @param m
+	 *            - the match.
+	 * @param n
+	 *            - the maximum number of best matches.
+	 * @param maxK
+	 *            - the maximum <i>k</i> of best matches.
+	 */
+	protected static void addTopMatch(PriorityQueue<Match> best, Match m, int n, int maxK)
+	{
+		if((m.k > maxK) || (n <= 0))
+			return;
+		if(best.size() < n)
+			best.add(m);
+		else if(m.k < best.peek().k)
+		{
+			best.poll();
+			best.add(m);
+		}
+	}
+	
+	/**
+	 * Merges a match (already removed from the queue) with all of its merge candidates, in parallel. The result is the
+	 * same as that of merging, one by one, the match with each of its candidates, as done by
+	 * {@link #growMatches(int, boolean)}: in particular, each merged match does not have, as merge candidates, the
+	 * candidates that the match has been merged with before it.
+	 * <p>
+	 * The merges only read the merge candidate sets of the matches (invalid candidates are skipped when the candidates
+	 * are listed). The merged matches are added to the queue in the calling thread, in the order of the candidates.
+	 * 
+	 * @param m
+	 *            - the match.
+	 * @param threshold
+	 *            - the threshold for matches: satisfactory matches have a <i>k</i> lower than or equal to this number.
+	 * @return the list of satisfactory merged matches.
+	 */
+	protected List<Match> mergeWithCandidates(final Match m, int threshold)
+	{
+		final List<Match> candidates = new ArrayList<Match>(m.mergeCandidates);
+		for(Match mc : candidates)
+			mc.mergeCandidates.remove(m);
+		
+		final Match[] merged = new Match[candidates.size()];
+		int tasks = Math.min(parallelism, candidates.size());
+		List<Callable<Object>> parts = new ArrayList<Callable<Object>>();
+		for(int t = 0; t < tasks; t++)
+		{
+			final int start = candidates.size() * t / tasks;
+			final int end = candidates.size() * (t + 1) / tasks;
+			parts.add(new Callable<Object>() {
+				@Override
+				public Object call()
 				{
-					monitor.le("merge failed\n");
-					if(monitor.getVisual() != null)
-						monitor.getVisual().feedLine("merge failed");
+					// each task writes a distinct part of the result
+					for(int i = start; i < end; i++)
+						merged[i] = m.merge(candidates.get(i), null, null, monitor);
+					return null;
 				}
+			});
+		}
+		runTasks(parts);
+		m.mergeCandidates.clear();
+		
+		List<Match> result = new ArrayList<Match>();
+		MatchSet done = new MatchSet(matchRegistry);
+		for(int i = 0; i < merged.length; i++)
+		{
+			Match mc = candidates.get(i);
+			Match mr = merged[i];
+			done.add(mc);
+			mr.mergeCandidates.removeAll(done);
+			monitor.lf("merging \t []\n \t\t\t and \t\t []", m, mc);
+			if(addMergedMatch(mr) == null)
+			{
+				monitor.lf("merge rejected, as an equivalent match exists\n");
+				continue;
 			}
+			monitor.lf("new match:\t []\n", mr);
+			if(monitor.getVisual() != null)
+				monitor.getVisual().feedLine(m, mc, mr, "new match [k=" + mr.k + "]");
+			monitor.incrementMergeCount();
+			monitor.incrementMatchCount();
+			if(mr.k <= threshold)
+				result.add(mr);
 		}
 		return result;
 	}
@@ -738,8 +1580,40 @@ public class GraphMatcherQuick implements GraphMatchingProcess
 	 */
 	protected Match addMergeMatch(Match m1, Match m2)
 	{
-		Match newM = m1.merge(m2, null, null, monitor);
-		
+		return addMergedMatch(m1.merge(m2, null, null, monitor));
+	}
+	
+	/**
+	 * Adds a match resulting from a merge to the match queue and to the list of all matches.
+	 * <p>
+	 * If deduplication is active and an equivalent match exists, the new match is invalidated instead, and its merge
+	 * candidates are given to the existing match (which is queued again, to be merged with them).
+	 * 
+	 * @param newM
+	 *            - the merged match.
+	 * @return the match, or <code>null</code> if it was rejected.
+	 * 
+	 * @since 1.6
+	 */
+	protected Match addMergedMatch(Match newM)
+	{
+		if(matchSignatures != null)
+		{
+			Long signature = new Long(newM.getSignature());
+			Match existing = matchSignatures.get(signature);
+			if((existing != null) && existing.isValid() && existing.isEquivalent(newM))
+			{
+				boolean added = existing.mergeCandidates.addAll(newM.mergeCandidates);
+				existing.mergeOuterCandidates.addAll(newM.mergeOuterCandidates);
+				if(added)
+					matchQueue.add(existing);
+				invalidateMatch(newM);
+				return null;
+			}
+			if((existing == null) || !existing.isValid())
+				// in case of a collision of signatures, the first match remains in the table
+				matchSignatures.put(signature, newM);
+		}
 		// add to global lists
 		matchQueue.add(newM);
 		allMatches.add(newM);
@@ -747,6 +1621,41 @@ public class GraphMatcherQuick implements GraphMatchingProcess
 		return newM;
 	}
 	
+	/**
+	 * Runs a set of tasks on the executor and waits for all of them to complete.
+	 * 
+	 * @param <T>
+	 *            - the type of the results of the tasks.
+	 * @param tasks
+	 *            - the tasks.
+	 * @return the results of the tasks, in the order of the tasks.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the thread is interrupted while waiting.
+	 */
+	protected <T> List<T> runTasks(List<Callable<T>> tasks)
+	{
+		List<T> results = new ArrayList<T>();
+		try
+		{
+			for(Future<T> future : executor.invokeAll(tasks))
+				results.add(future.get());
+		} catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while matching", e);
+		} catch(ExecutionException e)
+		{
+			// exceptions in tasks are thrown as if they occurred in the calling thread
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if(e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+		return results;
+	}
+	
 	/**
 	 * Relay for the invalidation of a match, since matches should only be invalidated by classes extending this class.
 	 * 
@@ -1,5 +1,6 @@
 package net.xqhs.graphs.matcher;
 
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -81,6 +82,25 @@ public interface GraphMatchingProcess
 	 */
 	public List<Match> getAllMatches(int k);
 	
+	/**
+	 * The method returns an iterator over the matches with a <i>k</i> lower than or equal to the argument. Unlike
+	 * {@link #getAllMatches(int)}, the matching process should only advance as matches are requested from the iterator,
+	 * so that the iteration can be stopped at any time, and the iteration does not change the threshold of
+	 * {@link #getNextMatch()}.
+	 * <p>
+	 * The <code>remove()</code> method of the iterator discards the last returned match: the match is not grown any
+	 * further (so matches that would result from it are not generated), and the information it holds is released.
+	 * <p>
+	 * The other methods of the matching process should not be called during the iteration.
+	 * 
+	 * @param k
+	 *            - the threshold.
+	 * @return an {@link Iterator} over the matches complying with the threshold.
+	 * 
+	 * @since 1.6
+	 */
+	public Iterator<Match> getMatchIterator(int k);
+	
 	/**
 	 * The method returns all complete matches.
 	 * <p>
@@ -97,4 +117,24 @@ public interface GraphMatchingProcess
 	 * @return a {@link List} with the matches of lowest <i>k</i>.
 	 */
 	public List<Match> getBestMatches();
+	
+	/**
+	 * The method returns at most <code>n</code> matches of lowest <i>k</i>, among the matches with a <i>k</i> lower
+	 * than or equal to <code>maxK</code>. Unlike {@link #getBestMatches()}, the implementation should only perform as
+	 * much of the matching process as needed to prove that no better matches exist, or as fits in the time budget.
+	 * <p>
+	 * If the time budget is exceeded, the returned matches are the best ones found so far.
+	 * 
+	 * @param n
+	 *            - the maximum number of matches to return.
+	 * @param maxK
+	 *            - the maximum <i>k</i> of returned matches.
+	 * @param timeBudget
+	 *            - the time available for the search, in milliseconds; if not strictly positive, the time is not
+	 *            limited.
+	 * @return a {@link List} of matches, ordered by increasing <i>k</i>.
+	 * 
+	 * @since 1.6
+	 */
+	public List<Match> getTopMatches(int n, int maxK, long timeBudget);
 }
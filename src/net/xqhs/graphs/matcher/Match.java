@@ -14,15 +14,14 @@ package net.xqhs.graphs.matcher;
 import java.awt.Color;
 import java.awt.Point;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import net.xqhs.graphical.GCanvas;
 import net.xqhs.graphical.GConnector;
@@ -57,6 +56,13 @@ import net.xqhs.graphs.representation.text.TextGraphRepresentation;
  * ExP); the frontier also contains information on how many such edges exist for each node in the frontier.
  * <li>a set of matches that are candidates to merge with this match.
  * </ul>
+ * <p>
+ * Version 1.6 brings a compact representation of matches: the solved part is kept as a set of indexes of pattern edges
+ * (see {@link PatternIndex}), the node and edge functions and the frontier as arrays indexed by pattern node or edge
+ * index. The graphs of the solved part, unsolved part and matched subgraph are only created when requested. Matches
+ * are numbered by a {@link MatchRegistry} and merge candidates are kept as bit sets of match numbers (see
+ * {@link MatchSet}).
+ * <p>
  * Version 1.5 brings integration of some of the processes related to matching into the implementation of Match, such as
  * checking merge candidates, merging, etc.
  * 
@@ -137,47 +143,63 @@ public class Match
 	 * Reference to the pattern GP
 	 */
 	GraphPattern				patternLink;
-	
 	/**
-	 * G', the subgraph of G that has been matched. It is connected and it is a proper graph.
+	 * The numbering of the nodes and edges of the pattern, on which the representation of the match is based.
 	 */
-	Graph						matchedGraph;
-	/**
-	 * GmP, the part of GP that has been matched. It is connected and it is a proper graph.
-	 */
-	GraphPattern				solvedPart;
+	PatternIndex				patternIndex;
+	
 	/**
-	 * GxP, the part of GP that has not been matched. It may contain edges without the adjacent nodes.
+	 * EmP, the edges of the part of GP that has been matched (of GmP), as indexes in {@link #patternIndex}. The edges
+	 * of GxP are the other edges.
 	 */
-	GraphPattern				unsolvedPart;
+	BitSet						solvedEdges;
 	/**
 	 * k, the number of edges in GxP
 	 */
 	int							k;
 	
 	/**
-	 * The correspondence (node) function VmP -> V'
+	 * The correspondence (node) function VmP -> V', indexed by the index of nodes in {@link #patternIndex}. Nodes not
+	 * in VmP have no correspondent (<code>null</code>).
 	 */
-	Map<Node, Node>				nodeFunction;
+	Node[]						nodeFunction;
 	/**
-	 * The correspondence (edge) function EmP -> E'
+	 * The correspondence (edge) function EmP -> E', indexed by the index of edges in {@link #patternIndex}. Edges not
+	 * in EmP have no correspondent (<code>null</code>). The lists are never modified, so they may be shared between
+	 * matches.
 	 */
-	Map<Edge, List<Edge>>		edgeFunction;
+	List<Edge>[]				edgeFunction;
 	/**
-	 * The nodes on the frontier of GmP - nodes that have adjacent edges in ExP. Nodes are a subset of VmP.
+	 * The frontier of GmP - nodes that have adjacent edges in ExP, indexed by the index of nodes in
+	 * {@link #patternIndex}.
 	 * <p>
-	 * For each node the number of remaining edges in ExP that are adjacent to it is given.
+	 * For each node in VmP the number of remaining edges in ExP that are adjacent to it is given (loops are counted
+	 * twice); nodes on the frontier have a strictly positive number. For nodes not in VmP, the value is undefined.
 	 */
-	Map<Node, AtomicInteger>	frontier				= null;
+	int[]						frontier				= null;
 	/**
 	 * MC, matches that could possibly be merged with this one (i.e. not intersecting and sharing at least one common
 	 * vertex (with a common correspondent in the graph).
 	 */
-	Set<Match>					mergeCandidates			= null;
+	MatchSet					mergeCandidates			= null;
 	/**
 	 * MO, matches that could potentially merge with this one, but not immediately (they are not adjacent).
 	 */
-	Set<Match>					mergeOuterCandidates	= null;
+	MatchSet					mergeOuterCandidates	= null;
+	/**
+	 * The registry numbering the matches that may be merged with this one.
+	 */
+	MatchRegistry				registry				= null;
+	/**
+	 * The number of the match in {@link #registry}, or <code>-1</code> if the match is not registered (or has been
+	 * released).
+	 */
+	int							number					= -1;
+	/**
+	 * A hash of the pairs (pattern edge, graph edge) of the edge function. It does not depend on the order in which the
+	 * match has been merged, so equivalent matches have the same signature (see {@link #getSignature()}).
+	 */
+	long						signature				= 0;
 	
 	/**
 	 * The name of the edge.
@@ -195,6 +217,20 @@ public class Match
 	 */
 	boolean						valid					= true;
 	
+	/**
+	 * G', the subgraph of G that has been matched. It is only created when requested (see {@link #getMatchedGraph()}).
+	 */
+	Graph						matchedGraph			= null;
+	/**
+	 * GmP, the part of GP that has been matched. It is only created when requested (see {@link #getSolvedPart()}).
+	 */
+	GraphPattern				solvedPart				= null;
+	/**
+	 * GxP, the part of GP that has not been matched. It is only created when requested (see {@link #getUnsolvedPart()}
+	 * ).
+	 */
+	GraphPattern				unsolvedPart			= null;
+	
 	/**
 	 * Create a new empty match; some parts may be uninitialized / undefined (like frontier, or matchCandidates)
 	 * <p>
@@ -214,6 +250,10 @@ public class Match
 	
 	/**
 	 * Create a match, using an initial matching edge.
+	 * <p>
+	 * A new {@link PatternIndex} and a new {@link MatchRegistry} are created for the match. Matches that are meant to be
+	 * merged with each other should rather share the same index and registry, by using
+	 * {@link #Match(Graph, PatternIndex, MatchRegistry, Edge, Edge, String)}.
 	 * 
 	 * @param g
 	 *            : the graph
@@ -228,47 +268,98 @@ public class Match
 	 */
 	public Match(Graph g, GraphPattern p, Edge e, Edge eP, String id)
 	{
-		this(g, p);
+		this(g, new PatternIndex(p), new MatchRegistry(), e, eP, id);
+	}
+	
+	/**
+	 * Create a match, using an initial matching edge.
+	 * 
+	 * @param g
+	 *            : the graph
+	 * @param index
+	 *            : the index of the pattern
+	 * @param matchRegistry
+	 *            : the registry in which to number the match
+	 * @param e
+	 *            : the matching edge in the graph
+	 * @param eP
+	 *            : the matching edge in the pattern
+	 * @param id
+	 *            : the matching graph edge's id
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the pattern edge is not in the index.
+	 * 
+	 * @since 1.6
+	 */
+	public Match(Graph g, PatternIndex index, MatchRegistry matchRegistry, Edge e, Edge eP, String id)
+	{
+		this(g, index.getPattern());
+		patternIndex = index;
 		
-		// G' contains the edge and the two adjacent nodes
-		matchedGraph = new SimpleGraph().addNode(e.getFrom()).addNode(e.getTo()).addEdge(e);
-		// GmP contains the pattern edge and the two adjacent nodes
-		solvedPart = (GraphPattern) new GraphPattern().addNode(eP.getFrom(), false).addNode(eP.getTo(), false)
-				.addEdge(eP);
-		// TODO: check casts
-		Node ePFrom = eP.getFrom();
-		Node ePTo = eP.getTo();
+		int edgeIndex = index.indexOf(eP);
+		if(edgeIndex < 0)
+			throw new IllegalArgumentException("Edge [" + eP + "] not in the pattern");
+		int from = index.edgeFrom[edgeIndex];
+		int to = index.edgeTo[edgeIndex];
+		// GmP contains the pattern edge and the two adjacent nodes; G' contains the edge and the two adjacent nodes
+		solvedEdges = new BitSet(index.m());
+		solvedEdges.set(edgeIndex);
 		// node function
-		nodeFunction = new HashMap<Node, Node>();
-		nodeFunction.put(ePFrom, e.getFrom());
-		nodeFunction.put(ePTo, e.getTo());
+		nodeFunction = new Node[index.n()];
+		nodeFunction[from] = e.getFrom();
+		nodeFunction[to] = e.getTo();
 		// edge function
-		edgeFunction = new HashMap<Edge, List<Edge>>();
-		List<Edge> eL = new ArrayList<Edge>();
-		eL.add(e);
-		edgeFunction.put(eP, eL);
+		edgeFunction = newEdgeFunction(index.m());
+		edgeFunction[edgeIndex] = Collections.singletonList(e);
+		signature = pairSignature(edgeIndex, e);
 		// the frontier contains both nodes (if it is the case), with their adjacent edges minus the matched edge
-		frontier = new HashMap<Node, AtomicInteger>();
-		if(p.getInEdges(ePFrom).size() + p.getOutEdges(ePFrom).size() > 1)
-			frontier.put(eP.getFrom(),
-					new AtomicInteger(p.getInEdges(ePFrom).size() + p.getOutEdges(ePFrom).size() - 1));
-		if(p.getInEdges(ePTo).size() + p.getOutEdges(ePTo).size() > 1)
-			frontier.put(eP.getTo(), new AtomicInteger(p.getInEdges(ePTo).size() + p.getOutEdges(ePTo).size() - 1));
-		// unsolved part (all nodes and edges except the matched ones)
-		unsolvedPart = new GraphPattern();
-		for(Node vP : p.getNodes())
-			if((vP != eP.getFrom()) && (vP != eP.getTo()))
-				unsolvedPart.addNode(vP, false);
-		for(Edge ePi : p.getEdges())
-			if(ePi != eP)
-				unsolvedPart.addEdge(ePi);
-		k = unsolvedPart.getEdges().size();
+		frontier = new int[index.n()];
+		frontier[from] = index.degree[from];
+		frontier[to] = index.degree[to];
+		frontier[from]--;
+		frontier[to]--;
+		// unsolved part (all edges except the matched one)
+		k = index.m() - 1;
 		
 		// no match candidates added; they will be added in addInitialMatches()
-		mergeCandidates = new TreeSet<Match>(new MatchComparator(null));
-		mergeOuterCandidates = new TreeSet<Match>(new MatchComparator(null));
+		registry = matchRegistry;
+		mergeCandidates = new MatchSet(registry);
+		mergeOuterCandidates = new MatchSet(registry);
 		
 		this.id = id;
+		registry.register(this);
+	}
+	
+	/**
+	 * Computes the signature of a pair in the edge function.
+	 * 
+	 * @param edgeIndex
+	 *            - the index of the pattern edge.
+	 * @param e
+	 *            - the graph edge.
+	 * @return the signature of the pair.
+	 */
+	protected static long pairSignature(int edgeIndex, Edge e)
+	{
+		// the finalizer of SplitMix64, for the bits of the pair to be spread over the whole signature
+		long z = ((long) edgeIndex << 32) + System.identityHashCode(e) + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * Creates an empty edge function.
+	 * 
+	 * @param size
+	 *            - the number of edges in the pattern.
+	 * @return the edge function.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static List<Edge>[] newEdgeFunction(int size)
+	{
+		return new List[size];
 	}
 	
 	// TODO: fix this that gives bugs:
@@ -293,6 +384,8 @@ public class Match
 	protected void invalidate()
 	{
 		valid = false;
+		if(registry != null)
+			registry.release(this);
 	}
 	
 	/**
@@ -323,7 +416,84 @@ public class Match
 	 */
 	public int getSize()
 	{
-		return solvedPart.m();
+		return patternIndex.m() - k;
+	}
+	
+	/**
+	 * Returns the signature of the match: a 64-bit hash of the pairs (pattern edge, graph edge) of the edge function.
+	 * Equivalent matches (see {@link #isEquivalent(Match)}) have the same signature, no matter the order in which they
+	 * were merged; matches with the same signature are very likely, but not certainly, equivalent.
+	 * 
+	 * @return the signature.
+	 * 
+	 * @since 1.6
+	 */
+	public long getSignature()
+	{
+		return signature;
+	}
+	
+	/**
+	 * Checks if two matches, of the same pattern, match the same pattern edges to the same graph edges (and therefore
+	 * also the same pattern nodes to the same graph nodes).
+	 * 
+	 * @param m
+	 *            - the other match.
+	 * @return <code>true</code> if the matches are equivalent.
+	 * 
+	 * @since 1.6
+	 */
+	public boolean isEquivalent(Match m)
+	{
+		if((m.signature != signature) || !patternIndex.isEquivalent(m.patternIndex)
+				|| !solvedEdges.equals(m.solvedEdges))
+			return false;
+		for(int i = solvedEdges.nextSetBit(0); i >= 0; i = solvedEdges.nextSetBit(i + 1))
+		{
+			List<Edge> edges = edgeFunction[i], otherEdges = m.edgeFunction[i];
+			if(edges == otherEdges)
+				continue;
+			if(edges.size() != otherEdges.size())
+				return false;
+			for(int j = 0; j < edges.size(); j++)
+				if(edges.get(j) != otherEdges.get(j))
+					return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Computes a lower bound for the <i>k</i> of the matches that may result from merging this match with its merge
+	 * candidates, and then merging the results with their own candidates, and so on. Since the candidates of merged
+	 * matches are always taken from the candidates (immediate or outer) of the two merged matches, the edges of such
+	 * matches are all in this match or in its candidates.
+	 * 
+	 * @return the lower bound; {@link Integer#MAX_VALUE} if the match has no valid merge candidates, and therefore no
+	 *         match may result from it.
+	 * 
+	 * @since 1.6
+	 */
+	public int getMergedKLowerBound()
+	{
+		int m = patternIndex.m();
+		BitSet covered = (BitSet) solvedEdges.clone();
+		boolean hasCandidates = false;
+		for(Match mc : mergeCandidates)
+		{
+			hasCandidates = true;
+			covered.or(mc.solvedEdges);
+			if(covered.cardinality() == m)
+				return 0;
+		}
+		if(!hasCandidates)
+			return Integer.MAX_VALUE;
+		for(Match mc : mergeOuterCandidates)
+		{
+			covered.or(mc.solvedEdges);
+			if(covered.cardinality() == m)
+				return 0;
+		}
+		return m - covered.cardinality();
 	}
 	
 	/**
@@ -343,30 +513,105 @@ public class Match
 	}
 	
 	/**
+	 * @return the edges in the "solved part" of the pattern. Unlike {@link #getSolvedPart()}, no graph is created.
+	 * 
+	 * @since 1.6
+	 */
+	public List<Edge> getSolvedEdges()
+	{
+		List<Edge> ret = new ArrayList<Edge>(getSize());
+		for(int i = solvedEdges.nextSetBit(0); i >= 0; i = solvedEdges.nextSetBit(i + 1))
+			ret.add(patternIndex.edges[i]);
+		return ret;
+	}
+	
+	/**
+	 * The graph is created at the first call.
+	 * 
 	 * @return the "solved part" of the pattern.
 	 */
-	public GraphPattern getSolvedPart()
+	public synchronized GraphPattern getSolvedPart()
 	{
+		if(solvedPart == null)
+			solvedPart = createSolvedPart();
 		return solvedPart;
 	}
 	
 	/**
+	 * The graph is created at the first call.
+	 * 
 	 * @return the "unsolved part" of the pattern. <b>WARNING</b> the returned graph may contain edges that have
 	 *         adjacent nodes outside of the graph.
 	 */
-	public GraphPattern getUnsolvedPart()
+	public synchronized GraphPattern getUnsolvedPart()
 	{
+		if(unsolvedPart == null)
+			unsolvedPart = createUnsolvedPart();
 		return unsolvedPart;
 	}
 	
 	/**
+	 * The graph is created at the first call.
+	 * 
 	 * @return the subgraph matched by the "solved part" of the pattern.
 	 */
-	public Graph getMatchedGraph()
+	public synchronized Graph getMatchedGraph()
 	{
+		if(matchedGraph == null)
+			matchedGraph = createMatchedGraph();
 		return matchedGraph;
 	}
 	
+	/**
+	 * @return a new graph containing the "solved part" of the pattern.
+	 */
+	protected GraphPattern createSolvedPart()
+	{
+		GraphPattern ret = new GraphPattern();
+		for(int i = 0; i < nodeFunction.length; i++)
+			if(nodeFunction[i] != null)
+				ret.addNode(patternIndex.nodes[i], false);
+		for(int i = solvedEdges.nextSetBit(0); i >= 0; i = solvedEdges.nextSetBit(i + 1))
+			ret.addEdge(patternIndex.edges[i]);
+		return ret;
+	}
+	
+	/**
+	 * @return a new graph containing the "unsolved part" of the pattern (all nodes and edges except the matched ones).
+	 */
+	protected GraphPattern createUnsolvedPart()
+	{
+		GraphPattern ret = new GraphPattern();
+		for(int i = 0; i < nodeFunction.length; i++)
+			if((nodeFunction[i] == null) && patternLink.contains(patternIndex.nodes[i]))
+				ret.addNode(patternIndex.nodes[i], false);
+		for(int i = solvedEdges.nextClearBit(0); i < patternIndex.m(); i = solvedEdges.nextClearBit(i + 1))
+			ret.addEdge(patternIndex.edges[i]);
+		return ret;
+	}
+	
+	/**
+	 * @return a new graph containing the subgraph matched by the "solved part" of the pattern.
+	 */
+	protected Graph createMatchedGraph()
+	{
+		SimpleGraph ret = new SimpleGraph();
+		for(Node node : nodeFunction)
+			if((node != null) && !ret.contains(node))
+				ret.addNode(node);
+		for(List<Edge> edges : edgeFunction)
+			if(edges != null)
+				for(Edge e : edges)
+				{
+					if(!ret.contains(e.getFrom()))
+						ret.addNode(e.getFrom());
+					if(!ret.contains(e.getTo()))
+						ret.addNode(e.getTo());
+					ret.addEdge(e);
+				}
+		return ret;
+	}
+	
 	/**
 	 * Retrieves the node in the matched subgraph that corresponds to the specified node from the solved part.
 	 * 
@@ -376,17 +621,14 @@ public class Match
 	 * 
 	 * @throws IllegalArgumentException
 	 *             if the node is not found in the solved part of the pattern.
-	 * @throws IllegalStateException
-	 *             if the node is not found in the node function map.
 	 */
 	public Node getMatchedGraphNode(Node patternNode)
 	{
-		if(!solvedPart.contains(patternNode))
+		int index = patternIndex.indexOf(patternNode);
+		if((index < 0) || (nodeFunction[index] == null))
 			throw new IllegalArgumentException("Node [" + patternNode.toString()
 					+ "] not in the solved part of the match");
-		if(!nodeFunction.containsKey(patternNode))
-			throw new IllegalStateException("Internal error: pattern node not found in the node function.");
-		return nodeFunction.get(patternNode);
+		return nodeFunction[index];
 	}
 	
 	/**
@@ -399,17 +641,37 @@ public class Match
 	 * 
 	 * @throws IllegalArgumentException
 	 *             if the edge is not found in the solved part of the pattern.
-	 * @throws IllegalStateException
-	 *             if the edge is not found in the edge function map.
 	 */
 	public List<Edge> getMatchedGraphEdges(Edge patternEdge)
 	{
-		if(!solvedPart.contains(patternEdge))
+		int index = patternIndex.indexOf(patternEdge);
+		if((index < 0) || !solvedEdges.get(index))
 			throw new IllegalArgumentException("Edge [" + patternEdge.toString()
 					+ "] not in the solved part of the match");
-		if(!edgeFunction.containsKey(patternEdge))
-			throw new IllegalStateException("Internal error: pattern edge not found in the edge function.");
-		return edgeFunction.get(patternEdge);
+		return edgeFunction[index];
+	}
+	
+	/**
+	 * Checks if this match and another match of the same pattern intersect, i.e. contain common pattern edges or
+	 * common graph edges. Does not create any objects.
+	 * 
+	 * @param mc
+	 *            - the other match.
+	 * @return <code>true</code> if the matches intersect.
+	 * 
+	 * @since 1.6
+	 */
+	boolean intersects(Match mc)
+	{
+		if(solvedEdges.intersects(mc.solvedEdges))
+			return true;
+		for(int i = solvedEdges.nextSetBit(0); i >= 0; i = solvedEdges.nextSetBit(i + 1))
+			for(Edge e : edgeFunction[i])
+				for(int j = mc.solvedEdges.nextSetBit(0); j >= 0; j = mc.solvedEdges.nextSetBit(j + 1))
+					for(Edge ec : mc.edgeFunction[j])
+						if(e.equals(ec))
+							return true;
+		return false;
 	}
 	
 	/**
@@ -439,19 +701,21 @@ public class Match
 		if((mc == null) || (ePMatchIndex == null) || (eMatchIndex == null) || (monitor == null))
 			throw new IllegalArgumentException("Indexes must be non-null");
 		// check that match mc does not already contain any edges in this match
-		for(Edge eP : solvedPart.getEdges())
+		for(int i = solvedEdges.nextSetBit(0); i >= 0; i = solvedEdges.nextSetBit(i + 1))
 		{
 			monitor.incrementEdgeReferenceOperation();
+			Edge eP = patternIndex.edges[i];
 			if(ePMatchIndex.containsKey(eP) && ePMatchIndex.get(eP).contains(mc))
 				return Candidacy.NONE;
 		}
 		// check that the subgraph matched by mc does not already contain any edges in this match
-		for(Edge e : matchedGraph.getEdges())
-		{
-			monitor.incrementEdgeReferenceOperation();
-			if(eMatchIndex.containsKey(e) && eMatchIndex.get(e).contains(mc))
-				return Candidacy.NONE;
-		}
+		for(int i = solvedEdges.nextSetBit(0); i >= 0; i = solvedEdges.nextSetBit(i + 1))
+			for(Edge e : edgeFunction[i])
+			{
+				monitor.incrementEdgeReferenceOperation();
+				if(eMatchIndex.containsKey(e) && eMatchIndex.get(e).contains(mc))
+					return Candidacy.NONE;
+			}
 		return getCandidacyInternal(mc, monitor);
 	}
 	
@@ -472,18 +736,16 @@ public class Match
 	{
 		boolean outer = true;
 		// iterate over frontier intersection, see if nodes correspond to the same target in the matched subgraph
-		Set<Node> frontierIntersection = new HashSet<Node>(frontier.keySet());
-		frontierIntersection.retainAll(mc.frontier.keySet());
-		monitor.incrementNodeReferenceOperation(frontier.size());
-		
-		for(Node node : frontierIntersection)
-		{
-			monitor.incrementNodeReferenceOperation();
-			if(nodeFunction.get(node) == mc.nodeFunction.get(node))
-				outer = false;
-			else
-				return Candidacy.NONE;
-		}
+		monitor.incrementNodeReferenceOperation(frontier.length);
+		for(int i = 0; i < frontier.length; i++)
+			if((nodeFunction[i] != null) && (frontier[i] > 0) && (mc.nodeFunction[i] != null) && (mc.frontier[i] > 0))
+			{
+				monitor.incrementNodeReferenceOperation();
+				if(nodeFunction[i] == mc.nodeFunction[i])
+					outer = false;
+				else
+					return Candidacy.NONE;
+			}
 		if(outer)
 			return Candidacy.OUTER;
 		return Candidacy.IMMEDIATE;
@@ -511,7 +773,8 @@ public class Match
 	public Candidacy considerCandidate(Match mc, Map<Edge, Set<Match>> eMatchIndex, Map<Edge, Set<Match>> ePMatchIndex,
 			MonitorPack monitor)
 	{
-		if((mc == null) || (mc.targetGraphLink != targetGraphLink) || (mc.patternLink != patternLink))
+		if((mc == null) || (mc.targetGraphLink != targetGraphLink) || (mc.patternLink != patternLink)
+				|| !patternIndex.isEquivalent(mc.patternIndex) || (mc.registry != registry))
 			throw new IllegalArgumentException("Other match is not in the same space");
 		Candidacy cand = getCandidacy(mc, eMatchIndex, ePMatchIndex, monitor);
 		if(cand == Candidacy.IMMEDIATE)
@@ -555,138 +818,92 @@ public class Match
 	{
 		// must handle (create in the new match, based on the two matches:
 		// G and GP links -> in constructor
-		// GmP -> obtained by adding edges from m1.GmP and m2.GmP and their adjacent vertices
-		// G' -> obtained by adding the values of the edge and node functions, when adding edges in GmP
-		// GxP -> obtained by removing edges added to GmP and nodes
-		// k -> obtained by decrementing when adding edges
+		// EmP -> reunion of the solved edges of the two matches
+		// k -> the number of edges not in EmP
 		// node function -> reuniting the node functions of the two matches
 		// edge function -> reuniting the edge functions of the two matches
-		// frontier -> practically adding nodes from solved part, always checking if they are still on the frontier
+		// frontier -> for each node, the adjacent edges not yet solved by any of the matches
 		// MC -> MC = (MC n MC2) u (MC1 n MO2) u (MC2 n MO1)
 		// MO -> common outer candidates: MO = MO1 n MO2
 		// id TODO
+		if(!patternIndex.isEquivalent(m1.patternIndex) || (m1.registry != registry))
+			throw new IllegalArgumentException("Matches do not use the same pattern index and registry");
 		
 		// G and GP links -> set in constructor
 		Match newM = new Match(targetGraphLink, patternLink);
+		newM.patternIndex = patternIndex;
+		newM.registry = registry;
 		
-		// add whole pattern (same for both matches) as unsolved part
-		newM.unsolvedPart = new GraphPattern();
-		newM.unsolvedPart.addAll(patternLink.getNodes());
-		newM.unsolvedPart.addAll(patternLink.getEdges());
-		newM.k = newM.unsolvedPart.getEdges().size();
-		
-		// there should be no duplicates as the solved parts should be disjoint. This is checked further on.
-		Set<Edge> totalMatch = new HashSet<Edge>();
+		// there should be no duplicates as the solved parts should be disjoint.
+		if(solvedEdges.intersects(m1.solvedEdges))
+		{
+			BitSet common = (BitSet) solvedEdges.clone();
+			common.and(m1.solvedEdges);
+			monitor.le("match-intersection pattern edge found: []", patternIndex.edges[common.nextSetBit(0)]);
+			System.out.println("\t\t [" + this + "] \t\t [" + m1 + "]");
+			throw new IllegalArgumentException("match-intersection edge");
+		}
+		newM.solvedEdges = (BitSet) solvedEdges.clone();
+		newM.solvedEdges.or(m1.solvedEdges);
+		newM.k = patternIndex.m() - newM.solvedEdges.cardinality();
 		
-		totalMatch.addAll(solvedPart.getEdges());
-		totalMatch.addAll(m1.solvedPart.getEdges());
+		int n = patternIndex.n();
+		newM.nodeFunction = new Node[n];
+		newM.frontier = new int[n];
+		for(int i = 0; i < n; i++)
+		{
+			// node function -> reuniting the node functions of the two matches
+			newM.nodeFunction[i] = (nodeFunction[i] != null) ? nodeFunction[i] : m1.nodeFunction[i];
+			// frontier -> edges solved by this match and edges solved by the other are subtracted from the degree
+			if(newM.nodeFunction[i] != null)
+				newM.frontier[i] = ((nodeFunction[i] != null) ? frontier[i] : patternIndex.degree[i])
+						+ ((m1.nodeFunction[i] != null) ? m1.frontier[i] : patternIndex.degree[i])
+						- patternIndex.degree[i];
+		}
+		monitor.incrementNodeReferenceOperation(2 * n);
 		
-		newM.solvedPart = new GraphPattern();
-		newM.nodeFunction = new HashMap<Node, Node>();
-		newM.edgeFunction = new HashMap<Edge, List<Edge>>();
-		newM.matchedGraph = new SimpleGraph();
-		newM.frontier = new HashMap<Node, AtomicInteger>();
-		for(Edge eP : totalMatch)
+		// edge function -> reuniting the edge functions of the two matches
+		newM.edgeFunction = newEdgeFunction(patternIndex.m());
+		for(int i = newM.solvedEdges.nextSetBit(0); i >= 0; i = newM.solvedEdges.nextSetBit(i + 1))
 		{
 			monitor.incrementEdgeReferenceOperation(2);
-			// GmP -> obtained by adding edges from m1.GmP and m2.GmP and their adjacent vertices
-			newM.solvedPart.addEdge(eP).addNode(eP.getFrom()).addNode(eP.getTo());
-			// GxP -> obtained by removing edges added to GmP and nodes
-			newM.unsolvedPart.removeEdge(eP).removeNode(eP.getFrom()).removeNode(eP.getTo());
-			// k -> obtained by decrementing when adding edges
-			newM.k--;
-			
-			Match sourceMatch = null; // which match does eP come from
-			if(solvedPart.contains(eP))
-				sourceMatch = this;
-			if(m1.solvedPart.contains(eP))
-			{
-				if(sourceMatch != null)
-				{
-					monitor.le("match-intersection pattern edge found: []", eP);
-					System.out.println("\t\t [" + this + "] \t\t [" + m1 + "]");
-					throw new IllegalArgumentException("match-intersection edge");
-				}
-				sourceMatch = m1;
-			}
-			if(sourceMatch == null)
-				throw new InternalError("edge not found in total match"); // impossible
-				
-			// node function -> reuniting the node functions of the two matches
-			newM.nodeFunction.put(eP.getFrom(), sourceMatch.nodeFunction.get(eP.getFrom()));
-			newM.nodeFunction.put(eP.getTo(), sourceMatch.nodeFunction.get(eP.getTo()));
-			// edge function -> reuniting the edge functions of the two matches
-			newM.edgeFunction.put(eP, sourceMatch.edgeFunction.get(eP));
-			// G' -> obtained by adding the values of the edge and node functions, when adding edges in GmP
-			for(Edge em : sourceMatch.edgeFunction.get(eP))
-			{
-				newM.matchedGraph.addEdge(em).addNode(em.getFrom()).addNode(em.getTo());
-				if(eMatchIndex != null)
+			newM.edgeFunction[i] = (edgeFunction[i] != null) ? edgeFunction[i] : m1.edgeFunction[i];
+			if(eMatchIndex != null)
 				// add to index
+				for(Edge em : newM.edgeFunction[i])
 				{
 					if(!eMatchIndex.containsKey(em))
 						eMatchIndex.put(em, new HashSet<Match>());
 					eMatchIndex.get(em).add(newM);
+					monitor.incrementEdgeReferenceOperation(1);
 				}
-				monitor.incrementEdgeReferenceOperation(1);
-			}
 			if(ePMatchIndex != null)
 			// add to index
 			{
+				Edge eP = patternIndex.edges[i];
 				if(!ePMatchIndex.containsKey(eP))
 					ePMatchIndex.put(eP, new HashSet<Match>());
 				ePMatchIndex.get(eP).add(newM);
 				monitor.incrementEdgeReferenceOperation(1);
 			}
-			
-			// frontier -> practically adding nodes from solved part, always checking if they are still on the frontier
-			AtomicInteger fromIndex = newM.frontier.get(eP.getFrom());
-			if(fromIndex != null)
-				if(fromIndex.decrementAndGet() == 0)
-					newM.frontier.remove(eP.getFrom());
-				else
-					newM.frontier.put(eP.getFrom(), fromIndex);
-			else
-				newM.frontier.put(eP.getFrom(), new AtomicInteger(patternLink.getInEdges(eP.getFrom()).size()
-						+ patternLink.getOutEdges(eP.getFrom()).size() - 1));
-			AtomicInteger toIndex = newM.frontier.get(eP.getTo());
-			if(toIndex != null)
-				if(toIndex.decrementAndGet() == 0)
-					newM.frontier.remove(eP.getTo());
-				else
-					newM.frontier.put(eP.getTo(), toIndex);
-			else
-				newM.frontier.put(eP.getTo(), new AtomicInteger(patternLink.getInEdges(eP.getTo()).size()
-						+ patternLink.getOutEdges(eP.getTo()).size() - 1));
-			monitor.incrementNodeReferenceOperation(4); // 2 * (get + set)
 		}
+		// the solved parts are disjoint, so the sum of the pair signatures is the sum of the signatures
+		newM.signature = signature + m1.signature;
 		// 'u' stands for reunion and 'n' for intersection
 		// merge candidates: MC = (MC n MC2) u (MC1 n MO2) u (MC2 n MO1)
 		// common merge candidates, and candidates of each match that were outer candidates for the other match
-		newM.mergeCandidates = new HashSet<Match>(mergeCandidates);
-		Set<Match> partB = new HashSet<Match>(mergeCandidates);
-		Set<Match> partC = new HashSet<Match>(m1.mergeCandidates);
-		newM.mergeCandidates.retainAll(m1.mergeCandidates);
-		partB.retainAll(m1.mergeOuterCandidates);
-		partC.retainAll(mergeOuterCandidates);
-		newM.mergeCandidates.addAll(partB);
-		newM.mergeCandidates.addAll(partC);
+		// invalid matches are not retained; the sets of the merged matches are not modified, as merges may be
+		// performed in parallel
+		newM.mergeCandidates = MatchSet.mergeCandidates(mergeCandidates, mergeOuterCandidates, m1.mergeCandidates,
+				m1.mergeOuterCandidates);
 		
 		// merge outer candidates: common outer candidates: MO = MO1 n MO2
-		newM.mergeOuterCandidates = new HashSet<Match>(mergeOuterCandidates);
-		newM.mergeOuterCandidates.retainAll(m1.mergeOuterCandidates);
-		
-		// check validity
-		for(Iterator<Match> mi = mergeCandidates.iterator(); mi.hasNext();)
-			if(!mi.next().isValid())
-				mi.remove();
-		for(Iterator<Match> mi = mergeOuterCandidates.iterator(); mi.hasNext();)
-			if(!mi.next().isValid())
-				mi.remove();
+		newM.mergeOuterCandidates = MatchSet.intersection(mergeOuterCandidates, m1.mergeOuterCandidates);
 		
-		monitor.incrementEdgeReferenceOperation(mergeCandidates.size() + m1.mergeCandidates.size()
-				+ mergeOuterCandidates.size() + m1.mergeOuterCandidates.size());
+		monitor.incrementEdgeReferenceOperation(mergeCandidates.getWordCount() + m1.mergeCandidates.getWordCount()
+				+ mergeOuterCandidates.getWordCount() + m1.mergeOuterCandidates.getWordCount());
 		
+		registry.register(newM);
 		return newM;
 	}
 	
@@ -715,12 +932,50 @@ public class Match
 				+ id
 				+ "]K="
 				+ k
-				+ ((k > 0) ? new TextGraphRepresentation(solvedPart).setLayout("", "", -1).update()
-						: new TextGraphRepresentation(patternLink).setLayout("", "", -1).update()) + "|"
-				+ new TextGraphRepresentation(matchedGraph).setLayout("", "", -1).update();
+				+ ((k > 0) ? new TextGraphRepresentation((solvedPart != null) ? solvedPart : createSolvedPart())
+						.setLayout("", "", -1).update() : new TextGraphRepresentation(patternLink).setLayout("", "", -1)
+						.update()) + "|"
+				+ new TextGraphRepresentation((matchedGraph != null) ? matchedGraph : createMatchedGraph()).setLayout("",
+						"", -1).update();
 		return ret;
 	}
 	
+	/**
+	 * @return a representation of the frontier, as a map from pattern nodes to the number of their adjacent unsolved
+	 *         edges.
+	 */
+	protected String frontierToString()
+	{
+		Map<Node, Integer> ret = new HashMap<Node, Integer>();
+		for(int i = 0; i < frontier.length; i++)
+			if((nodeFunction[i] != null) && (frontier[i] > 0))
+				ret.put(patternIndex.nodes[i], new Integer(frontier[i]));
+		return ret.toString();
+	}
+	
+	/**
+	 * @return a representation of the node function, as a map from pattern nodes to graph nodes.
+	 */
+	protected String nodeFunctionToString()
+	{
+		Map<Node, Node> ret = new HashMap<Node, Node>();
+		for(int i = 0; i < nodeFunction.length; i++)
+			if(nodeFunction[i] != null)
+				ret.put(patternIndex.nodes[i], nodeFunction[i]);
+		return ret.toString();
+	}
+	
+	/**
+	 * @return a representation of the edge function, as a map from pattern edges to lists of graph edges.
+	 */
+	protected String edgeFunctionToString()
+	{
+		Map<Edge, List<Edge>> ret = new HashMap<Edge, List<Edge>>();
+		for(int i = solvedEdges.nextSetBit(0); i >= 0; i = solvedEdges.nextSetBit(i + 1))
+			ret.put(patternIndex.edges[i], edgeFunction[i]);
+		return ret.toString();
+	}
+	
 	/**
 	 * Provides a complete one-line representation of the match. Not to be confused with {@link #toStringLong()}.
 	 * 
@@ -729,10 +984,10 @@ public class Match
 	public String toStringExtended()
 	{
 		String ret = "match [" + id + "] (k=" + k + "): \t";
-		ret += new TextGraphRepresentation(matchedGraph).setLayout("", " ", 2).update() + "\t : \t";
-		ret += new TextGraphRepresentation(solvedPart).setLayout("", " ", 2).update() + "\t";
-		ret += "Gx: " + new TextGraphRepresentation(unsolvedPart).setLayout("", " ", 2).update() + "\t";
-		ret += "frontier: " + frontier + "; ";
+		ret += new TextGraphRepresentation(getMatchedGraph()).setLayout("", " ", 2).update() + "\t : \t";
+		ret += new TextGraphRepresentation(getSolvedPart()).setLayout("", " ", 2).update() + "\t";
+		ret += "Gx: " + new TextGraphRepresentation(getUnsolvedPart()).setLayout("", " ", 2).update() + "\t";
+		ret += "frontier: " + frontierToString() + "; ";
 		ret += "mCs: [";
 		for(Match mi : mergeCandidates)
 			if(mi.isValid())
@@ -742,8 +997,8 @@ public class Match
 			if(moi.isValid())
 				ret += moi.id + ", ";
 		ret += "] \t";
-		ret += "fv: " + nodeFunction;
-		// ret += "fe: " + edgeFunction + "\n\t";
+		ret += "fv: " + nodeFunctionToString();
+		// ret += "fe: " + edgeFunctionToString() + "\n\t";
 		return ret;
 	}
 	
@@ -755,11 +1010,11 @@ public class Match
 	public String toStringLong()
 	{
 		String ret = "match: \n\t";
-		ret += "G': " + new TextGraphRepresentation(matchedGraph).setLayout("", " ", 2).update() + "\n\t";
-		ret += "Gm: " + new TextGraphRepresentation(solvedPart).setLayout("", " ", 2).update() + "\n\t";
-		ret += "Gx: " + new TextGraphRepresentation(unsolvedPart).setLayout("", " ", 2).update() + "\n\t";
-		ret += "fv: " + nodeFunction + "\n\t";
-		ret += "fe: " + edgeFunction + "\n\t";
+		ret += "G': " + new TextGraphRepresentation(getMatchedGraph()).setLayout("", " ", 2).update() + "\n\t";
+		ret += "Gm: " + new TextGraphRepresentation(getSolvedPart()).setLayout("", " ", 2).update() + "\n\t";
+		ret += "Gx: " + new TextGraphRepresentation(getUnsolvedPart()).setLayout("", " ", 2).update() + "\n\t";
+		ret += "fv: " + nodeFunctionToString() + "\n\t";
+		ret += "fe: " + edgeFunctionToString() + "\n\t";
 		ret += "k=" + k;
 		
 		return ret;
@@ -783,12 +1038,12 @@ public class Match
 				.setBottomRight(new Point(topleft.x + tw / 2, bottomright.y)).update();
 		GraphRepresentation GPR = new RadialGraphRepresentation(patternLink).setCanvas(canvas)
 				.setOrigin(new Point(topleft.x + tw / 2, topleft.y)).setBottomRight(bottomright).update();
-		for(Map.Entry<Edge, List<Edge>> corr : edgeFunction.entrySet())
+		for(int i = solvedEdges.nextSetBit(0); i >= 0; i = solvedEdges.nextSetBit(i + 1))
 		{
 			// TODO check casts
-			GElement el1 = ((GraphicalRepresentationElement) ((VisualizableGraphComponent) corr.getKey())
+			GElement el1 = ((GraphicalRepresentationElement) ((VisualizableGraphComponent) patternIndex.edges[i])
 					.getFirstRepresentationForRoot(GPR)).getGElement();
-			GElement el2 = ((GraphicalRepresentationElement) ((VisualizableGraphComponent) corr.getValue().iterator()
+			GElement el2 = ((GraphicalRepresentationElement) ((VisualizableGraphComponent) edgeFunction[i].iterator()
 					.next()).getFirstRepresentationForRoot(GR)).getGElement();
 			el1.setColor(Color.RED);
 			el2.setColor(Color.RED);
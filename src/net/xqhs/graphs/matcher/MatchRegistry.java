@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.graphs.matcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Assigns dense integer numbers to the matches of a matching process, so that sets of matches can be stored as bit sets
+ * (see {@link MatchSet}). The registry also keeps the set of live matches, as a bit set: a match is live from its
+ * registration until its invalidation.
+ * <p>
+ * The numbers of invalidated matches are not reused immediately, as they may still appear in the merge candidate sets
+ * of other matches. When enough numbers have been released, the numbers of invalid matches are removed from the
+ * candidate sets of all live matches, after which the numbers are reused.
+ * <p>
+ * Matches may be registered concurrently (e.g. by merges performed in parallel), but they must not be released while
+ * other threads use the registry.
+ *
+ * @author Andrei Olaru
+ */
+public class MatchRegistry
+{
+	/**
+	 * The minimum number of released numbers before they are reused.
+	 */
+	protected static final int	MIN_RECYCLED	= 64;
+
+	/**
+	 * The live matches, by number. Released numbers have <code>null</code> entries.
+	 */
+	protected volatile Match[]	matches			= new Match[64];
+	/**
+	 * The numbers of the live matches, as a bit set.
+	 */
+	protected volatile long[]	live			= new long[1];
+	/**
+	 * The number of assigned numbers (also, the first number that has never been assigned).
+	 */
+	protected int				size			= 0;
+	/**
+	 * The number of live matches.
+	 */
+	protected int				liveCount		= 0;
+	/**
+	 * Numbers of invalidated matches, which may still appear in candidate sets.
+	 */
+	protected List<Integer>		released		= new ArrayList<Integer>();
+	/**
+	 * Numbers which can be assigned to new matches.
+	 */
+	protected List<Integer>		free			= new ArrayList<Integer>();
+
+	/**
+	 * Assigns a number to a new match and marks it as live.
+	 *
+	 * @param m
+	 *            - the match.
+	 * @return the number of the match.
+	 */
+	public synchronized int register(Match m)
+	{
+		int number;
+		if(!free.isEmpty())
+			number = free.remove(free.size() - 1).intValue();
+		else
+		{
+			number = size++;
+			if(number >= matches.length)
+				matches = Arrays.copyOf(matches, 2 * matches.length);
+			if((number >> 6) >= live.length)
+				live = Arrays.copyOf(live, 2 * live.length);
+		}
+		matches[number] = m;
+		live[number >> 6] |= 1L << number;
+		liveCount++;
+		m.number = number;
+		return number;
+	}
+
+	/**
+	 * Releases the number of an invalidated match. The candidate sets of the match are cleared, as they are not used
+	 * anymore.
+	 *
+	 * @param m
+	 *            - the match.
+	 */
+	public synchronized void release(Match m)
+	{
+		int number = m.number;
+		if((number < 0) || (matches[number] != m))
+			return;
+		matches[number] = null;
+		live[number >> 6] &= ~(1L << number);
+		liveCount--;
+		m.number = -1;
+		if(m.mergeCandidates != null)
+			m.mergeCandidates.clear();
+		if(m.mergeOuterCandidates != null)
+			m.mergeOuterCandidates.clear();
+		released.add(new Integer(number));
+		if(released.size() >= Math.max(MIN_RECYCLED, liveCount))
+			recycle();
+	}
+
+	/**
+	 * Removes all released numbers from the candidate sets of live matches, and makes the numbers available for new
+	 * matches.
+	 */
+	protected void recycle()
+	{
+		for(int i = 0; i < size; i++)
+			if(matches[i] != null)
+			{
+				matches[i].mergeCandidates.retainLive();
+				matches[i].mergeOuterCandidates.retainLive();
+			}
+		free.addAll(released);
+		released.clear();
+	}
+
+	/**
+	 * @param number
+	 *            - the number of a match.
+	 * @return the live match with the given number, or <code>null</code> if there is none.
+	 */
+	public Match getMatch(int number)
+	{
+		Match[] current = matches;
+		return (number < current.length) ? current[number] : null;
+	}
+
+	/**
+	 * @return the number of live matches.
+	 */
+	public synchronized int getLiveCount()
+	{
+		return liveCount;
+	}
+
+	/**
+	 * The returned array must not be modified. Bits of matches registered in the mean time by other threads may or may
+	 * not be set.
+	 *
+	 * @return the numbers of live matches, as a bit set.
+	 */
+	long[] getLive()
+	{
+		return live;
+	}
+}
@@ -0,0 +1,349 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.graphs.matcher;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of matches registered in the same {@link MatchRegistry}, stored as a bit set of match numbers. Set operations
+ * between such sets are performed on 64 matches at a time.
+ * <p>
+ * Numbers of matches that have been released from the registry (invalid matches) may remain in the set, but the set
+ * behaves as if they were not there: they are not returned by the iterator and they are not counted by
+ * {@link #size()} and {@link #isEmpty()}. They can be removed with {@link #retainLive()}.
+ * <p>
+ * The set may be modified during an iteration; the iterator reflects the modifications made after its current
+ * position.
+ *
+ * @author Andrei Olaru
+ */
+public class MatchSet extends AbstractSet<Match>
+{
+	/**
+	 * Empty array of words.
+	 */
+	protected static final long[]	NO_WORDS	= new long[0];
+
+	/**
+	 * The registry that numbers the matches.
+	 */
+	protected final MatchRegistry	registry;
+	/**
+	 * The bits of the set. The array has no trailing zero words.
+	 */
+	protected long[]				words;
+
+	/**
+	 * Creates an empty set.
+	 *
+	 * @param matchRegistry
+	 *            - the registry that numbers the matches.
+	 */
+	public MatchSet(MatchRegistry matchRegistry)
+	{
+		registry = matchRegistry;
+		words = NO_WORDS;
+	}
+
+	/**
+	 * Creates a set with the given words.
+	 *
+	 * @param matchRegistry
+	 *            - the registry that numbers the matches.
+	 * @param setWords
+	 *            - the words; they are trimmed, if necessary, and not copied.
+	 */
+	protected MatchSet(MatchRegistry matchRegistry, long[] setWords)
+	{
+		registry = matchRegistry;
+		words = trim(setWords);
+	}
+
+	/**
+	 * @param o
+	 *            - an object.
+	 * @return the number of the object in the registry of this set, or <code>-1</code> if the object is not a live
+	 *         match of the same registry.
+	 */
+	protected int numberOf(Object o)
+	{
+		if(!(o instanceof Match) || (((Match) o).registry != registry))
+			return -1;
+		return ((Match) o).number;
+	}
+
+	@Override
+	public boolean contains(Object o)
+	{
+		int number = numberOf(o);
+		return (number >= 0) && ((number >> 6) < words.length) && ((words[number >> 6] & (1L << number)) != 0);
+	}
+
+	@Override
+	public boolean add(Match m)
+	{
+		int number = numberOf(m);
+		if(number < 0)
+			throw new IllegalArgumentException("Match is not live in the registry of the set");
+		if(contains(m))
+			return false;
+		if((number >> 6) >= words.length)
+			words = Arrays.copyOf(words, Math.max((number >> 6) + 1, 2 * words.length));
+		words[number >> 6] |= 1L << number;
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o)
+	{
+		if(!contains(o))
+			return false;
+		clearBit(((Match) o).number);
+		return true;
+	}
+
+	/**
+	 * Clears a bit and trims the words if necessary.
+	 *
+	 * @param number
+	 *            - the index of the bit.
+	 */
+	protected void clearBit(int number)
+	{
+		if((number >> 6) >= words.length)
+			return;
+		words[number >> 6] &= ~(1L << number);
+		if(((number >> 6) == words.length - 1) && (words[number >> 6] == 0))
+			words = trim(words);
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends Match> c)
+	{
+		if(!(c instanceof MatchSet) || (((MatchSet) c).registry != registry))
+			return super.addAll(c);
+		long[] other = ((MatchSet) c).words;
+		if(other.length > words.length)
+			words = Arrays.copyOf(words, other.length);
+		boolean changed = false;
+		for(int i = 0; i < other.length; i++)
+			if((other[i] & ~words[i]) != 0)
+			{
+				words[i] |= other[i];
+				changed = true;
+			}
+		return changed;
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c)
+	{
+		if(!(c instanceof MatchSet) || (((MatchSet) c).registry != registry))
+			return super.removeAll(c);
+		long[] other = ((MatchSet) c).words;
+		boolean changed = false;
+		for(int i = 0; i < Math.min(words.length, other.length); i++)
+			if((words[i] & other[i]) != 0)
+			{
+				words[i] &= ~other[i];
+				changed = true;
+			}
+		words = trim(words);
+		return changed;
+	}
+
+	/**
+	 * Removes from the set the numbers of matches which are not live anymore.
+	 *
+	 * @return the set itself.
+	 */
+	public MatchSet retainLive()
+	{
+		long[] live = registry.getLive();
+		for(int i = 0; i < words.length; i++)
+			words[i] &= (i < live.length) ? live[i] : 0;
+		words = trim(words);
+		return this;
+	}
+
+	@Override
+	public void clear()
+	{
+		words = NO_WORDS;
+	}
+
+	/**
+	 * Released matches are not considered.
+	 */
+	@Override
+	public boolean isEmpty()
+	{
+		long[] live = registry.getLive();
+		for(int i = 0; i < Math.min(words.length, live.length); i++)
+			if((words[i] & live[i]) != 0)
+				return false;
+		return true;
+	}
+
+	/**
+	 * Released matches are not counted.
+	 */
+	@Override
+	public int size()
+	{
+		long[] live = registry.getLive();
+		int size = 0;
+		for(int i = 0; i < Math.min(words.length, live.length); i++)
+			size += Long.bitCount(words[i] & live[i]);
+		return size;
+	}
+
+	/**
+	 * @return the number of 64-bit words used by the set.
+	 */
+	public int getWordCount()
+	{
+		return words.length;
+	}
+
+	@Override
+	public Iterator<Match> iterator()
+	{
+		return new Iterator<Match>() {
+			/**
+			 * The number of the next match to return, or <code>-1</code> if it has not been searched for.
+			 */
+			int	next	= -1;
+			/**
+			 * The number of the last returned match.
+			 */
+			int	last	= -1;
+
+			/**
+			 * Searches for the next bit that corresponds to a live match.
+			 *
+			 * @return the number of the match, or <code>-1</code> if there are no more.
+			 */
+			private int advance()
+			{
+				int i = last + 1;
+				while((i >> 6) < words.length)
+				{
+					long word = words[i >> 6] & (-1L << i);
+					if(word == 0)
+					{
+						i = ((i >> 6) + 1) << 6;
+						continue;
+					}
+					i = ((i >> 6) << 6) + Long.numberOfTrailingZeros(word);
+					if(registry.getMatch(i) != null)
+						return i;
+					i++;
+				}
+				return -1;
+			}
+
+			@Override
+			public boolean hasNext()
+			{
+				if(next < 0)
+					next = advance();
+				return next >= 0;
+			}
+
+			@Override
+			public Match next()
+			{
+				if(!hasNext())
+					throw new NoSuchElementException();
+				last = next;
+				next = -1;
+				return registry.getMatch(last);
+			}
+
+			@Override
+			public void remove()
+			{
+				if(last < 0)
+					throw new IllegalStateException();
+				clearBit(last);
+			}
+		};
+	}
+
+	/**
+	 * Computes the merge candidates of the result of merging two matches: MC = (MC1 n MC2) u (MC1 n MO2) u (MC2 n MO1),
+	 * retaining only live matches.
+	 *
+	 * @param mc1
+	 *            - the merge candidates of the first match.
+	 * @param mo1
+	 *            - the outer merge candidates of the first match.
+	 * @param mc2
+	 *            - the merge candidates of the second match.
+	 * @param mo2
+	 *            - the outer merge candidates of the second match.
+	 * @return the new set.
+	 */
+	static MatchSet mergeCandidates(MatchSet mc1, MatchSet mo1, MatchSet mc2, MatchSet mo2)
+	{
+		long[] a = mc1.words, ao = mo1.words, b = mc2.words, bo = mo2.words;
+		long[] live = mc1.registry.getLive();
+		long[] result = new long[Math.min(Math.max(a.length, b.length), live.length)];
+		for(int i = 0; i < result.length; i++)
+		{
+			long wa = (i < a.length) ? a[i] : 0;
+			long wb = (i < b.length) ? b[i] : 0;
+			long wao = (i < ao.length) ? ao[i] : 0;
+			long wbo = (i < bo.length) ? bo[i] : 0;
+			result[i] = ((wa & (wb | wbo)) | (wb & wao)) & live[i];
+		}
+		return new MatchSet(mc1.registry, result);
+	}
+
+	/**
+	 * Computes the intersection of two sets, retaining only live matches.
+	 *
+	 * @param s1
+	 *            - a set.
+	 * @param s2
+	 *            - the other set.
+	 * @return the new set.
+	 */
+	static MatchSet intersection(MatchSet s1, MatchSet s2)
+	{
+		long[] live = s1.registry.getLive();
+		long[] result = new long[Math.min(Math.min(s1.words.length, s2.words.length), live.length)];
+		for(int i = 0; i < result.length; i++)
+			result[i] = s1.words[i] & s2.words[i] & live[i];
+		return new MatchSet(s1.registry, result);
+	}
+
+	/**
+	 * @param setWords
+	 *            - an array of words.
+	 * @return the array without trailing zero words (a copy, if there were any).
+	 */
+	protected static long[] trim(long[] setWords)
+	{
+		int length = setWords.length;
+		while((length > 0) && (setWords[length - 1] == 0))
+			length--;
+		if(length == setWords.length)
+			return setWords;
+		return (length == 0) ? NO_WORDS : Arrays.copyOf(setWords, length);
+	}
+}
@@ -1,6 +1,7 @@
 package net.xqhs.graphs.matcher;
 
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import net.xqhs.util.logging.Debug.DebugItem;
 import net.xqhs.util.logging.LoggerSimple;
@@ -14,11 +15,142 @@ import net.xqhs.util.logging.LoggerSimple;
  * It offers the logging methods specified by {@link LoggerSimple}.
  * <p>
  * It maintains a link with an instance of {@link MatchingVisualizer}.
+ * <p>
+ * The way in which performance indicators are counted is chosen at construction (see {@link Counting}): in shared
+ * counters (the default), in counters striped by thread, which avoids contention when several threads count at the
+ * same time, or not at all. The values of the indicators are obtained together by means of {@link #getSnapshot()}.
  *
  * @author Andrei Olaru
  */
 public class MonitorPack implements LoggerSimple
 {
+	/**
+	 * The ways in which performance indicators can be counted.
+	 *
+	 * @since 1.6
+	 */
+	public static enum Counting {
+		/**
+		 * Performance indicators are not counted; they remain <code>0</code>.
+		 */
+		OFF,
+		
+		/**
+		 * Performance indicators are counted in atomic counters shared by all threads.
+		 */
+		SHARED,
+		
+		/**
+		 * Performance indicators are counted in atomic counters striped by thread, so that threads counting at the
+		 * same time mostly update different counters, in different cache lines. Reading an indicator adds up all
+		 * stripes.
+		 */
+		STRIPED,
+	}
+	
+	/**
+	 * The values of the performance indicators of a {@link MonitorPack} at some moment (see {@link #getSnapshot()}).
+	 *
+	 * @since 1.6
+	 */
+	public static class Snapshot
+	{
+		/**
+		 * The number of compared node references.
+		 */
+		public final int	nodes;
+		/**
+		 * The number of compared node labels.
+		 */
+		public final int	nodeLabels;
+		/**
+		 * The number of compared edge references.
+		 */
+		public final int	edges;
+		/**
+		 * The number of compared edge labels.
+		 */
+		public final int	edgeLabels;
+		/**
+		 * The number of created matches.
+		 */
+		public final int	matches;
+		/**
+		 * The number of merges between matches.
+		 */
+		public final int	merges;
+		/**
+		 * The number of stored matches.
+		 */
+		public final int	storedMatches;
+		/**
+		 * The memory indication.
+		 */
+		public final int	memory;
+		
+		/**
+		 * Creates a snapshot of the indicators of a monitor.
+		 *
+		 * @param monitor
+		 *            - the monitor.
+		 */
+		protected Snapshot(MonitorPack monitor)
+		{
+			nodes = monitor.getPerformanceNodes();
+			nodeLabels = monitor.getPerformanceNodesLabels();
+			edges = monitor.getPerformanceEdges();
+			edgeLabels = monitor.getPerformanceEdgesLabels();
+			matches = monitor.getMatchCount();
+			merges = monitor.getMergeCount();
+			storedMatches = monitor.storedMatches.get();
+			memory = monitor.getMemoryIndication();
+		}
+		
+		/**
+		 * Returns a one-line view of the performance indicators, as printed by {@link MonitorPack#printStats()}.
+		 */
+		@Override
+		public String toString()
+		{
+			String stats = "";
+			stats += "nodes Ops|Labels: " + nodes + "|" + nodeLabels + "; edges Ops|Labels: " + edges + "|"
+					+ edgeLabels + "; matches: " + matches + "; merges: " + merges + "; stored/memory: "
+					+ storedMatches + "/" + memory;
+			stats += " $$> " + nodes + ", " + nodeLabels + ", " + edges + ", " + edgeLabels + ", " + matches + ", "
+					+ merges + ", " + storedMatches + ", " + memory + "<$$";
+			return stats;
+		}
+	}
+	
+	/**
+	 * The number of counters in a stripe, so that stripes are in different cache lines (with no more than 128 bytes).
+	 */
+	protected static final int	STRIPE_SIZE				= 16;
+	/**
+	 * Index of the counter of compared node references, in a stripe.
+	 */
+	protected static final int	NODES					= 0;
+	/**
+	 * Index of the counter of compared node labels, in a stripe.
+	 */
+	protected static final int	NODE_LABELS				= 1;
+	/**
+	 * Index of the counter of compared edge references, in a stripe.
+	 */
+	protected static final int	EDGES					= 2;
+	/**
+	 * Index of the counter of compared edge labels, in a stripe.
+	 */
+	protected static final int	EDGE_LABELS				= 3;
+	/**
+	 * Index of the counter of created matches, in a stripe.
+	 */
+	protected static final int	MATCHES					= 4;
+	/**
+	 * Index of the counter of merges, in a stripe.
+	 */
+	protected static final int	MERGES					= 5;
+	
 	/**
 	 * Matching visualizer to view the matching process.
 	 */
@@ -64,6 +196,53 @@ public class MonitorPack implements LoggerSimple
 	 */
 	AtomicInteger		storedMatches			= new AtomicInteger();
 	
+	/**
+	 * The way in which performance indicators are counted.
+	 */
+	protected final Counting		counting;
+	/**
+	 * The striped counters, if counting is {@link Counting#STRIPED}; <code>null</code> otherwise.
+	 */
+	protected final AtomicLongArray	stripes;
+	/**
+	 * The number of stripes, minus one (the number of stripes is a power of 2).
+	 */
+	protected final int				stripeMask;
+	
+	/**
+	 * Creates a monitor that counts performance indicators in shared counters.
+	 */
+	public MonitorPack()
+	{
+		this(Counting.SHARED);
+	}
+	
+	/**
+	 * Creates a monitor that counts performance indicators in the specified way.
+	 *
+	 * @param countingMode
+	 *            - the way in which performance indicators are counted.
+	 *
+	 * @since 1.6
+	 */
+	public MonitorPack(Counting countingMode)
+	{
+		counting = countingMode;
+		if(counting == Counting.STRIPED)
+		{
+			int n = 1;
+			while(n < 2 * Runtime.getRuntime().availableProcessors())
+				n <<= 1;
+			stripes = new AtomicLongArray(n * STRIPE_SIZE);
+			stripeMask = n - 1;
+		}
+		else
+		{
+			stripes = null;
+			stripeMask = 0;
+		}
+	}
+	
 	/**
 	 * Sets the log to use by this instance. All logging messages posted to this instance will be posted to the log
 	 * specified in the argument.
@@ -104,7 +283,7 @@ public class MonitorPack implements LoggerSimple
 	 */
 	public int getPerformanceNodes()
 	{
-		return performanceNodes.get();
+		return get(performanceNodes, NODES);
 	}
 	
 	/**
@@ -112,7 +291,7 @@ public class MonitorPack implements LoggerSimple
 	 */
 	public int getPerformanceNodesLabels()
 	{
-		return performanceNodesLabels.get();
+		return get(performanceNodesLabels, NODE_LABELS);
 	}
 	
 	/**
@@ -120,7 +299,7 @@ public class MonitorPack implements LoggerSimple
 	 */
 	public int getPerformanceEdges()
 	{
-		return performanceEdges.get();
+		return get(performanceEdges, EDGES);
 	}
 	
 	/**
@@ -128,7 +307,7 @@ public class MonitorPack implements LoggerSimple
 	 */
 	public int getPerformanceEdgesLabels()
 	{
-		return performanceEdgesLabels.get();
+		return get(performanceEdgesLabels, EDGE_LABELS);
 	}
 	
 	/**
@@ -136,7 +315,7 @@ public class MonitorPack implements LoggerSimple
 	 */
 	public int getMatchCount()
 	{
-		return matchCount.get();
+		return get(matchCount, MATCHES);
 	}
 	
 	/**
@@ -144,7 +323,7 @@ public class MonitorPack implements LoggerSimple
 	 */
 	public int getMergeCount()
 	{
-		return mergeCount.get();
+		return get(mergeCount, MERGES);
 	}
 	
 	/**
@@ -158,11 +337,11 @@ public class MonitorPack implements LoggerSimple
 	/**
 	 * Increments the performance indicator.
 	 *
-	 * @return the current (updated) value.
+	 * @return the current (updated) value, if counting is {@link Counting#SHARED}; <code>0</code> otherwise.
 	 */
 	public int incrementEdgeLabelComparison()
 	{
-		return performanceEdgesLabels.incrementAndGet();
+		return count(performanceEdgesLabels, EDGE_LABELS, 1);
 	}
 	
 	/**
@@ -170,21 +349,21 @@ public class MonitorPack implements LoggerSimple
 	 *
 	 * @param increment
 	 *            the increment.
-	 * @return the current (updated) value.
+	 * @return the current (updated) value, if counting is {@link Counting#SHARED}; <code>0</code> otherwise.
 	 */
 	public int incrementEdgeLabelComparison(int increment)
 	{
-		return performanceEdgesLabels.addAndGet(increment);
+		return count(performanceEdgesLabels, EDGE_LABELS, increment);
 	}
 	
 	/**
 	 * Increments the performance indicator.
 	 *
-	 * @return the current (updated) value.
+	 * @return the current (updated) value, if counting is {@link Counting#SHARED}; <code>0</code> otherwise.
 	 */
 	public int incrementEdgeReferenceOperation()
 	{
-		return performanceEdges.incrementAndGet();
+		return count(performanceEdges, EDGES, 1);
 	}
 	
 	/**
@@ -192,21 +371,21 @@ public class MonitorPack implements LoggerSimple
 	 *
 	 * @param increment
 	 *            the increment.
-	 * @return the current (updated) value.
+	 * @return the current (updated) value, if counting is {@link Counting#SHARED}; <code>0</code> otherwise.
 	 */
 	public int incrementEdgeReferenceOperation(int increment)
 	{
-		return performanceEdges.addAndGet(increment);
+		return count(performanceEdges, EDGES, increment);
 	}
 	
 	/**
 	 * Increments the performance indicator.
 	 *
-	 * @return the current (updated) value.
+	 * @return the current (updated) value, if counting is {@link Counting#SHARED}; <code>0</code> otherwise.
 	 */
 	public int incrementNodeLabelComparison()
 	{
-		return performanceNodesLabels.incrementAndGet();
+		return count(performanceNodesLabels, NODE_LABELS, 1);
 	}
 	
 	/**
@@ -214,21 +393,21 @@ public class MonitorPack implements LoggerSimple
 	 *
 	 * @param increment
 	 *            the increment.
-	 * @return the current (updated) value.
+	 * @return the current (updated) value, if counting is {@link Counting#SHARED}; <code>0</code> otherwise.
 	 */
 	public int incrementNodeLabelComparison(int increment)
 	{
-		return performanceNodesLabels.addAndGet(increment);
+		return count(performanceNodesLabels, NODE_LABELS, increment);
 	}
 	
 	/**
 	 * Increments the performance indicator.
 	 *
-	 * @return the current (updated) value.
+	 * @return the current (updated) value, if counting is {@link Counting#SHARED}; <code>0</code> otherwise.
 	 */
 	public int incrementNodeReferenceOperation()
 	{
-		return performanceNodes.incrementAndGet();
+		return count(performanceNodes, NODES, 1);
 	}
 	
 	/**
@@ -236,31 +415,31 @@ public class MonitorPack implements LoggerSimple
 	 *
 	 * @param increment
 	 *            the increment.
-	 * @return the current (updated) value.
+	 * @return the current (updated) value, if counting is {@link Counting#SHARED}; <code>0</code> otherwise.
 	 */
 	public int incrementNodeReferenceOperation(int increment)
 	{
-		return performanceNodes.addAndGet(increment);
+		return count(performanceNodes, NODES, increment);
 	}
 	
 	/**
 	 * Increments the performance indicator.
 	 *
-	 * @return the current (updated) value.
+	 * @return the current (updated) value, if counting is {@link Counting#SHARED}; <code>0</code> otherwise.
 	 */
 	public int incrementMatchCount()
 	{
-		return matchCount.incrementAndGet();
+		return count(matchCount, MATCHES, 1);
 	}
 	
 	/**
 	 * Increments the performance indicator.
 	 *
-	 * @return the current (updated) value.
+	 * @return the current (updated) value, if counting is {@link Counting#SHARED}; <code>0</code> otherwise.
 	 */
 	public int incrementMergeCount()
 	{
-		return mergeCount.incrementAndGet();
+		return count(mergeCount, MERGES, 1);
 	}
 	
 	/**
@@ -292,19 +471,76 @@ public class MonitorPack implements LoggerSimple
 	}
 	
 	/**
-	 * Prints a one-line view of the performance indicators, as a log line (if any log exists).
+	 * Adds a value to a performance indicator, in the way specified by {@link #counting}.
+	 *
+	 * @param counter
+	 *            - the shared counter of the indicator.
+	 * @param index
+	 *            - the index of the counter of the indicator, in a stripe.
+	 * @param increment
+	 *            - the value to add.
+	 * @return the current (updated) value, if counting is {@link Counting#SHARED}; <code>0</code> otherwise.
+	 */
+	protected int count(AtomicInteger counter, int index, int increment)
+	{
+		if(counting == Counting.SHARED)
+			return counter.addAndGet(increment);
+		if(stripes != null)
+			stripes.addAndGet(((int) Thread.currentThread().getId() & stripeMask) * STRIPE_SIZE + index, increment);
+		return 0;
+	}
+	
+	/**
+	 * Retrieves the value of a performance indicator. For striped counting, the value is the sum of all stripes; it
+	 * may not include concurrent updates.
+	 *
+	 * @param counter
+	 *            - the shared counter of the indicator.
+	 * @param index
+	 *            - the index of the counter of the indicator, in a stripe.
+	 * @return the value of the indicator.
+	 */
+	protected int get(AtomicInteger counter, int index)
+	{
+		if(stripes == null)
+			return counter.get();
+		long sum = 0;
+		for(int i = index; i < stripes.length(); i += STRIPE_SIZE)
+			sum += stripes.get(i);
+		return (int) sum;
+	}
+	
+	/**
+	 * @return the way in which performance indicators are counted.
+	 *
+	 * @since 1.6
+	 */
+	public Counting getCounting()
+	{
+		return counting;
+	}
+	
+	/**
+	 * Retrieves the values of all performance indicators.
+	 *
+	 * @return a {@link Snapshot} of the indicators.
+	 *
+	 * @since 1.6
+	 */
+	public Snapshot getSnapshot()
+	{
+		return new Snapshot(this);
+	}
+	
+	/**
+	 * Prints a one-line view of the performance indicators (see {@link Snapshot#toString()}), as a log line (if any
+	 * log exists).
 	 *
 	 * @return the same string that was printed.
 	 */
 	public String printStats()
 	{
-		String stats = "";
-		stats += "nodes Ops|Labels: " + performanceNodes + "|" + performanceNodesLabels + "; edges Ops|Labels: "
-				+ performanceEdges + "|" + performanceEdgesLabels + "; matches: " + matchCount + "; merges: "
-				+ mergeCount + "; stored/memory: " + storedMatches + "/" + memory;
-		stats += " $$> " + performanceNodes + ", " + performanceNodesLabels + ", " + performanceEdges + ", "
-				+ performanceEdgesLabels + ", " + matchCount + ", " + mergeCount + ", " + storedMatches + ", " + memory
-				+ "<$$";
+		String stats = getSnapshot().toString();
 		li(stats);
 		return stats;
 	}
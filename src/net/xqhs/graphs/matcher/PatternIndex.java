@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.graphs.matcher;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.Node;
+import net.xqhs.graphs.pattern.GraphPattern;
+
+/**
+ * Numbering of the nodes and edges of a {@link GraphPattern}, used by the compact representation of {@link Match}
+ * instances: the parts of a match are stored as arrays and bit sets indexed by the numbers assigned here, instead of
+ * graphs and maps.
+ * <p>
+ * The index is a snapshot of the pattern at the moment of its creation; it is immutable and may be shared by all
+ * matches of the same pattern, including by several threads. The pattern should not change while the index is in use.
+ *
+ * @author Andrei Olaru
+ */
+public class PatternIndex
+{
+	/**
+	 * The pattern.
+	 */
+	protected final GraphPattern		pattern;
+	/**
+	 * The nodes of the pattern, by index. Also contains nodes that are adjacent to edges of the pattern, but are not in
+	 * the pattern themselves.
+	 */
+	protected final Node[]				nodes;
+	/**
+	 * The edges of the pattern, by index.
+	 */
+	protected final Edge[]				edges;
+	/**
+	 * The index of each node.
+	 */
+	protected final Map<Node, Integer>	nodeIndexes;
+	/**
+	 * The index of each edge.
+	 */
+	protected final Map<Edge, Integer>	edgeIndexes;
+	/**
+	 * For each edge, the index of its source node.
+	 */
+	protected final int[]				edgeFrom;
+	/**
+	 * For each edge, the index of its destination node.
+	 */
+	protected final int[]				edgeTo;
+	/**
+	 * For each node, the number of edge ends adjacent to it (the sum of its in-degree and out-degree; a loop counts
+	 * twice).
+	 */
+	protected final int[]				degree;
+
+	/**
+	 * Creates an index of the current nodes and edges of a pattern.
+	 *
+	 * @param graphPattern
+	 *            - the pattern.
+	 */
+	public PatternIndex(GraphPattern graphPattern)
+	{
+		pattern = graphPattern;
+		nodeIndexes = new HashMap<Node, Integer>();
+		edgeIndexes = new HashMap<Edge, Integer>();
+		for(Node node : pattern.getNodes())
+			nodeIndexes.put(node, new Integer(nodeIndexes.size()));
+		edges = pattern.getEdges().toArray(new Edge[pattern.getEdges().size()]);
+		edgeFrom = new int[edges.length];
+		edgeTo = new int[edges.length];
+		for(int i = 0; i < edges.length; i++)
+		{
+			edgeIndexes.put(edges[i], new Integer(i));
+			edgeFrom[i] = indexNode(edges[i].getFrom());
+			edgeTo[i] = indexNode(edges[i].getTo());
+		}
+		nodes = new Node[nodeIndexes.size()];
+		for(Map.Entry<Node, Integer> entry : nodeIndexes.entrySet())
+			nodes[entry.getValue().intValue()] = entry.getKey();
+		degree = new int[nodes.length];
+		for(int i = 0; i < edges.length; i++)
+		{
+			degree[edgeFrom[i]]++;
+			degree[edgeTo[i]]++;
+		}
+	}
+
+	/**
+	 * Retrieves the index of a node, assigning a new index if the node does not have one.
+	 *
+	 * @param node
+	 *            - the node.
+	 * @return the index.
+	 */
+	private int indexNode(Node node)
+	{
+		Integer index = nodeIndexes.get(node);
+		if(index == null)
+		{
+			index = new Integer(nodeIndexes.size());
+			nodeIndexes.put(node, index);
+		}
+		return index.intValue();
+	}
+
+	/**
+	 * @return the indexed pattern.
+	 */
+	public GraphPattern getPattern()
+	{
+		return pattern;
+	}
+
+	/**
+	 * @return the number of indexed nodes.
+	 */
+	public int n()
+	{
+		return nodes.length;
+	}
+
+	/**
+	 * @return the number of indexed edges.
+	 */
+	public int m()
+	{
+		return edges.length;
+	}
+
+	/**
+	 * @param index
+	 *            - the index of a node.
+	 * @return the node.
+	 */
+	public Node getNode(int index)
+	{
+		return nodes[index];
+	}
+
+	/**
+	 * @param index
+	 *            - the index of an edge.
+	 * @return the edge.
+	 */
+	public Edge getEdge(int index)
+	{
+		return edges[index];
+	}
+
+	/**
+	 * @param node
+	 *            - the node.
+	 * @return the index of the node, or <code>-1</code> if the node is not indexed.
+	 */
+	public int indexOf(Node node)
+	{
+		Integer index = nodeIndexes.get(node);
+		return (index != null) ? index.intValue() : -1;
+	}
+
+	/**
+	 * @param edge
+	 *            - the edge.
+	 * @return the index of the edge, or <code>-1</code> if the edge is not indexed.
+	 */
+	public int indexOf(Edge edge)
+	{
+		Integer index = edgeIndexes.get(edge);
+		return (index != null) ? index.intValue() : -1;
+	}
+
+	/**
+	 * Checks if another index assigns the same numbers to the same nodes and edges, so that matches using the two
+	 * indexes can be combined.
+	 *
+	 * @param other
+	 *            - the other index.
+	 * @return <code>true</code> if the indexes are equivalent.
+	 */
+	public boolean isEquivalent(PatternIndex other)
+	{
+		return (other == this)
+				|| ((other != null) && (other.pattern == pattern) && Arrays.equals(other.nodes, nodes) && Arrays
+						.equals(other.edges, edges));
+	}
+}
@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.graphs.matcher;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.Node;
+import net.xqhs.graphs.graph.SimpleEdge;
+import net.xqhs.graphs.graph.SimpleNode;
+import net.xqhs.graphs.matcher.GraphMatcherQuick.EdgeComparator;
+import net.xqhs.graphs.pattern.EdgeP;
+import net.xqhs.graphs.pattern.GraphPattern;
+import net.xqhs.graphs.pattern.NodeP;
+import net.xqhs.util.config.Config.ConfigLockedException;
+
+/**
+ * Information about a {@link GraphPattern} that is needed by every matching process of the pattern, and that only
+ * depends on the pattern: the numbering of its nodes and edges (the {@link PatternIndex}), the start vertex and the
+ * distances of the other vertices to it, and the order in which pattern edges are used for initial matches.
+ * <p>
+ * A plan is immutable, and the plan of a pattern is computed once and shared by all matchers of the pattern (see
+ * {@link #getPlan(GraphPattern)}), as long as the pattern does not change: if nodes or edges are added to or removed
+ * from the pattern, or if nodes or edges are relabeled, a new plan is computed for the next matcher. The plan of a
+ * pattern that was locked (see {@link GraphPattern#lock()}) when the plan was computed is always reused, as the pattern
+ * is not expected to change anymore. Plans which are not used by any matcher may be discarded when memory is needed.
+ *
+ * @author Andrei Olaru
+ *
+ * @since 1.6
+ */
+public class PatternPlan
+{
+	/**
+	 * The plans computed for patterns.
+	 */
+	protected static final Map<GraphPattern, SoftReference<PatternPlan>>	plans	=
+			new WeakHashMap<GraphPattern, SoftReference<PatternPlan>>();
+
+	/**
+	 * The numbering of the nodes and edges of the pattern.
+	 */
+	protected final PatternIndex		index;
+	/**
+	 * The modification count of the pattern when the plan was computed.
+	 */
+	protected final long				patternVersion;
+	/**
+	 * The sum of the relabel counts of nodes and edges when the plan was computed.
+	 */
+	protected final long				relabelVersion;
+	/**
+	 * <code>true</code> if the pattern was locked when the plan was computed, in which case the plan is always current.
+	 */
+	protected final boolean				locked;
+	/**
+	 * The start vertex: the vertex with the greatest difference between out-degree and in-degree (other criteria
+	 * assure that the choice is always the same). It is <code>null</code> for an empty pattern.
+	 */
+	protected final Node				startVertex;
+	/**
+	 * The distances of vertices to the start vertex, with edges considered undirected.
+	 */
+	protected final Map<Node, Integer>	distances;
+	/**
+	 * The edges of the pattern that can be part of initial (single-edge) matches, which are the edges that are not
+	 * generic, ordered by label (see {@link EdgeComparator}).
+	 */
+	protected final List<Edge>			initialEdges;
+
+	/**
+	 * Computes the plan of a pattern. The plans of patterns should rather be obtained by means of
+	 * {@link #getPlan(GraphPattern)}.
+	 *
+	 * @param pattern
+	 *            - the pattern.
+	 */
+	protected PatternPlan(final GraphPattern pattern)
+	{
+		patternVersion = pattern.getModificationCount();
+		relabelVersion = SimpleNode.getRelabelCount() + SimpleEdge.getRelabelCount();
+		locked = isLocked(pattern);
+		index = new PatternIndex(pattern);
+
+		// vertices ordered by out-degree (minus in-degree) (first is greatest)
+		SortedSet<Node> vertexSet = new TreeSet<Node>(new Comparator<Node>() {
+			@Override
+			public int compare(Node n1, Node n2)
+			{
+				int out1 = pattern.getOutEdges(n1).size() - pattern.getInEdges(n1).size();
+				int out2 = pattern.getOutEdges(n2).size() - pattern.getInEdges(n2).size();
+				if(out1 != out2)
+					return -(out1 - out2);
+				if(n1 instanceof NodeP && n2 instanceof NodeP)
+				{
+					NodeP n1P = (NodeP) n1, n2P = (NodeP) n2;
+					if(n1P.isGeneric() && n2P.isGeneric())
+					{
+						if(n1P.genericIndex() == n2P.genericIndex())
+							return n1P.hashCode() - n2P.hashCode();
+						return n1P.genericIndex() - n2P.genericIndex();
+					}
+					if(n1P.isGeneric())
+						return -1;
+					if(n2P.isGeneric())
+						return 1;
+				}
+				if(n1.getLabel().equals(n2.getLabel()))
+					return n1.hashCode() - n2.hashCode();
+				return n1.getLabel().compareTo(n2.getLabel());
+			}
+		});
+		vertexSet.addAll(pattern.getNodes());
+		startVertex = vertexSet.isEmpty() ? null : vertexSet.first();
+		distances = Collections.unmodifiableMap((startVertex != null) ? pattern
+				.computeDistancesFromUndirected(startVertex) : Collections.<Node, Integer> emptyMap());
+
+		SortedSet<Edge> edgeSet = new TreeSet<Edge>(new EdgeComparator(null));
+		edgeSet.addAll(pattern.getEdges());
+		List<Edge> initial = new ArrayList<Edge>();
+		for(Edge eP : edgeSet)
+			if(!((eP instanceof EdgeP) && ((EdgeP) eP).isGeneric()))
+				initial.add(eP);
+		initialEdges = Collections.unmodifiableList(initial);
+	}
+
+	/**
+	 * Returns the plan of a pattern, computing it if the pattern has no plan yet, or if the pattern has changed since
+	 * its plan was computed.
+	 *
+	 * @param pattern
+	 *            - the pattern.
+	 * @return the plan.
+	 */
+	public static PatternPlan getPlan(GraphPattern pattern)
+	{
+		synchronized(plans)
+		{
+			SoftReference<PatternPlan> reference = plans.get(pattern);
+			PatternPlan plan = (reference != null) ? reference.get() : null;
+			if((plan == null) || !plan.isCurrent())
+			{
+				plan = new PatternPlan(pattern);
+				plans.put(pattern, new SoftReference<PatternPlan>(plan));
+			}
+			return plan;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the pattern was locked when the plan was computed, or if neither the pattern nor any
+	 *         labels have changed since the plan was computed.
+	 */
+	public boolean isCurrent()
+	{
+		return locked || ((index.getPattern().getModificationCount() == patternVersion)
+				&& (SimpleNode.getRelabelCount() + SimpleEdge.getRelabelCount() == relabelVersion));
+	}
+
+	/**
+	 * @param pattern
+	 *            - the pattern.
+	 * @return <code>true</code> if the pattern is locked (see {@link GraphPattern#lock()}).
+	 */
+	protected static boolean isLocked(GraphPattern pattern)
+	{
+		try
+		{
+			pattern.locked();
+			return false;
+		} catch(ConfigLockedException e)
+		{
+			return true;
+		}
+	}
+
+	/**
+	 * @return the pattern.
+	 */
+	public GraphPattern getPattern()
+	{
+		return index.getPattern();
+	}
+
+	/**
+	 * @return the numbering of the nodes and edges of the pattern.
+	 */
+	public PatternIndex getIndex()
+	{
+		return index;
+	}
+
+	/**
+	 * @return the start vertex, or <code>null</code> if the pattern is empty.
+	 */
+	public Node getStartVertex()
+	{
+		return startVertex;
+	}
+
+	/**
+	 * @return the distances of vertices to the start vertex, with edges considered undirected (unmodifiable).
+	 */
+	public Map<Node, Integer> getDistances()
+	{
+		return distances;
+	}
+
+	/**
+	 * @return the edges of the pattern that can be part of initial matches, ordered by label (unmodifiable).
+	 */
+	public List<Edge> getInitialEdges()
+	{
+		return initialEdges;
+	}
+}
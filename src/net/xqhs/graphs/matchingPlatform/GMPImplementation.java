@@ -6,15 +6,24 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import net.xqhs.graphs.graph.Edge;
 import net.xqhs.graphs.graph.Graph;
 import net.xqhs.graphs.graph.GraphComponent;
+import net.xqhs.graphs.graph.Node;
+import net.xqhs.graphs.graph.SimpleGraph;
 import net.xqhs.graphs.matcher.GraphMatchingProcess;
 import net.xqhs.graphs.matcher.Match;
 import net.xqhs.graphs.matcher.MonitorPack;
@@ -73,6 +82,29 @@ public class GMPImplementation extends Unit implements GraphMatchingPlatform
 		}
 	}
 	
+	/**
+	 * The work done for the matching process of each pattern at an increment of the matching sequence (see
+	 * {@link GMPImplementation#forEachPattern(PatternTask)}).
+	 *
+	 * @param <T>
+	 *            - the type of the result of the work.
+	 *
+	 * @author Andrei Olaru
+	 *
+	 * @since 1.6
+	 */
+	protected interface PatternTask<T>
+	{
+		/**
+		 * Does the work for the matching process of a pattern.
+		 *
+		 * @param gm
+		 *            - the matching process.
+		 * @return the result.
+		 */
+		public T run(GraphMatcherPersistent gm);
+	}
+	
 	/**
 	 * The {@link MonitorPack} instance to use for performance measuring.
 	 */
@@ -91,6 +123,15 @@ public class GMPImplementation extends Unit implements GraphMatchingPlatform
 	 * graph with every sequence increment.
 	 */
 	PlatformShadowGraph							matchingGraph	= null;
+	/**
+	 * The executor used to update the matching processes of the patterns in parallel; <code>null</code> if they are
+	 * updated sequentially.
+	 */
+	ExecutorService								executor		= null;
+	/**
+	 * The maximum number of tasks in which the updates of the matching processes are split.
+	 */
+	int											parallelism		= 1;
 	
 	/**
 	 * Sets the {@link MonitorPack} instance to use for monitoring.
@@ -108,6 +149,34 @@ public class GMPImplementation extends Unit implements GraphMatchingPlatform
 		return this;
 	}
 	
+	/**
+	 * Sets the executor to use for updating the matching processes of the patterns in parallel (e.g. a
+	 * <code>ForkJoinPool</code>, or any other {@link ExecutorService}). At each increment of the matching sequence, the
+	 * matching processes of the patterns -- removing, adding and growing their matches -- are updated in a number of
+	 * tasks, each updating a part of the patterns, and the increment completes after all tasks have completed. The
+	 * matching graph is only read while the tasks run, and its indexes are frozen meanwhile (see
+	 * {@link SimpleGraph#setIndexesFrozen(boolean)}).
+	 * <p>
+	 * The matching processes use the same {@link MonitorPack}, which should count in the
+	 * {@link MonitorPack.Counting#STRIPED} mode if the executor has several threads. The executor is not shut down by
+	 * the platform.
+	 *
+	 * @param executorService
+	 *            - the executor; <code>null</code> for sequential updates (the default).
+	 * @param maxTasks
+	 *            - the maximum number of tasks in which an update is split; usually, the number of threads of the
+	 *            executor.
+	 * @return the platform itself.
+	 *
+	 * @since 1.6
+	 */
+	public GMPImplementation setExecutor(ExecutorService executorService, int maxTasks)
+	{
+		executor = executorService;
+		parallelism = Math.max(1, maxTasks);
+		return this;
+	}
+	
 	@Override
 	public GMPImplementation setPrincipalGraph(PlatformPrincipalGraph graph)
 	{
@@ -145,6 +214,8 @@ public class GMPImplementation extends Unit implements GraphMatchingPlatform
 				matchingGraph = principalGraph.createShadowGraph();
 			// create new matching process
 			GraphMatcherPersistent matchingProcess = GraphMatcherPersistent.getMatcher(matchingGraph, pattern, monitor);
+			// the initial matches of the pattern will be part of its first delta
+			matchingProcess.setDeltaTracking(true);
 			patterns.put(pattern, matchingProcess);
 		}
 		return this;
@@ -174,43 +245,257 @@ public class GMPImplementation extends Unit implements GraphMatchingPlatform
 	@Override
 	public Set<Match> incrementSequence()
 	{
-		// FIXME take this out of here
-		int mem = 0;
-		int stored = 0;
-		for(GraphMatcherPersistent gm : patterns.values())
-		{
-			mem += gm.getMemory();
-			stored += gm.getStoredMatches();
-		}
-		monitor.setMemoryIndication(mem);
-		monitor.setStoredMatches(stored);
-		
+		updateMonitor();
 		if(!matchingGraph.canIncrement())
 			return null;
-		Map<GraphComponent, Operation> operations = matchingGraph.getNextSequenceOperations();
+		final Map<GraphComponent, Operation> operations = matchingGraph.getNextSequenceOperations();
 		// modify graph
 		matchingGraph.incrementSequence();
-		// TODO: what if a node is removed?
-		// remove matches that don't match anymore (edges ONLY)
+		final Set<Edge> addedEdges = getAddedEdges(operations);
+		
+		Set<Match> ret = new HashSet<Match>();
+		for(List<Match> matches : forEachPattern(new PatternTask<List<Match>>() {
+			@Override
+			public List<Match> run(GraphMatcherPersistent gm)
+			{
+				applyOperations(gm, operations, addedEdges);
+				if(D_G.D_NO_SAVED_DATA.toBool())
+					gm.clearData();
+				List<Match> matches = gm.getAllCompleteMatches();
+				// the changes are not needed, as all matches are returned
+				gm.takeDelta();
+				return matches;
+			}
+		}).values())
+			ret.addAll(matches);
+		return ret;
+	}
+	
+	/**
+	 * Moves the matching sequence one step closer to the graph sequence, as {@link #incrementSequence()} does, but
+	 * returns only the changes in the matches of each pattern since the previous delta for that pattern, instead of
+	 * all complete matches. A pattern's first delta contains all its matches.
+	 * <p>
+	 * The <i>k</i> of a match never changes; a change in the <i>k</i> of an occurrence of a pattern is reported as the
+	 * appearance of the match with the new <i>k</i> (e.g. when the match has grown by adding an edge) or as the
+	 * disappearance of the match with the old <i>k</i> (e.g. when an edge has been removed, and the smaller matches
+	 * remain valid).
+	 *
+	 * @param maxK
+	 *            - the maximum <i>k</i> of the reported matches.
+	 * @return a map with the patterns whose matches changed as keys and the changes as values, or <code>null</code> if
+	 *         the sequence cannot be incremented.
+	 *
+	 * @since 1.6
+	 */
+	public Map<GraphPattern, MatchDelta> incrementSequenceDelta(final int maxK)
+	{
+		updateMonitor();
+		if(!matchingGraph.canIncrement())
+			return null;
+		final Map<GraphComponent, Operation> operations = matchingGraph.getNextSequenceOperations();
+		matchingGraph.incrementSequence();
+		final Set<Edge> addedEdges = getAddedEdges(operations);
+		
+		Map<GraphPattern, MatchDelta> ret = new LinkedHashMap<GraphPattern, MatchDelta>();
+		for(Map.Entry<GraphPattern, MatchDelta> entry : forEachPattern(new PatternTask<MatchDelta>() {
+			@Override
+			public MatchDelta run(GraphMatcherPersistent gm)
+			{
+				applyOperations(gm, operations, addedEdges);
+				return gm.completeMatches().takeDelta().filter(maxK);
+			}
+		}).entrySet())
+			if(!entry.getValue().isEmpty())
+				ret.put(entry.getKey(), entry.getValue());
+		return ret;
+	}
+	
+	/**
+	 * Brings the matching sequence closer to the graph sequence, as {@link #incrementSequence(int)} does, but applies
+	 * all the transactions up to the target sequence at once. The operations in the transactions are reduced to their
+	 * net effect -- the addition and the removal of the same component cancel each other out -- and the matching
+	 * processes are updated only once.
+	 * <p>
+	 * Instead of all complete matches, only the changes are returned: the complete matches that appeared and those that
+	 * disappeared as a result of the transactions. Complete matches that appeared in an intermediate sequence and
+	 * disappeared before the target sequence are not returned.
+	 *
+	 * @param targetSequence
+	 *            - the desired sequence to reach; if not positive, the graph sequence is used.
+	 * @return the changes in complete matches, or <code>null</code> if there is nowhere to increment.
+	 *
+	 * @since 1.6
+	 */
+	public MatchDelta incrementSequenceBatch(int targetSequence)
+	{
+		int target = (targetSequence > 0) ? Math.min(targetSequence, getGraphSequence()) : getGraphSequence();
+		if((getMathingSequence() >= target) || !matchingGraph.canIncrement())
+			return null;
+		// the changes are tracked from the current state of the matching processes
+		for(GraphMatcherPersistent gm : patterns.values())
+			gm.setDeltaTracking(true).takeDelta();
+		
+		final Map<GraphComponent, Operation> operations = new LinkedHashMap<GraphComponent, Operation>();
+		while((getMathingSequence() < target) && matchingGraph.canIncrement())
+		{
+			for(Map.Entry<GraphComponent, Operation> op : matchingGraph.getNextSequenceOperations().entrySet())
+				// an operation cancels the previous, opposite, operation on the same component
+				if(operations.remove(op.getKey()) == null)
+					operations.put(op.getKey(), op.getValue());
+			matchingGraph.incrementSequence();
+		}
+		final Set<Edge> addedEdges = getAddedEdges(operations);
+		
+		MatchDelta ret = new MatchDelta();
+		for(MatchDelta delta : forEachPattern(new PatternTask<MatchDelta>() {
+			@Override
+			public MatchDelta run(GraphMatcherPersistent gm)
+			{
+				applyOperations(gm, operations, addedEdges);
+				return gm.completeMatches().takeDelta().filter(0);
+			}
+		}).values())
+			ret.addAll(delta);
+		return ret;
+	}
+	
+	/**
+	 * Runs a task for the matching process of each pattern. If an executor is set (see
+	 * {@link #setExecutor(ExecutorService, int)}), the patterns are split into parts which are processed in parallel,
+	 * and the method returns after all parts have been processed; otherwise, the tasks are run in the calling thread.
+	 *
+	 * @param <T>
+	 *            - the type of the results of the tasks.
+	 * @param task
+	 *            - the task.
+	 * @return a map with the patterns as keys and the results of the tasks as values.
+	 *
+	 * @throws IllegalStateException
+	 *             if the thread is interrupted while waiting.
+	 */
+	protected <T> Map<GraphPattern, T> forEachPattern(final PatternTask<T> task)
+	{
+		Map<GraphPattern, T> results = new LinkedHashMap<GraphPattern, T>();
+		if((executor == null) || (parallelism < 2) || (patterns.size() < 2))
+		{
+			for(Map.Entry<GraphPattern, GraphMatcherPersistent> entry : patterns.entrySet())
+				results.put(entry.getKey(), task.run(entry.getValue()));
+			return results;
+		}
+		final List<GraphPattern> keys = new ArrayList<GraphPattern>(patterns.keySet());
+		int partSize = (keys.size() + parallelism - 1) / parallelism;
+		List<Callable<List<T>>> tasks = new ArrayList<Callable<List<T>>>();
+		for(int start = 0; start < keys.size(); start += partSize)
+		{
+			final List<GraphPattern> part = keys.subList(start, Math.min(start + partSize, keys.size()));
+			tasks.add(new Callable<List<T>>() {
+				@Override
+				public List<T> call()
+				{
+					List<T> partResults = new ArrayList<T>();
+					for(GraphPattern pattern : part)
+						partResults.add(task.run(patterns.get(pattern)));
+					return partResults;
+				}
+			});
+		}
+		// the indexes of the graph are only read by the tasks; relabeling anywhere else must not trigger a rebuild
+		SimpleGraph graph = (matchingGraph instanceof SimpleGraph) ? (SimpleGraph) matchingGraph : null;
+		if(graph != null)
+			graph.setIndexesFrozen(true);
+		try
+		{
+			Iterator<GraphPattern> key = keys.iterator();
+			for(Future<List<T>> future : executor.invokeAll(tasks))
+				for(T result : future.get())
+					results.put(key.next(), result);
+		} catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while matching", e);
+		} catch(ExecutionException e)
+		{
+			// exceptions in tasks are thrown as if they occurred in the calling thread
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if(e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		} finally
+		{
+			if(graph != null)
+				graph.setIndexesFrozen(false);
+		}
+		return results;
+	}
+	
+	/**
+	 * Updates the matching process of a pattern with a set of operations which have been applied to the matching
+	 * graph. Matches are not grown.
+	 *
+	 * @param gm
+	 *            - the matching process.
+	 * @param operations
+	 *            - the operations.
+	 * @param addedEdges
+	 *            - the edges for which to add matches (see {@link #getAddedEdges(Map)}).
+	 */
+	protected static void applyOperations(GraphMatcherPersistent gm, Map<GraphComponent, Operation> operations,
+			Set<Edge> addedEdges)
+	{
+		// remove matches that don't match anymore: those containing removed edges or mapping removed nodes
 		for(Map.Entry<GraphComponent, Operation> op : operations.entrySet())
-			if((op.getValue() == Operation.REMOVE) && (op.getKey() instanceof Edge))
-				for(GraphMatcherPersistent gm : patterns.values())
+			if(op.getValue() == Operation.REMOVE)
+			{
+				if(op.getKey() instanceof Edge)
 					gm.removeMatches((Edge) op.getKey());
-		// TODO: what if a node is added resulting in an older edge having both nodes in the graph?
-		// add new matches for newly added edges (edges ONLY)
+				else
+					gm.removeMatches((Node) op.getKey());
+			}
+		for(Edge edge : addedEdges)
+			gm.addMatches(edge);
+	}
+	
+	/**
+	 * Finds the edges for which new matches may exist after a set of operations has been applied to the matching
+	 * graph: the newly added edges and the older edges whose endpoints have been added.
+	 *
+	 * @param operations
+	 *            - the operations.
+	 * @return the edges.
+	 */
+	protected Set<Edge> getAddedEdges(Map<GraphComponent, Operation> operations)
+	{
+		Set<Edge> addedEdges = new LinkedHashSet<Edge>();
 		for(Map.Entry<GraphComponent, Operation> op : operations.entrySet())
 			if((op.getValue() == Operation.ADD) && (op.getKey() instanceof Edge))
-				for(GraphMatcherPersistent gm : patterns.values())
-					gm.addMatches((Edge) op.getKey());
-		
-		Set<Match> ret = new HashSet<Match>();
+				addedEdges.add((Edge) op.getKey());
+		for(Map.Entry<GraphComponent, Operation> op : operations.entrySet())
+			if((op.getValue() == Operation.ADD) && (op.getKey() instanceof Node)
+					&& matchingGraph.contains(op.getKey()))
+			{
+				addedEdges.addAll(matchingGraph.getInEdges((Node) op.getKey()));
+				addedEdges.addAll(matchingGraph.getOutEdges((Node) op.getKey()));
+			}
+		return addedEdges;
+	}
+	
+	/**
+	 * Updates the memory and stored matches indications in the monitor.
+	 */
+	protected void updateMonitor()
+	{
+		// FIXME take this out of here
+		int mem = 0;
+		int stored = 0;
 		for(GraphMatcherPersistent gm : patterns.values())
 		{
-			if(D_G.D_NO_SAVED_DATA.toBool())
-				gm.clearData();
-			ret.addAll(gm.getAllCompleteMatches());
+			mem += gm.getMemory();
+			stored += gm.getStoredMatches();
 		}
-		return ret;
+		monitor.setMemoryIndication(mem);
+		monitor.setStoredMatches(stored);
 	}
 	
 	// FIXME: if there are no elements in the queue, the sequence is not incremented. should check for
@@ -1,21 +1,25 @@
 package net.xqhs.graphs.matchingPlatform;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
 import net.xqhs.graphs.graph.Edge;
 import net.xqhs.graphs.graph.Graph;
+import net.xqhs.graphs.graph.Node;
 import net.xqhs.graphs.matcher.GraphMatcherQuick;
 import net.xqhs.graphs.matcher.GraphMatchingProcess;
 import net.xqhs.graphs.matcher.Match;
 import net.xqhs.graphs.matcher.Match.MatchComparator;
+import net.xqhs.graphs.matcher.MatchRegistry;
 import net.xqhs.graphs.matcher.MonitorPack;
-import net.xqhs.graphs.pattern.EdgeP;
 import net.xqhs.graphs.pattern.GraphPattern;
 import net.xqhs.graphs.util.Debug.D_G;
 
@@ -30,6 +34,11 @@ import net.xqhs.graphs.util.Debug.D_G;
  */
 public class GraphMatcherPersistent extends GraphMatcherQuick
 {
+	/**
+	 * The minimum number of invalidated matches before the matcher is swept (see {@link #needsSweep()}).
+	 */
+	protected static final int		MIN_SWEPT		= 64;
+
 	/**
 	 * THe set of all matches, sorted by k (lowest k first).
 	 */
@@ -45,6 +54,20 @@ public class GraphMatcherPersistent extends GraphMatcherQuick
 	 * contained in any matches.
 	 */
 	protected Map<Edge, Set<Match>>	ePMatchIndex	= null;
+	/**
+	 * An index containing, for each graph node, the adjacent graph edges that are contained in the index of matches by
+	 * graph edge (see {@link #eMatchIndex}). It is used to find the matches to remove when a node is removed.
+	 */
+	protected Map<Node, Set<Edge>>	nEdgeIndex		= null;
+	/**
+	 * The number of matches invalidated since the last sweep (see {@link #sweep()}).
+	 */
+	protected int					invalidated		= 0;
+	/**
+	 * The changes in the matches since the last call of {@link #takeDelta()}, if changes are tracked; otherwise,
+	 * <code>null</code>.
+	 */
+	protected MatchDelta			delta			= null;
 
 	/**
 	 * Creates a new matcher for the specified graph and pattern. Any further changes to the graph will be signaled by
@@ -66,6 +89,7 @@ public class GraphMatcherPersistent extends GraphMatcherQuick
 		sortedMatches = new TreeSet<Match>(new MatchComparator(monitor));
 		eMatchIndex = new HashMap<Edge, Set<Match>>();
 		ePMatchIndex = new HashMap<Edge, Set<Match>>();
+		nEdgeIndex = new HashMap<Node, Set<Edge>>();
 		super.initializeMatching();
 		return this;
 	}
@@ -77,6 +101,11 @@ public class GraphMatcherPersistent extends GraphMatcherQuick
 		sortedMatches.clear();
 		eMatchIndex.clear();
 		ePMatchIndex.clear();
+		nEdgeIndex.clear();
+		invalidated = 0;
+		if(delta != null)
+			// the matches are discarded without being invalidated
+			delta = new MatchDelta();
 		return this;
 	}
 
@@ -87,11 +116,53 @@ public class GraphMatcherPersistent extends GraphMatcherQuick
 	 */
 	public GraphMatcherPersistent completeMatches()
 	{
+		if((matchQueue == null) || (allMatches == null))
+			initializeMatching();
+		// the list of existing matches is not checked, as with getAllMatches; any iteration over it is restarted
+		resetIterator(0);
+		matchIterator = null;
 		// it doesn't matter what k is used, all matches will be grown anyway.
-		getAllMatches(0);
+		growMatches(0, false);
 		return this;
 	}
 
+	/**
+	 * Starts or stops tracking the changes in the matches (see {@link #takeDelta()}). When tracking starts, the delta
+	 * is empty.
+	 *
+	 * @param active
+	 *            - <code>true</code> to track changes.
+	 * @return the instance itself.
+	 *
+	 * @since 1.6
+	 */
+	public GraphMatcherPersistent setDeltaTracking(boolean active)
+	{
+		if(!active)
+			delta = null;
+		else if(delta == null)
+			delta = new MatchDelta();
+		return this;
+	}
+
+	/**
+	 * Retrieves the matches that appeared and disappeared since the previous call of the method (or since the tracking
+	 * of changes started), and starts a new delta. Matches that are not grown yet have not appeared; use
+	 * {@link #completeMatches()} before calling the method in order to obtain all changes.
+	 *
+	 * @return the changes in the matches, or <code>null</code> if changes are not tracked (see
+	 *         {@link #setDeltaTracking(boolean)}).
+	 *
+	 * @since 1.6
+	 */
+	public MatchDelta takeDelta()
+	{
+		MatchDelta ret = delta;
+		if(delta != null)
+			delta = new MatchDelta();
+		return ret;
+	}
+
 	/**
 	 * The method should be called for each new edge added to the graph. It is assumed that the graph contains the new
 	 * edge when the method is called.
@@ -99,39 +170,44 @@ public class GraphMatcherPersistent extends GraphMatcherQuick
 	 * The method creates the initial matches containing the new edge, adds their merge candidates, but does not grow
 	 * any matches. This can be requested through any of the match retrieval methods or by calling
 	 * {@link #completeMatches()}.
+	 * <p>
+	 * Only edges having both endpoints in the graph are matched (see {@link #isActive(Edge)}). When a node is added to
+	 * the graph, the method should be called for the edges adjacent to the node that were already in the graph and
+	 * have become active, unless it has already been called for these edges since the node was added.
 	 *
 	 * @param e
-	 *            - the new edge added to the graph.
+	 *            - the new edge added to the graph, or an edge which was in the graph and whose last missing endpoint
+	 *            has been added.
 	 * @return the instance itself.
 	 */
 	public GraphMatcherPersistent addMatches(Edge e)
 	{
 		if((matchQueue == null) || (allMatches == null))
+		{
+			// the graph already contains the edge, so it is matched by the initialization
 			initializeMatching();
-		/**
-		 * Ordered pattern edges, according to label.
-		 */
-		SortedSet<Edge> sortedEdges = new TreeSet<Edge>(new EdgeComparator(monitor));
-		sortedEdges.addAll(pattern.getEdges());
-
+			return this;
+		}
+		if(!isActive(e))
+			// the edge will be matched when its endpoints are added
+			return this;
 		int edgeId = 0; // TODO
 		int matchId = 0; // TODO
-		for(Edge eP : sortedEdges)
+		ComparisonCounts counts = new ComparisonCounts();
+		// pattern edges ordered according to label, with no generic pattern edges in initial matches
+		for(Edge eP : patternPlan.getInitialEdges())
 		{
-			// no generic pattern edges in initial matches
-			if(!((eP instanceof EdgeP) && ((EdgeP) eP).isGeneric()))
+			monitor.lf("edge [] has id []", eP, new Integer(edgeId));
+			monitor.dbg(D_G.D_MATCHING_INITIAL, "trying edges: [] : []", eP, e);
+			if(isMatch(eP, e, counts))
 			{
-				monitor.lf("edge [] has id []", eP, new Integer(edgeId));
-				monitor.dbg(D_G.D_MATCHING_INITIAL, "trying edges: [] : []", eP, e);
-				if(isMatch(eP, e))
-				{
-					Match m = addInitialMatch(e, eP, edgeId + ":" + matchId);
-					monitor.incrementMatchCount();
-					monitor.lf("new single match: []", m.toString());
-					matchId++;
-				}
+				Match m = addInitialMatch(e, eP, edgeId + ":" + matchId);
+				monitor.incrementMatchCount();
+				monitor.lf("new single match: []", m);
+				matchId++;
 			}
 		}
+		counts.addTo(monitor);
 		return this;
 	}
 
@@ -142,7 +218,11 @@ public class GraphMatcherPersistent extends GraphMatcherQuick
 	 * The method only removes the edge from the edge &rarr; matches index, and marks the matches containing the edge as
 	 * invalid. Whenever an iteration finds the invalidated match, it will be removed from the containing collection.
 	 * This saves a large number of operations that would have been required by looping through the various lists and
-	 * indexes.
+	 * indexes. Since merged matches are indexed by all their graph edges, the matches derived from a match containing
+	 * the edge are invalidated as well.
+	 * <p>
+	 * Invalidated matches that are not encountered by any iteration are removed when enough matches have been
+	 * invalidated (see {@link #sweep()}).
 	 *
 	 * @param edge
 	 *            - the edge removed from the graph.
@@ -158,16 +238,222 @@ public class GraphMatcherPersistent extends GraphMatcherQuick
 			return this;
 		Set<Match> toRemove = eMatchIndex.get(edge);
 		eMatchIndex.remove(edge);
+		unindexNode(edge.getFrom(), edge);
+		unindexNode(edge.getTo(), edge);
 		for(Match m : toRemove)
 			invalidateMatch(m);
 		toRemove.clear();
+		if(needsSweep())
+			sweep();
 		return this;
 	}
 
+	/**
+	 * The method should be called for each node removed from the graph. It is assumed that the graph doesn't contain
+	 * the node anymore at the time the method is called.
+	 * <p>
+	 * The matches which map the node are invalidated, as for the removal of all the edges adjacent to the node (see
+	 * {@link #removeMatches(Edge)}). The adjacent edges may remain in the graph; they will be matched again if the node
+	 * is added back (see {@link #addMatches(Edge)}).
+	 *
+	 * @param node
+	 *            - the node removed from the graph.
+	 * @return the instance itself.
+	 *
+	 * @since 1.6
+	 */
+	public GraphMatcherPersistent removeMatches(Node node)
+	{
+		if((matchQueue == null) || (allMatches == null) || !nEdgeIndex.containsKey(node))
+			// there were no matches containing the node
+			return this;
+		for(Edge edge : new ArrayList<Edge>(nEdgeIndex.get(node)))
+			removeMatches(edge);
+		return this;
+	}
+
+	/**
+	 * An edge is active, and can be matched, if its endpoints are in the graph. While the graph may contain edges
+	 * with missing endpoints (e.g. when edges are added before their endpoints, or when a node is removed), such edges
+	 * are not matched.
+	 *
+	 * @param e
+	 *            - the edge.
+	 * @return <code>true</code> if the endpoints of the edge are in the graph.
+	 *
+	 * @since 1.6
+	 */
+	public boolean isActive(Edge e)
+	{
+		return ((e.getFrom() == null) || graph.contains(e.getFrom())) && ((e.getTo() == null) || graph.contains(e
+				.getTo()));
+	}
+
+	/**
+	 * Only the edges that are active are matched (see {@link #isActive(Edge)}).
+	 */
+	@Override
+	protected List<Edge> getMatchingEdges(Edge eP, SortedSet<Edge> sortedGraphEdges)
+	{
+		List<Edge> result = super.getMatchingEdges(eP, sortedGraphEdges);
+		for(Iterator<Edge> it = result.iterator(); it.hasNext();)
+			if(!isActive(it.next()))
+				it.remove();
+		return result;
+	}
+
+	/**
+	 * Removes the invalidated matches from the list of all matches, from the match queue and from the indexes of
+	 * matches by graph edge and by pattern edge. Invalidated matches are removed from the merge candidates of other
+	 * matches by the {@link MatchRegistry}.
+	 * <p>
+	 * The list of all matches is not swept while an iteration over existing matches is in progress (see
+	 * {@link #getNextMatch()}).
+	 *
+	 * @return the instance itself.
+	 *
+	 * @since 1.6
+	 */
+	public GraphMatcherPersistent sweep()
+	{
+		if((matchQueue == null) || (allMatches == null))
+			return this;
+		if(matchIterator == null)
+		{
+			List<Match> remaining = new ArrayList<Match>();
+			for(Match m : allMatches)
+				if(m.isValid())
+					remaining.add(m);
+			allMatches = remaining;
+		}
+		PriorityQueue<Match> queue = new PriorityQueue<Match>(Math.max(1, matchQueue.size()),
+				matchQueue.comparator());
+		for(Match m : matchQueue)
+			if(m.isValid())
+				queue.add(m);
+		matchQueue = queue;
+		sweepIndex(eMatchIndex);
+		sweepIndex(ePMatchIndex);
+		for(Iterator<Set<Edge>> it = nEdgeIndex.values().iterator(); it.hasNext();)
+		{
+			Set<Edge> edges = it.next();
+			edges.retainAll(eMatchIndex.keySet());
+			if(edges.isEmpty())
+				it.remove();
+		}
+		monitor.lf("swept [] invalidated matches; [] stored matches remaining", new Integer(invalidated),
+				new Integer(allMatches.size()));
+		invalidated = 0;
+		return this;
+	}
+
+	/**
+	 * Decides whether the matcher should be swept (see {@link #sweep()}), after matches have been invalidated. In
+	 * order for the cost of sweeping to be proportional to the number of invalidated matches, the matcher is swept
+	 * when the number of matches invalidated since the last sweep is at least {@link #MIN_SWEPT} and at least the
+	 * number of stored matches which are still valid.
+	 *
+	 * @return <code>true</code> if the matcher should be swept.
+	 */
+	protected boolean needsSweep()
+	{
+		return invalidated >= Math.max(MIN_SWEPT, getStoredMatches() - invalidated);
+	}
+
+	/**
+	 * Removes the invalid matches from an index of matches, and the keys which have no more valid matches.
+	 *
+	 * @param index
+	 *            - the index.
+	 */
+	protected static void sweepIndex(Map<Edge, Set<Match>> index)
+	{
+		for(Iterator<Set<Match>> it = index.values().iterator(); it.hasNext();)
+		{
+			Set<Match> matches = it.next();
+			for(Iterator<Match> itm = matches.iterator(); itm.hasNext();)
+				if(!itm.next().isValid())
+					itm.remove();
+			if(matches.isEmpty())
+				it.remove();
+		}
+	}
+
+	/**
+	 * Adds a match to the index of matches by graph edge and, if the edge was not in the index, adds the edge to the
+	 * index of edges by node.
+	 *
+	 * @param e
+	 *            - the graph edge.
+	 * @param m
+	 *            - a match containing the edge.
+	 */
+	protected void indexMatch(Edge e, Match m)
+	{
+		if(!eMatchIndex.containsKey(e))
+		{
+			eMatchIndex.put(e, new HashSet<Match>());
+			indexNode(e.getFrom(), e);
+			indexNode(e.getTo(), e);
+		}
+		eMatchIndex.get(e).add(m);
+	}
+
+	/**
+	 * Adds an edge to the index of edges by node.
+	 *
+	 * @param node
+	 *            - an endpoint of the edge (may be <code>null</code>).
+	 * @param e
+	 *            - the edge.
+	 */
+	protected void indexNode(Node node, Edge e)
+	{
+		if(node == null)
+			return;
+		if(!nEdgeIndex.containsKey(node))
+			nEdgeIndex.put(node, new HashSet<Edge>());
+		nEdgeIndex.get(node).add(e);
+	}
+
+	/**
+	 * Removes an edge from the index of edges by node.
+	 *
+	 * @param node
+	 *            - an endpoint of the edge (may be <code>null</code>).
+	 * @param e
+	 *            - the edge.
+	 */
+	protected void unindexNode(Node node, Edge e)
+	{
+		Set<Edge> edges = nEdgeIndex.get(node);
+		if(edges == null)
+			return;
+		edges.remove(e);
+		if(edges.isEmpty())
+			nEdgeIndex.remove(node);
+	}
+
+	/**
+	 * The number of invalidated matches is counted, in order to decide when the matcher should be swept. If changes are
+	 * tracked, the match is recorded as disappeared.
+	 */
+	@Override
+	protected void invalidateMatch(Match m)
+	{
+		if(m.isValid())
+		{
+			invalidated++;
+			if(delta != null)
+				delta.addDisappeared(m);
+		}
+		super.invalidateMatch(m);
+	}
+
 	@Override
 	protected Match addInitialMatch(Edge e, Edge eP, String matchID)
 	{
-		Match m = new Match(graph, pattern, e, eP, matchID);
+		Match m = new Match(graph, patternIndex, matchRegistry, e, eP, matchID);
 
 		// get neighbor edges in pattern and all matches containing these neighbor edges
 		Set<Edge> neighborEdgePs = new HashSet<Edge>();
@@ -190,29 +476,39 @@ public class GraphMatcherPersistent extends GraphMatcherQuick
 		for(Match mi : nMatches)
 			m.considerCandidate(mi, eMatchIndex, ePMatchIndex, monitor);
 		// add to indexes
-		if(!eMatchIndex.containsKey(e))
-			eMatchIndex.put(e, new HashSet<Match>());
-		eMatchIndex.get(e).add(m);
+		indexMatch(e, m);
 		if(!ePMatchIndex.containsKey(eP))
 			ePMatchIndex.put(eP, new HashSet<Match>());
 		ePMatchIndex.get(eP).add(m);
 		// add to global lists
 		matchQueue.add(m);
 		allMatches.add(m);
+		if(delta != null)
+			delta.addAppeared(m);
 		return m;
 	}
 
+	/**
+	 * The merged match is also added to the indexes of matches. Merged matches are created without the indexes, as
+	 * merges may be performed in parallel (see {@link #setExecutor(java.util.concurrent.ExecutorService, int)}).
+	 */
 	@Override
-	protected Match addMergeMatch(Match m1, Match m2)
+	protected Match addMergedMatch(Match newM)
 	{
-		// create
+		if(delta != null)
+			// if the match is rejected, it is invalidated, and therefore removed from the delta
+			delta.addAppeared(newM);
+		if(super.addMergedMatch(newM) == null)
+			return null;
 		// add to indexes
-		Match newM = m1.merge(m2, eMatchIndex, ePMatchIndex, monitor);
-
-		// add to global lists
-		matchQueue.add(newM);
-		allMatches.add(newM);
-
+		for(Edge eP : newM.getSolvedEdges())
+		{
+			for(Edge e : newM.getMatchedGraphEdges(eP))
+				indexMatch(e, newM);
+			if(!ePMatchIndex.containsKey(eP))
+				ePMatchIndex.put(eP, new HashSet<Match>());
+			ePMatchIndex.get(eP).add(newM);
+		}
 		return newM;
 	}
 
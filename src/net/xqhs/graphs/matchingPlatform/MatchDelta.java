@@ -0,0 +1,121 @@
+package net.xqhs.graphs.matchingPlatform;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import net.xqhs.graphs.matcher.Match;
+
+/**
+ * The changes in the matches of a matching process between two moments: the matches that appeared (were created) and
+ * the matches that disappeared (were invalidated) in the mean time. A match that appears and then disappears between
+ * the two moments is not contained in the delta.
+ * <p>
+ * The matches are kept in the order in which they appeared, respectively disappeared.
+ *
+ * @author Andrei Olaru
+ *
+ * @since 1.6
+ */
+public class MatchDelta
+{
+	/**
+	 * The matches that appeared.
+	 */
+	protected final Set<Match>	appeared	= new LinkedHashSet<Match>();
+	/**
+	 * The matches that disappeared.
+	 */
+	protected final Set<Match>	disappeared	= new LinkedHashSet<Match>();
+
+	/**
+	 * Records a match that appeared.
+	 *
+	 * @param m
+	 *            - the match.
+	 * @return the delta itself.
+	 */
+	public MatchDelta addAppeared(Match m)
+	{
+		appeared.add(m);
+		return this;
+	}
+
+	/**
+	 * Records a match that disappeared. If the match appeared since the beginning of the delta, it is removed from the
+	 * matches that appeared instead.
+	 *
+	 * @param m
+	 *            - the match.
+	 * @return the delta itself.
+	 */
+	public MatchDelta addDisappeared(Match m)
+	{
+		if(!appeared.remove(m))
+			disappeared.add(m);
+		return this;
+	}
+
+	/**
+	 * Adds the changes in another delta, which follows this one, to this delta.
+	 *
+	 * @param delta
+	 *            - the following delta.
+	 * @return the delta itself.
+	 */
+	public MatchDelta addAll(MatchDelta delta)
+	{
+		appeared.addAll(delta.appeared);
+		for(Match m : delta.disappeared)
+			addDisappeared(m);
+		return this;
+	}
+
+	/**
+	 * @param maxK
+	 *            - the maximum <i>k</i> of the matches.
+	 * @return a new delta containing only the matches of this delta with a <i>k</i> lower than or equal to
+	 *         <code>maxK</code>.
+	 */
+	public MatchDelta filter(int maxK)
+	{
+		MatchDelta result = new MatchDelta();
+		for(Match m : appeared)
+			if(m.getK() <= maxK)
+				result.appeared.add(m);
+		for(Match m : disappeared)
+			if(m.getK() <= maxK)
+				result.disappeared.add(m);
+		return result;
+	}
+
+	/**
+	 * @return the matches that appeared, as an unmodifiable set.
+	 */
+	public Set<Match> getAppeared()
+	{
+		return Collections.unmodifiableSet(appeared);
+	}
+
+	/**
+	 * @return the matches that disappeared, as an unmodifiable set.
+	 */
+	public Set<Match> getDisappeared()
+	{
+		return Collections.unmodifiableSet(disappeared);
+	}
+
+	/**
+	 * @return <code>true</code> if no matches appeared or disappeared.
+	 */
+	public boolean isEmpty()
+	{
+		return appeared.isEmpty() && disappeared.isEmpty();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "+" + appeared + " -" + disappeared;
+	}
+}
@@ -59,6 +59,24 @@ public class TrackingGraph extends SimpleGraph
 		 */
 		public void notifyChange();
 	}
+
+	/**
+	 * Interface to be implemented by receivers of change notifications that also need to know what changed. Besides
+	 * {@link #notifyChange()}, they are given each transaction, after all its operations have been applied to the
+	 * graph.
+	 *
+	 * @author Andrei Olaru
+	 */
+	public interface TransactionNotificationReceiver extends ChangeNotificationReceiver
+	{
+		/**
+		 * Method that will be called after a transaction has been applied to the graph.
+		 *
+		 * @param t
+		 *            - the applied transaction.
+		 */
+		public void notifyTransaction(Transaction t);
+	}
 	
 	public static class NotificationPack
 	{
@@ -206,6 +224,18 @@ public class TrackingGraph extends SimpleGraph
 			notificationReceivers = new HashSet<ChangeNotificationReceiver>();
 		notificationReceivers.add(receiver);
 	}
+
+	/**
+	 * The method unregisters a receiver of change notifications.
+	 *
+	 * @param receiver
+	 *            - the receiver to stop notifying.
+	 */
+	public void unregisterChangeNotificationReceiver(ChangeNotificationReceiver receiver)
+	{
+		if(notificationReceivers != null)
+			notificationReceivers.remove(receiver);
+	}
 	
 	synchronized public NotificationPack registerAsyncChangeNotificationReceiver(String receiverName)
 	{
@@ -273,10 +303,14 @@ public class TrackingGraph extends SimpleGraph
 		if(isShadow && externalCall)
 			throw new UnsupportedOperationException(
 					"A shadow graph only takes modifications from its transaction queue.");
+		Transaction t = null;
 		if(externalCall)
 			if(((operation == Operation.ADD) && !contains(component))
 					|| ((operation == Operation.REMOVE) && contains(component)))
-				addTransaction(new Transaction(component, operation));
+			{
+				t = new Transaction(component, operation);
+				addTransaction(t);
+			}
 		switch(operation)
 		{
 		case ADD:
@@ -286,6 +320,8 @@ public class TrackingGraph extends SimpleGraph
 			super.remove(component);
 			break;
 		}
+		if(t != null)
+			notifyTransactionApplied(t);
 		return this;
 	}
 	
@@ -327,6 +363,20 @@ public class TrackingGraph extends SimpleGraph
 		if(keepHistory)
 			history.add(t);
 	}
+
+	/**
+	 * Notifies the {@link TransactionNotificationReceiver} instances that a transaction has been applied to the graph.
+	 *
+	 * @param t
+	 *            - the applied transaction.
+	 */
+	protected void notifyTransactionApplied(Transaction t)
+	{
+		if(notificationReceivers != null)
+			for(ChangeNotificationReceiver receiver : notificationReceivers)
+				if(receiver instanceof TransactionNotificationReceiver)
+					((TransactionNotificationReceiver) receiver).notifyTransaction(t);
+	}
 	
 	/**
 	 * Public method allowing the application of an already created transaction to the graph.
@@ -364,6 +414,7 @@ public class TrackingGraph extends SimpleGraph
 			for(Entry<GraphComponent, Operation> e : t.entrySet())
 				performOperation(e.getKey(), e.getValue(), false);
 		addTransaction(t);
+		notifyTransactionApplied(t);
 	}
 	
 	@Override
@@ -555,7 +606,8 @@ public class TrackingGraph extends SimpleGraph
 	
 	/**
 	 * The method returns a string representation of the graph as rendered by {@link TextGraphRepresentation} with
-	 * default layout parameters.
+	 * default layout parameters. A new representation is rendered at each call, so that calling the method does not
+	 * register receivers of change notifications with the graph.
 	 * <p>
 	 * A customized representation can be obtained by calling {@link #toString(String, String, int)}.
 	 * <p>
@@ -581,6 +633,17 @@ public class TrackingGraph extends SimpleGraph
 	 * @return the string representation.
 	 */
 	public String toString(String branchSeparator, String separatorIncrement, int limit)
+	{
+		return toStringDetail()
+				+ new TextGraphRepresentation(this).setLayout(branchSeparator, separatorIncrement, limit).update()
+						.toString();
+	}
+
+	/**
+	 * @return the prefix of the string representation of the graph, containing the sequence number and the sizes of
+	 *         the shadow queues.
+	 */
+	protected String toStringDetail()
 	{
 		String detail = "[" + sequence + "|";
 		boolean first = true;
@@ -593,8 +656,7 @@ public class TrackingGraph extends SimpleGraph
 		else
 			detail += "-";
 		detail += "]";
-		return detail + new TextGraphRepresentation(this).setLayout(branchSeparator, separatorIncrement, limit).update()
-				.toString();
+		return detail;
 	}
 	
 	/**
@@ -11,18 +11,29 @@
  ******************************************************************************/
 package net.xqhs.graphs.representation.linear;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.TreeMap;
 
 import net.xqhs.graphs.graph.Edge;
 import net.xqhs.graphs.graph.Graph;
+import net.xqhs.graphs.graph.GraphComponent;
 import net.xqhs.graphs.graph.Node;
 import net.xqhs.graphs.graph.NodeAlphaComparator;
+import net.xqhs.graphs.graph.SimpleNode;
+import net.xqhs.graphs.matchingPlatform.TrackingGraph;
+import net.xqhs.graphs.matchingPlatform.TrackingGraph.TransactionNotificationReceiver;
+import net.xqhs.graphs.matchingPlatform.Transaction;
 import net.xqhs.graphs.representation.GraphRepresentationImplementation;
 
 /**
@@ -40,13 +51,19 @@ import net.xqhs.graphs.representation.GraphRepresentationImplementation;
  * <p>
  * The result of a linearization is always the same for the same graph.
  * <p>
+ * Paths never cross weakly-connected components, so each component is linearized independently. If the
+ * representation is incremental (see {@link #setIncremental(boolean)}) and the graph is a {@link TrackingGraph}, the
+ * paths of each component are kept between updates and only the components affected by the transactions applied in the
+ * meantime are linearized again. The result is the same as that of linearizing the whole graph.
+ * <p>
  * The class is abstract because it does not provide a viewable representation, but rather a structure which other
  * representations may use (e.g. the linear text representation).
  *
  * @author Andrei Olaru
  *
  */
-public abstract class LinearGraphRepresentation extends GraphRepresentationImplementation
+public abstract class LinearGraphRepresentation extends GraphRepresentationImplementation implements
+		TransactionNotificationReceiver
 {
 	/**
 	 * Compares two {@link Node} structures. First criterion: node with lower in-degree in the graph (given in
@@ -95,7 +112,11 @@ public abstract class LinearGraphRepresentation extends GraphRepresentationImple
 		/**
 		 * The graph containing the paths to be compared.
 		 */
-		protected Graph	theGraph	= null;
+		protected Graph					theGraph		= null;
+		/**
+		 * The comparator for the nodes in path elements.
+		 */
+		protected NodeInAlphaComparator	nodeComparator	= null;
 
 		/**
 		 * Default constructor. The graph is needed to calculate the in-degree of nodes in path elements.
@@ -106,6 +127,7 @@ public abstract class LinearGraphRepresentation extends GraphRepresentationImple
 		public PathComparator(Graph graph)
 		{
 			theGraph = graph;
+			nodeComparator = new NodeInAlphaComparator(graph);
 		}
 
 		@Override
@@ -113,7 +135,53 @@ public abstract class LinearGraphRepresentation extends GraphRepresentationImple
 		{
 			if(el1.forwardLength != el2.forwardLength)
 				return -(el1.forwardLength - el2.forwardLength); // longest path first
-			return new NodeInAlphaComparator(theGraph).compare(el1.node, el2.node);
+			return nodeComparator.compare(el1.node, el2.node);
+		}
+	}
+
+	/**
+	 * The paths covering one weakly-connected component of the graph. Instances are kept between updates of an
+	 * incremental representation, as long as the component is not affected by changes to the graph.
+	 *
+	 * @author Andrei Olaru
+	 */
+	protected static class ComponentPaths
+	{
+		/**
+		 * The nodes in the component, in the order given by {@link NodeInAlphaComparator}.
+		 */
+		List<Node>				nodes;
+		/**
+		 * The roots of the explorations performed in the component (see {@link LinearGraphRepresentation#buildPaths()}
+		 * ), in the order in which they were explored.
+		 */
+		List<Node>				roots	= new ArrayList<Node>();
+		/**
+		 * For each exploration, the elements that were (last) explored during it, in the order of exploration.
+		 */
+		List<List<PathElement>>	runs	= new ArrayList<List<PathElement>>();
+		/**
+		 * The path elements in the component, sorted by a {@link PathComparator}.
+		 */
+		List<PathElement>		paths;
+
+		/**
+		 * Creates a new instance, containing the given nodes.
+		 *
+		 * @param componentNodes
+		 *            - the nodes, sorted by a {@link NodeInAlphaComparator}.
+		 */
+		ComponentPaths(List<Node> componentNodes)
+		{
+			nodes = componentNodes;
+		}
+
+		/**
+		 * @return the path elements in the component, sorted by a {@link PathComparator}.
+		 */
+		public List<PathElement> getPaths()
+		{
+			return paths;
 		}
 	}
 
@@ -121,16 +189,48 @@ public abstract class LinearGraphRepresentation extends GraphRepresentationImple
 	 * Specifies how paths should relate to the direction of edges on the path. See the documentation of method
 	 * <code>setBackwards()</code>.
 	 */
-	protected boolean			isBackwards	= false;
+	protected boolean						isBackwards		= false;
 	/**
 	 * The nodes of the graph, as sorted by a {@link NodeInAlphaComparator}.
 	 */
-	protected List<Node>		sortedNodes	= null;
+	protected List<Node>					sortedNodes		= null;
 	/**
 	 * The paths in the representation (sorted by a {@link PathComparator}). These represent the output of this
 	 * representation, to be used by other non-abstract representations.
 	 */
-	protected List<PathElement>	paths		= null;
+	protected List<PathElement>				paths			= null;
+	/**
+	 * <code>true</code> if the paths are kept between updates and only re-built for the components affected by
+	 * changes. See {@link #setIncremental(boolean)}.
+	 */
+	protected boolean						incremental		= false;
+	/**
+	 * For incremental representations, the nodes involved in transactions applied since the last update. Access is
+	 * synchronized on the set.
+	 */
+	protected Set<Node>						changedNodes	= new HashSet<Node>();
+	/**
+	 * For incremental representations, <code>true</code> if all the paths must be re-built at the next update.
+	 */
+	protected boolean						changedAll		= true;
+	/**
+	 * The value of {@link SimpleNode#getRelabelCount()} at the last update. Labels are used to sort the nodes, so
+	 * all the paths must be re-built after any relabeling.
+	 */
+	protected long							labelsVersion	= 0;
+	/**
+	 * For incremental representations, the paths in each weakly-connected component of the graph.
+	 */
+	protected List<ComponentPaths>			components		= null;
+	/**
+	 * For incremental representations, the component of each node.
+	 */
+	protected Map<Node, ComponentPaths>		componentOf		= null;
+	/**
+	 * <code>true</code> if the last update found nothing changed, so the paths are the same as after the previous
+	 * update.
+	 */
+	protected boolean						upToDate		= false;
 
 	/**
 	 * Builds a new {@link LinearGraphRepresentation} for the specified graph.
@@ -174,6 +274,10 @@ public abstract class LinearGraphRepresentation extends GraphRepresentationImple
 	public LinearGraphRepresentation setBackwards(boolean back)
 	{
 		isBackwards = back;
+		synchronized(changedNodes)
+		{
+			changedAll = true;
+		}
 		return this;
 	}
 
@@ -187,6 +291,100 @@ public abstract class LinearGraphRepresentation extends GraphRepresentationImple
 		return isBackwards;
 	}
 
+	/**
+	 * Specifies whether the paths should be kept between updates, so that an update only re-builds the paths in the
+	 * weakly-connected components affected by changes. This is only possible if the represented graph is a
+	 * {@link TrackingGraph}, in which case the representation registers to receive its transactions; otherwise, all
+	 * paths are re-built at each update.
+	 * <p>
+	 * An incremental representation remains registered with the graph until incrementality is turned off.
+	 *
+	 * @param track
+	 *            - <code>true</code> if the representation should be incremental.
+	 * @return the updated instance.
+	 */
+	public LinearGraphRepresentation setIncremental(boolean track)
+	{
+		if(track == incremental)
+			return this;
+		incremental = track;
+		if(theGraph instanceof TrackingGraph)
+		{
+			if(track)
+				((TrackingGraph) theGraph).registerChangeNotificationReceiver(this);
+			else
+				((TrackingGraph) theGraph).unregisterChangeNotificationReceiver(this);
+		}
+		synchronized(changedNodes)
+		{
+			changedNodes.clear();
+			changedAll = true;
+		}
+		components = null;
+		componentOf = null;
+		return this;
+	}
+
+	/**
+	 * @return <code>true</code> if the representation keeps its paths between updates (see
+	 *         {@link #setIncremental(boolean)}).
+	 */
+	public boolean isIncremental()
+	{
+		return incremental && (theGraph instanceof TrackingGraph);
+	}
+
+	/**
+	 * Nothing to do, as changes are received with {@link #notifyTransaction(Transaction)}.
+	 */
+	@Override
+	public void notifyChange()
+	{
+		// nothing to do
+	}
+
+	/**
+	 * Records the nodes involved in the transaction (as components or as edge endpoints), so that the components
+	 * containing them are re-built at the next update.
+	 */
+	@Override
+	public void notifyTransaction(Transaction t)
+	{
+		synchronized(changedNodes)
+		{
+			if(changedAll)
+				return;
+			if(t.isSingleOperation())
+				recordChange(t.getComponent());
+			else
+				for(GraphComponent component : t.keySet())
+					recordChange(component);
+			if(changedNodes.size() > theGraph.n())
+			{ // re-building everything is cheaper
+				changedAll = true;
+				changedNodes.clear();
+			}
+		}
+	}
+
+	/**
+	 * Records the nodes involved in a change to a graph component. The caller must synchronize on
+	 * {@link #changedNodes}.
+	 *
+	 * @param component
+	 *            - the component that was added or removed.
+	 */
+	protected void recordChange(GraphComponent component)
+	{
+		if(component instanceof Node)
+			changedNodes.add((Node) component);
+		else if(component instanceof Edge)
+		{
+			changedNodes.add(((Edge) component).getFrom());
+			changedNodes.add(((Edge) component).getTo());
+		}
+	}
+
 	@Override
 	protected String setDefaultName(String name)
 	{
@@ -196,17 +394,213 @@ public abstract class LinearGraphRepresentation extends GraphRepresentationImple
 	/**
 	 * Processing the graph actually relies on building the paths, after obtaining a sorted list of the nodes in the
 	 * graph (using {@link NodeInAlphaComparator}). See {@link #buildPaths()}.
+	 * <p>
+	 * For incremental representations, paths are only re-built for the components affected by changes (see
+	 * {@link #updateComponents(Set)}) and then merged (see {@link #mergePaths()}).
 	 */
 	@Override
 	protected void processGraph()
 	{
 		super.processGraph();
 
+		if(!isIncremental())
+		{
+			upToDate = false;
+			sortedNodes = new LinkedList<Node>(theGraph.getNodes());
+			Collections.sort(sortedNodes, new NodeInAlphaComparator(theGraph));
+			lf("sorted nodes: []", sortedNodes);
+
+			buildPaths();
+			return;
+		}
+
+		Set<Node> changed = null;
+		synchronized(changedNodes)
+		{
+			long version = SimpleNode.getRelabelCount();
+			if(!changedAll && (components != null) && (version == labelsVersion))
+				changed = new HashSet<Node>(changedNodes);
+			changedNodes.clear();
+			changedAll = false;
+			labelsVersion = version;
+		}
+		upToDate = (changed != null) && changed.isEmpty();
+		if(upToDate)
+		{
+			lf("no changes since last update");
+			return;
+		}
+
+		// nodes are always sorted as a whole, as nodes which compare as equal keep the order of the graph
 		sortedNodes = new LinkedList<Node>(theGraph.getNodes());
 		Collections.sort(sortedNodes, new NodeInAlphaComparator(theGraph));
-		lf("sorted nodes: " + sortedNodes);
+		lf("sorted nodes: []", sortedNodes);
+
+		updateComponents(changed);
+		mergePaths();
+	}
+
+	/**
+	 * Re-builds the paths for the weakly-connected components affected by changes. A component is affected if it
+	 * contained, or now contains, a changed node, or if the relative order of its nodes in {@link #sortedNodes} is
+	 * different than when its paths were built.
+	 *
+	 * @param changed
+	 *            - the nodes involved in changes since the last update; <code>null</code> if all paths should be
+	 *            re-built.
+	 */
+	protected void updateComponents(Set<Node> changed)
+	{
+		Set<ComponentPaths> dropped = new HashSet<ComponentPaths>();
+		Set<Node> seeds = new HashSet<Node>();
+		if(changed == null)
+		{
+			components = new LinkedList<ComponentPaths>();
+			componentOf = new HashMap<Node, ComponentPaths>();
+			seeds.addAll(theGraph.getNodes());
+		}
+		else
+			for(Node node : changed)
+			{
+				if(theGraph.contains(node))
+					seeds.add(node);
+				ComponentPaths component = componentOf.get(node);
+				if((component != null) && dropped.add(component))
+					for(Node other : component.nodes)
+						if(theGraph.contains(other))
+							seeds.add(other);
+			}
+
+		// group the seeds into the new components (which may also absorb components that were not affected)
+		Map<Node, List<Node>> groupOf = new HashMap<Node, List<Node>>();
+		List<List<Node>> groups = new LinkedList<List<Node>>();
+		for(Node seed : seeds)
+			if(!groupOf.containsKey(seed))
+			{
+				List<Node> group = new ArrayList<Node>();
+				groups.add(group);
+				groupOf.put(seed, group);
+				Queue<Node> queue = new LinkedList<Node>();
+				queue.add(seed);
+				while(!queue.isEmpty())
+				{
+					Node node = queue.poll();
+					List<Node> neighbours = new LinkedList<Node>();
+					for(Edge e : theGraph.getOutEdges(node))
+						neighbours.add(e.getTo());
+					for(Edge e : theGraph.getInEdges(node))
+						neighbours.add(e.getFrom());
+					for(Node other : neighbours)
+						if(!groupOf.containsKey(other) && theGraph.contains(other))
+						{
+							groupOf.put(other, group);
+							queue.add(other);
+							ComponentPaths component = componentOf.get(other);
+							if(component != null)
+								dropped.add(component);
+						}
+				}
+			}
+
+		// components that are kept must have the same order of nodes
+		Map<ComponentPaths, Integer> positions = new HashMap<ComponentPaths, Integer>();
+		for(Node node : sortedNodes)
+			if(!groupOf.containsKey(node))
+			{
+				ComponentPaths component = componentOf.get(node);
+				Integer position = positions.get(component);
+				int index = (position == null) ? 0 : position.intValue();
+				if((index >= component.nodes.size()) || (component.nodes.get(index) != node))
+					dropped.add(component);
+				positions.put(component, new Integer(index + 1));
+			}
+		for(ComponentPaths component : dropped)
+		{
+			for(Node node : component.nodes)
+				if(componentOf.get(node) == component)
+					componentOf.remove(node);
+			if(!groupOf.containsKey(component.nodes.get(0)) && theGraph.contains(component.nodes.get(0)))
+			{ // the component was re-ordered, but is otherwise unchanged
+				List<Node> group = new ArrayList<Node>();
+				groups.add(group);
+				for(Node node : component.nodes)
+					groupOf.put(node, group);
+			}
+		}
+		for(List<Node> group : groups)
+			group.clear();
+		for(Node node : sortedNodes)
+			if(groupOf.containsKey(node))
+				groupOf.get(node).add(node);
+
+		List<ComponentPaths> kept = new LinkedList<ComponentPaths>();
+		for(ComponentPaths component : components)
+			if(!dropped.contains(component))
+				kept.add(component);
+		li("[] components to re-build, [] kept", new Integer(groups.size()), new Integer(kept.size()));
+		components = kept;
+		for(List<Node> group : groups)
+		{
+			ComponentPaths component = buildPaths(group);
+			components.add(component);
+			for(Node node : group)
+				componentOf.put(node, component);
+		}
+	}
+
+	/**
+	 * Builds the paths in one weakly-connected component of the graph, in the same way as {@link #buildPaths()}.
+	 *
+	 * @param componentNodes
+	 *            - the nodes in the component, sorted by a {@link NodeInAlphaComparator}.
+	 * @return the paths in the component.
+	 */
+	protected ComponentPaths buildPaths(List<Node> componentNodes)
+	{
+		ComponentPaths component = new ComponentPaths(componentNodes);
+		Map<PathElement, Node> roots = new HashMap<PathElement, Node>();
+		Queue<PathElement> blackNodes = explorePaths(componentNodes, roots);
+		arrangePaths(blackNodes);
 
-		buildPaths();
+		Node lastRoot = null;
+		for(PathElement el : blackNodes)
+		{
+			Node root = roots.get(el);
+			if(root != lastRoot)
+			{
+				component.roots.add(root);
+				component.runs.add(new LinkedList<PathElement>());
+				lastRoot = root;
+			}
+			component.runs.get(component.runs.size() - 1).add(el);
+		}
+		component.paths = new LinkedList<PathElement>(blackNodes);
+		Collections.sort(component.paths, new PathComparator(theGraph));
+		return component;
+	}
+
+	/**
+	 * Merges the paths in all components into {@link #paths}, obtaining the same result as {@link #buildPaths()}.
+	 * Explorations are performed in the order of their roots in {@link #sortedNodes}, so the order in which elements
+	 * would have been explored for the whole graph is reconstructed before sorting them.
+	 */
+	protected void mergePaths()
+	{
+		Map<Node, Integer> rank = new HashMap<Node, Integer>();
+		int index = 0;
+		for(Node node : sortedNodes)
+			rank.put(node, new Integer(index++));
+		TreeMap<Integer, List<PathElement>> runs = new TreeMap<Integer, List<PathElement>>();
+		for(ComponentPaths component : components)
+			for(int i = 0; i < component.roots.size(); i++)
+				runs.put(rank.get(component.roots.get(i)), component.runs.get(i));
+		paths = new LinkedList<PathElement>();
+		for(List<PathElement> run : runs.values())
+			paths.addAll(run);
+		Collections.sort(paths, new PathComparator(theGraph));
+
+		li("sort paths done");
+		lf("paths: []", paths);
 	}
 
 	/**
@@ -233,28 +627,61 @@ public abstract class LinearGraphRepresentation extends GraphRepresentationImple
 	 */
 	protected void buildPaths()
 	{
+		Queue<PathElement> blackNodes = explorePaths(sortedNodes, null);
+		arrangePaths(blackNodes);
+		paths = new LinkedList<PathElement>(blackNodes);
+		Collections.sort(paths, new PathComparator(theGraph));
+
+		li("sort paths done");
+
+		li("[node_name ( distance_from_root : parent_or_dash_if_root / number_of_children_or_dot_if_none +number_of_other_children)]"
+				+ "/ path_length_from_node)]");
+		li(paths.toString());
+	}
+
+	/**
+	 * Performs the first two phases of {@link #buildPaths()}: exploring the nodes to decide the paths and measuring the
+	 * paths.
+	 *
+	 * @param nodes
+	 *            - the nodes to explore, sorted by a {@link NodeInAlphaComparator}.
+	 * @param roots
+	 *            - if not <code>null</code>, the map is filled with the root of the exploration during which each
+	 *            element was (last) explored.
+	 * @return the path elements, in the order in which they were (last) explored.
+	 */
+	protected Queue<PathElement> explorePaths(List<Node> nodes, Map<PathElement, Node> roots)
+	{
+		NodeInAlphaComparator nodeComparator = new NodeInAlphaComparator(theGraph);
 		Queue<PathElement> grayNodes = new LinkedList<PathElement>();
-		Queue<PathElement> blackNodes = new LinkedList<PathElement>();
+		// in the order of the (last) exploration; elements that are explored again move to the end
+		Set<PathElement> blackNodes = new LinkedHashSet<PathElement>();
+		// the element of each gray or black node; nodes that are not in the map are white
+		Map<Node, PathElement> elements = new HashMap<Node, PathElement>();
+		// nodes before the cursor are all black, as elements only become gray again during an exploration
+		Iterator<Node> cursor = nodes.iterator();
 
-		while(blackNodes.size() < sortedNodes.size())
+		while(blackNodes.size() < nodes.size())
 		{
-			for(Node node : sortedNodes)
+			Node root = null;
+			while((root == null) && cursor.hasNext())
 			{
-				boolean found = false;
-				for(PathElement el : blackNodes)
-					if(el.node == node)
-						found = true;
-				if(!found)
+				Node node = cursor.next();
+				if(!elements.containsKey(node))
 				{
-					grayNodes.add(new PathElement(node, 0, null));
-					break;
+					root = node;
+					PathElement rootEl = new PathElement(node, 0, null);
+					elements.put(node, rootEl);
+					grayNodes.add(rootEl);
 				}
 			}
 
+			// elements explored during this exploration, and elements which lost children during it
+			List<PathElement> explored = new LinkedList<PathElement>();
 			while(!grayNodes.isEmpty())
 			{
 				PathElement el = grayNodes.peek(); // will remove when adding to blackNodes
-				lf("taking element " + el);
+				lf("taking element []", el);
 				// expand
 				List<Node> childSet = new LinkedList<Node>();
 				if(!isBackwards)
@@ -263,7 +690,7 @@ public abstract class LinearGraphRepresentation extends GraphRepresentationImple
 				else
 					for(Edge e : theGraph.getInEdges(el.node))
 						childSet.add(e.getFrom());
-				Collections.sort(childSet, new NodeInAlphaComparator(theGraph));
+				Collections.sort(childSet, nodeComparator);
 				for(Node n1 : childSet)
 				{
 					boolean towardsoutside = false;
@@ -271,24 +698,17 @@ public abstract class LinearGraphRepresentation extends GraphRepresentationImple
 						// the edge is in the graph, but the other node is not
 						towardsoutside = true;
 
-					PathElement el1 = null;
-					boolean wasinblacknodes = false;
-					for(PathElement eli : grayNodes)
-						if(eli.node == n1)
-							el1 = eli;
-					for(PathElement eli : blackNodes)
-						if(eli.node == n1)
-						{
-							el1 = eli;
-							wasinblacknodes = true;
-							lf("(element " + el1 + " was black)");
-						}
+					PathElement el1 = elements.get(n1);
+					boolean wasinblacknodes = (el1 != null) && blackNodes.contains(el1);
+					if(wasinblacknodes)
+						lf("(element [] was black)", el1);
 					if(el1 == null)
 					{ // new node, add new PathElement
 						el1 = new PathElement(n1, el.depth + 1, el);
 						if(!towardsoutside)
 						{
-							lf("new gray node added: " + el1 + " of " + el);
+							lf("new gray node added: [] of []", el1, el);
+							elements.put(n1, el1);
 							grayNodes.add(el1);
 							el.children.add(el1);
 						}
@@ -299,7 +719,7 @@ public abstract class LinearGraphRepresentation extends GraphRepresentationImple
 					}
 					else if(el.pathContains(el1))
 					{ // cycle detected -> not good / no add
-						lf("cycle detected for " + el1);
+						lf("cycle detected for []", el1);
 						if(!el.otherChildren.contains(el1))
 							el.otherChildren.add(el1);
 					}
@@ -309,6 +729,7 @@ public abstract class LinearGraphRepresentation extends GraphRepresentationImple
 						{
 							el1.parent.children.remove(el1);
 							el1.parent.otherChildren.add(el1);
+							explored.add(el1.parent);
 						}
 						el1.depth = el.depth + 1;
 						el1.parent = el;
@@ -320,7 +741,7 @@ public abstract class LinearGraphRepresentation extends GraphRepresentationImple
 							blackNodes.remove(el1);
 							grayNodes.add(el1);
 						}
-						lf("element reinserted: " + el1);
+						lf("element reinserted: []", el1);
 					}
 					else
 					{ // new distance would not be longer, leave alone
@@ -329,12 +750,17 @@ public abstract class LinearGraphRepresentation extends GraphRepresentationImple
 							el.otherChildren.add(el1);
 					}
 				}
-				grayNodes.remove(el);
+				grayNodes.poll();
 				blackNodes.add(el);
+				explored.add(el);
+				if(roots != null)
+					roots.put(el, root);
 			}
 			li("build paths done");
 
-			for(PathElement el : blackNodes)
+			// measuring only starts from leaves which may have changed during this exploration; for all other leaves,
+			// the lengths of their paths have already been propagated
+			for(PathElement el : explored)
 				if(el.children.isEmpty())
 				{ // leaf
 					el.forwardLength = 0;
@@ -350,11 +776,25 @@ public abstract class LinearGraphRepresentation extends GraphRepresentationImple
 				}
 		}
 		li("measure paths done");
+		return new LinkedList<PathElement>(blackNodes);
+	}
+
+	/**
+	 * Performs the third phase of {@link #buildPaths()}: switching elements to longer paths and sorting the children of
+	 * each element.
+	 *
+	 * @param blackNodes
+	 *            - the path elements, in the order in which they were explored.
+	 */
+	protected void arrangePaths(Queue<PathElement> blackNodes)
+	{
 		lf("path_element : [children] / [otherchildren]");
 
+		PathComparator pathComparator = new PathComparator(theGraph);
 		for(PathElement el : blackNodes)
 		{
-			Set<PathElement> marked = new HashSet<PathElement>();
+			// switched elements keep the order of other children, so that the result does not depend on hash codes
+			Set<PathElement> marked = new LinkedHashSet<PathElement>();
 			for(PathElement oth : el.otherChildren)
 				if(!oth.pathContains(el) && (oth.parent != null) && (el.forwardLength > oth.parent.forwardLength))
 					// 1) if the other child is already having the element as ancestor, then it is already on the main path
@@ -364,8 +804,7 @@ public abstract class LinearGraphRepresentation extends GraphRepresentationImple
 					// 3) switch if the other child is outside of the main path, and this way it would be closer to the main
 					// path
 				{ // switch
-					lf("switching " + oth.toString() + ((oth.parent != null) ? (" from " + oth.parent.toString()) : "")
-							+ " to " + el.toString());
+					lf("switching [] from [] to []", oth, oth.parent, el);
 					if(oth.parent != null)
 					{
 						oth.parent.children.remove(oth);
@@ -380,17 +819,9 @@ public abstract class LinearGraphRepresentation extends GraphRepresentationImple
 				el.otherChildren.remove(oth);
 				el.children.add(oth);
 			}
-			Collections.sort(el.children, new PathComparator(theGraph));
-			Collections.sort(el.otherChildren, new PathComparator(theGraph));
-			lf(el.toString() + ": " + el.children.toString() + " / " + el.otherChildren.toString());
+			Collections.sort(el.children, pathComparator);
+			Collections.sort(el.otherChildren, pathComparator);
+			lf("[]: [] / []", el, el.children, el.otherChildren);
 		}
-		paths = new LinkedList<PathElement>(blackNodes);
-		Collections.sort(paths, new PathComparator(theGraph));
-
-		li("sort paths done");
-
-		li("[node_name ( distance_from_root : parent_or_dash_if_root / number_of_children_or_dot_if_none +number_of_other_children)]"
-				+ "/ path_length_from_node)]");
-		li(paths.toString());
 	}
 }
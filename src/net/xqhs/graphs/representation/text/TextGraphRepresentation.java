@@ -16,9 +16,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.Stack;
@@ -26,6 +28,7 @@ import java.util.Stack;
 import net.xqhs.graphs.graph.Edge;
 import net.xqhs.graphs.graph.Graph;
 import net.xqhs.graphs.graph.Node;
+import net.xqhs.graphs.graph.SimpleEdge;
 import net.xqhs.graphs.graph.SimpleNode;
 import net.xqhs.graphs.hypergraph.HyperNode;
 import net.xqhs.graphs.pattern.NodeP;
@@ -63,6 +66,10 @@ import net.xqhs.util.logging.UnitComponent;
  * For more details on the output and input formats, see {@link #displayRepresentation()} and
  * {@link #readRepresentation(String)}.
  * <p>
+ * For incremental representations (see {@link #setIncremental(boolean)}), the representation of each
+ * weakly-connected component is kept until the component is affected by a change, and the output is cached until the
+ * next change.
+ * <p>
  * While the representation has been mentioned in previous works, the main publication that presents it is: Andrei
  * Olaru, Context Matching for Ambient Intelligence Applications, Proceedings of SYNASC 2013, 15th International
  * Symposium on Symbolic and Numeric Algorithms for Scientific Computing, September 23-26, 2013 Timisoara, Romania, IEEE
@@ -98,6 +105,24 @@ public class TextGraphRepresentation extends LinearGraphRepresentation
 	 */
 	protected int				incrementLimit				= DEFAULT_INCREMENT_LIMIT;
 
+	/**
+	 * For incremental representations, the representations of the subgraphs in each component, indexed by the path
+	 * element at the root of the subgraph.
+	 */
+	protected Map<ComponentPaths, Map<PathElement, TextRepresentationElement>>	componentSubgraphs	= null;
+	/**
+	 * The output of {@link #displayRepresentation()}, if it can be reused.
+	 */
+	protected String															rendered			= null;
+	/**
+	 * <code>true</code> if the output can be cached until the next change.
+	 */
+	protected boolean															cacheable			= false;
+	/**
+	 * The value of {@link SimpleEdge#getRelabelCount()} when {@link #rendered} was produced.
+	 */
+	protected long																edgeLabelsVersion	= 0;
+
 	/**
 	 * Creates a new instance and links it to the specified graph. No processing will occur until {@link #update()} is
 	 * called.
@@ -131,6 +156,7 @@ public class TextGraphRepresentation extends LinearGraphRepresentation
 		if(separatorIncrement != null)
 			this.indentIncrement = separatorIncrement;
 		incrementLimit = limit;
+		rendered = null;
 		return this;
 	}
 
@@ -143,12 +169,37 @@ public class TextGraphRepresentation extends LinearGraphRepresentation
 	/**
 	 * The method relies on a call of <code>buildPaths()</code> in {@link LinearGraphRepresentation}. After the paths
 	 * are built, they are explored depth-first to directly build the text representation.
+	 * <p>
+	 * For incremental representations, only the subgraphs in re-built components are explored again, unless the graph
+	 * contains {@link HyperNode} instances (whose exploration involves all the paths).
 	 */
 	@Override
 	protected void processGraph()
 	{
 		super.processGraph();
 
+		if(upToDate)
+		{
+			((TextRepresentationElement) theRepresentation).description = theGraph.getDescription();
+			return;
+		}
+		rendered = null;
+		cacheable = false;
+		if(isIncremental())
+		{
+			boolean hyper = false;
+			for(Node node : theGraph.getNodes())
+				if(node instanceof HyperNode)
+					hyper = true;
+			if(!hyper)
+			{
+				processComponents();
+				cacheable = true;
+				return;
+			}
+		}
+		componentSubgraphs = null;
+
 		Set<PathElement> blackNodes = new HashSet<PathElement>(); // contains all 'visited' nodes
 		TextRepresentationElement textRepresentation = new TextRepresentationElement(this, Type.ELEMENT_CONTAINER);
 		textRepresentation.description = theGraph.getDescription();
@@ -172,6 +223,53 @@ public class TextGraphRepresentation extends LinearGraphRepresentation
 		this.theRepresentation = textRepresentation;
 	}
 
+	/**
+	 * Builds the text representation out of the subgraphs in each component, exploring only the components that have
+	 * been re-built since the last update. The result is the same as the one of the exploration in
+	 * {@link #processGraph()}, as subgraphs never cross components.
+	 */
+	protected void processComponents()
+	{
+		Map<ComponentPaths, Map<PathElement, TextRepresentationElement>> subgraphs = new HashMap<ComponentPaths, Map<PathElement, TextRepresentationElement>>();
+		for(ComponentPaths component : components)
+		{
+			Map<PathElement, TextRepresentationElement> componentRepr = (componentSubgraphs != null) ? componentSubgraphs
+					.get(component) : null;
+			if(componentRepr == null)
+			{
+				componentRepr = new HashMap<PathElement, TextRepresentationElement>();
+				Set<PathElement> blackNodes = new HashSet<PathElement>();
+				for(PathElement el : component.getPaths())
+					if(!blackNodes.contains(el))
+					{
+						TextRepresentationElement nodeRepr = new TextRepresentationElement(this,
+								(VisualizableGraphComponent) el.getNode(), Type.NODE);
+						blackNodes.add(el);
+						nodeRepr.addSub(buildTextChildren(el, 1, blackNodes));
+						componentRepr.put(el, nodeRepr);
+					}
+			}
+			subgraphs.put(component, componentRepr);
+		}
+		componentSubgraphs = subgraphs;
+
+		TextRepresentationElement textRepresentation = new TextRepresentationElement(this, Type.ELEMENT_CONTAINER);
+		textRepresentation.description = theGraph.getDescription();
+		boolean first = true;
+		for(PathElement el : paths)
+		{
+			TextRepresentationElement nodeRepr = subgraphs.get(componentOf.get(el.getNode())).get(el);
+			if(nodeRepr != null)
+			{
+				TextRepresentationElement repr = new TextRepresentationElement(this, Type.SUBGRAPH, first);
+				repr.addSub(nodeRepr);
+				textRepresentation.addSub(repr);
+				first = false;
+			}
+		}
+		this.theRepresentation = textRepresentation;
+	}
+
 	/**
 	 * Explores the children of the given path element, to create the list of corresponding representation elements. It
 	 * recurses to completely explore the paths that start from the children.
@@ -325,15 +423,29 @@ public class TextGraphRepresentation extends LinearGraphRepresentation
 	 * <p>
 	 * If the graph is meant to be printed on several lines (<code>branchSeparator</code>) contains a new line, an
 	 * additional <code>branchSeparator</code> will be added before the representation.
+	 * <p>
+	 * For incremental representations, the output is cached until the graph changes, the layout changes, or an edge is
+	 * relabeled. It is not cached if the graph has a description, as the description may change independently.
 	 */
 	@Override
 	public String displayRepresentation()
 	{
 		String firstIndent = indent.contains("\n") ? indent : ""; // see javadoc
 		if(theRepresentation != null)
-			return firstIndent
+		{
+			long version = SimpleEdge.getRelabelCount();
+			if((rendered != null) && (version == edgeLabelsVersion) && (theGraph.getDescription() == null))
+				return rendered;
+			String ret = firstIndent
 					+ ((TextRepresentationElement) theRepresentation).toString(indent, indentIncrement, incrementLimit,
 							isBackwards);
+			if(cacheable)
+			{
+				rendered = ret;
+				edgeLabelsVersion = version;
+			}
+			return ret;
+		}
 		le("representation not computed (use update()).");
 		return null;
 	}
@@ -446,7 +558,7 @@ public class TextGraphRepresentation extends LinearGraphRepresentation
 					(UnitComponent) new UnitComponent().setUnitName(Unit.DEFAULT_UNIT_NAME).setLink(getUnitName())
 							.setLogLevel(Level.WARN));
 			theRepresentation = rootRepr;
-			lf("result: [] \n====================================", theRepresentation.toString());
+			lf("result: [] \n====================================", theRepresentation);
 
 			// make all connections
 			return buildGraph(rootRepr);
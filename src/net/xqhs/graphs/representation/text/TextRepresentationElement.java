@@ -11,6 +11,7 @@
  ******************************************************************************/
 package net.xqhs.graphs.representation.text;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -168,6 +169,70 @@ public class TextRepresentationElement extends RepresentationElement
 			return symbol;
 		}
 		
+		/**
+		 * @return the length of the symbol.
+		 */
+		public int length()
+		{
+			return symbol.length();
+		}
+		
+		/**
+		 * Checks if the symbol is present at a position in a text, without exceeding a limit.
+		 * 
+		 * @param text
+		 *            - the text.
+		 * @param index
+		 *            - the position.
+		 * @param to
+		 *            - the index (exclusive) that the symbol must not exceed.
+		 * @return <code>true</code> if the symbol is found at that position.
+		 */
+		public boolean isAt(String text, int index, int to)
+		{
+			return (index >= 0) && (index + symbol.length() <= to) && text.startsWith(symbol, index);
+		}
+		
+		/**
+		 * Searches the first occurrence of the symbol in a section of a text.
+		 * 
+		 * @param text
+		 *            - the text.
+		 * @param from
+		 *            - the beginning of the section (inclusive).
+		 * @param to
+		 *            - the end of the section (exclusive).
+		 * @return the index of the symbol in the text, or -1 if it does not occur in the section.
+		 */
+		public int indexIn(String text, int from, int to)
+		{
+			char first = symbol.charAt(0);
+			for(int i = from; i + symbol.length() <= to; i++)
+				if((text.charAt(i) == first) && text.startsWith(symbol, i))
+					return i;
+			return -1;
+		}
+		
+		/**
+		 * Searches the last occurrence of the symbol in a section of a text.
+		 * 
+		 * @param text
+		 *            - the text.
+		 * @param from
+		 *            - the beginning of the section (inclusive).
+		 * @param to
+		 *            - the end of the section (exclusive).
+		 * @return the index of the symbol in the text, or -1 if it does not occur in the section.
+		 */
+		public int lastIndexIn(String text, int from, int to)
+		{
+			char first = symbol.charAt(0);
+			for(int i = to - symbol.length(); i >= from; i--)
+				if((text.charAt(i) == first) && text.startsWith(symbol, i))
+					return i;
+			return -1;
+		}
+		
 		/**
 		 * Returns a value that can be included in a regular expressions pattern (as for {@link String#split(String)})
 		 * without worries that the characters in the symbol will be taken as special values.
@@ -533,7 +598,9 @@ public class TextRepresentationElement extends RepresentationElement
 	 * If the representation contains any hyper nodes, it is mandatory that the representation f the graph is enclosed
 	 * between {@link Symbol#ELEMENT_CONTAINER_IN} and {@link Symbol#ELEMENT_CONTAINER_OUT}.
 	 * <p>
-	 * The <code>input</code> argument is modified by using {@link ContentHolder#set(Object)}.
+	 * The <code>input</code> argument is modified by using {@link ContentHolder#set(Object)}, only once, after the
+	 * whole element has been read. The actual reading is done by a {@link RepresentationReader}, which walks the input
+	 * with an index, so that the input is not copied at every level of the representation.
 	 * 
 	 * @param input
 	 *            - the input, held be a {@link ContentHolder} instance. It is assumed to be a non-empty, correct
@@ -552,34 +619,288 @@ public class TextRepresentationElement extends RepresentationElement
 	static protected TextRepresentationElement readRepresentation(ContentHolder<String> input, Type type,
 			boolean firstSibling, TextGraphRepresentation representation, UnitComponent log)
 	{
-		log.lf("reading [] from []", type, input);
-		TextRepresentationElement ret = null;
-		int nChildren = 0; // used to detect the first child
-		switch(type)
+		RepresentationReader reader = new RepresentationReader(input.get(), representation, log);
+		TextRepresentationElement ret = reader.read(type, firstSibling);
+		input.set(reader.remaining());
+		return ret;
+	}
+	
+	/**
+	 * Reads a textual representation by means of a cursor in the input string. Each call of {@link #read(Type, boolean)}
+	 * reads the element that is found between {@link #start} and {@link #end}, and leaves {@link #start} and
+	 * {@link #end} delimiting the rest of the input, which is to be read by following calls. Substrings are only created
+	 * for labels and names.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	protected static class RepresentationReader
+	{
+		/**
+		 * The symbols that end the name of a node.
+		 */
+		protected static final Symbol[]			NODE_NAME_ENDINGS	= { Symbol.EDGE_LIMIT, Symbol.BRANCH_IN,
+				Symbol.EDGE_ENDING_FORWARD, Symbol.EDGE_ENDING_BACKWARD };
+		
+		/**
+		 * The whole input.
+		 */
+		protected final String					text;
+		/**
+		 * The beginning of the current input (inclusive).
+		 */
+		protected int							start;
+		/**
+		 * The end of the current input (exclusive).
+		 */
+		protected int							end;
+		/**
+		 * The representation that the read elements belong to.
+		 */
+		protected final TextGraphRepresentation	representation;
+		/**
+		 * The log.
+		 */
+		protected final UnitComponent			log;
+		/**
+		 * For each index in the section covered by the table, relative to {@link #closingsFrom}, the index of the
+		 * matching closing symbol, if an opening symbol is found at that index; -1 otherwise.
+		 */
+		protected int[]							closings;
+		/**
+		 * The opening symbol for which {@link #closings} has been computed.
+		 */
+		protected Symbol						closingsSymbol;
+		/**
+		 * The beginning of the section covered by {@link #closings} (the opening symbol of an enclosure).
+		 */
+		protected int							closingsFrom;
+		/**
+		 * The end of the section covered by {@link #closings} (after the closing symbol of the enclosure).
+		 */
+		protected int							closingsTo;
+		
+		/**
+		 * Creates a reader for the whole input.
+		 * 
+		 * @param input
+		 *            - the input.
+		 * @param graphRepresentation
+		 *            - the representation that the read elements belong to.
+		 * @param logComponent
+		 *            - a {@link UnitComponent} to use for logging messages.
+		 */
+		protected RepresentationReader(String input, TextGraphRepresentation graphRepresentation,
+				UnitComponent logComponent)
 		{
-		case ELEMENT_CONTAINER:
+			text = input;
+			start = 0;
+			end = input.length();
+			representation = graphRepresentation;
+			log = logComponent;
+		}
+		
+		/**
+		 * @return the input that has not been consumed yet.
+		 */
+		protected String remaining()
 		{
-			String rest = null; // rest of the input, in case multiple to-level graphs are defined
-			if(input.get().trim().startsWith(Symbol.ELEMENT_CONTAINER_IN.toString()))
+			return text.substring(start, end);
+		}
+		
+		/**
+		 * Sets the current input.
+		 * 
+		 * @param from
+		 *            - the beginning of the input (inclusive).
+		 * @param to
+		 *            - the end of the input (exclusive).
+		 */
+		protected void setInput(int from, int to)
+		{
+			start = from;
+			end = to;
+		}
+		
+		/**
+		 * @param from
+		 *            - an index in the text.
+		 * @param to
+		 *            - the end of the search (exclusive).
+		 * @return the index of the first non-whitespace character, or <code>to</code> if there is none (same criterion
+		 *         as {@link String#trim()}).
+		 */
+		protected int skipWhitespace(int from, int to)
+		{
+			int i = from;
+			while((i < to) && (text.charAt(i) <= ' '))
+				i++;
+			return i;
+		}
+		
+		/**
+		 * @param from
+		 *            - the beginning of the search.
+		 * @param to
+		 *            - an index in the text (exclusive).
+		 * @return the index after the last non-whitespace character before <code>to</code>, or <code>from</code> if
+		 *         there is none (same criterion as {@link String#trim()}).
+		 */
+		protected int skipWhitespaceBackwards(int from, int to)
+		{
+			int i = to;
+			while((i > from) && (text.charAt(i - 1) <= ' '))
+				i--;
+			return i;
+		}
+		
+		/**
+		 * @param from
+		 *            - the beginning of the section (inclusive).
+		 * @param to
+		 *            - the end of the section (exclusive).
+		 * @return the section of the text, trimmed.
+		 */
+		protected String trimmed(int from, int to)
+		{
+			int s = skipWhitespace(from, to);
+			return text.substring(s, skipWhitespaceBackwards(s, to));
+		}
+		
+		/**
+		 * Gets the index of the closing symbol that matches an opening symbol. The result is the same as the one of
+		 * {@link TextRepresentationElement#getFirstUnmatchedClosingSymbolIndex(String, String, String)} applied to the
+		 * text after the opening symbol, but the matching symbols for all the enclosures nested in the same outer
+		 * enclosure are computed in one pass, so that nested enclosures are not explored again for each level of
+		 * nesting.
+		 * 
+		 * @param openIndex
+		 *            - the index of the opening symbol.
+		 * @param to
+		 *            - the end of the section in which the closing symbol must be found.
+		 * @param openingSymbol
+		 *            - the opening symbol for enclosures.
+		 * @param closingSymbol
+		 *            - the closing symbol for enclosures.
+		 * @return the index of the matching closing symbol.
+		 * 
+		 * @throws IllegalArgumentException
+		 *             if there is no matching closing symbol in the section.
+		 */
+		protected int getClosingIndex(int openIndex, int to, Symbol openingSymbol, Symbol closingSymbol)
+		{
+			if((closingsSymbol != openingSymbol) || (openIndex < closingsFrom) || (openIndex >= closingsTo))
+			{
+				// find the end of the enclosure, so that the table only covers the enclosure
+				int depth = 0, scanEnd = to;
+				for(int i = openIndex; i < to;)
+					if(openingSymbol.isAt(text, i, to))
+					{
+						depth++;
+						i += openingSymbol.length();
+					}
+					else if(closingSymbol.isAt(text, i, to))
+					{
+						i += closingSymbol.length();
+						if(--depth == 0)
+						{
+							scanEnd = i;
+							break;
+						}
+					}
+					else
+						i++;
+				if(depth > 0)
+					throw new IllegalArgumentException("Enclosure is not closed by [" + closingSymbol + "]");
+				
+				closingsSymbol = openingSymbol;
+				closingsFrom = openIndex;
+				closingsTo = scanEnd;
+				closings = new int[scanEnd - openIndex];
+				Arrays.fill(closings, -1);
+				int[] openings = new int[scanEnd - openIndex]; // stack of unmatched opening symbols
+				int open = 0;
+				for(int i = openIndex; i < scanEnd;)
+				{
+					if(openingSymbol.isAt(text, i, scanEnd))
+					{
+						openings[open++] = i;
+						i += openingSymbol.length();
+					}
+					else if(closingSymbol.isAt(text, i, scanEnd))
+					{
+						closings[openings[--open] - openIndex] = i;
+						i += closingSymbol.length();
+					}
+					else
+						i++;
+				}
+			}
+			int closing = closings[openIndex - closingsFrom];
+			if((closing < 0) || (closing >= to))
+				throw new IllegalArgumentException("Enclosure is not closed by [" + closingSymbol + "]");
+			return closing;
+		}
+		
+		/**
+		 * Reads the representation of an element from the current input, leaving the rest of the input (if any) to be
+		 * read by other calls. The semantics are the same as the ones of
+		 * {@link TextRepresentationElement#readRepresentation(ContentHolder, Type, boolean, TextGraphRepresentation, UnitComponent)}
+		 * .
+		 * 
+		 * @param type
+		 *            - the type of element to read from the input, as one of {@link Type}.
+		 * @param firstSibling
+		 *            - <code>true</code> if this is the first instance in a list of sibling instances (first child of a
+		 *            parent).
+		 * @return the element read from the input, as a {@link TextRepresentationElement}.
+		 */
+		protected TextRepresentationElement read(Type type, boolean firstSibling)
+		{
+			log.lf("reading [] from [] to []", type, new Integer(start), new Integer(end));
+			switch(type)
+			{
+			case ELEMENT_CONTAINER:
+				return readContainer();
+			case SUBGRAPH:
+				return readSubgraph(firstSibling);
+			case EXTERNAL_LINK:
+			case INTERNAL_LINK:
+				// these two above are not really used, as we can't know beforehand if an edge is external, internal, or
+				// normal
+			case BRANCH:
+				return readBranch(firstSibling);
+			case NODE:
+				return readNode();
+			}
+			return null;
+		}
+		
+		/**
+		 * Reads an element container (a graph), with its optional description.
+		 * 
+		 * @return the element.
+		 */
+		protected TextRepresentationElement readContainer()
+		{
+			int restStart = -1, restEnd = end; // rest of the input, in case multiple to-level graphs are defined
+			int first = skipWhitespace(start, end);
+			if(Symbol.ELEMENT_CONTAINER_IN.isAt(text, first, end))
 			{
-				String str = input.get();
-				str = str.substring(str.indexOf(Symbol.ELEMENT_CONTAINER_IN.toString())
-						+ Symbol.ELEMENT_CONTAINER_IN.toString().length());
+				int inside = first + Symbol.ELEMENT_CONTAINER_IN.length();
 				// index of the closing of the element container
-				int lastIndex = getFirstUnmatchedClosingSymbolIndex(str, Symbol.ELEMENT_CONTAINER_IN.toString(),
-						Symbol.ELEMENT_CONTAINER_OUT.toString());
-				rest = str.substring(lastIndex + Symbol.ELEMENT_CONTAINER_OUT.toString().length());
-				str = str.substring(0, lastIndex);
-				input.set(str);
+				int closing = getClosingIndex(first, end, Symbol.ELEMENT_CONTAINER_IN, Symbol.ELEMENT_CONTAINER_OUT);
+				restStart = closing + Symbol.ELEMENT_CONTAINER_OUT.length();
+				setInput(inside, closing);
 			}
-			ret = new TextRepresentationElement(representation, type);
+			TextRepresentationElement ret = new TextRepresentationElement(representation, Type.ELEMENT_CONTAINER);
 			
 			// detect description
-			int descrIndex = input.get().indexOf(Symbol.DESCRIPTION_SEPARATOR.toString());
+			int descrIndex = Symbol.DESCRIPTION_SEPARATOR.indexIn(text, start, end);
 			if(descrIndex >= 0)
 			{
-				String descriptionString = input.get().substring(0, descrIndex).trim();
-				input.set(input.get().substring(descrIndex + Symbol.DESCRIPTION_SEPARATOR.toString().length()).trim());
+				String descriptionString = trimmed(start, descrIndex);
+				int s = skipWhitespace(descrIndex + Symbol.DESCRIPTION_SEPARATOR.length(), end);
+				setInput(s, skipWhitespaceBackwards(s, end));
 				if(!descriptionString.isEmpty())
 				{
 					log.lf("description detected: []", descriptionString);
@@ -587,103 +908,123 @@ public class TextRepresentationElement extends RepresentationElement
 				}
 			}
 			
-			while(input.get().length() > 0)
+			int nChildren = 0; // used to detect the first child
+			while(start < end)
 				// input will be modified in the call below; each call reads a subgraph
-				ret.addSub(readRepresentation(input, Type.SUBGRAPH, (nChildren++ == 0), representation, log));
-			if(rest != null)
-				input.set(rest);
-			break;
+				ret.addSub(read(Type.SUBGRAPH, (nChildren++ == 0)));
+			if(restStart >= 0)
+				setInput(restStart, restEnd);
+			return ret;
 		}
-		case SUBGRAPH:
+		
+		/**
+		 * Reads a subgraph, up to the next {@link Symbol#SUBGRAPH_SEPARATOR}.
+		 * 
+		 * @param firstSibling
+		 *            - <code>true</code> if this is the first subgraph in the container.
+		 * @return the element, or <code>null</code> if the subgraph is empty.
+		 */
+		protected TextRepresentationElement readSubgraph(boolean firstSibling)
 		{
-			String rez[] = input.get().split(Symbol.SUBGRAPH_SEPARATOR.toRegexp(), 2);
-			// should have current subgraph in rez[0], rest of the graph in rez[1], if any
-			if(rez.length > 0 && rez[0].length() > 0)
+			TextRepresentationElement ret = null;
+			int separator = Symbol.SUBGRAPH_SEPARATOR.indexIn(text, start, end);
+			int restStart = (separator >= 0) ? separator + Symbol.SUBGRAPH_SEPARATOR.length() : end;
+			int restEnd = end;
+			int subgraphEnd = (separator >= 0) ? separator : end;
+			if(subgraphEnd > start)
 			{
-				input.set(rez[0]);
+				setInput(start, subgraphEnd);
 				log.li("create new subgraph");
 				ret = new TextRepresentationElement(representation, Type.SUBGRAPH, firstSibling);
 				// a representation begins with a node
-				ret.addSub(readRepresentation(input, Type.NODE, true, representation, log));
+				ret.addSub(read(Type.NODE, true));
 			}
-			if(rez.length > 1) // more subgraphs left
-				input.set(rez[1]);
-			else
-				input.set("");
-			break;
+			setInput(restStart, restEnd);
+			return ret;
 		}
-		case EXTERNAL_LINK:
-		case INTERNAL_LINK:
-			// these two above are not really used, as we can't know beforehand if an edge is external, internal, or
-			// normal
-		case BRANCH:
+		
+		/**
+		 * Reads a branch: an edge and the subtree of its target node.
+		 * 
+		 * @param firstSibling
+		 *            - <code>true</code> if this is the first child of its parent.
+		 * @return the element.
+		 */
+		protected TextRepresentationElement readBranch(boolean firstSibling)
 		{
-			String branchString; // the representation of the current subtree / branch
-			String rest; // the rest of the input
+			int branchStart, branchEnd; // the representation of the current subtree / branch
+			int restStart, restEnd; // the rest of the input
 			boolean isLastChild;
-			// isolate branch
-			input.set(input.get().trim()); // be sure that first char is non-whitespace
-			if(input.get().startsWith(Symbol.BRANCH_IN.toString()))
+			// isolate branch; be sure that first char is non-whitespace
+			setInput(skipWhitespace(start, end), skipWhitespaceBackwards(start, end));
+			if(Symbol.BRANCH_IN.isAt(text, start, end))
 			{ // there will be other branches / subtrees after this subtree.
-				// locate corresponding closing symbol
-				String open = Symbol.BRANCH_IN.toString();
-				String close = Symbol.BRANCH_OUT.toString();
+				int inside = start + Symbol.BRANCH_IN.length();
 				// get the index of the corresponding closing symbol
-				int lastIndex = getFirstUnmatchedClosingSymbolIndex(input.get().substring(open.length()), open, close);
-				branchString = input.get().substring(open.length(), lastIndex + open.length()).trim();
-				rest = input.get().substring(lastIndex + open.length() + close.length());
+				int closing = getClosingIndex(start, end, Symbol.BRANCH_IN, Symbol.BRANCH_OUT);
+				branchStart = skipWhitespace(inside, closing);
+				branchEnd = skipWhitespaceBackwards(branchStart, closing);
+				restStart = closing + Symbol.BRANCH_OUT.length();
+				restEnd = end;
 				isLastChild = false;
 			}
 			else
 			{
-				branchString = input.get().trim();
-				rest = "";
+				branchStart = start;
+				branchEnd = end;
+				restStart = restEnd = end;
 				isLastChild = true;
 			}
-			log.lf("identified [] edge []", (isLastChild ? "last" : ""), branchString);
+			log.lf("identified [] edge from [] to []", (isLastChild ? "last" : ""), new Integer(branchStart),
+					new Integer(branchEnd));
 			
 			// read current branch
-			// get the label
-			int firstIndex, lastIndex; // first and last index of the label of the edge, in branchstring
-			String nextNode; // the rest of the branch.
+			// get the label: first and last index of the label of the edge, in the text
+			int firstIndex, lastIndex;
+			int nextStart; // the beginning of the rest of the branch.
 			
 			if(!representation.isBackwards())
 			{ // - forward-edge [-]> next node
-				String rez[] = branchString.split(Symbol.EDGE_ENDING_FORWARD.toRegexp(), 2);
-				// rez now contains: edge representation | rest of the branch
-				firstIndex = rez[0].indexOf(Symbol.EDGE_LIMIT.toString()) + Symbol.EDGE_LIMIT.toString().length();
-				if(rez[0].length() == 0)
-					lastIndex = -1; // no label; edge is just the EDGE_ENDING_FORWARD symbol.
-				else if(rez.length < 2)
+				int ending = Symbol.EDGE_ENDING_FORWARD.indexIn(text, branchStart, branchEnd);
+				// the edge representation is between branchStart and ending
+				if(ending < 0)
 					throw new IllegalArgumentException("No ending for edge.");
-				else if(rez[0].substring(rez[0].length() - 1).equals(Symbol.EDGE_LIMIT.toString()))
+				int limit = Symbol.EDGE_LIMIT.indexIn(text, branchStart, ending);
+				firstIndex = ((limit >= 0) ? limit : branchStart - 1) + Symbol.EDGE_LIMIT.length();
+				if(ending == branchStart)
+					lastIndex = branchStart - 1; // no label; edge is just the EDGE_ENDING_FORWARD symbol.
+				else if(Symbol.EDGE_LIMIT.isAt(text, ending - 1, ending))
 					// the last character before EDGE_ENDING_FORWARD is again EDGE_LIMIT; ignore it.
-					lastIndex = rez[0].length() - 1;
+					lastIndex = ending - 1;
 				else
-					lastIndex = rez[0].length();
-				nextNode = rez[1].trim();
+					lastIndex = ending;
+				nextStart = ending + Symbol.EDGE_ENDING_FORWARD.length();
 			}
 			else
 			{ // <[-] backward-edge - next node
-				// assume first character is (EDGE_ENDING_BACKWARD) (edgeString is trimmed)
+				// assume first character is (EDGE_ENDING_BACKWARD) (the branch is trimmed)
 				// identify edge name ending by last EDGE_LIMIT before the next EDGE_ENDING_BACKWARD
-				branchString = branchString.substring(Symbol.EDGE_ENDING_BACKWARD.toString().length());
-				String rez[] = branchString.split(Symbol.EDGE_ENDING_BACKWARD.toRegexp(), 2);
-				// rez now contains: representation until before the next edge | next edge and rest
-				// second part of rez is not used, and the string is anyway checked in the 'NODE' case
-				lastIndex = rez[0].lastIndexOf(Symbol.EDGE_LIMIT.toString());
-				if(rez[0].startsWith(Symbol.EDGE_LIMIT.toString()))
+				if(branchStart == branchEnd)
+					throw new IllegalArgumentException("No edge found.");
+				branchStart += Symbol.EDGE_ENDING_BACKWARD.length();
+				int ending = Symbol.EDGE_ENDING_BACKWARD.indexIn(text, branchStart, branchEnd);
+				// the representation until before the next edge is between branchStart and ending; what comes after is
+				// checked when reading the node
+				if(ending < 0)
+					ending = branchEnd;
+				int limit = Symbol.EDGE_LIMIT.lastIndexIn(text, branchStart, ending);
+				lastIndex = (limit >= 0) ? limit : branchStart - Symbol.EDGE_LIMIT.length();
+				if(Symbol.EDGE_LIMIT.isAt(text, branchStart, ending))
 					// the string begins with the EDGE_LIMIT symbol next to the EDGE_ENDING_BACKWARD symbol; ignore it.
-					firstIndex = Symbol.EDGE_LIMIT.toString().length();
+					firstIndex = branchStart + Symbol.EDGE_LIMIT.length();
 				else
-					firstIndex = 0;
-				nextNode = branchString.substring(lastIndex + Symbol.EDGE_LIMIT.toString().length()).trim();
+					firstIndex = branchStart;
+				nextStart = lastIndex + Symbol.EDGE_LIMIT.length();
 			}
 			String edgeLabel;
 			if(firstIndex <= lastIndex)
 			{
-				// log.lf("===== [] === [] ", firstIndex, lastIndex);
-				edgeLabel = branchString.substring(firstIndex, lastIndex).trim();
+				edgeLabel = trimmed(firstIndex, lastIndex);
 				if(edgeLabel.length() == 0)
 					edgeLabel = null;
 			}
@@ -692,19 +1033,20 @@ public class TextRepresentationElement extends RepresentationElement
 				edgeLabel = null;
 			
 			// get the type (internal, external or normal branch)
-			// nextNode has been trimmed
+			nextStart = skipWhitespace(nextStart, branchEnd);
+			int nextEnd = skipWhitespaceBackwards(nextStart, branchEnd);
 			Type edgeType;
 			String edgeTypeChar = "";
-			if(nextNode.startsWith(Symbol.EXTERNAL_LINK_PREFIX.toString()))
+			if(Symbol.EXTERNAL_LINK_PREFIX.isAt(text, nextStart, nextEnd))
 			{
 				edgeType = Type.EXTERNAL_LINK;
-				nextNode = nextNode.substring(Symbol.EXTERNAL_LINK_PREFIX.toString().length());
+				nextStart += Symbol.EXTERNAL_LINK_PREFIX.length();
 				edgeTypeChar = Symbol.EXTERNAL_LINK_PREFIX.toString();
 			}
-			else if(nextNode.startsWith(Symbol.INTERNAL_LINK_PREFIX.toString()))
+			else if(Symbol.INTERNAL_LINK_PREFIX.isAt(text, nextStart, nextEnd))
 			{
 				edgeType = Type.INTERNAL_LINK;
-				nextNode = nextNode.substring(Symbol.INTERNAL_LINK_PREFIX.toString().length());
+				nextStart += Symbol.INTERNAL_LINK_PREFIX.length();
 				edgeTypeChar = Symbol.INTERNAL_LINK_PREFIX.toString();
 			}
 			else
@@ -714,19 +1056,31 @@ public class TextRepresentationElement extends RepresentationElement
 			log.li("create new [][] edge: [].", edgeTypeChar, edgeType, edgeLabel);
 			SettableEdge edge = new SettableEdge(edgeLabel); // node names will be filled in later
 			// level is unused
-			ret = new TextRepresentationElement(representation, edge, edgeType, -1, isLastChild, isLastChild
-					&& firstSibling);
-			ret.addSub(readRepresentation(input.set(nextNode), Type.NODE, true, representation, log));
-			input.set(rest);
-			break;
+			TextRepresentationElement ret = new TextRepresentationElement(representation, edge, edgeType, -1,
+					isLastChild, isLastChild && firstSibling);
+			setInput(nextStart, nextEnd);
+			ret.addSub(read(Type.NODE, true));
+			setInput(restStart, restEnd);
+			return ret;
 		}
-		case NODE:
+		
+		/**
+		 * Reads a node and the branches that start from it.
+		 * 
+		 * @return the element.
+		 */
+		protected TextRepresentationElement readNode()
 		{
-			String regex = Symbol.EDGE_LIMIT.toRegexp() + "|" + Symbol.BRANCH_IN.toRegexp() + "|"
-					+ Symbol.EDGE_ENDING_FORWARD.toRegexp() + "|" + Symbol.EDGE_ENDING_BACKWARD.toRegexp();
-			String parts[] = input.get().split(regex, 2);
-			// parts now contains: the node label | the rest, without the separator
-			String nodeName = parts[0].trim();
+			// the node label ends at the first separator, if any
+			int separator = -1;
+			for(int i = start; (i < end) && (separator < 0); i++)
+				for(Symbol symbol : NODE_NAME_ENDINGS)
+					if(symbol.isAt(text, i, end))
+					{
+						separator = i;
+						break;
+					}
+			String nodeName = trimmed(start, (separator >= 0) ? separator : end);
 			if(nodeName.length() == 0)
 				throw new IllegalArgumentException("Node name is empty.");
 			SimpleNode node = null;
@@ -745,18 +1099,17 @@ public class TextRepresentationElement extends RepresentationElement
 				// for internal links, this should not be a new node; it will be replaced later
 				node = new SimpleNode(nodeName);
 			}
-			ret = new TextRepresentationElement(representation, node, Type.NODE);
-			if(parts.length > 1)
+			TextRepresentationElement ret = new TextRepresentationElement(representation, node, Type.NODE);
+			if(separator >= 0)
 			{
 				// remember what was after the node name
-				input.set(input.get().substring(parts[0].length()));
-				while(input.get().length() > 0)
-					ret.addSub(readRepresentation(input, Type.BRANCH, (nChildren++ == 0), representation, log));
+				start = separator;
+				int nChildren = 0; // used to detect the first child
+				while(start < end)
+					ret.addSub(read(Type.BRANCH, (nChildren++ == 0)));
 			}
-			break;
-		}
+			return ret;
 		}
-		return ret;
 	}
 	
 	/**
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.graphs.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * A {@link Reader} that decodes the contents of a file which is mapped in memory, instead of being read through a
+ * stream. The file is mapped in windows of at most {@link #WINDOW_SIZE} bytes, so files of any size can be read.
+ * <p>
+ * Malformed input is replaced, as with {@link java.io.InputStreamReader}.
+ * <p>
+ * Note that the mapped memory is released only when the buffers are garbage collected, even after the reader is
+ * closed.
+ *
+ * @author Andrei Olaru
+ */
+public class MappedFileReader extends Reader
+{
+	/**
+	 * The maximum size of a mapped window.
+	 */
+	protected static final long	WINDOW_SIZE	= 1 << 28;
+
+	/**
+	 * The channel of the file.
+	 */
+	protected FileChannel		channel;
+	/**
+	 * The size of the file.
+	 */
+	protected long				fileSize;
+	/**
+	 * The position in the file of the current window.
+	 */
+	protected long				windowStart	= 0;
+	/**
+	 * The current window.
+	 */
+	protected MappedByteBuffer	window;
+	/**
+	 * The decoder.
+	 */
+	protected CharsetDecoder	decoder;
+	/**
+	 * <code>true</code> if all the input has been decoded and flushed.
+	 */
+	protected boolean			finished	= false;
+
+	/**
+	 * Opens the file and maps its first window.
+	 *
+	 * @param file
+	 *            - the file to read.
+	 * @param charset
+	 *            - the character set of the file.
+	 * @throws IOException
+	 *             - if the file cannot be opened or mapped.
+	 */
+	public MappedFileReader(File file, Charset charset) throws IOException
+	{
+		channel = new RandomAccessFile(file, "r").getChannel();
+		fileSize = channel.size();
+		decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		map(0);
+	}
+
+	/**
+	 * Maps a new window.
+	 *
+	 * @param start
+	 *            - the position in the file where the window should start.
+	 * @throws IOException
+	 *             - if mapping fails.
+	 */
+	protected void map(long start) throws IOException
+	{
+		windowStart = start;
+		window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, fileSize - start));
+	}
+
+	/**
+	 * @return <code>true</code> if the current window reaches the end of the file.
+	 */
+	protected boolean lastWindow()
+	{
+		return windowStart + window.limit() >= fileSize;
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException
+	{
+		if(channel == null)
+			throw new IOException("Reader is closed");
+		if(len == 0)
+			return 0;
+		if(finished)
+			return -1;
+		CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+		while(out.position() == off)
+		{
+			boolean last = lastWindow();
+			decoder.decode(window, out, last);
+			if(out.position() > off)
+				break;
+			if(!last)
+				// the rest of the window is not enough for a character; continue with the next window
+				map(windowStart + window.position());
+			else
+			{
+				decoder.flush(out);
+				finished = true;
+				break;
+			}
+		}
+		int read = out.position() - off;
+		return (read == 0) ? -1 : read;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		if(channel != null)
+			channel.close();
+		channel = null;
+		window = null;
+	}
+}
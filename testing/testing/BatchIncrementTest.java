@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.GraphComponent;
+import net.xqhs.graphs.graph.Node;
+import net.xqhs.graphs.graph.SimpleEdge;
+import net.xqhs.graphs.matcher.GraphMatcherQuick;
+import net.xqhs.graphs.matcher.Match;
+import net.xqhs.graphs.matcher.MonitorPack;
+import net.xqhs.graphs.matchingPlatform.GMPImplementation;
+import net.xqhs.graphs.matchingPlatform.GMPImplementation.PrincipalGraph;
+import net.xqhs.graphs.matchingPlatform.MatchDelta;
+import net.xqhs.graphs.pattern.GraphPattern;
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * Tester for batched transaction processing (see {@link GMPImplementation#incrementSequenceBatch(int)}). Random
+ * changes are applied to the principal graph of a platform, which applies them in batches of random sizes. The
+ * changes in complete matches returned for each batch are applied to the set of complete matches known so far, which
+ * is then compared with the complete matches found by matching the pattern against the active part of the graph, as
+ * in {@link NodeChangesTest}. Then, it compares the time needed to follow the changes transaction by transaction and
+ * in batches.
+ *
+ * @author Andrei Olaru
+ */
+public class BatchIncrementTest extends Tester
+{
+	/**
+	 * Seed for the random graphs and patterns.
+	 */
+	protected static final long	SEED			= 42;
+	/**
+	 * Number of random patterns and sequences of changes in the behavioral test, for each shape of patterns.
+	 */
+	protected static final int	N_MATCHINGS		= 50;
+	/**
+	 * Number of changes in each sequence.
+	 */
+	protected static final int	N_CHANGES		= 300;
+	/**
+	 * Maximum number of transactions in a batch, in the behavioral test.
+	 */
+	protected static final int	MAX_BATCH		= 20;
+	/**
+	 * Number of nodes used by the changes in the behavioral test.
+	 */
+	protected static final int	N_NODES			= 15;
+	/**
+	 * Number of nodes used by the changes when measuring time.
+	 */
+	protected static final int	BENCH_NODES		= 200;
+	/**
+	 * Number of patterns when measuring time.
+	 */
+	protected static final int	BENCH_PATTERNS	= 20;
+	/**
+	 * Number of changes when measuring time.
+	 */
+	protected static final int	BENCH_CHANGES	= 2000;
+	/**
+	 * Number of transactions in a batch, when measuring time.
+	 */
+	protected static final int	BENCH_BATCH		= 50;
+
+	/**
+	 * @param args
+	 *            - unused.
+	 */
+	public static void main(String[] args)
+	{
+		new BatchIncrementTest();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		testBatches(true);
+		testBatches(false);
+		logChecks();
+
+		benchmark();
+	}
+
+	/**
+	 * Applies random changes to the principal graph of a platform, and increments the matching sequence in batches of
+	 * random sizes. After each batch, it checks that the disappeared matches were known and the appeared ones were
+	 * not, and compares the known complete matches with those found in the active part of the graph.
+	 *
+	 * @param star
+	 *            - if <code>true</code>, star-shaped patterns are used and the matches must be the same; otherwise,
+	 *            tree-shaped patterns are used and the known matches must be among the expected ones (see
+	 *            {@link NodeChangesTest}).
+	 */
+	protected void testBatches(boolean star)
+	{
+		Random rand = new Random(SEED);
+		int batches = 0;
+		for(int i = 0; i < N_MATCHINGS; i++)
+		{
+			List<Node> nodes = NodeChangesTest.randomNodes(rand, N_NODES);
+			List<Edge> edges = new ArrayList<Edge>();
+			GraphPattern pattern = star ? NodeChangesTest.starPattern(rand, 2 + rand.nextInt(3))
+					: ParallelMatchingTest.randomPattern(rand, 2 + rand.nextInt(3));
+			Map<Edge, Integer> ids = new IdentityHashMap<Edge, Integer>();
+			for(Edge edge : pattern.getEdges())
+				ids.put(edge, new Integer(ids.size()));
+
+			PrincipalGraph graph = (PrincipalGraph) new PrincipalGraph().setUnitName("G").setLogLevel(Level.OFF);
+			GMPImplementation platform = new GMPImplementation().setPrincipalGraph(graph);
+			platform.addPattern(pattern);
+			Set<Match> known = new HashSet<Match>();
+			int j = 0;
+			while(j < N_CHANGES)
+			{
+				int size = 1 + rand.nextInt(MAX_BATCH);
+				for(int c = 0; c < size; c++, j++)
+				{
+					Edge added = NodeChangesTest.randomChange(rand, graph, nodes, edges);
+					if(added != null)
+						ids.put(added, new Integer(ids.size()));
+				}
+				MatchDelta delta = platform.incrementSequenceBatch(platform.getGraphSequence());
+				check(platform.getMathingSequence() == platform.getGraphSequence(),
+						"matching sequence not synchronized after batch");
+				check(platform.incrementSequenceBatch(0) == null, "batch returned without any transactions");
+				batches++;
+				check(known.containsAll(delta.getDisappeared()), "unknown matches disappeared for pattern " + i);
+				known.removeAll(delta.getDisappeared());
+				for(Match m : delta.getAppeared())
+					check(known.add(m) && m.isValid() && (m.getK() == 0), "wrong match appeared for pattern " + i);
+				for(Match m : known)
+					check(m.isValid(), "known match is invalid for pattern " + i);
+
+				Set<String> expected = EdgeIndexTest.canonical(GraphMatcherQuick.getMatcher(
+						NodeChangesTest.activePart(graph), pattern, new MonitorPack()).getAllCompleteMatches(), ids);
+				Set<String> actual = EdgeIndexTest.canonical(known, ids);
+				if(star)
+					check(expected.equals(actual), "matches differ for star pattern " + i + " after change " + j);
+				else
+					check(expected.containsAll(actual), "unexpected matches for pattern " + i + " after change " + j);
+			}
+		}
+		log.li("[] batches checked for [] patterns", new Integer(batches), star ? "star-shaped" : "tree-shaped");
+	}
+
+	/**
+	 * Applies the same random changes to two platforms, one following them transaction by transaction and the other
+	 * in batches, and logs the times.
+	 */
+	protected void benchmark()
+	{
+		for(int round = 0; round < 2; round++) // the first round is a warm-up
+		{
+			Random rand = new Random(SEED);
+			List<Node> nodes = NodeChangesTest.randomNodes(rand, BENCH_NODES);
+			List<Edge> edges = new ArrayList<Edge>();
+			PrincipalGraph graph = (PrincipalGraph) new PrincipalGraph().setUnitName("G").setLogLevel(Level.OFF);
+			List<GraphComponent> initial = new ArrayList<GraphComponent>(nodes);
+			for(int j = 3 * BENCH_NODES; j > 0; j--)
+			{
+				Edge edge = new SimpleEdge(nodes.get(rand.nextInt(nodes.size())), nodes.get(rand.nextInt(nodes
+						.size())), EdgeIndexTest.randomLabel(rand, EdgeIndexTest.EDGE_LABELS));
+				edges.add(edge);
+				initial.add(edge);
+			}
+			graph.addAll(initial);
+			GMPImplementation stepwise = new GMPImplementation().setPrincipalGraph(graph);
+			GMPImplementation batched = new GMPImplementation().setPrincipalGraph(graph);
+			for(int p = 0; p < BENCH_PATTERNS; p++)
+			{
+				GraphPattern pattern = NodeChangesTest.starPattern(rand, 2);
+				stepwise.addPattern(pattern);
+				batched.addPattern(pattern);
+			}
+			long stepwiseTime = 0;
+			long batchedTime = 0;
+			int batchedChanges = 0;
+			for(int j = 0; j < BENCH_CHANGES; j += BENCH_BATCH)
+			{
+				for(int c = 0; c < BENCH_BATCH; c++)
+					NodeChangesTest.randomChange(rand, graph, nodes, edges);
+				long start = System.nanoTime();
+				stepwise.incrementSequenceFastForward();
+				stepwiseTime += System.nanoTime() - start;
+				start = System.nanoTime();
+				MatchDelta delta = batched.incrementSequenceBatch(0);
+				batchedTime += System.nanoTime() - start;
+				if(delta != null)
+					batchedChanges += delta.getAppeared().size() + delta.getDisappeared().size();
+			}
+			if(round > 0)
+				log.li("[] changes, [] patterns: transaction by transaction [] ms; in batches of [] [] ms ([] changes in "
+						+ "complete matches)", new Integer(BENCH_CHANGES), new Integer(BENCH_PATTERNS), new Double(
+						stepwiseTime / 1e6), new Integer(BENCH_BATCH), new Double(batchedTime / 1e6), new Integer(
+						batchedChanges));
+		}
+	}
+}
@@ -0,0 +1,292 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import net.xqhs.graphs.graph.CompactGraph;
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.Graph;
+import net.xqhs.graphs.graph.GraphComponent;
+import net.xqhs.graphs.graph.Node;
+import net.xqhs.graphs.graph.SimpleEdge;
+import net.xqhs.graphs.graph.SimpleGraph;
+import net.xqhs.graphs.graph.SimpleNode;
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * Tester for {@link CompactGraph}. It checks that the same sequence of operations produces the same results on a
+ * {@link SimpleGraph} and on a {@link CompactGraph}, and then compares the memory used by the two implementations and
+ * the time needed to iterate over their structure.
+ *
+ * @author Andrei Olaru
+ */
+public class CompactGraphTest extends Tester
+{
+	/**
+	 * Seed for the random operations.
+	 */
+	protected static final long	SEED				= 42;
+	/**
+	 * Number of random operations in the behavioral test.
+	 */
+	protected static final int	N_OPERATIONS		= 20000;
+	/**
+	 * Number of labels used for nodes, so that there are several nodes with the same label.
+	 */
+	protected static final int	N_LABELS			= 50;
+	/**
+	 * Number of nodes in the benchmark graphs.
+	 */
+	protected static final int	BENCH_NODES			= 100000;
+	/**
+	 * Number of edges in the benchmark graphs.
+	 */
+	protected static final int	BENCH_EDGES			= 400000;
+	/**
+	 * Number of complete iterations over the structure of the graph, in the benchmark.
+	 */
+	protected static final int	BENCH_ITERATIONS	= 10;
+
+	/**
+	 * @param args
+	 *            - unused.
+	 */
+	public static void main(String[] args)
+	{
+		new CompactGraphTest();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		testFile("Emily/Emily");
+		testFile("conf/conf");
+		testFile("performanceTesting1/big");
+		testRandomOperations();
+		logChecks();
+
+		benchmark();
+	}
+
+	/**
+	 * Compares the contents of the two graphs.
+	 *
+	 * @param simple
+	 *            - the {@link SimpleGraph}.
+	 * @param compact
+	 *            - the {@link CompactGraph}.
+	 * @param labels
+	 *            - labels to look up with {@link Graph#getNodesNamed(String)}.
+	 * @param context
+	 *            - description of the state of the test.
+	 */
+	protected void compare(Graph simple, Graph compact, Collection<String> labels, String context)
+	{
+		check(simple.n() == compact.n(), context + ": n");
+		check(simple.m() == compact.m(), context + ": m");
+		check(sameElements(simple.getNodes(), compact.getNodes()), context + ": nodes");
+		check(sameElements(simple.getEdges(), compact.getEdges()), context + ": edges");
+		check(sameElements(simple.getComponents(), compact.getComponents()), context + ": components");
+		for(Node node : simple.getNodes())
+		{
+			check(compact.contains(node), context + ": contains " + node);
+			check(sameElements(simple.getOutEdges(node), compact.getOutEdges(node)), context + ": out edges of "
+					+ node);
+			check(sameElements(simple.getInEdges(node), compact.getInEdges(node)), context + ": in edges of " + node);
+		}
+		for(Edge edge : simple.getEdges())
+			check(compact.contains(edge), context + ": contains " + edge);
+		for(String label : labels)
+			check(sameElements(simple.getNodesNamed(label), compact.getNodesNamed(label)), context + ": nodes named "
+					+ label);
+	}
+
+	/**
+	 * @param c1
+	 *            - a collection of components.
+	 * @param c2
+	 *            - a collection of components.
+	 * @return <code>true</code> if the collections have the same size and the same elements.
+	 */
+	protected static boolean sameElements(Collection<? extends GraphComponent> c1,
+			Collection<? extends GraphComponent> c2)
+	{
+		if(c1.size() != c2.size())
+			return false;
+		int count = 0;
+		for(GraphComponent comp : c2)
+			count++;
+		return (count == c2.size()) && new HashSet<GraphComponent>(c1).equals(new HashSet<GraphComponent>(c2));
+	}
+
+	/**
+	 * Reads a graph from a file and copies it into a {@link CompactGraph}, then compares them.
+	 *
+	 * @param filename
+	 *            - the name of the file, relative to {@link #defaultFileDir} and without extension.
+	 */
+	protected void testFile(String filename)
+	{
+		SimpleGraph simple;
+		try
+		{
+			simple = ((SimpleGraph) new SimpleGraph().setUnitName("G").setLogLevel(Level.OFF)).readFrom(new FileInputStream(
+					defaultFileDir + filename + defaultFileExt));
+		} catch(FileNotFoundException e)
+		{
+			e.printStackTrace();
+			return;
+		}
+		// edges first, so that the connection of nodes to existing edges is tested as well
+		CompactGraph compact = new CompactGraph().addAll(simple.getEdges()).addAll(simple.getNodes());
+		Collection<String> labels = new HashSet<String>();
+		for(Node node : simple.getNodes())
+			labels.add(node.getLabel());
+		labels.add("no such label");
+		compare(simple, compact, labels, filename);
+		log.li("file [] checked: []", filename, compact);
+	}
+
+	/**
+	 * Applies the same random sequence of additions, removals and relabelings to both implementations, comparing them
+	 * after each operation.
+	 */
+	protected void testRandomOperations()
+	{
+		Random rand = new Random(SEED);
+		SimpleGraph simple = (SimpleGraph) new SimpleGraph().setUnitName("simple").setLogLevel(Level.OFF);
+		CompactGraph compact = (CompactGraph) new CompactGraph().setUnitName("compact").setLogLevel(Level.OFF);
+		List<Node> nodes = new ArrayList<Node>();
+		List<Edge> edges = new ArrayList<Edge>();
+		Collection<String> labels = new HashSet<String>();
+		for(int i = 0; i < N_LABELS; i++)
+			labels.add("n" + i);
+
+		for(int op = 0; op < N_OPERATIONS; op++)
+		{
+			int choice = rand.nextInt(10);
+			if((choice < 3) || nodes.isEmpty())
+			{ // new node
+				Node node = new SimpleNode("n" + rand.nextInt(N_LABELS));
+				nodes.add(node);
+				simple.add(node);
+				compact.add(node);
+			}
+			else if(choice < 6)
+			{ // new edge, maybe between nodes not in the graph
+				Edge edge = new SimpleEdge(nodes.get(rand.nextInt(nodes.size())), nodes.get(rand.nextInt(nodes
+						.size())), "e" + rand.nextInt(5));
+				edges.add(edge);
+				simple.add(edge);
+				compact.add(edge);
+			}
+			else if(choice < 7)
+			{ // re-add a node that may have been removed
+				Node node = nodes.get(rand.nextInt(nodes.size()));
+				if(!simple.contains(node))
+				{
+					simple.add(node);
+					compact.add(node);
+				}
+			}
+			else if(choice < 8)
+			{ // remove a node
+				Node node = nodes.get(rand.nextInt(nodes.size()));
+				if(simple.contains(node))
+				{
+					simple.remove(node);
+					compact.remove(node);
+				}
+			}
+			else if(choice < 9)
+			{ // remove an edge
+				if(!edges.isEmpty())
+				{
+					Edge edge = edges.remove(rand.nextInt(edges.size()));
+					simple.remove(edge);
+					compact.remove(edge);
+				}
+			}
+			else
+				// relabel a node
+				nodes.get(rand.nextInt(nodes.size())).setLabel("n" + rand.nextInt(N_LABELS));
+
+			if((op % 500 == 0) || (op == N_OPERATIONS - 1))
+				compare(simple, compact, labels, "operation " + op);
+		}
+		log.li("random operations checked: [] nodes, [] edges", new Integer(compact.n()), new Integer(compact.m()));
+	}
+
+	/**
+	 * Builds a random graph in both implementations and compares the used memory and the time needed to iterate over
+	 * the out edges of all nodes.
+	 */
+	protected void benchmark()
+	{
+		Random rand = new Random(SEED);
+		Node[] nodes = new Node[BENCH_NODES];
+		Edge[] edges = new Edge[BENCH_EDGES];
+		for(int i = 0; i < BENCH_NODES; i++)
+			nodes[i] = new SimpleNode("n" + rand.nextInt(BENCH_NODES / 10));
+		for(int i = 0; i < BENCH_EDGES; i++)
+			edges[i] = new SimpleEdge(nodes[rand.nextInt(BENCH_NODES)], nodes[rand.nextInt(BENCH_NODES)], "e"
+					+ rand.nextInt(10));
+
+		for(int implementation = 0; implementation < 2; implementation++)
+		{
+			long before = usedMemory();
+			long start = System.nanoTime();
+			Graph g = (implementation == 0) ? new SimpleGraph() : new CompactGraph();
+			for(Node node : nodes)
+				g.addNode(node);
+			for(Edge edge : edges)
+				g.addEdge(edge);
+			long buildTime = System.nanoTime() - start;
+			long memory = usedMemory() - before;
+
+			long checksum = 0;
+			start = System.nanoTime();
+			for(int it = 0; it < BENCH_ITERATIONS; it++)
+				for(Node node : g.getNodes())
+					for(Edge edge : g.getOutEdges(node))
+						checksum += edge.getTo().getLabel().length();
+			long iterationTime = (System.nanoTime() - start) / BENCH_ITERATIONS;
+
+			log.li("[]: [] nodes, [] edges; structure size ~[] KB; build [] ms; iteration [] ms (checksum [])", g
+					.getClass().getSimpleName(), new Integer(g.n()), new Integer(g.m()), new Long(memory / 1024),
+					new Long(buildTime / 1000000), new Long(iterationTime / 1000000), new Long(checksum));
+			// keep the graph reachable until after the measurement
+			if(g.n() < 0)
+				log.li("", g);
+		}
+	}
+
+	/**
+	 * @return the memory used in the heap, after requesting garbage collection.
+	 */
+	protected static long usedMemory()
+	{
+		Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++)
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.SimpleGraph;
+import net.xqhs.graphs.matcher.GraphMatcherQuick;
+import net.xqhs.graphs.matcher.Match;
+import net.xqhs.graphs.matcher.MonitorPack;
+import net.xqhs.graphs.pattern.EdgeP;
+import net.xqhs.graphs.pattern.GraphPattern;
+import net.xqhs.graphs.pattern.NodeP;
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * Tester for match signatures (see {@link Match#getSignature()}) and for the deduplication of merged matches (see
+ * {@link GraphMatcherQuick#setDeduplication(boolean)}). For random patterns, and for a pattern with symmetric generic
+ * nodes, matched against random graphs, it checks that equivalent matches have the same signature, and that matching
+ * with deduplication finds the same matches; then it compares the merge counts and times with and without
+ * deduplication.
+ *
+ * @author Andrei Olaru
+ */
+public class DeduplicationTest extends Tester
+{
+	/**
+	 * Seed for the random graphs and patterns.
+	 */
+	protected static final long	SEED			= 42;
+	/**
+	 * Number of random graphs and patterns in the behavioral test.
+	 */
+	protected static final int	N_MATCHINGS		= 100;
+	/**
+	 * Number of nodes in the graph used for measuring time.
+	 */
+	protected static final int	BENCH_NODES		= 40;
+
+	/**
+	 * @param args
+	 *            - unused.
+	 */
+	public static void main(String[] args)
+	{
+		new DeduplicationTest();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		testDeduplication();
+		logChecks();
+
+		benchmark();
+	}
+
+	/**
+	 * For random graphs and patterns (every other pattern being the symmetric one), checks the signatures of all
+	 * matches and compares the matches found with and without deduplication.
+	 */
+	protected void testDeduplication()
+	{
+		Random rand = new Random(SEED);
+		int checks = 0;
+		for(int i = 0; i < N_MATCHINGS; i++)
+		{
+			List<Edge> edges = new ArrayList<Edge>();
+			SimpleGraph graph = ParallelMatchingTest.randomGraph(rand, 10 + rand.nextInt(20), edges);
+			GraphPattern pattern = ((i % 2) == 0) ? ParallelMatchingTest.randomPattern(rand, 2 + rand.nextInt(4))
+					: symmetricPattern();
+			Map<Edge, Integer> ids = new IdentityHashMap<Edge, Integer>();
+			for(Edge edge : edges)
+				ids.put(edge, new Integer(ids.size()));
+			for(Edge edge : pattern.getEdges())
+				ids.put(edge, new Integer(ids.size()));
+
+			List<Match> plain = GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack()).getAllMatches(
+					pattern.m());
+			checks++;
+			Map<String, Long> signatures = new HashMap<String, Long>();
+			for(Match m : plain)
+			{
+				List<Match> single = new ArrayList<Match>();
+				single.add(m);
+				String key = EdgeIndexTest.canonical(single, ids).iterator().next();
+				Long signature = signatures.put(key, new Long(m.getSignature()));
+				if(!check((signature == null) || (signature.longValue() == m.getSignature()),
+						"equivalent matches with different signatures for graph []: []", new Integer(i), key))
+					break;
+			}
+
+			GraphMatcherQuick matcher = GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack());
+			List<Match> deduplicated = matcher.setDeduplication(true).getAllMatches(pattern.m());
+			checks++;
+			check(EdgeIndexTest.canonical(plain, ids).equals(EdgeIndexTest.canonical(deduplicated, ids))
+					&& (EdgeIndexTest.canonical(deduplicated, ids).size() == deduplicated.size()),
+					"matches differ with deduplication for graph []: [] vs []", new Integer(i),
+					new Integer(plain.size()), new Integer(deduplicated.size()));
+		}
+		log.li("[] matchings checked", new Integer(checks));
+	}
+
+	/**
+	 * Matches the symmetric pattern against a larger graph, with and without deduplication, and logs the merge counts
+	 * and the times.
+	 */
+	protected void benchmark()
+	{
+		Random rand = new Random(SEED);
+		SimpleGraph graph = ParallelMatchingTest.randomGraph(rand, BENCH_NODES, new ArrayList<Edge>());
+		GraphPattern pattern = symmetricPattern();
+		// warm-up
+		GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack()).getAllMatches(pattern.m());
+		for(boolean active : new boolean[] { false, true })
+		{
+			MonitorPack monitor = new MonitorPack();
+			long start = System.nanoTime();
+			List<Match> all = GraphMatcherQuick.getMatcher(graph, pattern, monitor).setDeduplication(active)
+					.getAllMatches(pattern.m());
+			long time = System.nanoTime() - start;
+			log.li("deduplication []: [] matches, [] merges in [] ms", new Boolean(active), new Integer(all.size()),
+					new Integer(monitor.getMergeCount()), new Double(time / 1e6));
+		}
+	}
+
+	/**
+	 * Creates a pattern in which a generic node is linked to three other generic nodes, which are linked in a chain.
+	 * All edges are unlabeled, so many subsets of the pattern can be matched to the same graph edges in several ways.
+	 *
+	 * @return the pattern.
+	 */
+	protected static GraphPattern symmetricPattern()
+	{
+		GraphPattern pattern = (GraphPattern) new GraphPattern().setUnitName("GP").setLogLevel(Level.OFF);
+		NodeP center = new NodeP();
+		pattern.add(center);
+		NodeP previous = null;
+		for(int j = 0; j < 3; j++)
+		{
+			NodeP node = new NodeP();
+			pattern.add(node);
+			pattern.add(new EdgeP(center, node, null));
+			if(previous != null)
+				pattern.add(new EdgeP(previous, node, null));
+			previous = node;
+		}
+		return pattern;
+	}
+}
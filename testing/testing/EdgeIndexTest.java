@@ -0,0 +1,337 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import net.xqhs.graphs.graph.CompactGraph;
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.Node;
+import net.xqhs.graphs.graph.SimpleEdge;
+import net.xqhs.graphs.graph.SimpleGraph;
+import net.xqhs.graphs.graph.SimpleNode;
+import net.xqhs.graphs.matcher.GraphMatcherQuick;
+import net.xqhs.graphs.matcher.Match;
+import net.xqhs.graphs.matcher.MonitorPack;
+import net.xqhs.graphs.matchingPlatform.TrackingGraph;
+import net.xqhs.graphs.pattern.EdgeP;
+import net.xqhs.graphs.pattern.GraphPattern;
+import net.xqhs.graphs.pattern.NodeP;
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * Tester for the index of edges by label in {@link SimpleGraph} (see
+ * {@link SimpleGraph#getEdgesLabeled(String, String, String)}) and for its use by {@link GraphMatcherQuick}. It checks
+ * the index against a scan of all edges, during a random sequence of changes to a {@link TrackingGraph}; it checks that
+ * matching against a {@link SimpleGraph} (which uses the index) produces the same matches as matching against a
+ * {@link CompactGraph} with the same contents (which does not); and then it measures the time needed to build the index
+ * and compares the time needed to create the initial matches in the two cases.
+ *
+ * @author Andrei Olaru
+ */
+public class EdgeIndexTest extends Tester
+{
+	/**
+	 * Seed for the random operations.
+	 */
+	protected static final long		SEED			= 42;
+	/**
+	 * Number of random operations in the behavioral test of the index.
+	 */
+	protected static final int		N_OPERATIONS	= 5000;
+	/**
+	 * Number of random graphs and patterns in the behavioral test of matching.
+	 */
+	protected static final int		N_MATCHINGS		= 200;
+	/**
+	 * Node labels. Several nodes will have the same label.
+	 */
+	protected static final String[]	NODE_LABELS		= { "a", "b", "c", "d" };
+	/**
+	 * Edge labels, including unlabeled edges.
+	 */
+	protected static final String[]	EDGE_LABELS		= { "x", "y", "z", null, "" };
+	/**
+	 * Number of nodes in the benchmark graph.
+	 */
+	protected static final int		BENCH_NODES		= 5000;
+	/**
+	 * Number of edges in the benchmark graph.
+	 */
+	protected static final int		BENCH_EDGES		= 20000;
+	/**
+	 * Number of distinct node labels in the benchmark graph.
+	 */
+	protected static final int		BENCH_LABELS	= 200;
+	/**
+	 * Number of times the initial matches are created, in the benchmark.
+	 */
+	protected static final int		BENCH_REPEATS	= 10;
+
+	/**
+	 * @param args
+	 *            - unused.
+	 */
+	public static void main(String[] args)
+	{
+		new EdgeIndexTest();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		testIndex();
+		testMatching();
+		logChecks();
+
+		benchmark();
+	}
+
+	/**
+	 * Applies a random sequence of additions, removals and relabelings to a graph, checking after each operation the
+	 * result of a few random queries of the index.
+	 */
+	protected void testIndex()
+	{
+		Random rand = new Random(SEED);
+		TrackingGraph graph = (TrackingGraph) new TrackingGraph().setUnitName("tracked").setLogLevel(Level.OFF);
+		List<Node> nodes = new ArrayList<Node>();
+		List<Edge> edges = new ArrayList<Edge>();
+		for(int i = 0; i < N_OPERATIONS; i++)
+		{
+			int op = rand.nextInt(100);
+			if((op < 20) || (nodes.size() < 2))
+			{
+				Node node = new SimpleNode(randomLabel(rand, NODE_LABELS));
+				nodes.add(node);
+				if(rand.nextInt(5) > 0) // some nodes remain outside of the graph
+					graph.add(node);
+			}
+			else if(op < 60)
+			{
+				Edge edge = new SimpleEdge(nodes.get(rand.nextInt(nodes.size())), nodes.get(rand.nextInt(nodes
+						.size())), randomLabel(rand, EDGE_LABELS));
+				edges.add(edge);
+				graph.add(edge);
+			}
+			else if(op < 70)
+			{
+				Node node = nodes.get(rand.nextInt(nodes.size()));
+				if(graph.contains(node))
+					graph.remove(node);
+				else
+					graph.add(node);
+			}
+			else if(op < 85)
+			{
+				if(!edges.isEmpty())
+				{
+					Edge edge = edges.get(rand.nextInt(edges.size()));
+					if(graph.contains(edge))
+						graph.remove(edge);
+				}
+			}
+			else if(op < 92)
+				nodes.get(rand.nextInt(nodes.size())).setLabel(randomLabel(rand, NODE_LABELS));
+			else if(!edges.isEmpty())
+				edges.get(rand.nextInt(edges.size())).setLabel(randomLabel(rand, EDGE_LABELS));
+
+			for(int q = 0; q < 3; q++)
+			{
+				String from = rand.nextBoolean() ? null : randomLabel(rand, NODE_LABELS);
+				String label = rand.nextBoolean() ? null : randomLabel(rand, EDGE_LABELS);
+				if(label == null)
+					label = rand.nextBoolean() ? null : "";
+				String to = rand.nextBoolean() ? null : randomLabel(rand, NODE_LABELS);
+				Set<Edge> expected = new HashSet<Edge>();
+				for(Edge edge : graph.getEdges())
+					if(((from == null) || from.equals(edge.getFrom().getLabel()))
+							&& ((to == null) || to.equals(edge.getTo().getLabel()))
+							&& ((label == null) || (label.equals("") ? ((edge.getLabel() == null) || edge.getLabel()
+									.equals("")) : label.equals(edge.getLabel()))))
+						expected.add(edge);
+				Collection<Edge> actual = graph.getEdgesLabeled(from, label, to);
+				check(expected.equals(new HashSet<Edge>(actual)) && (actual.size() == expected.size()),
+						"index check failed at operation [] for [] -[]-> []: expected [] actual []", new Integer(i),
+						from, label, to, expected, actual);
+			}
+		}
+		log.li("index checked; final graph: [] nodes, [] edges", new Integer(graph.n()), new Integer(graph.m()));
+	}
+
+	/**
+	 * Matches random patterns against random graphs, as {@link SimpleGraph} and {@link CompactGraph} instances, and
+	 * compares the matches found for each value of k.
+	 */
+	protected void testMatching()
+	{
+		Random rand = new Random(SEED);
+		int matches = 0;
+		for(int i = 0; i < N_MATCHINGS; i++)
+		{
+			SimpleGraph graph = (SimpleGraph) new SimpleGraph().setUnitName("G").setLogLevel(Level.OFF);
+			CompactGraph compact = (CompactGraph) new CompactGraph().setUnitName("C").setLogLevel(Level.OFF);
+			List<Node> nodes = new ArrayList<Node>();
+			List<Edge> edges = new ArrayList<Edge>();
+			int n = 4 + rand.nextInt(8);
+			for(int j = 0; j < n; j++)
+			{
+				Node node = new SimpleNode(randomLabel(rand, NODE_LABELS));
+				nodes.add(node);
+				graph.add(node);
+				compact.add(node);
+			}
+			for(int j = 2 * n + rand.nextInt(n); j > 0; j--)
+			{
+				Edge edge = new SimpleEdge(nodes.get(rand.nextInt(n)), nodes.get(rand.nextInt(n)), randomLabel(rand,
+						EDGE_LABELS));
+				edges.add(edge);
+				graph.add(edge);
+				compact.add(edge);
+			}
+
+			GraphPattern pattern = (GraphPattern) new GraphPattern().setUnitName("GP").setLogLevel(Level.OFF);
+			List<NodeP> patternNodes = new ArrayList<NodeP>();
+			for(int j = 2 + rand.nextInt(3); j > 0; j--)
+			{
+				NodeP node = (rand.nextInt(3) == 0) ? new NodeP() : new NodeP(randomLabel(rand, NODE_LABELS));
+				patternNodes.add(node);
+				pattern.add(node);
+			}
+			for(int j = 1; j < patternNodes.size(); j++)
+				// a connected pattern
+				pattern.add(new EdgeP(patternNodes.get(rand.nextInt(j)), patternNodes.get(j), randomLabel(rand,
+						EDGE_LABELS)));
+			if(rand.nextBoolean())
+				pattern.add(new EdgeP(patternNodes.get(rand.nextInt(patternNodes.size())), patternNodes.get(rand
+						.nextInt(patternNodes.size())), randomLabel(rand, EDGE_LABELS)));
+
+			Map<Edge, Integer> ids = new IdentityHashMap<Edge, Integer>();
+			for(Edge edge : edges)
+				ids.put(edge, new Integer(ids.size()));
+			for(Edge edge : pattern.getEdges())
+				ids.put(edge, new Integer(ids.size()));
+			for(int k = 0; k <= pattern.m(); k++)
+			{
+				Set<String> expected = canonical(GraphMatcherQuick.getMatcher(compact, pattern, new MonitorPack())
+						.getAllMatches(k), ids);
+				Set<String> actual = canonical(GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack())
+						.getAllMatches(k), ids);
+				matches += actual.size();
+				check(expected.equals(actual), "matching check failed for graph [] k=[]: expected [] actual []",
+						new Integer(i), new Integer(k), expected, actual);
+			}
+		}
+		log.li("matching checked; [] matches compared", new Integer(matches));
+	}
+
+	/**
+	 * Creates the initial matches of a pattern several times against a large graph, as a {@link SimpleGraph} and as a
+	 * {@link CompactGraph}, and logs the average times.
+	 */
+	protected void benchmark()
+	{
+		Random rand = new Random(SEED);
+		SimpleGraph graph = (SimpleGraph) new SimpleGraph().setUnitName("G").setLogLevel(Level.OFF);
+		CompactGraph compact = (CompactGraph) new CompactGraph().setUnitName("C").setLogLevel(Level.OFF);
+		List<Node> nodes = new ArrayList<Node>();
+		for(int i = 0; i < BENCH_NODES; i++)
+		{
+			Node node = new SimpleNode("n" + rand.nextInt(BENCH_LABELS));
+			nodes.add(node);
+			graph.add(node);
+			compact.add(node);
+		}
+		Edge first = null;
+		for(int i = 0; i < BENCH_EDGES; i++)
+		{
+			Edge edge = new SimpleEdge(nodes.get(rand.nextInt(BENCH_NODES)), nodes.get(rand.nextInt(BENCH_NODES)),
+					EDGE_LABELS[rand.nextInt(3)]);
+			if(first == null)
+				first = edge;
+			graph.add(edge);
+			compact.add(edge);
+		}
+		// a path of three edges, starting with a copy of the first edge of the graph
+		GraphPattern pattern = (GraphPattern) new GraphPattern().setUnitName("GP").setLogLevel(Level.OFF);
+		NodeP from = new NodeP(first.getFrom().getLabel()), to = new NodeP(first.getTo().getLabel());
+		NodeP generic = new NodeP(), last = new NodeP("n0");
+		pattern.add(from).add(to).add(generic).add(last);
+		pattern.add(new EdgeP(from, to, first.getLabel())).add(new EdgeP(to, generic, "x")).add(
+				new EdgeP(generic, last, null));
+
+		long start = System.nanoTime();
+		graph.getEdgesLabeled("n0", null, null);
+		long buildTime = System.nanoTime() - start;
+
+		long fullTime = 0, indexedTime = 0;
+		for(int i = 0; i < BENCH_REPEATS; i++)
+		{
+			start = System.nanoTime();
+			GraphMatcherQuick.getMatcher(compact, pattern, new MonitorPack()).initializeMatching();
+			fullTime += System.nanoTime() - start;
+			start = System.nanoTime();
+			GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack()).initializeMatching();
+			indexedTime += System.nanoTime() - start;
+		}
+		log.li("[] nodes, [] edges, [] pattern edges; index built in [] ms; average time to create initial matches:"
+				+ " all edges tried [] ms, indexed edges [] ms", new Integer(graph.n()), new Integer(graph.m()),
+				new Integer(pattern.m()), new Double(buildTime / 1e6), new Double(fullTime / 1e6 / BENCH_REPEATS),
+				new Double(indexedTime / 1e6 / BENCH_REPEATS));
+	}
+
+	/**
+	 * @param rand
+	 *            - the random generator.
+	 * @param labels
+	 *            - the labels to choose from.
+	 * @return a random label.
+	 */
+	protected static String randomLabel(Random rand, String[] labels)
+	{
+		return labels[rand.nextInt(labels.length)];
+	}
+
+	/**
+	 * Produces a canonical form of a collection of matches, which does not depend on the order of the matches or on
+	 * their identifiers.
+	 *
+	 * @param matches
+	 *            - the matches.
+	 * @param ids
+	 *            - identifiers for all graph and pattern edges.
+	 * @return the canonical form.
+	 */
+	protected static Set<String> canonical(Collection<Match> matches, Map<Edge, Integer> ids)
+	{
+		Set<String> result = new TreeSet<String>();
+		for(Match match : matches)
+		{
+			Set<String> pairs = new TreeSet<String>();
+			for(Edge eP : match.getSolvedPart().getEdges())
+				for(Edge e : match.getMatchedGraphEdges(eP))
+					pairs.add(ids.get(eP) + "=" + ids.get(e));
+			result.add("k=" + match.getK() + " " + pairs);
+		}
+		return result;
+	}
+}
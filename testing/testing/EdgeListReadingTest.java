@@ -0,0 +1,375 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.Graph;
+import net.xqhs.graphs.graph.Node;
+import net.xqhs.graphs.graph.SimpleGraph;
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * Tester for {@link SimpleGraph#readFrom(java.io.Reader)}. It checks that reading from a stream, from a file and from a
+ * memory-mapped file produce the same graph as a reference reader which applies the line- and
+ * <code>split</code>-based parsing rules used before the tokenizer, on a set of edge cases, on random inputs and on a
+ * generated graph. Then, it measures the throughput of the three reading modes.
+ *
+ * @author Andrei Olaru
+ */
+public class EdgeListReadingTest extends Tester
+{
+	/**
+	 * Seed for the generated graph.
+	 */
+	protected static final long	SEED		= 42;
+	/**
+	 * Number of nodes in the generated graph.
+	 */
+	protected static final int	N_NODES		= 50000;
+	/**
+	 * Number of edges in the generated graph.
+	 */
+	protected static final int	N_EDGES		= 500000;
+	/**
+	 * Number of times each reading mode is measured.
+	 */
+	protected static final int	REPEATS		= 5;
+	/**
+	 * Number of random inputs compared with the reference reader.
+	 */
+	protected static final int	N_RANDOM	= 5000;
+	/**
+	 * Inputs covering the cases handled by the parsing rules: unidirectional and bidirectional edges, labeled and
+	 * unlabeled, edges separated by new lines and by {@link SimpleGraph#EDGE_SEPARATOR}, blank lines, spacing, nodes
+	 * appearing in several edges, and malformed edges.
+	 */
+	protected static final String[]	CASES		= { "a -> b", "a - b", "a -x> b", "a -x- b", "a -x-> b",
+			"a -> b; b -> c; c - a", "a -> b\n\n\nb -> c\n", "  a   -long label->   b  ;; \n; b-c", "a -> a; a - a",
+			"a -x> b\na -y> b\nb -x- a", "\n\n", "a", "a -> b -> c", "a >> b", "a -x>", "-> b", "a - b - c",
+			"a -x- b -y- c", "a ->b;c- >d;e -f-g" };
+
+	/**
+	 * @param args
+	 *            - unused.
+	 */
+	public static void main(String[] args)
+	{
+		new EdgeListReadingTest();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		File file;
+		try
+		{
+			file = generate();
+		} catch(IOException e)
+		{
+			log.le("generating the graph failed: []", e);
+			return;
+		}
+
+		try
+		{
+			for(int i = 0; i < CASES.length; i++)
+				check(describe(read(CASES[i])).equals(readReference(CASES[i])), "graph read differs for input []",
+						CASES[i]);
+			testRandom();
+			List<String> expected = readReference(file);
+			for(int mode = 0; mode < 3; mode++)
+				check(describe(read(file, mode)).equals(expected), "generated graph read differs in mode []",
+						new Integer(mode));
+		} catch(IOException e)
+		{
+			log.le("reading failed: []", e);
+			file.delete();
+			return;
+		}
+		logChecks();
+
+		benchmark(file);
+		file.delete();
+	}
+
+	/**
+	 * Compares the graphs read from random inputs, made of labels, spaces, dashes, arrow heads, edge separators and
+	 * new lines, with the graphs read by the reference reader.
+	 */
+	protected void testRandom()
+	{
+		Random rand = new Random(SEED);
+		String alphabet = "ab -->>;\n  ";
+		for(int i = 0; i < N_RANDOM; i++)
+		{
+			StringBuilder input = new StringBuilder();
+			for(int j = rand.nextInt(40); j > 0; j--)
+				input.append(alphabet.charAt(rand.nextInt(alphabet.length())));
+			String text = input.toString();
+			if(!check(describe(read(text)).equals(readReference(text)), "graph read differs for input []", text))
+				break;
+		}
+		log.li("[] random inputs checked", new Integer(N_RANDOM));
+	}
+
+	/**
+	 * Measures the time needed to read a file with each of the reading modes.
+	 *
+	 * @param file
+	 *            - the file.
+	 */
+	protected void benchmark(File file)
+	{
+		int n = -1, m = -1;
+		for(int mode = 0; mode < 3; mode++)
+			for(int i = 0; i < REPEATS; i++)
+			{
+				SimpleGraph g = (SimpleGraph) new SimpleGraph().setUnitName("G").setLogLevel(Level.OFF);
+				long start = System.nanoTime();
+				try
+				{
+					switch(mode)
+					{
+					case 0:
+						g.readFrom(new FileInputStream(file));
+						break;
+					case 1:
+						g.readFrom(file, false);
+						break;
+					default:
+						g.readFrom(file, true);
+					}
+				} catch(IOException e)
+				{
+					log.le("reading failed: []", e);
+					return;
+				}
+				long time = System.nanoTime() - start;
+				if(n < 0)
+				{
+					n = g.n();
+					m = g.m();
+				}
+				else
+					check((n == g.n()) && (m == g.m()), "different graph read: [] nodes, [] edges", new Integer(g.n()),
+							new Integer(g.m()));
+				log.li("[]: [] edges in [] ms ([] edges/s)", (mode == 0) ? "input stream"
+						: ((mode == 1) ? "file reader" : "memory-mapped file"), new Integer(g.m()), new Long(
+						time / 1000000), new Long((long) (g.m() * 1e9 / time)));
+			}
+	}
+
+	/**
+	 * @param text
+	 *            - the input.
+	 * @return the graph read from the input, as a stream.
+	 */
+	protected static SimpleGraph read(String text)
+	{
+		SimpleGraph g = (SimpleGraph) new SimpleGraph().setUnitName("G").setLogLevel(Level.OFF);
+		return g.readFrom(new ByteArrayInputStream(text.getBytes()));
+	}
+
+	/**
+	 * @param file
+	 *            - the file.
+	 * @param mode
+	 *            - 0 for reading from a stream, 1 for reading from the file, 2 for reading from the memory-mapped file.
+	 * @return the graph read from the file.
+	 * @throws IOException
+	 *             - if reading fails.
+	 */
+	protected static SimpleGraph read(File file, int mode) throws IOException
+	{
+		SimpleGraph g = (SimpleGraph) new SimpleGraph().setUnitName("G").setLogLevel(Level.OFF);
+		if(mode == 0)
+			return g.readFrom(new FileInputStream(file));
+		return g.readFrom(file, mode == 2);
+	}
+
+	/**
+	 * @param graph
+	 *            - a graph.
+	 * @return the sorted descriptions of the nodes (by label) and of the edges (by the labels of the source node, the
+	 *         edge and the destination node) of the graph.
+	 */
+	protected static List<String> describe(Graph graph)
+	{
+		List<String> description = new ArrayList<String>();
+		for(Node node : graph.getNodes())
+			description.add("node " + node.getLabel());
+		for(Edge edge : graph.getEdges())
+			description.add(describeEdge(edge.getFrom().getLabel(), edge.getLabel(), edge.getTo().getLabel()));
+		Collections.sort(description);
+		return description;
+	}
+
+	/**
+	 * @param from
+	 *            - the label of the source node.
+	 * @param label
+	 *            - the label of the edge.
+	 * @param to
+	 *            - the label of the destination node.
+	 * @return the description of the edge.
+	 */
+	protected static String describeEdge(String from, String label, String to)
+	{
+		return "edge [" + from + "] -[" + label + "]-> [" + to + "]";
+	}
+
+	/**
+	 * @param file
+	 *            - the file.
+	 * @return the result of {@link #readReference(String)} for the contents of the file.
+	 * @throws IOException
+	 *             - if reading fails.
+	 */
+	protected static List<String> readReference(File file) throws IOException
+	{
+		StringBuilder builder = new StringBuilder();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		String line;
+		while((line = reader.readLine()) != null)
+			builder.append(line).append('\n');
+		reader.close();
+		return readReference(builder.toString());
+	}
+
+	/**
+	 * Reads edges from a text in the same way as the line- and <code>split</code>-based parsing used by
+	 * {@link SimpleGraph} before its tokenizer. Nodes are identified by their labels.
+	 *
+	 * @param text
+	 *            - the input.
+	 * @return the description of the graph that is read, in the form returned by {@link #describe(Graph)}.
+	 */
+	protected static List<String> readReference(String text)
+	{
+		Set<String> nodes = new HashSet<String>();
+		List<String> edges = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new StringReader(text));
+		String line;
+		try
+		{
+			while((line = reader.readLine()) != null)
+				for(String edgeRead : line.split(Character.toString(SimpleGraph.EDGE_SEPARATOR)))
+				{
+					boolean bidirectional = true;
+					String[] parts1 = edgeRead.split(Character.toString(SimpleGraph.EDGE_LINE), 2);
+					if(parts1.length < 2)
+					{
+						parts1 = edgeRead.split(Character.toString(SimpleGraph.EDGE_TARGET), 2);
+						if(parts1.length < 2)
+							continue;
+						bidirectional = false;
+					}
+					String from = parts1[0].trim();
+					String to;
+					String label = null;
+					String[] parts2 = parts1[1].split(Character.toString(SimpleGraph.EDGE_TARGET));
+					if((parts2.length < 1) || (parts2.length > 2))
+						continue;
+					if(parts2.length == 2)
+					{
+						bidirectional = false;
+						to = parts2[1].trim();
+						if((parts2[0].length() > 0)
+								&& (parts2[0].charAt(parts2[0].length() - 1) == SimpleGraph.EDGE_LINE))
+							label = parts2[0].substring(0, parts2[0].length() - 1).trim();
+						else
+							label = parts2[0].trim();
+					}
+					else
+					{
+						int idx = parts1[1].lastIndexOf(SimpleGraph.EDGE_LINE);
+						if(idx < 0)
+							to = parts2[0].trim();
+						else
+						{
+							to = parts1[1].substring(idx + 1).trim();
+							label = parts1[1].substring(0, idx).trim();
+						}
+					}
+					if((label != null) && (label.length() == 0))
+						label = null;
+					nodes.add("node " + from);
+					nodes.add("node " + to);
+					edges.add(describeEdge(from, label, to));
+					if(bidirectional)
+						edges.add(describeEdge(to, label, from));
+				}
+		} catch(IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		List<String> description = new ArrayList<String>(nodes);
+		description.addAll(edges);
+		Collections.sort(description);
+		return description;
+	}
+
+	/**
+	 * Generates a file with a random graph, containing unidirectional and bidirectional edges, with and without
+	 * labels.
+	 *
+	 * @return the file.
+	 * @throws IOException
+	 *             - if writing fails.
+	 */
+	protected File generate() throws IOException
+	{
+		Random rand = new Random(SEED);
+		File file = File.createTempFile("edgelist", defaultFileExt);
+		BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+		for(int i = 0; i < N_EDGES; i++)
+		{
+			String from = "node" + rand.nextInt(N_NODES);
+			String to = "node" + rand.nextInt(N_NODES);
+			switch(rand.nextInt(4))
+			{
+			case 0:
+				writer.write(from + " -label" + rand.nextInt(20) + "> " + to);
+				break;
+			case 1:
+				writer.write(from + " -> " + to);
+				break;
+			case 2:
+				writer.write(from + " -label" + rand.nextInt(20) + "- " + to);
+				break;
+			default:
+				writer.write(from + " - " + to);
+			}
+			writer.write((rand.nextInt(4) == 0) ? "; " : "\n");
+		}
+		writer.close();
+		return file;
+	}
+}
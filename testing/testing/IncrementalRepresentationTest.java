@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.GraphComponent;
+import net.xqhs.graphs.graph.Node;
+import net.xqhs.graphs.graph.SimpleEdge;
+import net.xqhs.graphs.graph.SimpleNode;
+import net.xqhs.graphs.hypergraph.HyperNode;
+import net.xqhs.graphs.matchingPlatform.TrackingGraph;
+import net.xqhs.graphs.representation.text.TextGraphRepresentation;
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * Tester for incremental {@link TextGraphRepresentation} instances. It checks that, after each of a random sequence of
+ * changes to a {@link TrackingGraph}, an incremental representation produces the same output as a representation
+ * built from scratch, and then compares the time needed to update the two kinds of representations after small
+ * changes to a large graph.
+ *
+ * @author Andrei Olaru
+ */
+public class IncrementalRepresentationTest extends Tester
+{
+	/**
+	 * Seed for the random operations.
+	 */
+	protected static final long	SEED			= 42;
+	/**
+	 * Number of random operations in the behavioral test.
+	 */
+	protected static final int	N_OPERATIONS	= 1000;
+	/**
+	 * Number of labels used for nodes, so that there are several nodes with the same label.
+	 */
+	protected static final int	N_LABELS		= 15;
+	/**
+	 * Number of weakly-connected components in the benchmark graph.
+	 */
+	protected static final int	BENCH_COMPONENTS	= 200;
+	/**
+	 * Number of nodes in each component of the benchmark graph.
+	 */
+	protected static final int	BENCH_SIZE		= 20;
+	/**
+	 * Number of changes in the benchmark, each followed by an update.
+	 */
+	protected static final int	BENCH_CHANGES	= 20;
+
+	/**
+	 * @param args
+	 *            - unused.
+	 */
+	public static void main(String[] args)
+	{
+		new IncrementalRepresentationTest();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		testRandomOperations();
+		logChecks();
+
+		benchmark();
+	}
+
+	/**
+	 * Creates a representation of a graph, with logging turned off.
+	 *
+	 * @param graph
+	 *            - the graph.
+	 * @param backwards
+	 *            - whether the representation is backwards.
+	 * @param incremental
+	 *            - whether the representation is incremental.
+	 * @return the representation.
+	 */
+	protected static TextGraphRepresentation representation(TrackingGraph graph, boolean backwards,
+			boolean incremental)
+	{
+		TextGraphRepresentation repr = (TextGraphRepresentation) new TextGraphRepresentation(graph).setUnitName(
+				"repr").setLogLevel(Level.OFF);
+		repr.setBackwards(backwards).setIncremental(incremental);
+		return repr;
+	}
+
+	/**
+	 * Applies a random sequence of additions, removals and relabelings to a graph, checking after each operation that
+	 * incremental representations (forward and backwards) produce the same output as new representations.
+	 */
+	protected void testRandomOperations()
+	{
+		Random rand = new Random(SEED);
+		TrackingGraph graph = (TrackingGraph) new TrackingGraph().setUnitName("tracked").setLogLevel(Level.OFF);
+		TextGraphRepresentation forward = representation(graph, false, true);
+		TextGraphRepresentation backwards = representation(graph, true, true);
+		List<Node> nodes = new ArrayList<Node>();
+		List<Edge> edges = new ArrayList<Edge>();
+		int hyperNodes = 0;
+
+		for(int i = 0; i < N_OPERATIONS; i++)
+		{
+			int op = rand.nextInt(100);
+			String context = "operation " + i + " (" + op + ")";
+			if((op < 25) || nodes.isEmpty())
+			{
+				Node node = new SimpleNode("n" + rand.nextInt(N_LABELS));
+				nodes.add(node);
+				graph.add(node);
+			}
+			else if(op < 55)
+			{
+				Node from = nodes.get(rand.nextInt(nodes.size()));
+				Node to = nodes.get(rand.nextInt(nodes.size()));
+				if(rand.nextInt(10) == 0)
+				{ // edge towards a node that is not (yet) in the graph
+					to = new SimpleNode("n" + rand.nextInt(N_LABELS));
+					nodes.add(to);
+				}
+				Edge edge = new SimpleEdge(from, to, (rand.nextInt(3) == 0) ? null : "e" + rand.nextInt(3));
+				edges.add(edge);
+				graph.add(edge);
+			}
+			else if(op < 65)
+			{ // add a node not yet in the graph, possibly connecting edges already in the graph
+				List<Node> absent = new ArrayList<Node>();
+				for(Node node : nodes)
+					if(!graph.contains(node))
+						absent.add(node);
+				if(!absent.isEmpty())
+					graph.add(absent.get(rand.nextInt(absent.size())));
+			}
+			else if(op < 75)
+			{
+				Node node = nodes.get(rand.nextInt(nodes.size()));
+				if(graph.contains(node))
+					graph.remove(node);
+			}
+			else if(op < 85)
+			{
+				if(!edges.isEmpty())
+				{
+					Edge edge = edges.get(rand.nextInt(edges.size()));
+					if(graph.contains(edge))
+						graph.remove(edge);
+				}
+			}
+			else if(op < 92)
+			{ // several changes in one transaction
+				List<GraphComponent> batch = new ArrayList<GraphComponent>();
+				Node node = new SimpleNode("n" + rand.nextInt(N_LABELS));
+				nodes.add(node);
+				batch.add(node);
+				for(int k = rand.nextInt(4); k > 0; k--)
+				{
+					Edge edge = new SimpleEdge(node, nodes.get(rand.nextInt(nodes.size())), "b");
+					edges.add(edge);
+					batch.add(edge);
+				}
+				graph.addAll(batch);
+				if(rand.nextBoolean())
+				{
+					batch.clear();
+					for(int k = rand.nextInt(3); k > 0; k--)
+					{
+						Node removed = nodes.get(rand.nextInt(nodes.size()));
+						if(graph.contains(removed) && !batch.contains(removed))
+							batch.add(removed);
+					}
+					if(!batch.isEmpty())
+						graph.removeAll(batch);
+				}
+			}
+			else if(op < 96)
+				nodes.get(rand.nextInt(nodes.size())).setLabel("n" + rand.nextInt(N_LABELS));
+			else if(op < 98)
+			{
+				if(!edges.isEmpty())
+					edges.get(rand.nextInt(edges.size())).setLabel("r" + rand.nextInt(3));
+			}
+			else if(hyperNodes < 3)
+			{ // hyper nodes are represented by exploring the whole graph
+				TrackingGraph contents = (TrackingGraph) new TrackingGraph().setUnitName("contents").setLogLevel(
+						Level.OFF);
+				contents.add(new SimpleEdge(new SimpleNode("h1"), new SimpleNode("h2"), null));
+				HyperNode node = new HyperNode(contents);
+				nodes.add(node);
+				graph.add(node);
+				hyperNodes++;
+			}
+			compare(forward, representation(graph, false, false), context + " forward");
+			compare(backwards, representation(graph, true, false), context + " backwards");
+		}
+		log.li("random operations checked; final graph: [] nodes, [] edges", new Integer(graph.n()), new Integer(
+				graph.m()));
+	}
+
+	/**
+	 * Compares the output of an incremental representation with the output of a new representation.
+	 *
+	 * @param incremental
+	 *            - the incremental representation.
+	 * @param full
+	 *            - the new representation.
+	 * @param context
+	 *            - description of the state of the test.
+	 */
+	protected void compare(TextGraphRepresentation incremental, TextGraphRepresentation full, String context)
+	{
+		String expected = full.update().toString();
+		String actual = incremental.update().toString();
+		check(expected.equals(actual), "check failed: [] \n expected: [] \n actual: []", context, expected, actual);
+	}
+
+	/**
+	 * Creates a graph with many small components, then measures the time needed to update a new representation and an
+	 * incremental representation after each of a number of small changes, as well as the time needed to update an
+	 * incremental representation when nothing has changed.
+	 */
+	protected void benchmark()
+	{
+		Random rand = new Random(SEED);
+		TrackingGraph graph = (TrackingGraph) new TrackingGraph().setUnitName("bench").setLogLevel(Level.OFF);
+		List<Node> nodes = new ArrayList<Node>();
+		for(int c = 0; c < BENCH_COMPONENTS; c++)
+		{
+			List<Node> component = new ArrayList<Node>();
+			for(int i = 0; i < BENCH_SIZE; i++)
+			{
+				Node node = new SimpleNode("c" + c + "n" + i);
+				component.add(node);
+				nodes.add(node);
+				graph.add(node);
+				if(i > 0)
+					graph.add(new SimpleEdge(component.get(rand.nextInt(i)), node, "e"));
+			}
+		}
+		TextGraphRepresentation incremental = representation(graph, false, true);
+		incremental.update().toString();
+
+		long fullTime = 0, incrementalTime = 0;
+		for(int i = 0; i < BENCH_CHANGES; i++)
+		{
+			Node from = nodes.get(rand.nextInt(nodes.size()));
+			Node to = nodes.get(rand.nextInt(nodes.size()));
+			Edge edge = new SimpleEdge(from, to, "x");
+			graph.add(edge);
+
+			long start = System.nanoTime();
+			String expected = representation(graph, false, false).update().toString();
+			fullTime += System.nanoTime() - start;
+			start = System.nanoTime();
+			String actual = incremental.update().toString();
+			incrementalTime += System.nanoTime() - start;
+			check(expected.equals(actual), "benchmark check failed after change []", new Integer(i));
+
+			graph.remove(edge);
+		}
+		long start = System.nanoTime();
+		for(int i = 0; i < BENCH_CHANGES; i++)
+			incremental.update().toString();
+		long unchangedTime = System.nanoTime() - start;
+
+		log.li("[] nodes, [] edges; average update after a change: new representation [] ms, incremental [] ms;"
+				+ " without changes: incremental [] ms", new Integer(graph.n()), new Integer(graph.m()), new Double(
+				fullTime / 1e6 / BENCH_CHANGES), new Double(incrementalTime / 1e6 / BENCH_CHANGES), new Double(
+				unchangedTime / 1e6 / BENCH_CHANGES));
+	}
+}
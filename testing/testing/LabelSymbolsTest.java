@@ -0,0 +1,330 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.LabelSymbols;
+import net.xqhs.graphs.graph.Node;
+import net.xqhs.graphs.graph.SimpleEdge;
+import net.xqhs.graphs.graph.SimpleGraph;
+import net.xqhs.graphs.graph.SimpleNode;
+import net.xqhs.graphs.matcher.GraphMatcherQuick;
+import net.xqhs.graphs.matcher.MonitorPack;
+import net.xqhs.graphs.pattern.EdgeP;
+import net.xqhs.graphs.pattern.GraphPattern;
+import net.xqhs.graphs.pattern.NodeP;
+
+/**
+ * Tester for label symbols (see {@link LabelSymbols}) and for the comparison of edges by means of label symbols in
+ * {@link GraphMatcherQuick}. It checks that symbols identify labels, also after relabeling, and that the edge
+ * comparison gives the same results and the same performance indicators as comparing labels as strings. Then, it
+ * compares the times of the two ways of comparing edges, for labels with long common prefixes.
+ *
+ * @author Andrei Olaru
+ */
+public class LabelSymbolsTest extends Tester
+{
+	/**
+	 * A matcher giving access to the comparison of edges.
+	 */
+	protected static class InspectedMatcher extends GraphMatcherQuick
+	{
+		/**
+		 * Creates the matcher.
+		 *
+		 * @param monitor
+		 *            - the monitor counting comparisons.
+		 */
+		protected InspectedMatcher(MonitorPack monitor)
+		{
+			super(new SimpleGraph(), new GraphPattern());
+			setMonitor(monitor);
+		}
+
+		/**
+		 * @param eP
+		 *            - the edge in the pattern.
+		 * @param e
+		 *            - the edge in the graph.
+		 * @return <code>true</code> if the edges match.
+		 */
+		protected boolean matches(Edge eP, Edge e)
+		{
+			return isMatch(eP, e);
+		}
+
+		/**
+		 * Counts the graph edges that match a pattern edge, updating the performance indicators once, as is done for
+		 * initial matches.
+		 *
+		 * @param eP
+		 *            - the edge in the pattern.
+		 * @param edges
+		 *            - the edges in the graph.
+		 * @return the number of matching edges.
+		 */
+		protected int countMatching(Edge eP, List<Edge> edges)
+		{
+			ComparisonCounts counts = new ComparisonCounts();
+			int count = 0;
+			for(Edge e : edges)
+				if(isMatch(eP, e, counts))
+					count++;
+			counts.addTo(monitor);
+			return count;
+		}
+	}
+
+	/**
+	 * Seed for the random labels and edges.
+	 */
+	protected static final long		SEED		= 42;
+	/**
+	 * Labels of nodes and edges. Edges may also have no label.
+	 */
+	protected static final String[]	LABELS		= { "a", "b", "http://example.org/label/1",
+			"http://example.org/label/2", "http://example.org/label/12", "" };
+	/**
+	 * Number of random pairs of edges in the behavioral test.
+	 */
+	protected static final int		N_PAIRS		= 20000;
+	/**
+	 * Number of pattern edges and of graph edges used for measuring time.
+	 */
+	protected static final int		BENCH_EDGES	= 1000;
+
+	/**
+	 * @param args
+	 *            - unused.
+	 */
+	public static void main(String[] args)
+	{
+		new LabelSymbolsTest();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		testSymbols();
+		testComparison();
+		testOverride();
+		logChecks();
+
+		benchmark();
+	}
+
+	/**
+	 * Checks that equal labels have equal symbols and different labels have different symbols, for labels and for
+	 * relabeled nodes and edges.
+	 */
+	protected void testSymbols()
+	{
+		check(LabelSymbols.getSymbol(null) == LabelSymbols.NULL_LABEL, "wrong symbol for the null label");
+		check(LabelSymbols.getSymbol("") == LabelSymbols.EMPTY_LABEL, "wrong symbol for the empty label");
+		for(String label1 : LABELS)
+			for(String label2 : LABELS)
+				check((LabelSymbols.getSymbol(label1) == LabelSymbols.getSymbol(new String(label2))) == label1
+						.equals(label2), "wrong symbols for labels " + label1 + " and " + label2);
+
+		Random rand = new Random(SEED);
+		SimpleNode node = new SimpleNode(LABELS[0]);
+		SimpleEdge edge = new SimpleEdge(node, node, null);
+		check(edge.getLabelSymbol() == LabelSymbols.NULL_LABEL, "wrong symbol for an unlabeled edge");
+		for(int i = 0; i < 100; i++)
+		{
+			String label = new String(LABELS[rand.nextInt(LABELS.length)]);
+			if(rand.nextBoolean())
+				node.getLabelSymbol();
+			node.setLabel(label);
+			edge.setLabel(label);
+			check(node.getLabelSymbol() == LabelSymbols.getSymbol(label), "wrong symbol for relabeled node");
+			check(edge.getLabelSymbol() == LabelSymbols.getSymbol(label), "wrong symbol for relabeled edge");
+		}
+	}
+
+	/**
+	 * Compares the edge comparison of the matcher with a comparison of labels as strings, for random pairs of edges,
+	 * including the values of the performance indicators.
+	 */
+	protected void testComparison()
+	{
+		Random rand = new Random(SEED);
+		List<Edge> patternEdges = randomPatternEdges(rand, 100);
+		List<Edge> graphEdges = randomGraphEdges(rand, 100);
+		MonitorPack monitor = new MonitorPack();
+		MonitorPack expectedMonitor = new MonitorPack();
+		InspectedMatcher matcher = new InspectedMatcher(monitor);
+		int matching = 0;
+		for(int i = 0; i < N_PAIRS; i++)
+		{
+			Edge eP = patternEdges.get(rand.nextInt(patternEdges.size()));
+			Edge e = graphEdges.get(rand.nextInt(graphEdges.size()));
+			boolean expected = isMatchByStrings(eP, e, expectedMonitor);
+			if(expected)
+				matching++;
+			check(matcher.matches(eP, e) == expected, "different results for " + eP + " and " + e);
+		}
+		check(monitor.printStats().equals(expectedMonitor.printStats()), "different performance indicators: "
+				+ monitor.printStats() + " instead of " + expectedMonitor.printStats());
+		log.li("[] pairs of edges checked, [] matching", new Integer(N_PAIRS), new Integer(matching));
+	}
+
+	/**
+	 * Checks that the edge comparison used for initial matches can be overridden, by means of a matcher which rejects
+	 * all pairs of edges.
+	 */
+	protected void testOverride()
+	{
+		Random rand = new Random(SEED);
+		SimpleGraph graph = ParallelMatchingTest.randomGraph(rand, 20, new ArrayList<Edge>());
+		GraphPattern pattern = ParallelMatchingTest.randomPattern(rand, 2);
+		check(!GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack()).getAllMatches(pattern.m()).isEmpty(),
+				"no matches for the pattern used with the overridden comparison");
+		GraphMatcherQuick rejecting = new GraphMatcherQuick(graph, pattern) {
+			@Override
+			protected boolean isMatch(Edge eP, Edge e, ComparisonCounts counts)
+			{
+				return false;
+			}
+		}.setMonitor(new MonitorPack());
+		check(rejecting.getAllMatches(pattern.m()).isEmpty(), "the overridden edge comparison is not used");
+	}
+
+	/**
+	 * Compares all pattern edges with all graph edges, by means of the edge comparison of the matcher (as done for
+	 * initial matches) and by comparing labels as strings, and logs the times.
+	 */
+	protected void benchmark()
+	{
+		Random rand = new Random(SEED);
+		List<Edge> patternEdges = randomPatternEdges(rand, BENCH_EDGES);
+		List<Edge> graphEdges = randomGraphEdges(rand, BENCH_EDGES);
+		for(int round = 0; round < 2; round++) // the first round is a warm-up
+		{
+			MonitorPack monitor = new MonitorPack();
+			InspectedMatcher matcher = new InspectedMatcher(monitor);
+			int bySymbols = 0;
+			long start = System.nanoTime();
+			for(Edge eP : patternEdges)
+				bySymbols += matcher.countMatching(eP, graphEdges);
+			long symbolsTime = System.nanoTime() - start;
+			int byStrings = 0;
+			start = System.nanoTime();
+			for(Edge eP : patternEdges)
+				for(Edge e : graphEdges)
+					if(isMatchByStrings(eP, e, monitor))
+						byStrings++;
+			long stringsTime = System.nanoTime() - start;
+			if(round > 0)
+				log.li("[] edge comparisons: by symbols [] matches in [] ms, by strings [] matches in [] ms",
+						new Integer(patternEdges.size() * graphEdges.size()), new Integer(bySymbols), new Double(
+								symbolsTime / 1e6), new Integer(byStrings), new Double(stringsTime / 1e6));
+		}
+	}
+
+	/**
+	 * Compares two edges as {@link GraphMatcherQuick} did before using label symbols, by comparing labels as strings
+	 * and updating the performance indicators of the monitor for each comparison.
+	 *
+	 * @param eP
+	 *            - the edge in the pattern.
+	 * @param e
+	 *            - the edge in the graph.
+	 * @param monitor
+	 *            - the monitor.
+	 * @return <code>true</code> if the edges match.
+	 */
+	protected static boolean isMatchByStrings(Edge eP, Edge e, MonitorPack monitor)
+	{
+		monitor.incrementEdgeReferenceOperation();
+		Node fromP = eP.getFrom();
+		Node toP = eP.getTo();
+		monitor.incrementNodeLabelComparison();
+		if(!((NodeP) fromP).isGeneric() && !fromP.getLabel().equals(e.getFrom().getLabel()))
+			return false;
+		monitor.incrementNodeLabelComparison();
+		if(!((NodeP) toP).isGeneric() && !toP.getLabel().equals(e.getTo().getLabel()))
+			return false;
+		if(eP.getLabel() == null)
+			return true;
+		if((e.getLabel() == null) || (e.getLabel().equals("")))
+			return true;
+		monitor.incrementEdgeLabelComparison();
+		return eP.getLabel().equals(e.getLabel());
+	}
+
+	/**
+	 * Creates pattern edges between random (possibly generic) nodes, with random labels.
+	 *
+	 * @param rand
+	 *            - the random generator.
+	 * @param count
+	 *            - the number of edges.
+	 * @return the edges.
+	 */
+	protected static List<Edge> randomPatternEdges(Random rand, int count)
+	{
+		List<Edge> edges = new ArrayList<Edge>();
+		for(int i = 0; i < count; i++)
+			edges.add(new EdgeP(randomNodeP(rand), randomNodeP(rand), randomLabel(rand)));
+		return edges;
+	}
+
+	/**
+	 * Creates graph edges between random nodes, with random labels. New string instances are used for labels, so
+	 * that they are not identical to the labels of pattern edges.
+	 *
+	 * @param rand
+	 *            - the random generator.
+	 * @param count
+	 *            - the number of edges.
+	 * @return the edges.
+	 */
+	protected static List<Edge> randomGraphEdges(Random rand, int count)
+	{
+		List<Edge> edges = new ArrayList<Edge>();
+		for(int i = 0; i < count; i++)
+		{
+			String label = randomLabel(rand);
+			edges.add(new SimpleEdge(new SimpleNode(new String(LABELS[rand.nextInt(LABELS.length - 1)])),
+					new SimpleNode(new String(LABELS[rand.nextInt(LABELS.length - 1)])), (label != null) ? new String(
+							label) : null));
+		}
+		return edges;
+	}
+
+	/**
+	 * @param rand
+	 *            - the random generator.
+	 * @return a pattern node, which is generic in one case out of four.
+	 */
+	protected static NodeP randomNodeP(Random rand)
+	{
+		return (rand.nextInt(4) == 0) ? new NodeP() : new NodeP(LABELS[rand.nextInt(LABELS.length - 1)]);
+	}
+
+	/**
+	 * @param rand
+	 *            - the random generator.
+	 * @return a random edge label, which is <code>null</code> in one case out of five.
+	 */
+	protected static String randomLabel(Random rand)
+	{
+		return (rand.nextInt(5) == 0) ? null : LABELS[rand.nextInt(LABELS.length)];
+	}
+}
@@ -0,0 +1,256 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import net.xqhs.graphs.graph.Node;
+import net.xqhs.graphs.graph.SimpleEdge;
+import net.xqhs.graphs.graph.SimpleGraph;
+import net.xqhs.graphs.graph.SimpleNode;
+import net.xqhs.graphs.representation.linear.LinearGraphRepresentation;
+import net.xqhs.graphs.representation.text.TextGraphRepresentation;
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * Tester for the linearization of graphs (see {@link LinearGraphRepresentation}). It checks that graphs of several
+ * shapes, with unique labels, are rendered exactly as expected by {@link TextGraphRepresentation}. Then, it measures
+ * the time needed to linearize graphs as their size grows, for a few shapes of graphs: sparse random graphs, many
+ * small components, isolated nodes, and chains. The time per node should remain roughly constant as the size grows.
+ *
+ * @author Andrei Olaru
+ */
+public class LinearRepresentationTest extends Tester
+{
+	/**
+	 * Seed for the generated graphs.
+	 */
+	protected static final long		SEED		= 42;
+	/**
+	 * The numbers of nodes in the generated graphs.
+	 */
+	protected static final int[]	SIZES		= { 1000, 2000, 4000, 8000 };
+	/**
+	 * Number of times each graph is linearized; the best time is reported.
+	 */
+	protected static final int		REPEATS		= 3;
+	/**
+	 * Number of labels used for nodes, so that there are several nodes with the same label.
+	 */
+	protected static final int		N_LABELS	= 100;
+	/**
+	 * Graphs for which the rendering is checked, with one edge per element, in the form
+	 * <code>from label to</code>; a <code>-</code> label stands for an unlabeled edge. Nodes with labels starting with
+	 * <code>out</code> are not added to the graph (edges towards outside nodes). Nodes with labels starting with
+	 * <code>iso</code> are isolated nodes.
+	 */
+	protected static final String[][]	SHAPES		= {
+			// chain
+			{ "a x b", "b y c", "c z d", "d - e" },
+			// tree
+			{ "r c1 a", "r c2 b", "r c3 c", "a c4 d", "a c5 e", "c c6 f", "f c7 g" },
+			// cycle
+			{ "a x b", "b y c", "c z d", "d w a" },
+			// cycle with a tail and a chord
+			{ "t - a", "a x b", "b y c", "c z a", "b w t" },
+			// forest
+			{ "r1 x a", "r1 y b", "b z c", "r2 x d", "r2 y e", "r3 - f", "iso1", "iso2" },
+			// diamond and self-loop
+			{ "a x b", "a y c", "b z d", "c w d", "d loop d" },
+			// edges to outside nodes
+			{ "a x b", "b y out1", "out2 z a", "b w c", "c - out1" },
+			// several nodes without incoming edges, shared descendants
+			{ "p1 x a", "p2 y a", "p3 z b", "a w b", "b v c", "p3 u c" } };
+	/**
+	 * The expected renderings of {@link #SHAPES}, with the default layout and with a layout on several lines (see
+	 * {@link #render(SimpleGraph, boolean)}).
+	 */
+	protected static final String[][]	EXPECTED	= {
+			{ "[a-x->b-y->c-z->d->e]", "\n[a-x->b-y->c-z->d->e]" },
+			{
+					"[r(-c3->c-c6->f-c7->g)(-c1->a(-c4->d)-c5->e)-c2->b]",
+					"\n[r\n  (-c3->c-c6->f-c7->g)\n  (-c1->a\n    (-c4->d)\n    -c5->e)\n  -c2->b]" },
+			{ "[a-x->b-y->c-z->d-w->*a]", "\n[a-x->b-y->c-z->d-w->*a]" },
+			{ "[b(-y->c-z->a-x->*b)-w->t->*a]", "\n[b\n  (-y->c-z->a-x->*b)\n  -w->t->*a]" },
+			{
+					"[r1(-y->b-z->c)-x->a;r2(-x->d)-y->e;r3->f;iso1;iso2]",
+					"\n[r1\n  (-y->b-z->c)\n  -x->a;\nr2\n  (-x->d)\n  -y->e;\nr3->f;\niso1;\niso2]" },
+			{ "[a(-x->b-z->d-loop->*d)-y->c-w->*d]", "\n[a\n  (-x->b-z->d-loop->*d)\n  -y->c-w->*d]" },
+			{ "[a-x->b(-w->c->^out1)-y->^out1]", "\n[a-x->b\n  (-w->c->^out1)\n  -y->^out1]" },
+			{
+					"[p1-x->a-w->b-v->c;p2-y->*a;p3(-z->*b)-u->*c]",
+					"\n[p1-x->a-w->b-v->c;\np2-y->*a;\np3\n  (-z->*b)\n  -u->*c]" } };
+
+	/**
+	 * @param args
+	 *            - unused.
+	 */
+	public static void main(String[] args)
+	{
+		new LinearRepresentationTest();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		for(int i = 0; i < SHAPES.length; i++)
+			for(int layout = 0; layout < 2; layout++)
+			{
+				String actual = render(build(SHAPES[i]), layout > 0);
+				check((i < EXPECTED.length) && EXPECTED[i][layout].equals(actual),
+						"rendering of shape [] with layout [] differs: []", new Integer(i), new Integer(layout),
+						actual);
+			}
+		logChecks();
+
+		for(int size : SIZES)
+		{
+			measure("random", generate(size, size, 0));
+			measure("components", generate(size, size, 10));
+			measure("isolated", generate(size, 0, 1));
+			measure("chains", generate(size, 0, 100));
+		}
+	}
+
+	/**
+	 * Builds a graph from a description in the form used by {@link #SHAPES}.
+	 *
+	 * @param edges
+	 *            - the description of the graph.
+	 * @return the graph.
+	 */
+	protected static SimpleGraph build(String[] edges)
+	{
+		SimpleGraph graph = (SimpleGraph) new SimpleGraph().setUnitName("G").setLogLevel(Level.OFF);
+		Map<String, Node> nodes = new HashMap<String, Node>();
+		for(String edge : edges)
+		{
+			String[] parts = edge.split(" ");
+			if(parts.length == 1)
+				node(parts[0], nodes, graph);
+			else
+				graph.add(new SimpleEdge(node(parts[0], nodes, graph), node(parts[2], nodes, graph), parts[1]
+						.equals("-") ? null : parts[1]));
+		}
+		return graph;
+	}
+
+	/**
+	 * Retrieves the node with a label, creating it if necessary. Created nodes are added to the graph, except for
+	 * outside nodes (see {@link #SHAPES}).
+	 *
+	 * @param label
+	 *            - the label.
+	 * @param nodes
+	 *            - the nodes created so far, by label.
+	 * @param graph
+	 *            - the graph.
+	 * @return the node.
+	 */
+	protected static Node node(String label, Map<String, Node> nodes, SimpleGraph graph)
+	{
+		Node node = nodes.get(label);
+		if(node == null)
+		{
+			node = new SimpleNode(label);
+			nodes.put(label, node);
+			if(!label.startsWith("out"))
+				graph.add(node);
+		}
+		return node;
+	}
+
+	/**
+	 * @param graph
+	 *            - the graph.
+	 * @param multiline
+	 *            - if <code>true</code>, branches are rendered on new lines, with indentation; otherwise, the default
+	 *            layout is used.
+	 * @return the text rendering of the graph.
+	 */
+	protected static String render(SimpleGraph graph, boolean multiline)
+	{
+		TextGraphRepresentation repr = (TextGraphRepresentation) new TextGraphRepresentation(graph).setUnitName("repr")
+				.setLogLevel(Level.OFF);
+		if(multiline)
+			repr.setLayout("\n", "  ", 3);
+		return repr.update().toString();
+	}
+
+	/**
+	 * Generates a graph. Nodes are either connected by edges between random nodes, or organized in groups of nodes in
+	 * which each node is linked to the previous one.
+	 *
+	 * @param n
+	 *            - the number of nodes.
+	 * @param m
+	 *            - the number of edges between random nodes.
+	 * @param groupSize
+	 *            - the number of nodes in each group of linked nodes; 0 for no groups.
+	 * @return the graph.
+	 */
+	protected static SimpleGraph generate(int n, int m, int groupSize)
+	{
+		Random rand = new Random(SEED);
+		SimpleGraph graph = (SimpleGraph) new SimpleGraph().setUnitName("G").setLogLevel(Level.OFF);
+		List<Node> nodes = new ArrayList<Node>();
+		for(int i = 0; i < n; i++)
+		{
+			Node node = new SimpleNode("n" + rand.nextInt(N_LABELS));
+			nodes.add(node);
+			graph.add(node);
+			if((groupSize > 0) && (i % groupSize != 0))
+				graph.add(new SimpleEdge(nodes.get(i - 1), node, "g"));
+		}
+		if(groupSize > 0)
+			// random edges remain within groups
+			for(int i = 0; i < m; i++)
+			{
+				int group = rand.nextInt(n / groupSize) * groupSize;
+				graph.add(new SimpleEdge(nodes.get(group + rand.nextInt(groupSize)), nodes.get(group
+						+ rand.nextInt(groupSize)), "e"));
+			}
+		else
+			for(int i = 0; i < m; i++)
+				graph.add(new SimpleEdge(nodes.get(rand.nextInt(n)), nodes.get(rand.nextInt(n)), "e"));
+		return graph;
+	}
+
+	/**
+	 * Linearizes a graph several times and logs the best time.
+	 *
+	 * @param name
+	 *            - the name of the shape of the graph.
+	 * @param graph
+	 *            - the graph.
+	 */
+	protected void measure(String name, SimpleGraph graph)
+	{
+		long best = Long.MAX_VALUE;
+		for(int r = 0; r < REPEATS; r++)
+		{
+			TextGraphRepresentation repr = (TextGraphRepresentation) new TextGraphRepresentation(graph).setUnitName(
+					"repr").setLogLevel(Level.OFF);
+			long start = System.nanoTime();
+			repr.update();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		log.li("[] graph, [] nodes, [] edges: linearized in [] ms ([] us / node)", name, new Integer(graph.n()),
+				new Integer(graph.m()), new Double(best / 1e6), new Double(best / 1e3 / graph.n()));
+	}
+}
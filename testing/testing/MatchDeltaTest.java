@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.GraphComponent;
+import net.xqhs.graphs.graph.Node;
+import net.xqhs.graphs.graph.SimpleEdge;
+import net.xqhs.graphs.matcher.Match;
+import net.xqhs.graphs.matchingPlatform.GMPImplementation;
+import net.xqhs.graphs.matchingPlatform.GMPImplementation.PrincipalGraph;
+import net.xqhs.graphs.matchingPlatform.MatchDelta;
+import net.xqhs.graphs.pattern.GraphPattern;
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * Tester for delta reporting (see {@link GMPImplementation#incrementSequenceDelta(int)}). Random changes are applied to
+ * the principal graph of a platform with several patterns, some of which are added while the changes are applied.
+ * After each step, the changes reported for each pattern are applied to the set of matches known for that pattern,
+ * which is then compared with the matches kept by the platform. Then, it compares the time and the number of reported
+ * matches when reporting all complete matches and when reporting only the changes.
+ *
+ * @author Andrei Olaru
+ */
+public class MatchDeltaTest extends Tester
+{
+	/**
+	 * Seed for the random graphs and patterns.
+	 */
+	protected static final long	SEED			= 42;
+	/**
+	 * Number of random sequences of changes in the behavioral test.
+	 */
+	protected static final int	N_MATCHINGS		= 50;
+	/**
+	 * Number of patterns in each sequence of changes.
+	 */
+	protected static final int	N_PATTERNS		= 4;
+	/**
+	 * Number of changes in each sequence.
+	 */
+	protected static final int	N_CHANGES		= 200;
+	/**
+	 * Number of nodes used by the changes in the behavioral test.
+	 */
+	protected static final int	N_NODES			= 15;
+	/**
+	 * Number of nodes used by the changes when measuring time.
+	 */
+	protected static final int	BENCH_NODES		= 200;
+	/**
+	 * Number of patterns when measuring time.
+	 */
+	protected static final int	BENCH_PATTERNS	= 20;
+	/**
+	 * Number of changes when measuring time.
+	 */
+	protected static final int	BENCH_CHANGES	= 1000;
+
+	/**
+	 * @param args
+	 *            - unused.
+	 */
+	public static void main(String[] args)
+	{
+		new MatchDeltaTest();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		testDeltas();
+		logChecks();
+
+		benchmark();
+	}
+
+	/**
+	 * Applies random changes to the principal graph of a platform, adding patterns at random moments, and increments
+	 * the matching sequence one step at a time. After each step, it checks that only patterns with changes are
+	 * reported, that the disappeared matches were known and the appeared ones were not, and that the known matches of
+	 * each pattern are the matches of the platform.
+	 */
+	protected void testDeltas()
+	{
+		Random rand = new Random(SEED);
+		int steps = 0;
+		for(int i = 0; i < N_MATCHINGS; i++)
+		{
+			List<Node> nodes = NodeChangesTest.randomNodes(rand, N_NODES);
+			List<Edge> edges = new ArrayList<Edge>();
+			int maxK = rand.nextInt(3);
+			PrincipalGraph graph = (PrincipalGraph) new PrincipalGraph().setUnitName("G").setLogLevel(Level.OFF);
+			GMPImplementation platform = new GMPImplementation().setPrincipalGraph(graph);
+			Map<GraphPattern, Set<Match>> known = new HashMap<GraphPattern, Set<Match>>();
+			for(int j = 0; j < N_CHANGES; j++)
+			{
+				if((known.size() < N_PATTERNS) && ((j == 0) || (rand.nextInt(N_CHANGES / N_PATTERNS) == 0)))
+				{
+					GraphPattern pattern = rand.nextBoolean() ? NodeChangesTest.starPattern(rand, 2 + rand.nextInt(2))
+							: ParallelMatchingTest.randomPattern(rand, 2 + rand.nextInt(2));
+					platform.addPattern(pattern);
+					known.put(pattern, new HashSet<Match>());
+				}
+				NodeChangesTest.randomChange(rand, graph, nodes, edges);
+				Map<GraphPattern, MatchDelta> deltas = platform.incrementSequenceDelta(maxK);
+				check(platform.incrementSequenceDelta(maxK) == null, "delta returned without any transactions");
+				steps++;
+				for(Map.Entry<GraphPattern, MatchDelta> delta : deltas.entrySet())
+				{
+					Set<Match> matches = known.get(delta.getKey());
+					check(!delta.getValue().isEmpty(), "empty delta reported in sequence " + i);
+					check(matches.containsAll(delta.getValue().getDisappeared()), "unknown matches disappeared in "
+							+ "sequence " + i);
+					matches.removeAll(delta.getValue().getDisappeared());
+					for(Match m : delta.getValue().getAppeared())
+						check(matches.add(m) && m.isValid() && (m.getK() <= maxK) && (m.getPattern() == delta.getKey()),
+								"wrong match appeared in sequence " + i);
+				}
+				for(Map.Entry<GraphPattern, Set<Match>> pattern : known.entrySet())
+					check(pattern.getValue().equals(platform.getMatches(pattern.getKey(), maxK)),
+							"known matches differ from the platform's matches in sequence " + i + " after change " + j);
+			}
+		}
+		log.li("[] steps checked", new Integer(steps));
+	}
+
+	/**
+	 * Applies the same random changes to two platforms, one reporting all complete matches and the other reporting
+	 * only the changes, and logs the times and the numbers of reported matches.
+	 */
+	protected void benchmark()
+	{
+		for(int round = 0; round < 2; round++) // the first round is a warm-up
+		{
+			Random rand = new Random(SEED);
+			List<Node> nodes = NodeChangesTest.randomNodes(rand, BENCH_NODES);
+			List<Edge> edges = new ArrayList<Edge>();
+			PrincipalGraph graph = (PrincipalGraph) new PrincipalGraph().setUnitName("G").setLogLevel(Level.OFF);
+			List<GraphComponent> initial = new ArrayList<GraphComponent>(nodes);
+			for(int j = 3 * BENCH_NODES; j > 0; j--)
+			{
+				Edge edge = new SimpleEdge(nodes.get(rand.nextInt(nodes.size())), nodes.get(rand.nextInt(nodes
+						.size())), EdgeIndexTest.randomLabel(rand, EdgeIndexTest.EDGE_LABELS));
+				edges.add(edge);
+				initial.add(edge);
+			}
+			graph.addAll(initial);
+			GMPImplementation full = new GMPImplementation().setPrincipalGraph(graph);
+			GMPImplementation delta = new GMPImplementation().setPrincipalGraph(graph);
+			for(int p = 0; p < BENCH_PATTERNS; p++)
+			{
+				GraphPattern pattern = NodeChangesTest.starPattern(rand, 2);
+				full.addPattern(pattern);
+				delta.addPattern(pattern);
+			}
+			long fullTime = 0;
+			long deltaTime = 0;
+			int fullReported = 0;
+			int deltaReported = 0;
+			for(int j = 0; j < BENCH_CHANGES; j++)
+			{
+				NodeChangesTest.randomChange(rand, graph, nodes, edges);
+				long start = System.nanoTime();
+				fullReported += full.incrementSequence().size();
+				fullTime += System.nanoTime() - start;
+				start = System.nanoTime();
+				for(MatchDelta d : delta.incrementSequenceDelta(0).values())
+					deltaReported += d.getAppeared().size() + d.getDisappeared().size();
+				deltaTime += System.nanoTime() - start;
+			}
+			if(round > 0)
+				log.li("[] changes, [] patterns: all complete matches [] ms ([] reported); changes only [] ms ([] "
+						+ "reported)", new Integer(BENCH_CHANGES), new Integer(BENCH_PATTERNS), new Double(
+						fullTime / 1e6), new Integer(fullReported), new Double(deltaTime / 1e6), new Integer(
+						deltaReported));
+		}
+	}
+}
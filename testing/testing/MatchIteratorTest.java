@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.SimpleGraph;
+import net.xqhs.graphs.matcher.GraphMatcherQuick;
+import net.xqhs.graphs.matcher.GraphMatchingProcess;
+import net.xqhs.graphs.matcher.Match;
+import net.xqhs.graphs.matcher.MonitorPack;
+import net.xqhs.graphs.pattern.GraphPattern;
+
+/**
+ * Tester for {@link GraphMatchingProcess#getMatchIterator(int)}. For random patterns and graphs, it checks that a
+ * complete iteration returns the same matches as {@link GraphMatchingProcess#getAllMatches(int)}, that stopping the
+ * iteration early does not prevent finding the other matches later, and that discarded matches are not returned
+ * anymore. Then, it compares the time needed to get the first few matches with the time needed to get all matches.
+ *
+ * @author Andrei Olaru
+ */
+public class MatchIteratorTest extends Tester
+{
+	/**
+	 * Seed for the random graphs and patterns.
+	 */
+	protected static final long	SEED			= 42;
+	/**
+	 * Number of random graphs and patterns in the behavioral test.
+	 */
+	protected static final int	N_MATCHINGS		= 100;
+	/**
+	 * Number of matches taken before stopping the iteration.
+	 */
+	protected static final int	N_FIRST			= 3;
+	/**
+	 * Number of nodes in the graph used for measuring time.
+	 */
+	protected static final int	BENCH_NODES		= 600;
+	/**
+	 * Number of edges of the pattern used for measuring time.
+	 */
+	protected static final int	BENCH_EDGES		= 5;
+
+	/**
+	 * @param args
+	 *            - unused.
+	 */
+	public static void main(String[] args)
+	{
+		new MatchIteratorTest();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		testIteration();
+		logChecks();
+
+		benchmark();
+	}
+
+	/**
+	 * For random patterns and graphs, and random thresholds, checks complete iterations, interrupted iterations, and
+	 * iterations that discard all matches.
+	 */
+	protected void testIteration()
+	{
+		Random rand = new Random(SEED);
+		int checks = 0;
+		for(int i = 0; i < N_MATCHINGS; i++)
+		{
+			List<Edge> edges = new ArrayList<Edge>();
+			SimpleGraph graph = ParallelMatchingTest.randomGraph(rand, 10 + rand.nextInt(30), edges);
+			GraphPattern pattern = ParallelMatchingTest.randomPattern(rand, 2 + rand.nextInt(4));
+			Map<Edge, Integer> ids = new IdentityHashMap<Edge, Integer>();
+			for(Edge edge : edges)
+				ids.put(edge, new Integer(ids.size()));
+			for(Edge edge : pattern.getEdges())
+				ids.put(edge, new Integer(ids.size()));
+			int k = rand.nextInt(pattern.m());
+
+			Set<String> all = EdgeIndexTest.canonical(
+					GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack()).getAllMatches(k), ids);
+
+			// complete iteration
+			List<Match> iterated = new ArrayList<Match>();
+			for(Iterator<Match> it = GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack()).getMatchIterator(
+					k); it.hasNext();)
+				iterated.add(it.next());
+			checks++;
+			Set<String> iteratedSet = EdgeIndexTest.canonical(iterated, ids);
+			check(all.equals(iteratedSet) && (iteratedSet.size() == iterated.size()),
+					"iterated matches differ for graph []: [] iterated, [] expected", new Integer(i), new Integer(
+							iterated.size()), new Integer(all.size()));
+
+			// interrupted iteration
+			GraphMatcherQuick matcher = GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack());
+			Iterator<Match> it = matcher.getMatchIterator(k);
+			for(int j = 0; (j < N_FIRST) && it.hasNext(); j++)
+				it.next();
+			checks++;
+			check(all.equals(EdgeIndexTest.canonical(matcher.getAllMatches(k), ids)),
+					"matches differ after an interrupted iteration for graph []", new Integer(i));
+
+			// discarding all matches
+			matcher = GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack());
+			List<Match> discarded = new ArrayList<Match>();
+			for(it = matcher.getMatchIterator(k); it.hasNext();)
+			{
+				discarded.add(it.next());
+				it.remove();
+			}
+			checks++;
+			boolean ok = all.containsAll(EdgeIndexTest.canonical(discarded, ids));
+			for(Match m : discarded)
+				ok &= !m.isValid();
+			for(Match m : matcher.getAllMatches(k))
+				ok &= m.isValid() && !discarded.contains(m);
+			check(ok, "discarded matches not handled correctly for graph []", new Integer(i));
+		}
+		log.li("[] iterations checked", new Integer(checks));
+	}
+
+	/**
+	 * Gets the first few matches of a pattern in a larger graph, with {@link GraphMatchingProcess#getMatchIterator(int)}
+	 * , and all the matches, with {@link GraphMatchingProcess#getAllMatches(int)}, and logs the times.
+	 */
+	protected void benchmark()
+	{
+		Random rand = new Random(SEED);
+		SimpleGraph graph = ParallelMatchingTest.randomGraph(rand, BENCH_NODES, new ArrayList<Edge>());
+		GraphPattern pattern = ParallelMatchingTest.randomPattern(rand, BENCH_EDGES);
+		int k = pattern.m() / 2;
+
+		long start = System.nanoTime();
+		Iterator<Match> it = GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack()).getMatchIterator(k);
+		int first = 0;
+		for(; (first < N_FIRST) && it.hasNext(); first++)
+			it.next();
+		long iteratorTime = System.nanoTime() - start;
+		start = System.nanoTime();
+		List<Match> all = GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack()).getAllMatches(k);
+		long allTime = System.nanoTime() - start;
+		log.li("[] nodes, [] pattern edges, k<=[]: first [] matches in [] ms; all [] matches in [] ms", new Integer(
+				graph.n()), new Integer(pattern.m()), new Integer(k), new Integer(first), new Double(
+				iteratorTime / 1e6), new Integer(all.size()), new Double(allTime / 1e6));
+	}
+}
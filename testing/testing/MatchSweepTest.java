@@ -0,0 +1,311 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.Graph;
+import net.xqhs.graphs.graph.Node;
+import net.xqhs.graphs.graph.SimpleEdge;
+import net.xqhs.graphs.graph.SimpleGraph;
+import net.xqhs.graphs.matcher.Match;
+import net.xqhs.graphs.matcher.MonitorPack;
+import net.xqhs.graphs.matchingPlatform.GraphMatcherPersistent;
+import net.xqhs.graphs.pattern.GraphPattern;
+
+/**
+ * Tester for the removal of invalidated matches from {@link GraphMatcherPersistent} (see
+ * {@link GraphMatcherPersistent#sweep()}). Under a steady workload of edge removals and additions, it checks that no
+ * stored match contains a removed edge, that sweeping does not change the matches that are found, and that the stored
+ * matches and index entries stay bounded. Then, it compares the memory and time of the workload with and without
+ * sweeping.
+ *
+ * @author Andrei Olaru
+ */
+public class MatchSweepTest extends Tester
+{
+	/**
+	 * A matcher with a configurable sweeping policy, giving access to its stored matches.
+	 */
+	protected static class InspectedMatcher extends GraphMatcherPersistent
+	{
+		/**
+		 * <code>true</code> to sweep after each removal, <code>false</code> to never sweep, <code>null</code> to use
+		 * the default policy.
+		 */
+		protected final Boolean	sweepAlways;
+
+		/**
+		 * Creates the matcher.
+		 *
+		 * @param graph
+		 *            - the graph.
+		 * @param pattern
+		 *            - the pattern.
+		 * @param sweepAfterRemoval
+		 *            - <code>true</code> to sweep after each removal, <code>false</code> to never sweep,
+		 *            <code>null</code> to use the default policy.
+		 */
+		protected InspectedMatcher(Graph graph, GraphPattern pattern, Boolean sweepAfterRemoval)
+		{
+			super(graph, pattern);
+			setMonitor(new MonitorPack());
+			sweepAlways = sweepAfterRemoval;
+		}
+
+		@Override
+		protected boolean needsSweep()
+		{
+			return (sweepAlways == null) ? super.needsSweep() : sweepAlways.booleanValue();
+		}
+
+		/**
+		 * @return the number of entries in the list of all matches, in the match queue and in the indexes.
+		 */
+		protected int countEntries()
+		{
+			return countEntries(false);
+		}
+
+		/**
+		 * @return the number of entries of invalid matches in the list of all matches, in the match queue and in the
+		 *         indexes.
+		 */
+		protected int countInvalidEntries()
+		{
+			return countEntries(true);
+		}
+
+		/**
+		 * @param invalidOnly
+		 *            - if <code>true</code>, only entries of invalid matches are counted.
+		 * @return the number of entries in the list of all matches, in the match queue and in the indexes.
+		 */
+		protected int countEntries(boolean invalidOnly)
+		{
+			List<Collection<Match>> collections = new ArrayList<Collection<Match>>();
+			collections.add(allMatches);
+			collections.add(matchQueue);
+			collections.addAll(eMatchIndex.values());
+			collections.addAll(ePMatchIndex.values());
+			int count = 0;
+			for(Collection<Match> collection : collections)
+				for(Match m : collection)
+					if(!invalidOnly || !m.isValid())
+						count++;
+			return count;
+		}
+
+		/**
+		 * @return the stored matches which are valid.
+		 */
+		protected List<Match> getValidMatches()
+		{
+			List<Match> result = new ArrayList<Match>();
+			for(Match m : allMatches)
+				if(m.isValid())
+					result.add(m);
+			return result;
+		}
+	}
+
+	/**
+	 * Seed for the random graphs and patterns.
+	 */
+	protected static final long	SEED			= 42;
+	/**
+	 * Number of random graphs and patterns in the behavioral test.
+	 */
+	protected static final int	N_MATCHINGS		= 40;
+	/**
+	 * Number of edge removals (each followed by an edge addition) applied to each graph in the behavioral test.
+	 */
+	protected static final int	N_CHANGES		= 300;
+	/**
+	 * Number of nodes in the graph used for measuring time.
+	 */
+	protected static final int	BENCH_NODES		= 60;
+	/**
+	 * Number of edges of the pattern used for measuring time.
+	 */
+	protected static final int	BENCH_EDGES		= 3;
+	/**
+	 * Number of edge removals (each followed by an edge addition) when measuring time.
+	 */
+	protected static final int	BENCH_CHANGES	= 20000;
+
+	/**
+	 * @param args
+	 *            - unused.
+	 */
+	public static void main(String[] args)
+	{
+		new MatchSweepTest();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		testSweep();
+		logChecks();
+
+		benchmark();
+	}
+
+	/**
+	 * Applies a steady workload of edge removals and additions to random graphs, for matchers which sweep with the
+	 * default policy, after each removal, and never. After each change, it checks that the matchers store the same
+	 * valid matches, that none of them contains a removed edge, that no invalid matches remain after sweeping, and
+	 * that the number of entries of the matcher using the default policy stays within a bound proportional to the
+	 * number of entries of valid matches.
+	 */
+	protected void testSweep()
+	{
+		Random rand = new Random(SEED);
+		int checks = 0;
+		int maxRatio = 0;
+		for(int i = 0; i < N_MATCHINGS; i++)
+		{
+			List<Edge> edges = new ArrayList<Edge>();
+			SimpleGraph graph = ParallelMatchingTest.randomGraph(rand, 10 + rand.nextInt(20), edges);
+			GraphPattern pattern = ParallelMatchingTest.randomPattern(rand, 2 + rand.nextInt(3));
+			List<Node> nodes = nodesOf(edges);
+			Map<Edge, Integer> ids = new IdentityHashMap<Edge, Integer>();
+			for(Edge edge : edges)
+				ids.put(edge, new Integer(ids.size()));
+			for(Edge edge : pattern.getEdges())
+				ids.put(edge, new Integer(ids.size()));
+
+			InspectedMatcher byDefault = new InspectedMatcher(graph, pattern, null);
+			InspectedMatcher always = new InspectedMatcher(graph, pattern, Boolean.TRUE);
+			InspectedMatcher never = new InspectedMatcher(graph, pattern, Boolean.FALSE);
+			InspectedMatcher[] matchers = { byDefault, always, never };
+			for(InspectedMatcher matcher : matchers)
+				matcher.completeMatches();
+
+			for(int j = 0; j < N_CHANGES; j++)
+			{
+				Edge removed = edges.remove(rand.nextInt(edges.size()));
+				graph.remove(removed);
+				for(InspectedMatcher matcher : matchers)
+					matcher.removeMatches(removed);
+				Edge added = new SimpleEdge(nodes.get(rand.nextInt(nodes.size())), nodes.get(rand
+						.nextInt(nodes.size())), EdgeIndexTest.randomLabel(rand, EdgeIndexTest.EDGE_LABELS));
+				ids.put(added, new Integer(ids.size()));
+				edges.add(added);
+				graph.add(added);
+				for(InspectedMatcher matcher : matchers)
+					matcher.addMatches(added).completeMatches();
+
+				checks++;
+				Set<String> expected = EdgeIndexTest.canonical(never.getValidMatches(), ids);
+				check(expected.equals(EdgeIndexTest.canonical(byDefault.getValidMatches(), ids)),
+						"matches differ with the default sweeping policy for graph " + i + " after change " + j);
+				check(expected.equals(EdgeIndexTest.canonical(always.getValidMatches(), ids)),
+						"matches differ when sweeping after each removal for graph " + i + " after change " + j);
+				int removedEdges = 0;
+				for(Match m : byDefault.getValidMatches())
+					for(Edge eP : m.getSolvedPart().getEdges())
+						for(Edge e : m.getMatchedGraphEdges(eP))
+							if(!graph.contains(e))
+								removedEdges++;
+				check(removedEdges == 0, "valid matches contain " + removedEdges + " removed edges for graph " + i
+						+ " after change " + j);
+				check(always.countInvalidEntries() == 0, "invalid matches remain after sweeping for graph " + i
+						+ " after change " + j);
+				int valid = always.countEntries();
+				int stored = byDefault.countEntries();
+				check(stored <= 2 * valid + entryBound(pattern), "too many entries for graph " + i + " after change "
+						+ j + ": " + stored + " for " + valid + " entries of valid matches");
+				maxRatio = Math.max(maxRatio, (valid > 0) ? stored / valid : 0);
+			}
+		}
+		log.li("[] workload steps checked; stored entries at most [] times the entries of valid matches", new Integer(
+				checks), new Integer(maxRatio));
+	}
+
+	/**
+	 * @param pattern
+	 *            - the pattern.
+	 * @return the number of entries that the minimum number of invalidated matches before sweeping may have, in the
+	 *         list of all matches, the match queue and the indexes.
+	 */
+	protected static int entryBound(GraphPattern pattern)
+	{
+		return 64 * (2 + 2 * pattern.m());
+	}
+
+	/**
+	 * Applies a steady workload of edge removals and additions to a larger graph, for matchers which sweep with the
+	 * default policy and which never sweep, and logs the number of stored entries and the times.
+	 */
+	protected void benchmark()
+	{
+		for(int round = 0; round < 2; round++) // the first round is a warm-up
+			for(Boolean sweep : new Boolean[] { null, Boolean.FALSE })
+			{
+				Random rand = new Random(SEED);
+				List<Edge> edges = new ArrayList<Edge>();
+				SimpleGraph graph = ParallelMatchingTest.randomGraph(rand, BENCH_NODES, edges);
+				GraphPattern pattern = ParallelMatchingTest.randomPattern(rand, BENCH_EDGES);
+				List<Node> nodes = nodesOf(edges);
+				InspectedMatcher matcher = new InspectedMatcher(graph, pattern, sweep);
+				matcher.completeMatches();
+				int initial = matcher.countEntries();
+
+				long start = System.nanoTime();
+				for(int j = 0; j < BENCH_CHANGES; j++)
+				{
+					Edge removed = edges.remove(rand.nextInt(edges.size()));
+					graph.remove(removed);
+					matcher.removeMatches(removed);
+					Edge added = new SimpleEdge(nodes.get(rand.nextInt(nodes.size())), nodes.get(rand.nextInt(nodes
+							.size())), EdgeIndexTest.randomLabel(rand, EdgeIndexTest.EDGE_LABELS));
+					edges.add(added);
+					graph.add(added);
+					matcher.addMatches(added).completeMatches();
+				}
+				long time = System.nanoTime() - start;
+				if(round > 0)
+					log.li("[]: [] changes in [] ms; entries: [] initially, [] at the end ([] of valid matches)",
+							(sweep == null) ? "sweeping" : "no sweeping", new Integer(BENCH_CHANGES), new Double(
+									time / 1e6), new Integer(initial), new Integer(matcher.countEntries()),
+							new Integer(matcher.countEntries() - matcher.countInvalidEntries()));
+			}
+	}
+
+	/**
+	 * @param edges
+	 *            - a list of edges.
+	 * @return the endpoints of the edges, in the order of the edges.
+	 */
+	protected static List<Node> nodesOf(List<Edge> edges)
+	{
+		Set<Node> nodes = new LinkedHashSet<Node>();
+		for(Edge edge : edges)
+		{
+			nodes.add(edge.getFrom());
+			nodes.add(edge.getTo());
+		}
+		return new ArrayList<Node>(nodes);
+	}
+}
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.SimpleGraph;
+import net.xqhs.graphs.matcher.GraphMatcherQuick;
+import net.xqhs.graphs.matcher.Match;
+import net.xqhs.graphs.matcher.MonitorPack;
+import net.xqhs.graphs.matcher.MonitorPack.Counting;
+import net.xqhs.graphs.matcher.MonitorPack.Snapshot;
+import net.xqhs.graphs.pattern.GraphPattern;
+
+/**
+ * Tester for the ways of counting performance indicators in {@link MonitorPack} (see {@link Counting}). It checks that
+ * striped counting gives the same indicators as shared counting, also when several threads count at the same time, and
+ * that no indicators are counted when counting is off, while the same matches are found. Then, it compares the times
+ * needed to count from several threads, and to match in parallel, with each way of counting.
+ *
+ * @author Andrei Olaru
+ */
+public class MonitorCountingTest extends Tester
+{
+	/**
+	 * Seed for the random graphs and patterns.
+	 */
+	protected static final long	SEED			= 42;
+	/**
+	 * Number of random graphs and patterns in the behavioral test.
+	 */
+	protected static final int	N_MATCHINGS		= 50;
+	/**
+	 * Number of threads used for counting and for parallel matching.
+	 */
+	protected static final int	N_THREADS		= 4;
+	/**
+	 * Number of increments performed by each thread.
+	 */
+	protected static final int	N_INCREMENTS	= 1000000;
+	/**
+	 * Number of nodes in the graph used for measuring time.
+	 */
+	protected static final int	BENCH_NODES		= 300;
+
+	/**
+	 * @param args
+	 *            - unused.
+	 */
+	public static void main(String[] args)
+	{
+		new MonitorCountingTest();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		ExecutorService executor = Executors.newFixedThreadPool(N_THREADS);
+		try
+		{
+			testConcurrentCounting();
+			testMatching(executor);
+			logChecks();
+
+			benchmark(executor);
+		} finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Increments indicators from several threads at the same time, with each way of counting, and checks the totals.
+	 */
+	protected void testConcurrentCounting()
+	{
+		for(Counting counting : Counting.values())
+		{
+			MonitorPack monitor = new MonitorPack(counting);
+			countConcurrently(monitor);
+			int expected = (counting == Counting.OFF) ? 0 : N_THREADS * N_INCREMENTS;
+			Snapshot snapshot = monitor.getSnapshot();
+			check((snapshot.nodes == expected) && (snapshot.edgeLabels == 2 * expected)
+					&& (snapshot.merges == expected) && (snapshot.edges == 0), "wrong totals for counting " + counting
+					+ ": " + snapshot);
+		}
+	}
+
+	/**
+	 * Matches random patterns against random graphs with each way of counting, sequentially and in parallel, and
+	 * compares the matches and the indicators with those of sequential matching with shared counting.
+	 *
+	 * @param executor
+	 *            - the executor to use for parallel matching.
+	 */
+	protected void testMatching(ExecutorService executor)
+	{
+		Random rand = new Random(SEED);
+		int checks = 0;
+		for(int i = 0; i < N_MATCHINGS; i++)
+		{
+			List<Edge> edges = new ArrayList<Edge>();
+			SimpleGraph graph = ParallelMatchingTest.randomGraph(rand, 10 + rand.nextInt(30), edges);
+			GraphPattern pattern = ParallelMatchingTest.randomPattern(rand, 2 + rand.nextInt(4));
+			Map<Edge, Integer> ids = new IdentityHashMap<Edge, Integer>();
+			for(Edge edge : edges)
+				ids.put(edge, new Integer(ids.size()));
+			for(Edge edge : pattern.getEdges())
+				ids.put(edge, new Integer(ids.size()));
+
+			MonitorPack shared = new MonitorPack();
+			List<Match> expected = GraphMatcherQuick.getMatcher(graph, pattern, shared).getAllMatches(pattern.m());
+			for(Counting counting : Counting.values())
+				for(boolean parallel : new boolean[] { false, true })
+				{
+					MonitorPack monitor = new MonitorPack(counting);
+					GraphMatcherQuick matcher = GraphMatcherQuick.getMatcher(graph, pattern, monitor);
+					if(parallel)
+						matcher.setExecutor(executor, N_THREADS);
+					List<Match> actual = matcher.getAllMatches(pattern.m());
+					checks++;
+					check(EdgeIndexTest.canonical(expected, ids).equals(EdgeIndexTest.canonical(actual, ids)),
+							"different matches for graph " + i + " with counting " + counting);
+					Snapshot snapshot = monitor.getSnapshot();
+					if(counting == Counting.OFF)
+						check(snapshot.toString().equals(new MonitorPack().getSnapshot().toString()),
+								"indicators counted for graph " + i + " with counting off: " + snapshot);
+					else if(!parallel)
+						check(snapshot.toString().equals(shared.getSnapshot().toString()),
+								"different indicators for graph " + i + " with counting " + counting + ": "
+										+ snapshot + " instead of " + shared.getSnapshot());
+					else
+						check((snapshot.matches == shared.getMatchCount())
+								&& (snapshot.merges == shared.getMergeCount()),
+								"different numbers of matches for graph " + i + " with parallel counting " + counting
+										+ ": " + snapshot);
+				}
+		}
+		log.li("[] matchings checked", new Integer(checks));
+	}
+
+	/**
+	 * Measures the time needed to increment indicators from several threads at the same time, and the time needed to
+	 * find all complete matches in a larger graph in parallel, with each way of counting.
+	 *
+	 * @param executor
+	 *            - the executor to use for parallel matching.
+	 */
+	protected void benchmark(ExecutorService executor)
+	{
+		Random rand = new Random(SEED);
+		SimpleGraph graph = ParallelMatchingTest.randomGraph(rand, BENCH_NODES, new ArrayList<Edge>());
+		GraphPattern pattern = ParallelMatchingTest.randomPattern(rand, 3);
+		for(int round = 0; round < 2; round++) // the first round is a warm-up
+			for(Counting counting : Counting.values())
+			{
+				long start = System.nanoTime();
+				countConcurrently(new MonitorPack(counting));
+				long countingTime = System.nanoTime() - start;
+				start = System.nanoTime();
+				int matches = GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack(counting))
+						.setExecutor(executor, N_THREADS).getAllCompleteMatches().size();
+				long matchingTime = System.nanoTime() - start;
+				if(round > 0)
+					log.li("counting []: [] increments in each of [] threads in [] ms;"
+							+ " [] complete matches in parallel in [] ms", counting, new Integer(3 * N_INCREMENTS),
+							new Integer(N_THREADS), new Double(countingTime / 1e6), new Integer(matches), new Double(
+									matchingTime / 1e6));
+			}
+	}
+
+	/**
+	 * Increments some indicators of a monitor from {@link #N_THREADS} threads at the same time.
+	 *
+	 * @param monitor
+	 *            - the monitor.
+	 */
+	protected static void countConcurrently(final MonitorPack monitor)
+	{
+		List<Thread> threads = new ArrayList<Thread>();
+		for(int t = 0; t < N_THREADS; t++)
+			threads.add(new Thread() {
+				@Override
+				public void run()
+				{
+					for(int i = 0; i < N_INCREMENTS; i++)
+					{
+						monitor.incrementNodeReferenceOperation();
+						monitor.incrementEdgeLabelComparison(2);
+						monitor.incrementMergeCount();
+					}
+				}
+			});
+		for(Thread thread : threads)
+			thread.start();
+		try
+		{
+			for(Thread thread : threads)
+				thread.join();
+		} catch(InterruptedException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,302 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.GraphComponent;
+import net.xqhs.graphs.graph.Node;
+import net.xqhs.graphs.graph.SimpleEdge;
+import net.xqhs.graphs.graph.SimpleGraph;
+import net.xqhs.graphs.graph.SimpleNode;
+import net.xqhs.graphs.matcher.GraphMatcherQuick;
+import net.xqhs.graphs.matcher.Match;
+import net.xqhs.graphs.matcher.MonitorPack;
+import net.xqhs.graphs.matchingPlatform.GMPImplementation;
+import net.xqhs.graphs.matchingPlatform.GMPImplementation.PrincipalGraph;
+import net.xqhs.graphs.matchingPlatform.GraphMatcherPersistent;
+import net.xqhs.graphs.pattern.EdgeP;
+import net.xqhs.graphs.pattern.GraphPattern;
+import net.xqhs.graphs.pattern.NodeP;
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * Tester for node changes in incremental matching (see {@link GraphMatcherPersistent#removeMatches(Node)} and
+ * {@link GraphMatcherPersistent#addMatches(Edge)}). Random changes -- including the removal of nodes, the addition of
+ * edges before their endpoints and the addition of nodes after their edges -- are applied to the principal graph of a
+ * {@link GMPImplementation}. After each change, the complete matches reported by the platform are compared with those
+ * found by matching the pattern against the active part of the graph (the nodes, and the edges having both endpoints
+ * in the graph). For star-shaped patterns, the matches must be the same; for other patterns, incremental matching may
+ * miss matches with non-adjacent pattern edges, so the reported matches must only be among the expected ones. Then,
+ * it compares the time needed to follow the changes with the time needed to rebuild the matcher after each change.
+ *
+ * @author Andrei Olaru
+ */
+public class NodeChangesTest extends Tester
+{
+	/**
+	 * Seed for the random graphs and patterns.
+	 */
+	protected static final long	SEED			= 42;
+	/**
+	 * Number of random patterns and sequences of changes in the behavioral test, for each shape of patterns.
+	 */
+	protected static final int	N_MATCHINGS		= 50;
+	/**
+	 * Number of changes in each sequence.
+	 */
+	protected static final int	N_CHANGES		= 200;
+	/**
+	 * Number of nodes used by the changes in the behavioral test.
+	 */
+	protected static final int	N_NODES			= 15;
+	/**
+	 * Number of nodes used by the changes when measuring time.
+	 */
+	protected static final int	BENCH_NODES		= 200;
+	/**
+	 * Number of edges of the pattern used for measuring time.
+	 */
+	protected static final int	BENCH_EDGES		= 3;
+	/**
+	 * Number of changes when measuring time.
+	 */
+	protected static final int	BENCH_CHANGES	= 1000;
+
+	/**
+	 * @param args
+	 *            - unused.
+	 */
+	public static void main(String[] args)
+	{
+		new NodeChangesTest();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		testChanges(true);
+		testChanges(false);
+		logChecks();
+
+		benchmark();
+	}
+
+	/**
+	 * Applies random changes to the principal graph of a platform and compares, after each change, the complete
+	 * matches reported by the platform with those found in the active part of the graph.
+	 *
+	 * @param star
+	 *            - if <code>true</code>, star-shaped patterns are used and the matches must be the same; otherwise,
+	 *            tree-shaped patterns are used and the reported matches must be among the expected ones.
+	 */
+	protected void testChanges(boolean star)
+	{
+		Random rand = new Random(SEED);
+		int checks = 0;
+		int missed = 0;
+		for(int i = 0; i < N_MATCHINGS; i++)
+		{
+			List<Node> nodes = randomNodes(rand, N_NODES);
+			List<Edge> edges = new ArrayList<Edge>();
+			GraphPattern pattern = star ? starPattern(rand, 2 + rand.nextInt(3)) : ParallelMatchingTest.randomPattern(
+					rand, 2 + rand.nextInt(3));
+			Map<Edge, Integer> ids = new IdentityHashMap<Edge, Integer>();
+			for(Edge edge : pattern.getEdges())
+				ids.put(edge, new Integer(ids.size()));
+
+			PrincipalGraph graph = (PrincipalGraph) new PrincipalGraph().setUnitName("G").setLogLevel(Level.OFF);
+			GMPImplementation platform = new GMPImplementation().setPrincipalGraph(graph);
+			platform.addPattern(pattern);
+			for(int j = 0; j < N_CHANGES; j++)
+			{
+				Edge added = randomChange(rand, graph, nodes, edges);
+				if(added != null)
+					ids.put(added, new Integer(ids.size()));
+				Set<Match> reported = platform.incrementSequence();
+
+				checks++;
+				Set<String> expected = EdgeIndexTest.canonical(GraphMatcherQuick.getMatcher(activePart(graph),
+						pattern, new MonitorPack()).getAllCompleteMatches(), ids);
+				Set<String> actual = EdgeIndexTest.canonical(reported, ids);
+				if(star)
+					check(expected.equals(actual), "matches differ for star pattern " + i + " after change " + j
+							+ ": expected " + expected + " actual " + actual);
+				else
+				{
+					check(expected.containsAll(actual), "unexpected matches for pattern " + i + " after change " + j
+							+ ": expected " + expected + " actual " + actual);
+					if(!expected.equals(actual))
+						missed++;
+				}
+			}
+		}
+		if(star)
+			log.li("[] changes checked for star-shaped patterns", new Integer(checks));
+		else
+			log.li("[] changes checked for tree-shaped patterns; matches missed after [] changes", new Integer(checks),
+					new Integer(missed));
+	}
+
+	/**
+	 * Applies random changes to a larger graph, following them with a platform and with a new matcher for the active
+	 * part of the graph after each change, and logs the times.
+	 */
+	protected void benchmark()
+	{
+		for(int round = 0; round < 2; round++) // the first round is a warm-up
+		{
+			long incremental = 0;
+			long rebuilt = 0;
+			int matches = 0;
+			Random rand = new Random(SEED);
+			List<Node> nodes = randomNodes(rand, BENCH_NODES);
+			List<Edge> edges = new ArrayList<Edge>();
+			GraphPattern pattern = starPattern(rand, BENCH_EDGES);
+			PrincipalGraph graph = (PrincipalGraph) new PrincipalGraph().setUnitName("G").setLogLevel(Level.OFF);
+			List<GraphComponent> initial = new ArrayList<GraphComponent>(nodes);
+			for(int j = 3 * BENCH_NODES; j > 0; j--)
+			{
+				Edge edge = new SimpleEdge(nodes.get(rand.nextInt(nodes.size())), nodes.get(rand.nextInt(nodes
+						.size())), EdgeIndexTest.randomLabel(rand, EdgeIndexTest.EDGE_LABELS));
+				edges.add(edge);
+				initial.add(edge);
+			}
+			graph.addAll(initial);
+			GMPImplementation platform = new GMPImplementation().setPrincipalGraph(graph);
+			platform.addPattern(pattern);
+			platform.incrementSequence();
+			for(int j = 0; j < BENCH_CHANGES; j++)
+			{
+				randomChange(rand, graph, nodes, edges);
+				long start = System.nanoTime();
+				matches += platform.incrementSequence().size();
+				incremental += System.nanoTime() - start;
+				start = System.nanoTime();
+				GraphMatcherPersistent.getMatcher(activePart(graph), pattern, new MonitorPack())
+						.getAllCompleteMatches();
+				rebuilt += System.nanoTime() - start;
+			}
+			if(round > 0)
+				log.li("[] changes ([] reported matches): incremental [] ms, rebuilt [] ms", new Integer(
+						BENCH_CHANGES), new Integer(matches), new Double(incremental / 1e6), new Double(
+						rebuilt / 1e6));
+		}
+	}
+
+	/**
+	 * Applies a random change to a graph: a node is removed or re-added, an edge is added (sometimes together with its
+	 * source, in the same transaction), or an edge is removed. Edges may be added between nodes which are not in the
+	 * graph.
+	 *
+	 * @param rand
+	 *            - the random generator.
+	 * @param graph
+	 *            - the graph.
+	 * @param nodes
+	 *            - the nodes that can be used by the changes.
+	 * @param edges
+	 *            - the edges in the graph; the list is updated.
+	 * @return the added edge, or <code>null</code> if no edge was added.
+	 */
+	protected static Edge randomChange(Random rand, PrincipalGraph graph, List<Node> nodes, List<Edge> edges)
+	{
+		int op = rand.nextInt(10);
+		if(op < 3)
+		{
+			Node node = nodes.get(rand.nextInt(nodes.size()));
+			if(graph.contains(node))
+				graph.remove(node);
+			else
+				graph.add(node);
+			return null;
+		}
+		if((op < 7) || edges.isEmpty())
+		{
+			Edge edge = new SimpleEdge(nodes.get(rand.nextInt(nodes.size())), nodes.get(rand.nextInt(nodes.size())),
+					EdgeIndexTest.randomLabel(rand, EdgeIndexTest.EDGE_LABELS));
+			List<GraphComponent> components = new ArrayList<GraphComponent>();
+			components.add(edge);
+			if((op == 6) && !graph.contains(edge.getFrom()))
+				components.add(edge.getFrom());
+			edges.add(edge);
+			graph.addAll(components);
+			return edge;
+		}
+		graph.remove(edges.remove(rand.nextInt(edges.size())));
+		return null;
+	}
+
+	/**
+	 * @param graph
+	 *            - a graph.
+	 * @return a graph containing the nodes of the given graph and its edges having both endpoints in the graph.
+	 */
+	protected static SimpleGraph activePart(SimpleGraph graph)
+	{
+		SimpleGraph active = (SimpleGraph) new SimpleGraph().setUnitName("GA").setLogLevel(Level.OFF);
+		for(Node node : graph.getNodes())
+			active.add(node);
+		for(Edge edge : graph.getEdges())
+			if(graph.contains(edge.getFrom()) && graph.contains(edge.getTo()))
+				active.add(edge);
+		return active;
+	}
+
+	/**
+	 * @param rand
+	 *            - the random generator.
+	 * @param n
+	 *            - the number of nodes.
+	 * @return new nodes, with random labels.
+	 */
+	protected static List<Node> randomNodes(Random rand, int n)
+	{
+		List<Node> nodes = new ArrayList<Node>();
+		for(int j = 0; j < n; j++)
+			nodes.add(new SimpleNode(EdgeIndexTest.randomLabel(rand, EdgeIndexTest.NODE_LABELS)));
+		return nodes;
+	}
+
+	/**
+	 * Creates a random star-shaped pattern: all edges are adjacent to the same node.
+	 *
+	 * @param rand
+	 *            - the random generator.
+	 * @param m
+	 *            - the number of edges.
+	 * @return the pattern.
+	 */
+	protected static GraphPattern starPattern(Random rand, int m)
+	{
+		GraphPattern pattern = (GraphPattern) new GraphPattern().setUnitName("GP").setLogLevel(Level.OFF);
+		NodeP center = new NodeP(EdgeIndexTest.randomLabel(rand, EdgeIndexTest.NODE_LABELS));
+		pattern.add(center);
+		for(int j = 0; j < m; j++)
+		{
+			NodeP node = (rand.nextInt(3) == 0) ? new NodeP() : new NodeP(EdgeIndexTest.randomLabel(rand,
+					EdgeIndexTest.NODE_LABELS));
+			pattern.add(node);
+			String label = EdgeIndexTest.randomLabel(rand, EdgeIndexTest.EDGE_LABELS);
+			pattern.add(rand.nextBoolean() ? new EdgeP(center, node, label) : new EdgeP(node, center, label));
+		}
+		return pattern;
+	}
+}
@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.Node;
+import net.xqhs.graphs.graph.SimpleEdge;
+import net.xqhs.graphs.graph.SimpleGraph;
+import net.xqhs.graphs.graph.SimpleNode;
+import net.xqhs.graphs.matcher.GraphMatcherQuick;
+import net.xqhs.graphs.matcher.Match;
+import net.xqhs.graphs.matcher.MonitorPack;
+import net.xqhs.graphs.matchingPlatform.GraphMatcherPersistent;
+import net.xqhs.graphs.pattern.EdgeP;
+import net.xqhs.graphs.pattern.GraphPattern;
+import net.xqhs.graphs.pattern.NodeP;
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * Tester for parallel matching (see {@link GraphMatcherQuick#setExecutor(ExecutorService, int)}). It checks that
+ * matching random patterns against random graphs in parallel produces the same matches as sequential matching, both
+ * for {@link GraphMatcherQuick} and for {@link GraphMatcherPersistent} (also after removing edges from the graph), and
+ * then it compares the time needed to find all complete matches sequentially and in parallel, for a larger graph.
+ *
+ * @author Andrei Olaru
+ */
+public class ParallelMatchingTest extends Tester
+{
+	/**
+	 * Seed for the random graphs and patterns.
+	 */
+	protected static final long		SEED			= 42;
+	/**
+	 * Number of random graphs and patterns in the behavioral test.
+	 */
+	protected static final int		N_MATCHINGS		= 100;
+	/**
+	 * Number of threads used for parallel matching.
+	 */
+	protected static final int		N_THREADS		= 4;
+	/**
+	 * Labels for the nodes.
+	 */
+	protected static final String[]	NODE_LABELS		= { "a", "b", "c" };
+	/**
+	 * Labels for the edges.
+	 */
+	protected static final String[]	EDGE_LABELS		= { "x", "y", null };
+	/**
+	 * Number of nodes in the graph used for measuring time.
+	 */
+	protected static final int		BENCH_NODES		= 300;
+	/**
+	 * Number of times matching is repeated when measuring time.
+	 */
+	protected static final int		BENCH_REPEATS	= 5;
+
+	/**
+	 * @param args
+	 *            - unused.
+	 */
+	public static void main(String[] args)
+	{
+		new ParallelMatchingTest();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		ExecutorService executor = Executors.newFixedThreadPool(N_THREADS);
+		try
+		{
+			testMatching(executor);
+			logChecks();
+
+			benchmark();
+		} finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Matches random patterns against random graphs, sequentially and in parallel, and compares the matches found for
+	 * each value of k. For {@link GraphMatcherPersistent}, an edge is afterwards removed from the graph and the
+	 * remaining complete matches are compared.
+	 *
+	 * @param executor
+	 *            - the executor to use for parallel matching.
+	 */
+	protected void testMatching(ExecutorService executor)
+	{
+		Random rand = new Random(SEED);
+		int matches = 0;
+		for(int i = 0; i < N_MATCHINGS; i++)
+		{
+			List<Edge> edges = new ArrayList<Edge>();
+			SimpleGraph graph = randomGraph(rand, 10 + rand.nextInt(30), edges);
+			GraphPattern pattern = randomPattern(rand, 2 + rand.nextInt(3));
+
+			Map<Edge, Integer> ids = new IdentityHashMap<Edge, Integer>();
+			for(Edge edge : edges)
+				ids.put(edge, new Integer(ids.size()));
+			for(Edge edge : pattern.getEdges())
+				ids.put(edge, new Integer(ids.size()));
+			for(int k = 0; k <= pattern.m(); k++)
+			{
+				List<Match> expected = GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack())
+						.getAllMatches(k);
+				List<Match> actual = GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack())
+						.setExecutor(executor, N_THREADS).getAllMatches(k);
+				matches += actual.size();
+				check(expected, actual, ids, "quick", i, k);
+			}
+
+			GraphMatcherPersistent sequential = GraphMatcherPersistent.getMatcher(graph, pattern, new MonitorPack());
+			GraphMatcherPersistent parallel = (GraphMatcherPersistent) GraphMatcherPersistent.getMatcher(graph,
+					pattern, new MonitorPack()).setExecutor(executor, N_THREADS);
+			check(sequential.getAllCompleteMatches(), parallel.getAllCompleteMatches(), ids, "persistent", i, 0);
+			Edge removed = edges.get(rand.nextInt(edges.size()));
+			graph.remove(removed);
+			sequential.removeMatches(removed);
+			parallel.removeMatches(removed);
+			check(sequential.getAllCompleteMatches(), parallel.getAllCompleteMatches(), ids, "persistent after removal",
+					i, 0);
+		}
+		log.li("matching checked; [] matches compared", new Integer(matches));
+	}
+
+	/**
+	 * Finds all complete matches of a pattern in a larger graph, sequentially and in parallel, and logs the average
+	 * times.
+	 */
+	protected void benchmark()
+	{
+		Random rand = new Random(SEED);
+		SimpleGraph graph = randomGraph(rand, BENCH_NODES, new ArrayList<Edge>());
+		GraphPattern pattern = randomPattern(rand, 3);
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try
+		{
+			long sequentialTime = 0, parallelTime = 0;
+			int matches = 0;
+			for(int i = 0; i < BENCH_REPEATS; i++)
+			{
+				long start = System.nanoTime();
+				matches = GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack()).getAllCompleteMatches()
+						.size();
+				sequentialTime += System.nanoTime() - start;
+				start = System.nanoTime();
+				GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack()).setExecutor(executor, threads)
+						.getAllCompleteMatches();
+				parallelTime += System.nanoTime() - start;
+			}
+			log.li("[] nodes, [] edges, [] pattern edges, [] complete matches; average matching time: sequential [] ms,"
+					+ " parallel ([] threads) [] ms", new Integer(graph.n()), new Integer(graph.m()),
+					new Integer(pattern.m()), new Integer(matches), new Double(sequentialTime / 1e6 / BENCH_REPEATS),
+					new Integer(threads), new Double(parallelTime / 1e6 / BENCH_REPEATS));
+		} finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Creates a random graph, with about three times more edges than nodes.
+	 *
+	 * @param rand
+	 *            - the random generator.
+	 * @param n
+	 *            - the number of nodes.
+	 * @param edges
+	 *            - a list to which the created edges are added, in the order of their creation.
+	 * @return the graph.
+	 */
+	protected static SimpleGraph randomGraph(Random rand, int n, List<Edge> edges)
+	{
+		SimpleGraph graph = (SimpleGraph) new SimpleGraph().setUnitName("G").setLogLevel(Level.OFF);
+		List<Node> nodes = new ArrayList<Node>();
+		for(int j = 0; j < n; j++)
+		{
+			Node node = new SimpleNode(EdgeIndexTest.randomLabel(rand, NODE_LABELS));
+			nodes.add(node);
+			graph.add(node);
+		}
+		for(int j = 3 * n; j > 0; j--)
+		{
+			Edge edge = new SimpleEdge(nodes.get(rand.nextInt(n)), nodes.get(rand.nextInt(n)),
+					EdgeIndexTest.randomLabel(rand, EDGE_LABELS));
+			edges.add(edge);
+			graph.add(edge);
+		}
+		return graph;
+	}
+
+	/**
+	 * Creates a random connected pattern, shaped as a tree, with some generic nodes.
+	 *
+	 * @param rand
+	 *            - the random generator.
+	 * @param m
+	 *            - the number of edges.
+	 * @return the pattern.
+	 */
+	protected static GraphPattern randomPattern(Random rand, int m)
+	{
+		GraphPattern pattern = (GraphPattern) new GraphPattern().setUnitName("GP").setLogLevel(Level.OFF);
+		List<NodeP> patternNodes = new ArrayList<NodeP>();
+		for(int j = 0; j <= m; j++)
+		{
+			NodeP node = (rand.nextInt(3) == 0) ? new NodeP() : new NodeP(EdgeIndexTest.randomLabel(rand,
+					NODE_LABELS));
+			patternNodes.add(node);
+			pattern.add(node);
+			if(j > 0)
+				pattern.add(new EdgeP(patternNodes.get(rand.nextInt(j)), node, EdgeIndexTest.randomLabel(rand,
+						EDGE_LABELS)));
+		}
+		return pattern;
+	}
+
+	/**
+	 * Compares two lists of matches and logs any difference. Since parallel matching performs the same merges as
+	 * sequential matching, the numbers of matches must also be the same.
+	 *
+	 * @param expected
+	 *            - the matches found sequentially.
+	 * @param actual
+	 *            - the matches found in parallel.
+	 * @param ids
+	 *            - identifiers for all graph and pattern edges.
+	 * @param matcher
+	 *            - the name of the matcher.
+	 * @param graph
+	 *            - the index of the graph.
+	 * @param k
+	 *            - the threshold for k.
+	 */
+	protected void check(List<Match> expected, List<Match> actual, Map<Edge, Integer> ids, String matcher,
+			int graph, int k)
+	{
+		Set<String> expectedSet = EdgeIndexTest.canonical(expected, ids);
+		Set<String> actualSet = EdgeIndexTest.canonical(actual, ids);
+		check(expectedSet.equals(actualSet) && (expected.size() == actual.size()),
+				"[] matching check failed for graph [] k=[]: expected [] [] actual [] []", matcher, new Integer(graph),
+				new Integer(k), new Integer(expected.size()), expectedSet, new Integer(actual.size()), actualSet);
+	}
+}
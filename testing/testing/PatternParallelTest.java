@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.GraphComponent;
+import net.xqhs.graphs.graph.Node;
+import net.xqhs.graphs.graph.SimpleEdge;
+import net.xqhs.graphs.graph.SimpleGraph;
+import net.xqhs.graphs.graph.SimpleNode;
+import net.xqhs.graphs.matcher.MonitorPack;
+import net.xqhs.graphs.matcher.MonitorPack.Counting;
+import net.xqhs.graphs.matchingPlatform.GMPImplementation;
+import net.xqhs.graphs.matchingPlatform.GMPImplementation.PrincipalGraph;
+import net.xqhs.graphs.matchingPlatform.MatchDelta;
+import net.xqhs.graphs.pattern.GraphPattern;
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * Tester for updating the matching processes of the patterns of a platform in parallel (see
+ * {@link GMPImplementation#setExecutor(ExecutorService, int)}). The same random changes are followed by two platforms
+ * with the same patterns, one updating the patterns sequentially and the other in parallel, and the matches reported by
+ * {@link GMPImplementation#incrementSequence()}, {@link GMPImplementation#incrementSequenceDelta(int)} and
+ * {@link GMPImplementation#incrementSequenceBatch(int)} are compared. Then, it compares the time needed to follow the
+ * changes for many patterns, sequentially and in parallel.
+ *
+ * @author Andrei Olaru
+ */
+public class PatternParallelTest extends Tester
+{
+	/**
+	 * Seed for the random graphs and patterns.
+	 */
+	protected static final long	SEED			= 42;
+	/**
+	 * Number of random sequences of changes in the behavioral test.
+	 */
+	protected static final int	N_MATCHINGS		= 30;
+	/**
+	 * Number of patterns in each sequence of changes.
+	 */
+	protected static final int	N_PATTERNS		= 10;
+	/**
+	 * Number of changes in each sequence.
+	 */
+	protected static final int	N_CHANGES		= 200;
+	/**
+	 * Number of nodes used by the changes in the behavioral test.
+	 */
+	protected static final int	N_NODES			= 15;
+	/**
+	 * Number of threads used for parallel updates in the behavioral test.
+	 */
+	protected static final int	N_THREADS		= 4;
+	/**
+	 * Number of nodes used by the changes when measuring time.
+	 */
+	protected static final int	BENCH_NODES		= 200;
+	/**
+	 * Number of patterns when measuring time.
+	 */
+	protected static final int	BENCH_PATTERNS	= 200;
+	/**
+	 * Number of changes when measuring time.
+	 */
+	protected static final int	BENCH_CHANGES	= 500;
+
+	/**
+	 * @param args
+	 *            - unused.
+	 */
+	public static void main(String[] args)
+	{
+		new PatternParallelTest();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		ExecutorService executor = Executors.newFixedThreadPool(N_THREADS);
+		try
+		{
+			testFrozenIndexes();
+			testPlatforms(executor);
+			logChecks();
+		} finally
+		{
+			executor.shutdown();
+		}
+
+		benchmark();
+	}
+
+	/**
+	 * Checks that relabeling while the indexes of a graph are frozen (as they are while patterns are updated in
+	 * parallel) does not rebuild the indexes, and that the relabeling is taken into account after unfreezing.
+	 */
+	protected void testFrozenIndexes()
+	{
+		Node a = new SimpleNode("a");
+		Node b = new SimpleNode("b");
+		Edge edge = new SimpleEdge(a, b, "x");
+		SimpleGraph graph = new SimpleGraph().add(a).add(b).add(edge);
+		graph.setIndexesFrozen(true);
+		edge.setLabel("y");
+		new SimpleNode("other").setLabel("relabeled");
+		check(graph.getEdgesLabeled(null, "x", null).contains(edge), "edge index rebuilt while frozen");
+		check(graph.getEdgesLabeled(null, "y", null).isEmpty(), "edge index rebuilt while frozen");
+		graph.setIndexesFrozen(false);
+		check(graph.getEdgesLabeled(null, "y", null).contains(edge), "relabeling ignored after unfreezing");
+		check(graph.getEdgesLabeled(null, "x", null).isEmpty(), "relabeling ignored after unfreezing");
+	}
+
+	/**
+	 * Applies random changes to a principal graph followed by two platforms with the same random patterns, one of
+	 * which updates the patterns in parallel. After each change (or batch of changes), the matching sequence of both
+	 * platforms is incremented by the same randomly chosen method, and the results are compared.
+	 *
+	 * @param executor
+	 *            - the executor to use for parallel updates.
+	 */
+	protected void testPlatforms(ExecutorService executor)
+	{
+		Random rand = new Random(SEED);
+		int steps = 0;
+		for(int i = 0; i < N_MATCHINGS; i++)
+		{
+			List<Node> nodes = NodeChangesTest.randomNodes(rand, N_NODES);
+			List<Edge> edges = new ArrayList<Edge>();
+			Map<Edge, Integer> ids = new IdentityHashMap<Edge, Integer>();
+			PrincipalGraph graph = (PrincipalGraph) new PrincipalGraph().setUnitName("G").setLogLevel(Level.OFF);
+			GMPImplementation sequential = new GMPImplementation().setPrincipalGraph(graph);
+			GMPImplementation parallel = new GMPImplementation().setMonitor(new MonitorPack(Counting.STRIPED))
+					.setExecutor(executor, N_THREADS).setPrincipalGraph(graph);
+			for(int p = 0; p < N_PATTERNS; p++)
+			{
+				GraphPattern pattern = rand.nextBoolean() ? NodeChangesTest.starPattern(rand, 2 + rand.nextInt(2))
+						: ParallelMatchingTest.randomPattern(rand, 2 + rand.nextInt(2));
+				for(Edge edge : pattern.getEdges())
+					ids.put(edge, new Integer(ids.size()));
+				sequential.addPattern(pattern);
+				parallel.addPattern(pattern);
+			}
+			for(int j = 0; j < N_CHANGES; j++)
+			{
+				Edge added = NodeChangesTest.randomChange(rand, graph, nodes, edges);
+				if(added != null)
+					ids.put(added, new Integer(ids.size()));
+				steps++;
+				switch(rand.nextInt(3))
+				{
+				case 0:
+					check(EdgeIndexTest.canonical(sequential.incrementSequence(), ids).equals(
+							EdgeIndexTest.canonical(parallel.incrementSequence(), ids)),
+							"complete matches differ in sequence " + i + " after change " + j);
+					break;
+				case 1:
+				{
+					int maxK = rand.nextInt(3);
+					Map<GraphPattern, MatchDelta> expected = sequential.incrementSequenceDelta(maxK);
+					Map<GraphPattern, MatchDelta> actual = parallel.incrementSequenceDelta(maxK);
+					check(expected.keySet().equals(actual.keySet()), "changed patterns differ in sequence " + i
+							+ " after change " + j);
+					for(Map.Entry<GraphPattern, MatchDelta> delta : expected.entrySet())
+						if(actual.containsKey(delta.getKey()))
+							check(same(delta.getValue(), actual.get(delta.getKey()), ids),
+									"match changes differ in sequence " + i + " after change " + j);
+					break;
+				}
+				default:
+					// some changes are applied in the next batch
+					if(rand.nextBoolean())
+						check(same(sequential.incrementSequenceBatch(0), parallel.incrementSequenceBatch(0), ids),
+								"batch changes differ in sequence " + i + " after change " + j);
+				}
+			}
+		}
+		log.li("[] steps checked", new Integer(steps));
+	}
+
+	/**
+	 * @param expected
+	 *            - a delta.
+	 * @param actual
+	 *            - another delta.
+	 * @param ids
+	 *            - identifiers for the edges (see {@link EdgeIndexTest#canonical}).
+	 * @return <code>true</code> if the deltas contain equivalent matches.
+	 */
+	protected static boolean same(MatchDelta expected, MatchDelta actual, Map<Edge, Integer> ids)
+	{
+		if((expected == null) || (actual == null))
+			return expected == actual;
+		return EdgeIndexTest.canonical(expected.getAppeared(), ids).equals(
+				EdgeIndexTest.canonical(actual.getAppeared(), ids))
+				&& EdgeIndexTest.canonical(expected.getDisappeared(), ids).equals(
+						EdgeIndexTest.canonical(actual.getDisappeared(), ids));
+	}
+
+	/**
+	 * Applies the same random changes to two platforms with many patterns, one updating the patterns sequentially and
+	 * the other in parallel, and logs the times.
+	 */
+	protected void benchmark()
+	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try
+		{
+			for(int round = 0; round < 2; round++) // the first round is a warm-up
+			{
+				Random rand = new Random(SEED);
+				List<Node> nodes = NodeChangesTest.randomNodes(rand, BENCH_NODES);
+				List<Edge> edges = new ArrayList<Edge>();
+				PrincipalGraph graph = (PrincipalGraph) new PrincipalGraph().setUnitName("G").setLogLevel(Level.OFF);
+				List<GraphComponent> initial = new ArrayList<GraphComponent>(nodes);
+				for(int j = 3 * BENCH_NODES; j > 0; j--)
+				{
+					Edge edge = new SimpleEdge(nodes.get(rand.nextInt(nodes.size())), nodes.get(rand.nextInt(nodes
+							.size())), EdgeIndexTest.randomLabel(rand, EdgeIndexTest.EDGE_LABELS));
+					edges.add(edge);
+					initial.add(edge);
+				}
+				graph.addAll(initial);
+				GMPImplementation sequential = new GMPImplementation().setPrincipalGraph(graph);
+				GMPImplementation parallel = new GMPImplementation().setMonitor(new MonitorPack(Counting.STRIPED))
+						.setExecutor(executor, threads).setPrincipalGraph(graph);
+				for(int p = 0; p < BENCH_PATTERNS; p++)
+				{
+					GraphPattern pattern = NodeChangesTest.starPattern(rand, 2);
+					sequential.addPattern(pattern);
+					parallel.addPattern(pattern);
+				}
+				long sequentialTime = 0;
+				long parallelTime = 0;
+				for(int j = 0; j < BENCH_CHANGES; j++)
+				{
+					NodeChangesTest.randomChange(rand, graph, nodes, edges);
+					long start = System.nanoTime();
+					sequential.incrementSequenceDelta(0);
+					sequentialTime += System.nanoTime() - start;
+					start = System.nanoTime();
+					parallel.incrementSequenceDelta(0);
+					parallelTime += System.nanoTime() - start;
+				}
+				if(round > 0)
+					log.li("[] changes, [] patterns: sequential [] ms; parallel ([] threads) [] ms", new Integer(
+							BENCH_CHANGES), new Integer(BENCH_PATTERNS), new Double(sequentialTime / 1e6),
+							new Integer(threads), new Double(parallelTime / 1e6));
+			}
+		} finally
+		{
+			executor.shutdown();
+		}
+	}
+}
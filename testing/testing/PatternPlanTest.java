@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.SimpleEdge;
+import net.xqhs.graphs.graph.SimpleGraph;
+import net.xqhs.graphs.graph.SimpleNode;
+import net.xqhs.graphs.matcher.GraphMatcherQuick;
+import net.xqhs.graphs.matcher.MonitorPack;
+import net.xqhs.graphs.matcher.PatternPlan;
+import net.xqhs.graphs.pattern.EdgeP;
+import net.xqhs.graphs.pattern.GraphPattern;
+import net.xqhs.graphs.pattern.NodeP;
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * Tester for {@link PatternPlan}. It checks that the plan of a pattern is shared as long as the pattern does not
+ * change, that it is computed again after the pattern or labels change (unless the pattern is locked), and that it is
+ * consistent with the pattern.
+ * Then, it compares the time needed to initialize matchers with the time needed to compute plans.
+ *
+ * @author Andrei Olaru
+ */
+public class PatternPlanTest extends Tester
+{
+	/**
+	 * Seed for the random graphs and patterns.
+	 */
+	protected static final long	SEED			= 42;
+	/**
+	 * Number of random patterns in the behavioral test.
+	 */
+	protected static final int	N_PATTERNS		= 100;
+	/**
+	 * Number of edges of the pattern used for measuring time.
+	 */
+	protected static final int	BENCH_EDGES		= 10;
+	/**
+	 * Number of initializations when measuring time.
+	 */
+	protected static final int	BENCH_REPEATS	= 100000;
+
+	/**
+	 * @param args
+	 *            - unused.
+	 */
+	public static void main(String[] args)
+	{
+		new PatternPlanTest();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		testPlans();
+		logChecks();
+
+		benchmark();
+	}
+
+	/**
+	 * Checks a condition and logs a failure if it does not hold.
+	 *
+	 * @param condition
+	 *            - the condition.
+	 * @param description
+	 *            - the description of the check.
+	 * @param i
+	 *            - the number of the pattern.
+	 */
+	protected void check(boolean condition, String description, int i)
+	{
+		check(condition, "check failed for pattern []: []", new Integer(i), description);
+	}
+
+	/**
+	 * For random patterns, checks the contents of plans and when they are shared.
+	 */
+	protected void testPlans()
+	{
+		Random rand = new Random(SEED);
+		int checks = 0;
+		for(int i = 0; i < N_PATTERNS; i++)
+		{
+			GraphPattern pattern = ParallelMatchingTest.randomPattern(rand, 1 + rand.nextInt(6));
+			PatternPlan plan = PatternPlan.getPlan(pattern);
+			checks++;
+			check(plan == PatternPlan.getPlan(pattern), "plan not shared", i);
+			Set<Edge> initial = new HashSet<Edge>();
+			for(Edge eP : pattern.getEdges())
+				if(!((EdgeP) eP).isGeneric())
+					initial.add(eP);
+			check(plan.getInitialEdges().size() == initial.size()
+					&& new HashSet<Edge>(plan.getInitialEdges()).equals(initial), "initial edges differ", i);
+			check(plan.getDistances().size() == pattern.n() && plan.getDistances().get(plan.getStartVertex()) != null
+					&& plan.getDistances().get(plan.getStartVertex()).intValue() == 0, "wrong distances", i);
+
+			// matchers use the shared plan
+			SimpleGraph graph = ParallelMatchingTest.randomGraph(rand, 10, new ArrayList<Edge>());
+			GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack()).getAllMatches(pattern.m());
+			checks++;
+			check(plan == PatternPlan.getPlan(pattern), "plan not shared with matchers", i);
+
+			// changes of the pattern
+			NodeP node = new NodeP("a");
+			EdgeP edge = new EdgeP(node, (NodeP) pattern.getNodes().iterator().next(), "x");
+			pattern.add(node).add(edge);
+			checks++;
+			PatternPlan changed = PatternPlan.getPlan(pattern);
+			check(!plan.isCurrent() && (changed != plan) && changed.getInitialEdges().contains(edge),
+					"plan not recomputed after addition", i);
+			pattern.remove(edge);
+			checks++;
+			check(!PatternPlan.getPlan(pattern).getInitialEdges().contains(edge), "plan not recomputed after removal",
+					i);
+			plan = PatternPlan.getPlan(pattern);
+			((SimpleEdge) pattern.getEdges().iterator().next()).setLabel("relabeled" + i);
+			checks++;
+			check(!plan.isCurrent() && (PatternPlan.getPlan(pattern) != plan), "plan not recomputed after relabeling",
+					i);
+
+			// locked patterns keep their plan (the plan computed before locking is outdated by relabeling)
+			pattern.lock();
+			new SimpleNode("other").setLabel("relabeled" + i);
+			plan = PatternPlan.getPlan(pattern);
+			new SimpleNode("other").setLabel("relabeled" + i);
+			checks++;
+			check(plan.isCurrent() && (PatternPlan.getPlan(pattern) == plan), "plan of locked pattern recomputed", i);
+		}
+		log.li("[] plan checks", new Integer(checks));
+	}
+
+	/**
+	 * Initializes many matchers of the same pattern (which share the plan) and computes as many plans, and logs the
+	 * times.
+	 */
+	protected void benchmark()
+	{
+		Random rand = new Random(SEED);
+		GraphPattern pattern = ParallelMatchingTest.randomPattern(rand, BENCH_EDGES);
+		SimpleGraph graph = (SimpleGraph) new SimpleGraph().setUnitName("G").setLogLevel(Level.OFF);
+		MonitorPack monitor = new MonitorPack();
+
+		// the first round is a warm-up
+		for(int round = 0; round < 2; round++)
+		{
+			long start = System.nanoTime();
+			for(int i = 0; i < BENCH_REPEATS; i++)
+				GraphMatcherQuick.getMatcher(graph, pattern, monitor).initializeMatching();
+			long sharedTime = System.nanoTime() - start;
+			start = System.nanoTime();
+			for(int i = 0; i < BENCH_REPEATS; i++)
+			{
+				// a relabeling forces the computation of a new plan
+				pattern.getNodes().iterator().next().setLabel((i % 2 == 0) ? "b" : "c");
+				PatternPlan.getPlan(pattern);
+			}
+			long planTime = System.nanoTime() - start;
+			if(round > 0)
+				log.li("[] pattern edges: [] ns per matcher initialization; [] ns per plan computation",
+						new Integer(pattern.m()), new Long(sharedTime / BENCH_REPEATS), new Long(planTime / BENCH_REPEATS));
+		}
+	}
+}
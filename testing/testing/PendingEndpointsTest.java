@@ -0,0 +1,284 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.GraphComponent;
+import net.xqhs.graphs.graph.Node;
+import net.xqhs.graphs.graph.SimpleEdge;
+import net.xqhs.graphs.graph.SimpleGraph;
+import net.xqhs.graphs.graph.SimpleNode;
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * Tester for edges whose endpoints are not in a {@link SimpleGraph} (edges added before their nodes, or whose nodes
+ * have been removed). It checks that such edges are connected to their nodes when the nodes are added, that removing
+ * and re-adding a node keeps its edges, that edges removed while waiting for their nodes are not connected anymore,
+ * and that no entries are left for nodes that no edge waits for. Then, it compares the time needed to load a graph
+ * with the nodes added before the edges and after the edges.
+ *
+ * @author Andrei Olaru
+ */
+public class PendingEndpointsTest extends Tester
+{
+	/**
+	 * A {@link SimpleGraph} which exposes the number of nodes that edges are waiting for.
+	 */
+	protected static class InspectedGraph extends SimpleGraph
+	{
+		/**
+		 * @return the number of nodes, not in the graph, that edges in the graph are waiting for.
+		 */
+		public int pendingCount()
+		{
+			return pendingEndpoints.size();
+		}
+	}
+
+	/**
+	 * Seed for the random operations.
+	 */
+	protected static final long	SEED			= 42;
+	/**
+	 * Number of random operations in the behavioral test.
+	 */
+	protected static final int	N_OPERATIONS	= 20000;
+	/**
+	 * Number of nodes used by the random operations.
+	 */
+	protected static final int	N_NODES			= 30;
+	/**
+	 * Number of nodes of the graph used for measuring time.
+	 */
+	protected static final int	BENCH_NODES		= 50000;
+	/**
+	 * Number of edges of the graph used for measuring time.
+	 */
+	protected static final int	BENCH_EDGES		= 200000;
+
+	/**
+	 * @param args
+	 *            - unused.
+	 */
+	public static void main(String[] args)
+	{
+		new PendingEndpointsTest();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		testEdgesFirst();
+		testRandomOperations();
+		logChecks();
+
+		benchmark();
+	}
+
+	/**
+	 * Adds edges before their endpoints, then removes and re-adds a node, and removes edges while they wait for their
+	 * endpoints, checking the adjacency of nodes after each step.
+	 */
+	protected void testEdgesFirst()
+	{
+		Node a = new SimpleNode("a");
+		Node b = new SimpleNode("b");
+		Node c = new SimpleNode("c");
+		Edge ab = new SimpleEdge(a, b, "ab");
+		Edge bc = new SimpleEdge(b, c, "bc");
+		Edge ca = new SimpleEdge(c, a, "ca");
+		Edge aa = new SimpleEdge(a, a, "aa");
+		InspectedGraph graph = new InspectedGraph();
+		graph.setUnitName("G").setLogLevel(Level.OFF);
+
+		// edges before their endpoints
+		graph.add(ab).add(bc).add(ca).add(aa);
+		check((graph.m() == 4) && (graph.n() == 0) && (graph.pendingCount() == 3), "edges without endpoints");
+		graph.add(b);
+		check(same(graph.getOutEdges(b), bc) && same(graph.getInEdges(b), ab) && (graph.pendingCount() == 2),
+				"edges not connected to the first added node");
+		graph.add(a).add(c);
+		check(same(graph.getOutEdges(a), ab, aa) && same(graph.getInEdges(a), ca, aa) && same(graph.getOutEdges(c), ca)
+				&& same(graph.getInEdges(c), bc) && (graph.pendingCount() == 0), "edges not connected to added nodes");
+
+		// node removed and added back
+		graph.remove(b);
+		check(!graph.contains(b) && graph.contains(ab) && graph.contains(bc) && (graph.pendingCount() == 1),
+				"edges of removed node not kept");
+		check(same(graph.getOutEdges(a), ab, aa) && same(graph.getInEdges(c), bc),
+				"edges of removed node disconnected from other nodes");
+		graph.add(b);
+		check(same(graph.getOutEdges(b), bc) && same(graph.getInEdges(b), ab) && (graph.pendingCount() == 0),
+				"edges not connected to re-added node");
+
+		// edges removed while waiting for their endpoints
+		graph.remove(c);
+		graph.remove(bc);
+		check(!graph.contains(bc) && same(graph.getOutEdges(b)) && (graph.pendingCount() == 1),
+				"edge removed while pending");
+		graph.remove(ca);
+		check(!graph.contains(ca) && same(graph.getInEdges(a), aa) && (graph.pendingCount() == 0),
+				"entry kept for node no edge waits for");
+		graph.add(c);
+		check(same(graph.getOutEdges(c)) && same(graph.getInEdges(c)), "removed edges connected to re-added node");
+
+		// self-loop waiting for its node
+		graph.remove(a);
+		graph.remove(aa);
+		check((graph.pendingCount() == 1) && graph.contains(ab), "self-loop removed while pending");
+		graph.add(a);
+		check(same(graph.getOutEdges(a), ab) && same(graph.getInEdges(a)) && (graph.pendingCount() == 0),
+				"removed self-loop connected to re-added node");
+	}
+
+	/**
+	 * Applies random additions and removals of nodes and edges (edges may be added before their endpoints) and, after
+	 * each operation, checks the adjacency of all nodes in the graph against the edges in the graph, and that entries
+	 * are kept only for nodes that some edge waits for.
+	 */
+	protected void testRandomOperations()
+	{
+		Random rand = new Random(SEED);
+		List<Node> nodes = new ArrayList<Node>();
+		for(int i = 0; i < N_NODES; i++)
+			nodes.add(new SimpleNode("n" + i));
+		List<Edge> edges = new ArrayList<Edge>();
+		InspectedGraph graph = new InspectedGraph();
+		graph.setUnitName("G").setLogLevel(Level.OFF);
+		for(int i = 0; i < N_OPERATIONS; i++)
+		{
+			Node node = nodes.get(rand.nextInt(nodes.size()));
+			switch(rand.nextInt(4))
+			{
+			case 0:
+				if(!graph.contains(node))
+					graph.add(node);
+				break;
+			case 1:
+				if(graph.contains(node))
+					graph.remove(node);
+				break;
+			case 2:
+			{
+				Edge edge = new SimpleEdge(node, nodes.get(rand.nextInt(nodes.size())), null);
+				edges.add(edge);
+				graph.add(edge);
+				break;
+			}
+			default:
+				if(!edges.isEmpty())
+					graph.remove(edges.remove(rand.nextInt(edges.size())));
+			}
+			check(consistent(graph, nodes, edges), "adjacency differs after operation " + i);
+		}
+		log.li("[] operations checked", new Integer(N_OPERATIONS));
+	}
+
+	/**
+	 * @param graph
+	 *            - the graph.
+	 * @param nodes
+	 *            - all nodes that may be in the graph.
+	 * @param edges
+	 *            - the edges in the graph.
+	 * @return <code>true</code> if the graph contains exactly the given edges, the adjacent edges of each node in the
+	 *         graph are the edges having it as endpoint, and the nodes that edges wait for are the endpoints not in
+	 *         the graph.
+	 */
+	protected static boolean consistent(InspectedGraph graph, List<Node> nodes, List<Edge> edges)
+	{
+		if(graph.m() != edges.size())
+			return false;
+		Set<Node> pending = new HashSet<Node>();
+		for(Edge edge : edges)
+		{
+			if(!graph.contains(edge))
+				return false;
+			if(!graph.contains(edge.getFrom()))
+				pending.add(edge.getFrom());
+			if(!graph.contains(edge.getTo()))
+				pending.add(edge.getTo());
+		}
+		if(graph.pendingCount() != pending.size())
+			return false;
+		for(Node node : nodes)
+			if(graph.contains(node))
+			{
+				Set<Edge> out = new HashSet<Edge>();
+				Set<Edge> in = new HashSet<Edge>();
+				for(Edge edge : edges)
+				{
+					if(edge.getFrom() == node)
+						out.add(edge);
+					if(edge.getTo() == node)
+						in.add(edge);
+				}
+				if(!out.equals(new HashSet<Edge>(graph.getOutEdges(node)))
+						|| !in.equals(new HashSet<Edge>(graph.getInEdges(node))))
+					return false;
+			}
+		return true;
+	}
+
+	/**
+	 * Loads the same random graph with the nodes added before the edges and with the nodes added after the edges (when
+	 * all edges wait for their endpoints), and logs the times.
+	 */
+	protected void benchmark()
+	{
+		Random rand = new Random(SEED);
+		List<GraphComponent> nodes = new ArrayList<GraphComponent>();
+		for(int i = 0; i < BENCH_NODES; i++)
+			nodes.add(new SimpleNode("n" + i));
+		List<GraphComponent> edges = new ArrayList<GraphComponent>();
+		for(int i = 0; i < BENCH_EDGES; i++)
+			edges.add(new SimpleEdge((Node) nodes.get(rand.nextInt(BENCH_NODES)), (Node) nodes.get(rand
+					.nextInt(BENCH_NODES)), null));
+		for(int round = 0; round < 2; round++) // the first round is a warm-up
+		{
+			long start = System.nanoTime();
+			SimpleGraph nodesFirst = new SimpleGraph().addAll(nodes).addAll(edges);
+			long nodesFirstTime = System.nanoTime() - start;
+			start = System.nanoTime();
+			SimpleGraph edgesFirst = new SimpleGraph().addAll(edges).addAll(nodes);
+			long edgesFirstTime = System.nanoTime() - start;
+			if(round > 0)
+				log.li("[] nodes, [] edges: nodes first [] ms; edges first [] ms (sizes [], [])", new Integer(
+						BENCH_NODES), new Integer(BENCH_EDGES), new Double(nodesFirstTime / 1e6), new Double(
+						edgesFirstTime / 1e6), new Integer(nodesFirst.m()), new Integer(edgesFirst.m()));
+		}
+	}
+
+	/**
+	 * @param actual
+	 *            - a collection of edges.
+	 * @param expected
+	 *            - the expected edges.
+	 * @return <code>true</code> if the collection contains exactly the expected edges.
+	 */
+	protected static boolean same(Collection<Edge> actual, Edge... expected)
+	{
+		Set<Edge> expectedSet = new HashSet<Edge>();
+		for(Edge edge : expected)
+			expectedSet.add(edge);
+		return (actual.size() == expected.length) && expectedSet.equals(new HashSet<Edge>(actual));
+	}
+}
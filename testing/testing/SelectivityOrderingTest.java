@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.Graph;
+import net.xqhs.graphs.graph.Node;
+import net.xqhs.graphs.graph.SimpleEdge;
+import net.xqhs.graphs.graph.SimpleGraph;
+import net.xqhs.graphs.graph.SimpleNode;
+import net.xqhs.graphs.matcher.GraphMatcherQuick;
+import net.xqhs.graphs.matcher.Match;
+import net.xqhs.graphs.matcher.MonitorPack;
+import net.xqhs.graphs.matchingPlatform.TrackingGraph;
+import net.xqhs.graphs.pattern.EdgeP;
+import net.xqhs.graphs.pattern.GraphPattern;
+import net.xqhs.graphs.pattern.NodeP;
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * Tester for the ordering of the matching process according to the selectivity of pattern edges (see
+ * {@link GraphMatcherQuick#setSelectivityOrdering(boolean)}). It checks that the estimated numbers of graph edges
+ * matching pattern edges are exact for a {@link TrackingGraph} that changes incrementally, and that the same matches
+ * are found with and without selectivity ordering, for random patterns and graphs with skewed label frequencies. Then,
+ * it compares the merge counts and times with and without selectivity ordering.
+ *
+ * @author Andrei Olaru
+ */
+public class SelectivityOrderingTest extends Tester
+{
+	/**
+	 * A matcher giving access to the estimates of the numbers of matching graph edges.
+	 */
+	protected static class InspectedMatcher extends GraphMatcherQuick
+	{
+		/**
+		 * Creates the matcher.
+		 *
+		 * @param graph
+		 *            - the graph.
+		 * @param pattern
+		 *            - the pattern.
+		 */
+		protected InspectedMatcher(Graph graph, GraphPattern pattern)
+		{
+			super(graph, pattern);
+			setMonitor(new MonitorPack());
+		}
+
+		/**
+		 * @param eP
+		 *            - the edge in the pattern.
+		 * @return the estimated number of graph edges matching the pattern edge.
+		 */
+		protected int estimate(Edge eP)
+		{
+			return estimateCandidateCount(eP);
+		}
+
+		/**
+		 * @param eP
+		 *            - the edge in the pattern.
+		 * @return the number of graph edges matching the pattern edge, counted by trying all graph edges.
+		 */
+		protected int count(Edge eP)
+		{
+			int count = 0;
+			for(Edge e : graph.getEdges())
+				if(isMatch(eP, e))
+					count++;
+			return count;
+		}
+	}
+
+	/**
+	 * Seed for the random graphs and patterns.
+	 */
+	protected static final long	SEED			= 42;
+	/**
+	 * Number of random graphs and patterns in the behavioral test.
+	 */
+	protected static final int	N_MATCHINGS		= 100;
+	/**
+	 * Number of changes applied to the tracking graph.
+	 */
+	protected static final int	N_CHANGES		= 2000;
+	/**
+	 * Number of nodes in the graph used for measuring time.
+	 */
+	protected static final int	BENCH_NODES		= 300;
+	/**
+	 * Number of edges of the pattern used for measuring time.
+	 */
+	protected static final int	BENCH_EDGES		= 4;
+
+	/**
+	 * @param args
+	 *            - unused.
+	 */
+	public static void main(String[] args)
+	{
+		new SelectivityOrderingTest();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		testEstimates();
+		testOrdering();
+		logChecks();
+
+		benchmark();
+	}
+
+	/**
+	 * Applies random changes to a {@link TrackingGraph} and, after each change, compares the estimated number of graph
+	 * edges matching each edge of a random pattern with the number obtained by trying all graph edges.
+	 */
+	protected void testEstimates()
+	{
+		Random rand = new Random(SEED);
+		TrackingGraph graph = (TrackingGraph) new TrackingGraph().setUnitName("G").setLogLevel(Level.OFF);
+		GraphPattern pattern = ParallelMatchingTest.randomPattern(rand, 6);
+		InspectedMatcher matcher = new InspectedMatcher(graph, pattern);
+		List<Node> nodes = new ArrayList<Node>();
+		List<Edge> edges = new ArrayList<Edge>();
+		int checks = 0;
+		for(int i = 0; i < N_CHANGES; i++)
+		{
+			int op = rand.nextInt(10);
+			if((op < 2) || nodes.isEmpty())
+			{
+				Node node = new SimpleNode(skewedLabel(rand, EdgeIndexTest.NODE_LABELS));
+				nodes.add(node);
+				graph.add(node);
+			}
+			else if(op < 7)
+			{
+				Edge edge = new SimpleEdge(nodes.get(rand.nextInt(nodes.size())), nodes.get(rand.nextInt(nodes
+						.size())), skewedLabel(rand, EdgeIndexTest.EDGE_LABELS));
+				edges.add(edge);
+				graph.add(edge);
+			}
+			else if((op < 9) && !edges.isEmpty())
+				graph.remove(edges.remove(rand.nextInt(edges.size())));
+			else
+				graph.remove(nodes.get(rand.nextInt(nodes.size())));
+
+			for(Edge eP : pattern.getEdges())
+			{
+				checks++;
+				check(matcher.estimate(eP) == matcher.count(eP),
+						"wrong estimate after change []: [] for [] instead of []", new Integer(i),
+						new Integer(matcher.estimate(eP)), eP, new Integer(matcher.count(eP)));
+			}
+		}
+		log.li("[] estimates checked", new Integer(checks));
+	}
+
+	/**
+	 * For random patterns and graphs with skewed label frequencies, compares the matches found with and without
+	 * selectivity ordering.
+	 */
+	protected void testOrdering()
+	{
+		Random rand = new Random(SEED);
+		int checks = 0;
+		for(int i = 0; i < N_MATCHINGS; i++)
+		{
+			List<Edge> edges = new ArrayList<Edge>();
+			SimpleGraph graph = skewedGraph(rand, 10 + rand.nextInt(30), edges);
+			GraphPattern pattern = ParallelMatchingTest.randomPattern(rand, 2 + rand.nextInt(4));
+			Map<Edge, Integer> ids = new IdentityHashMap<Edge, Integer>();
+			for(Edge edge : edges)
+				ids.put(edge, new Integer(ids.size()));
+			for(Edge edge : pattern.getEdges())
+				ids.put(edge, new Integer(ids.size()));
+
+			List<Match> plain = GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack()).getAllMatches(
+					pattern.m());
+			List<Match> ordered = GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack())
+					.setSelectivityOrdering(true).getAllMatches(pattern.m());
+			checks++;
+			check(EdgeIndexTest.canonical(plain, ids).equals(EdgeIndexTest.canonical(ordered, ids))
+					&& (plain.size() == ordered.size()),
+					"matches differ with selectivity ordering for graph []: [] vs []", new Integer(i),
+					new Integer(plain.size()), new Integer(ordered.size()));
+		}
+		log.li("[] matchings checked", new Integer(checks));
+	}
+
+	/**
+	 * Matches a chain pattern ending in rare labels against a larger graph with skewed label frequencies, with and
+	 * without selectivity ordering, and logs the merge counts and the times for finding the first match and all
+	 * matches.
+	 */
+	protected void benchmark()
+	{
+		Random rand = new Random(SEED);
+		SimpleGraph graph = skewedGraph(rand, BENCH_NODES, new ArrayList<Edge>());
+		GraphPattern pattern = (GraphPattern) new GraphPattern().setUnitName("GP").setLogLevel(Level.OFF);
+		NodeP previous = new NodeP(EdgeIndexTest.NODE_LABELS[0]);
+		pattern.add(previous);
+		for(int j = 1; j <= BENCH_EDGES; j++)
+		{
+			int rarity = (j == BENCH_EDGES) ? 2 : 0;
+			NodeP node = new NodeP(EdgeIndexTest.NODE_LABELS[rarity]);
+			pattern.add(node);
+			pattern.add(new EdgeP(previous, node, EdgeIndexTest.EDGE_LABELS[rarity]));
+			previous = node;
+		}
+		for(int round = 0; round < 2; round++) // the first round is a warm-up
+			for(boolean active : new boolean[] { false, true })
+			{
+				MonitorPack monitor = new MonitorPack();
+				long start = System.nanoTime();
+				Match first = GraphMatcherQuick.getMatcher(graph, pattern, monitor).setSelectivityOrdering(active)
+						.getNextMatch();
+				long firstTime = System.nanoTime() - start;
+				int firstMerges = monitor.getMergeCount();
+				monitor = new MonitorPack();
+				start = System.nanoTime();
+				List<Match> all = GraphMatcherQuick.getMatcher(graph, pattern, monitor).setSelectivityOrdering(active)
+						.getAllMatches(pattern.m());
+				long allTime = System.nanoTime() - start;
+				if(round > 0)
+					log.li("selectivity ordering []: first match (k=[]) after [] merges in [] ms;"
+							+ " [] matches after [] merges in [] ms",
+							new Boolean(active), (first == null) ? "-" : new Integer(first.getK()), new Integer(
+									firstMerges), new Double(firstTime / 1e6), new Integer(all.size()), new Integer(
+									monitor.getMergeCount()), new Double(allTime / 1e6));
+			}
+	}
+
+	/**
+	 * Creates a random graph, with 3 edges for each node, in which labels have skewed frequencies (see
+	 * {@link #skewedLabel(Random, String[])}).
+	 *
+	 * @param rand
+	 *            - the random generator.
+	 * @param n
+	 *            - the number of nodes.
+	 * @param edges
+	 *            - a list to which all edges are added, in the order of their creation.
+	 * @return the graph.
+	 */
+	protected static SimpleGraph skewedGraph(Random rand, int n, List<Edge> edges)
+	{
+		SimpleGraph graph = (SimpleGraph) new SimpleGraph().setUnitName("G").setLogLevel(Level.OFF);
+		List<Node> nodes = new ArrayList<Node>();
+		for(int j = 0; j < n; j++)
+		{
+			Node node = new SimpleNode(skewedLabel(rand, EdgeIndexTest.NODE_LABELS));
+			nodes.add(node);
+			graph.add(node);
+		}
+		for(int j = 3 * n; j > 0; j--)
+		{
+			Edge edge = new SimpleEdge(nodes.get(rand.nextInt(n)), nodes.get(rand.nextInt(n)), skewedLabel(rand,
+					EdgeIndexTest.EDGE_LABELS));
+			edges.add(edge);
+			graph.add(edge);
+		}
+		return graph;
+	}
+
+	/**
+	 * Chooses a label so that each label is about 4 times more frequent than the next one.
+	 *
+	 * @param rand
+	 *            - the random generator.
+	 * @param labels
+	 *            - the labels to choose from.
+	 * @return a random label.
+	 */
+	protected static String skewedLabel(Random rand, String[] labels)
+	{
+		int index = 0;
+		while((index < labels.length - 1) && (rand.nextInt(4) == 0))
+			index++;
+		return labels[index];
+	}
+}
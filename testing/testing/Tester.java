@@ -72,6 +72,10 @@ public class Tester
 	 * Log
 	 */
 	protected UnitComponent			log;
+	/**
+	 * Number of failed checks (see {@link #check(boolean, String, Object...)}).
+	 */
+	protected int					failures			= 0;
 									
 	/**
 	 * Creates a tester and runs it. It calls <code>doTesting()</code>. At the end the log is closed.
@@ -323,6 +327,40 @@ public class Tester
 		log.li("================================= " + arrows + " [] =================", section);
 	}
 	
+	/**
+	 * Checks a condition and, if it does not hold, logs an error and counts a failed check.
+	 *
+	 * @param condition
+	 *            - the condition.
+	 * @param message
+	 *            - the message to log if the condition does not hold; it may contain <code>[]</code> placeholders for
+	 *            the arguments, which are only rendered if the condition does not hold.
+	 * @param arguments
+	 *            - the arguments of the message.
+	 * @return the condition.
+	 */
+	protected boolean check(boolean condition, String message, Object... arguments)
+	{
+		if(!condition)
+		{
+			failures++;
+			log.le(message, arguments);
+		}
+		return condition;
+	}
+	
+	/**
+	 * Logs whether all the checks made by means of {@link #check(boolean, String, Object...)} passed or, otherwise,
+	 * the number of failed checks.
+	 */
+	protected void logChecks()
+	{
+		if(failures == 0)
+			log.li("all behavioral checks passed");
+		else
+			log.le("[] behavioral checks failed", new Integer(failures));
+	}
+	
 	/**
 	 * @return the log.
 	 */
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+import net.xqhs.graphs.graph.Graph;
+import net.xqhs.graphs.graph.SimpleGraph;
+import net.xqhs.graphs.pattern.GraphPattern;
+import net.xqhs.graphs.representation.text.TextGraphRepresentation;
+import net.xqhs.graphs.util.ContentHolder;
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * Measures the time needed to read textual graph representations (see
+ * {@link TextGraphRepresentation#readRepresentation(String)}) as their size grows. The inputs are the files in
+ * <code>playground/IOTesting</code>, repeated an increasing number of times (each copy being read as a separate
+ * graph), and a generated representation with deeply nested branches.
+ *
+ * @author Andrei Olaru
+ */
+public class TextReadingTest extends Tester
+{
+	/**
+	 * The directory of the input files.
+	 */
+	protected static final String	IO_DIR		= "IOTesting/";
+	/**
+	 * The input files containing one graph each, without a description.
+	 */
+	protected static final String[]	FILES		= { "EmilyR", "EmilyRev", "special-recursive-plus",
+			"special-recursive", "test" };
+	/**
+	 * The input file containing several graphs, each with a description.
+	 */
+	protected static final String	MULTI_FILE	= "described";
+	/**
+	 * The numbers of times the inputs are repeated.
+	 */
+	protected static final int[]	SCALES		= { 1, 10, 100, 1000 };
+	/**
+	 * The nesting depths of the generated representations.
+	 */
+	protected static final int[]	DEPTHS		= { 10, 100, 500 };
+	/**
+	 * Number of times each input is read; the best time is reported.
+	 */
+	protected static final int		REPEATS		= 5;
+
+	/**
+	 * @param args
+	 *            - unused.
+	 */
+	public static void main(String[] args)
+	{
+		new TextReadingTest();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		try
+		{
+			for(String file : FILES)
+			{
+				String content = readFile(file).trim();
+				for(int scale : SCALES)
+				{
+					// each copy is a separate graph, as node names must be unique in a graph
+					StringBuilder builder = new StringBuilder();
+					for(int i = 0; i < scale; i++)
+						builder.append("[copy ").append(i).append(": ").append(content).append("]\n");
+					measure(file, scale, builder.toString());
+				}
+			}
+			String content = readFile(MULTI_FILE);
+			for(int scale : SCALES)
+			{
+				StringBuilder builder = new StringBuilder();
+				for(int i = 0; i < scale; i++)
+					builder.append(content);
+				measure(MULTI_FILE, scale, builder.toString());
+			}
+		} catch(IOException e)
+		{
+			log.le("reading input failed: []", e);
+			return;
+		}
+		for(int depth : DEPTHS)
+			measure("nested", depth, nested(depth));
+	}
+
+	/**
+	 * Reads the whole content of a file in {@link #IO_DIR}.
+	 *
+	 * @param filename
+	 *            - the name of the file, without extension.
+	 * @return the content.
+	 * @throws IOException
+	 *             - if reading fails.
+	 */
+	protected static String readFile(String filename) throws IOException
+	{
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(defaultFileDir + IO_DIR
+				+ filename + defaultFileExt)));
+		StringBuilder builder = new StringBuilder();
+		String line;
+		while((line = reader.readLine()) != null)
+		{
+			builder.append(line);
+			builder.append('\n');
+		}
+		reader.close();
+		return builder.toString();
+	}
+
+	/**
+	 * Generates a representation in which each node is the source of two branches, the first of which is enclosed in
+	 * parentheses and contains the rest of the representation.
+	 *
+	 * @param depth
+	 *            - the nesting depth.
+	 * @return the representation.
+	 */
+	protected static String nested(int depth)
+	{
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < depth; i++)
+			builder.append("n").append(i).append(" (-e").append(i).append("> ");
+		builder.append("n").append(depth);
+		for(int i = depth - 1; i >= 0; i--)
+			builder.append(") -> m").append(i);
+		return builder.toString();
+	}
+
+	/**
+	 * Reads all the graphs in an input, several times, and logs the best time.
+	 *
+	 * @param name
+	 *            - the name of the input.
+	 * @param scale
+	 *            - the scale of the input.
+	 * @param input
+	 *            - the input.
+	 */
+	protected void measure(String name, int scale, String input)
+	{
+		long best = Long.MAX_VALUE;
+		int graphs = 0, nodes = 0, edges = 0;
+		for(int r = 0; r < REPEATS; r++)
+		{
+			graphs = nodes = edges = 0;
+			ContentHolder<String> holder = new ContentHolder<String>(input);
+			long start = System.nanoTime();
+			while(holder.get().trim().length() > 0)
+			{
+				Graph g = new SimpleGraph();
+				try
+				{
+					((TextGraphRepresentation) new TextGraphRepresentation(g).setUnitName("Greader").setLogLevel(
+							Level.OFF)).readRepresentation(holder);
+				} catch(IllegalArgumentException e)
+				{ // generic nodes are only accepted by patterns
+					g = new GraphPattern();
+					((TextGraphRepresentation) new TextGraphRepresentation(g).setUnitName("Greader").setLogLevel(
+							Level.OFF)).readRepresentation(holder);
+				}
+				graphs++;
+				nodes += g.n();
+				edges += g.m();
+			}
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		log.li("[] x[]: [] chars, [] graphs, [] nodes, [] edges read in [] ms ([] chars/ms)", name,
+				new Integer(scale), new Integer(input.length()), new Integer(graphs), new Integer(nodes), new Integer(
+						edges), new Double(best / 1e6), new Long(input.length() * 1000000L / Math.max(best, 1)));
+	}
+}
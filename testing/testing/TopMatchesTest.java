@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.SimpleGraph;
+import net.xqhs.graphs.matcher.GraphMatcherQuick;
+import net.xqhs.graphs.matcher.GraphMatchingProcess;
+import net.xqhs.graphs.matcher.Match;
+import net.xqhs.graphs.matcher.MonitorPack;
+import net.xqhs.graphs.pattern.GraphPattern;
+
+/**
+ * Tester for {@link GraphMatchingProcess#getTopMatches(int, int, long)}. For random patterns and graphs, it checks that
+ * the <i>k</i> values of the returned matches are the lowest <i>k</i> values of all matches, and that the search leaves
+ * the matcher in a state in which all matches can still be found. Then, it compares the time needed to find a few best
+ * matches with the time needed by {@link GraphMatchingProcess#getBestMatches()}.
+ *
+ * @author Andrei Olaru
+ */
+public class TopMatchesTest extends Tester
+{
+	/**
+	 * Seed for the random graphs and patterns.
+	 */
+	protected static final long	SEED			= 42;
+	/**
+	 * Number of random graphs and patterns in the behavioral test.
+	 */
+	protected static final int	N_MATCHINGS		= 100;
+	/**
+	 * Number of nodes in the graph used for measuring time.
+	 */
+	protected static final int	BENCH_NODES		= 600;
+	/**
+	 * Number of edges of the pattern used for measuring time.
+	 */
+	protected static final int	BENCH_EDGES		= 5;
+	/**
+	 * Number of best matches requested when measuring time.
+	 */
+	protected static final int	BENCH_TOP		= 10;
+
+	/**
+	 * @param args
+	 *            - unused.
+	 */
+	public static void main(String[] args)
+	{
+		new TopMatchesTest();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		testTopMatches();
+		logChecks();
+
+		benchmark();
+	}
+
+	/**
+	 * For random patterns and graphs, and various numbers of requested matches and thresholds, compares the <i>k</i>
+	 * values of the top matches with those of all matches, and checks that all matches are still found after the
+	 * search.
+	 */
+	protected void testTopMatches()
+	{
+		Random rand = new Random(SEED);
+		int checks = 0;
+		for(int i = 0; i < N_MATCHINGS; i++)
+		{
+			List<Edge> edges = new ArrayList<Edge>();
+			SimpleGraph graph = ParallelMatchingTest.randomGraph(rand, 10 + rand.nextInt(30), edges);
+			GraphPattern pattern = ParallelMatchingTest.randomPattern(rand, 2 + rand.nextInt(4));
+			Map<Edge, Integer> ids = new IdentityHashMap<Edge, Integer>();
+			for(Edge edge : edges)
+				ids.put(edge, new Integer(ids.size()));
+			for(Edge edge : pattern.getEdges())
+				ids.put(edge, new Integer(ids.size()));
+
+			List<Match> all = GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack()).getAllMatches(
+					pattern.m());
+			List<Integer> allK = new ArrayList<Integer>();
+			for(Match m : all)
+				allK.add(new Integer(m.getK()));
+			Collections.sort(allK);
+
+			int n = 1 + rand.nextInt(20);
+			int maxK = rand.nextInt(pattern.m());
+			List<Integer> expected = new ArrayList<Integer>();
+			for(Integer k : allK)
+				if((k.intValue() <= maxK) && (expected.size() < n))
+					expected.add(k);
+
+			GraphMatcherQuick matcher = GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack());
+			List<Integer> actual = new ArrayList<Integer>();
+			for(Match m : matcher.getTopMatches(n, maxK, 0))
+				actual.add(new Integer(m.getK()));
+			checks++;
+			check(expected.equals(actual), "top [] matches with k<=[] differ for graph []: expected [] actual []",
+					new Integer(n), new Integer(maxK), new Integer(i), expected, actual);
+			// the search must not prevent finding the other matches
+			check(EdgeIndexTest.canonical(all, ids).equals(
+					EdgeIndexTest.canonical(matcher.getAllMatches(pattern.m()), ids)),
+					"matches differ after the top matches search for graph []", new Integer(i));
+		}
+		log.li("[] top match searches checked", new Integer(checks));
+	}
+
+	/**
+	 * Finds a few best matches in a larger graph, with {@link GraphMatchingProcess#getTopMatches(int, int, long)} and
+	 * with {@link GraphMatchingProcess#getBestMatches()}, and logs the times.
+	 */
+	protected void benchmark()
+	{
+		Random rand = new Random(SEED);
+		SimpleGraph graph = ParallelMatchingTest.randomGraph(rand, BENCH_NODES, new ArrayList<Edge>());
+		GraphPattern pattern = ParallelMatchingTest.randomPattern(rand, BENCH_EDGES);
+
+		long start = System.nanoTime();
+		List<Match> top = GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack()).getTopMatches(BENCH_TOP,
+				pattern.m(), 0);
+		long topTime = System.nanoTime() - start;
+		start = System.nanoTime();
+		List<Match> best = GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack()).getBestMatches();
+		long bestTime = System.nanoTime() - start;
+		log.li("[] nodes, [] pattern edges: top [] matches (best k=[]) in [] ms; [] best matches (k=[]) in [] ms",
+				new Integer(graph.n()), new Integer(pattern.m()), new Integer(top.size()),
+				top.isEmpty() ? "-" : new Integer(top.get(0).getK()), new Double(topTime / 1e6),
+				new Integer(best.size()), best.isEmpty() ? "-" : new Integer(best.get(0).getK()), new Double(
+						bestTime / 1e6));
+	}
+}
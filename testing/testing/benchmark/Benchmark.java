@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing.benchmark;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A benchmark measured by {@link BenchmarkTester}. The benchmark is first set up, then the measured operation is
+ * performed repeatedly. Only the time (and allocations) of {@link #operation()} are measured; work that must be done
+ * before or after each operation, but must not be measured, goes into {@link #prepare(Random)} and {@link #cleanup()}.
+ * <p>
+ * Parameters describe the configuration of the benchmark (e.g. graph sizes) and are reported together with the
+ * results.
+ *
+ * @author Andrei Olaru
+ */
+public abstract class Benchmark
+{
+	/**
+	 * The name of the benchmark, usually the name of the measured method.
+	 */
+	protected String				name;
+	/**
+	 * The parameters of the benchmark, in the order in which they were set.
+	 */
+	protected Map<String, Object>	parameters	= new LinkedHashMap<String, Object>();
+
+	/**
+	 * Creates a new benchmark.
+	 *
+	 * @param benchmarkName
+	 *            - the name of the benchmark.
+	 */
+	public Benchmark(String benchmarkName)
+	{
+		name = benchmarkName;
+	}
+
+	/**
+	 * Sets a parameter of the benchmark, to be reported with the results.
+	 *
+	 * @param parameter
+	 *            - the name of the parameter.
+	 * @param value
+	 *            - the value; should be a {@link Number}, a {@link Boolean} or a {@link String}.
+	 * @return the benchmark itself.
+	 */
+	public Benchmark setParameter(String parameter, Object value)
+	{
+		parameters.put(parameter, value);
+		return this;
+	}
+
+	/**
+	 * @return the name of the benchmark.
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * @return the parameters of the benchmark (read-only).
+	 */
+	public Map<String, Object> getParameters()
+	{
+		return Collections.unmodifiableMap(parameters);
+	}
+
+	/**
+	 * Creates the data needed by the benchmark. Not measured.
+	 *
+	 * @param rand
+	 *            - the random generator to use; the same generator is afterwards passed to {@link #prepare(Random)}.
+	 */
+	public abstract void setup(Random rand);
+
+	/**
+	 * Prepares one call of {@link #operation()}. Not measured. By default, does nothing.
+	 *
+	 * @param rand
+	 *            - the random generator to use.
+	 */
+	public void prepare(Random rand)
+	{
+		// nothing to prepare
+	}
+
+	/**
+	 * The measured operation.
+	 *
+	 * @return the result of the operation, so that the computation cannot be discarded.
+	 */
+	public abstract Object operation();
+
+	/**
+	 * Cleans up after one call of {@link #operation()}, e.g. so that the state of the benchmark does not drift. Not
+	 * measured. By default, does nothing.
+	 */
+	public void cleanup()
+	{
+		// nothing to clean up
+	}
+
+	@Override
+	public String toString()
+	{
+		return name + parameters;
+	}
+}
@@ -0,0 +1,815 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing.benchmark;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.Graph;
+import net.xqhs.graphs.graph.SimpleGraph;
+import net.xqhs.graphs.matcher.GraphMatcherQuick;
+import net.xqhs.graphs.matcher.MonitorPack;
+import net.xqhs.graphs.matchingPlatform.GMPImplementation;
+import net.xqhs.graphs.matchingPlatform.GMPImplementation.PrincipalGraph;
+import net.xqhs.graphs.matchingPlatform.GraphMatcherPersistent;
+import net.xqhs.graphs.matchingPlatform.Transaction;
+import net.xqhs.graphs.matchingPlatform.Transaction.Operation;
+import net.xqhs.graphs.pattern.GraphPattern;
+import net.xqhs.graphs.representation.text.TextGraphRepresentation;
+import net.xqhs.util.logging.LoggerSimple.Level;
+import testing.Tester;
+
+/**
+ * Measures the time and the memory allocated by the main operations of the library -- matching, the matching platform,
+ * and reading and writing graphs -- on generated graphs of several sizes. Each {@link Benchmark} is set up, its
+ * operation is performed a number of times without measuring (for warm-up), then a number of measured times.
+ * <p>
+ * Results are logged and written as JSON to a file (by default, {@value #DEFAULT_OUTPUT}), so that they can be compared
+ * across versions. Arguments: the output file, and optionally a string; only benchmarks whose names contain the string
+ * are run.
+ *
+ * @author Andrei Olaru
+ */
+public class BenchmarkTester extends Tester
+{
+	/**
+	 * The results of a benchmark.
+	 */
+	protected static class Result
+	{
+		/**
+		 * The benchmark.
+		 */
+		Benchmark	benchmark;
+		/**
+		 * The duration of each measured operation, in nanoseconds.
+		 */
+		long[]		times;
+		/**
+		 * Bytes allocated during all measured operations, or -1 if allocations cannot be measured.
+		 */
+		long		allocated;
+
+		/**
+		 * Creates a new result.
+		 *
+		 * @param measured
+		 *            - the benchmark.
+		 * @param durations
+		 *            - the duration of each measured operation, in nanoseconds.
+		 * @param allocatedBytes
+		 *            - bytes allocated during all measured operations, or -1 if allocations cannot be measured.
+		 */
+		Result(Benchmark measured, long[] durations, long allocatedBytes)
+		{
+			benchmark = measured;
+			times = durations;
+			allocated = allocatedBytes;
+		}
+
+		/**
+		 * @return the average duration of an operation, in nanoseconds.
+		 */
+		long mean()
+		{
+			long sum = 0;
+			for(long time : times)
+				sum += time;
+			return sum / times.length;
+		}
+
+		/**
+		 * @param fraction
+		 *            - the fraction of operations which should be at most as long as the returned duration.
+		 * @return the duration at the specified percentile, in nanoseconds.
+		 */
+		long percentile(double fraction)
+		{
+			long[] sorted = Arrays.copyOf(times, times.length);
+			Arrays.sort(sorted);
+			return sorted[Math.min(sorted.length - 1, (int) (fraction * sorted.length))];
+		}
+
+		/**
+		 * @return the average number of bytes allocated by an operation, or -1 if allocations cannot be measured.
+		 */
+		long allocatedPerOperation()
+		{
+			return (allocated < 0) ? -1 : allocated / times.length;
+		}
+
+		/**
+		 * @return a JSON object containing the results.
+		 */
+		String toJSON()
+		{
+			StringBuilder builder = new StringBuilder();
+			builder.append("{\"benchmark\": ").append(quote(benchmark.getName()));
+			builder.append(", \"params\": {");
+			boolean first = true;
+			for(Map.Entry<String, Object> parameter : benchmark.getParameters().entrySet())
+			{
+				if(!first)
+					builder.append(", ");
+				first = false;
+				builder.append(quote(parameter.getKey())).append(": ");
+				if((parameter.getValue() instanceof Number) || (parameter.getValue() instanceof Boolean))
+					builder.append(parameter.getValue());
+				else
+					builder.append(quote(String.valueOf(parameter.getValue())));
+			}
+			builder.append("}, \"iterations\": ").append(times.length);
+			builder.append(", \"meanNs\": ").append(mean());
+			builder.append(", \"minNs\": ").append(percentile(0));
+			builder.append(", \"medianNs\": ").append(percentile(.5));
+			builder.append(", \"p90Ns\": ").append(percentile(.9));
+			builder.append(", \"maxNs\": ").append(percentile(1));
+			builder.append(", \"allocatedBytesPerOp\": ").append(allocatedPerOperation());
+			builder.append("}");
+			return builder.toString();
+		}
+	}
+
+	/**
+	 * Measures {@link GraphMatcherQuick#getAllCompleteMatches()}, with a new matcher for each operation.
+	 */
+	protected static class QuickMatchingBenchmark extends Benchmark
+	{
+		/**
+		 * The graph.
+		 */
+		Graph			graph;
+		/**
+		 * The pattern.
+		 */
+		GraphPattern	pattern;
+
+		/**
+		 * Creates the benchmark.
+		 *
+		 * @param nodes
+		 *            - the number of nodes in the graph.
+		 * @param patternEdges
+		 *            - the number of edges in the pattern.
+		 */
+		public QuickMatchingBenchmark(int nodes, int patternEdges)
+		{
+			super("GraphMatcherQuick.getAllCompleteMatches");
+			setParameter("nodes", new Integer(nodes));
+			setParameter("edges", new Integer(EDGE_FACTOR * nodes));
+			setParameter("patternEdges", new Integer(patternEdges));
+		}
+
+		@Override
+		public void setup(Random rand)
+		{
+			GraphGenerator generator = new GraphGenerator(rand);
+			graph = generator.randomGraph(newGraph(), intParameter(this, "nodes"), intParameter(this, "edges"),
+					NODE_LABELS, EDGE_LABELS);
+			pattern = generator.randomPattern(intParameter(this, "patternEdges"), GENERIC_PROBABILITY);
+		}
+
+		@Override
+		public Object operation()
+		{
+			return GraphMatcherQuick.getMatcher(graph, pattern, new MonitorPack()).getAllCompleteMatches();
+		}
+	}
+
+	/**
+	 * Measures {@link GraphMatcherPersistent#addMatches(Edge)} for a new edge, followed by
+	 * {@link GraphMatcherPersistent#completeMatches()} (as <code>addMatches</code> does not grow matches). The edge is
+	 * removed after each operation, without measuring.
+	 */
+	protected static class PersistentAddBenchmark extends Benchmark
+	{
+		/**
+		 * The generator of the graph, used for new edges.
+		 */
+		GraphGenerator			generator;
+		/**
+		 * The graph.
+		 */
+		Graph					graph;
+		/**
+		 * The matcher.
+		 */
+		GraphMatcherPersistent	matcher;
+		/**
+		 * The edge added in the current operation.
+		 */
+		Edge					edge;
+
+		/**
+		 * Creates the benchmark.
+		 *
+		 * @param benchmarkName
+		 *            - the name of the benchmark.
+		 * @param nodes
+		 *            - the number of nodes in the graph.
+		 * @param patternEdges
+		 *            - the number of edges in the pattern.
+		 */
+		protected PersistentAddBenchmark(String benchmarkName, int nodes, int patternEdges)
+		{
+			super(benchmarkName);
+			setParameter("nodes", new Integer(nodes));
+			setParameter("edges", new Integer(EDGE_FACTOR * nodes));
+			setParameter("patternEdges", new Integer(patternEdges));
+		}
+
+		/**
+		 * Creates the benchmark.
+		 *
+		 * @param nodes
+		 *            - the number of nodes in the graph.
+		 * @param patternEdges
+		 *            - the number of edges in the pattern.
+		 */
+		public PersistentAddBenchmark(int nodes, int patternEdges)
+		{
+			this("GraphMatcherPersistent.addMatches", nodes, patternEdges);
+		}
+
+		@Override
+		public void setup(Random rand)
+		{
+			generator = new GraphGenerator(rand);
+			graph = generator.randomGraph(newGraph(), intParameter(this, "nodes"), intParameter(this, "edges"),
+					NODE_LABELS, EDGE_LABELS);
+			GraphPattern pattern = generator.randomPattern(intParameter(this, "patternEdges"), GENERIC_PROBABILITY);
+			matcher = GraphMatcherPersistent.getMatcher(graph, pattern, new MonitorPack());
+			matcher.completeMatches();
+		}
+
+		@Override
+		public void prepare(Random rand)
+		{
+			edge = generator.randomEdge(EDGE_LABELS);
+			graph.add(edge);
+		}
+
+		@Override
+		public Object operation()
+		{
+			return matcher.addMatches(edge).completeMatches();
+		}
+
+		@Override
+		public void cleanup()
+		{
+			graph.remove(edge);
+			matcher.removeMatches(edge);
+		}
+	}
+
+	/**
+	 * Measures {@link GraphMatcherPersistent#removeMatches(Edge)} for an edge that has been added (and its matches
+	 * completed) without measuring.
+	 */
+	protected static class PersistentRemoveBenchmark extends PersistentAddBenchmark
+	{
+		/**
+		 * Creates the benchmark.
+		 *
+		 * @param nodes
+		 *            - the number of nodes in the graph.
+		 * @param patternEdges
+		 *            - the number of edges in the pattern.
+		 */
+		public PersistentRemoveBenchmark(int nodes, int patternEdges)
+		{
+			super("GraphMatcherPersistent.removeMatches", nodes, patternEdges);
+		}
+
+		@Override
+		public void prepare(Random rand)
+		{
+			super.prepare(rand);
+			matcher.addMatches(edge).completeMatches();
+			graph.remove(edge);
+		}
+
+		@Override
+		public Object operation()
+		{
+			return matcher.removeMatches(edge);
+		}
+
+		@Override
+		public void cleanup()
+		{
+			// the edge was already removed
+		}
+	}
+
+	/**
+	 * Measures {@link GMPImplementation#incrementSequence()} after a transaction on the principal graph, adding and
+	 * removing a few random edges.
+	 */
+	protected static class PlatformBenchmark extends Benchmark
+	{
+		/**
+		 * The generator of the graph, used for new edges.
+		 */
+		GraphGenerator		generator;
+		/**
+		 * The principal graph.
+		 */
+		PrincipalGraph		principal;
+		/**
+		 * The edges currently in the principal graph.
+		 */
+		List<Edge>			edges;
+		/**
+		 * The platform.
+		 */
+		GMPImplementation	platform;
+
+		/**
+		 * Creates the benchmark.
+		 *
+		 * @param nodes
+		 *            - the number of nodes in the graph.
+		 * @param patterns
+		 *            - the number of patterns in the platform.
+		 * @param changes
+		 *            - the number of edges added or removed by each transaction.
+		 */
+		public PlatformBenchmark(int nodes, int patterns, int changes)
+		{
+			super("GMPImplementation.incrementSequence");
+			setParameter("nodes", new Integer(nodes));
+			setParameter("edges", new Integer(EDGE_FACTOR * nodes));
+			setParameter("patterns", new Integer(patterns));
+			setParameter("patternEdges", new Integer(PLATFORM_PATTERN_EDGES));
+			setParameter("changes", new Integer(changes));
+		}
+
+		@Override
+		public void setup(Random rand)
+		{
+			generator = new GraphGenerator(rand);
+			principal = (PrincipalGraph) new PrincipalGraph().setUnitName("principal").setLogLevel(Level.OFF);
+			generator.randomGraph(principal, intParameter(this, "nodes"), intParameter(this, "edges"), NODE_LABELS,
+					EDGE_LABELS);
+			edges = new ArrayList<Edge>(generator.getEdges());
+			platform = new GMPImplementation().setMonitor(new MonitorPack()).setPrincipalGraph(principal);
+			for(int i = 0; i < intParameter(this, "patterns"); i++)
+			{
+				GraphPattern pattern = generator.randomPattern(PLATFORM_PATTERN_EDGES, GENERIC_PROBABILITY);
+				platform.addPattern(pattern);
+				// initial matching
+				platform.getMatches(pattern, 0);
+			}
+		}
+
+		@Override
+		public void prepare(Random rand)
+		{
+			Transaction t = new Transaction();
+			for(int i = 0; i < intParameter(this, "changes"); i++)
+				if(rand.nextBoolean() && !edges.isEmpty())
+				{
+					int index = rand.nextInt(edges.size());
+					Edge edge = edges.get(index);
+					edges.set(index, edges.get(edges.size() - 1));
+					edges.remove(edges.size() - 1);
+					if(t.containsKey(edge))
+						t.remove(edge);
+					else
+						t.put(edge, Operation.REMOVE);
+				}
+				else
+				{
+					Edge edge = generator.randomEdge(EDGE_LABELS);
+					edges.add(edge);
+					t.put(edge, Operation.ADD);
+				}
+			principal.applyTransaction(t);
+		}
+
+		@Override
+		public Object operation()
+		{
+			return platform.incrementSequence();
+		}
+	}
+
+	/**
+	 * Measures {@link SimpleGraph#readFrom(java.io.Reader)} for a list of edges.
+	 */
+	protected static class EdgeListReadingBenchmark extends Benchmark
+	{
+		/**
+		 * The list of edges.
+		 */
+		String	input;
+
+		/**
+		 * Creates the benchmark.
+		 *
+		 * @param nodes
+		 *            - the number of nodes in the graph.
+		 */
+		public EdgeListReadingBenchmark(int nodes)
+		{
+			super("SimpleGraph.readFrom");
+			setParameter("nodes", new Integer(nodes));
+			setParameter("edges", new Integer(EDGE_FACTOR * nodes));
+		}
+
+		@Override
+		public void setup(Random rand)
+		{
+			GraphGenerator generator = new GraphGenerator(rand);
+			generator.randomGraph(newGraph(), intParameter(this, "nodes"), intParameter(this, "edges"), 0,
+					EDGE_LABELS);
+			input = generator.edgeList();
+			setParameter("chars", new Integer(input.length()));
+		}
+
+		@Override
+		public Object operation()
+		{
+			return ((SimpleGraph) newGraph()).readFrom(new StringReader(input));
+		}
+	}
+
+	/**
+	 * Measures the creation of the text representation of a random tree, with {@link TextGraphRepresentation}.
+	 */
+	protected static class TextWritingBenchmark extends Benchmark
+	{
+		/**
+		 * The graph.
+		 */
+		Graph	graph;
+
+		/**
+		 * Creates the benchmark.
+		 *
+		 * @param benchmarkName
+		 *            - the name of the benchmark.
+		 * @param nodes
+		 *            - the number of nodes in the graph.
+		 */
+		protected TextWritingBenchmark(String benchmarkName, int nodes)
+		{
+			super(benchmarkName);
+			setParameter("nodes", new Integer(nodes));
+			setParameter("edges", new Integer(nodes - 1));
+		}
+
+		/**
+		 * Creates the benchmark.
+		 *
+		 * @param nodes
+		 *            - the number of nodes in the graph.
+		 */
+		public TextWritingBenchmark(int nodes)
+		{
+			this("TextGraphRepresentation.write", nodes);
+		}
+
+		@Override
+		public void setup(Random rand)
+		{
+			graph = new GraphGenerator(rand).randomTree(newGraph(), intParameter(this, "nodes"), EDGE_LABELS);
+		}
+
+		@Override
+		public Object operation()
+		{
+			return newRepresentation(graph).update().toString();
+		}
+	}
+
+	/**
+	 * Measures the reading of the text representation of a random tree, with {@link TextGraphRepresentation}.
+	 */
+	protected static class TextReadingBenchmark extends TextWritingBenchmark
+	{
+		/**
+		 * The text representation of the graph.
+		 */
+		String	input;
+
+		/**
+		 * Creates the benchmark.
+		 *
+		 * @param nodes
+		 *            - the number of nodes in the graph.
+		 */
+		public TextReadingBenchmark(int nodes)
+		{
+			super("TextGraphRepresentation.read", nodes);
+		}
+
+		@Override
+		public void setup(Random rand)
+		{
+			super.setup(rand);
+			input = newRepresentation(graph).update().toString();
+			setParameter("chars", new Integer(input.length()));
+		}
+
+		@Override
+		public Object operation()
+		{
+			return newRepresentation(newGraph()).readRepresentation(input);
+		}
+	}
+
+	/**
+	 * The default file to write the results to.
+	 */
+	protected static final String	DEFAULT_OUTPUT			= "benchmark-results.json";
+	/**
+	 * Seed for the generated graphs and operations.
+	 */
+	protected static final long		SEED					= 42;
+	/**
+	 * Number of operations performed before measuring.
+	 */
+	protected static final int		WARMUP					= 10;
+	/**
+	 * Number of measured operations.
+	 */
+	protected static final int		ITERATIONS				= 30;
+	/**
+	 * Number of distinct node labels in graphs used for matching.
+	 */
+	protected static final int		NODE_LABELS				= 20;
+	/**
+	 * Number of distinct edge labels.
+	 */
+	protected static final int		EDGE_LABELS				= 4;
+	/**
+	 * Ratio between the number of edges and the number of nodes in generated graphs.
+	 */
+	protected static final int		EDGE_FACTOR				= 2;
+	/**
+	 * Probability for a node in a generated pattern to be generic.
+	 */
+	protected static final double	GENERIC_PROBABILITY		= .3;
+	/**
+	 * Numbers of nodes in graphs used for matching.
+	 */
+	protected static final int[]	MATCHING_SIZES			= { 100, 400 };
+	/**
+	 * Numbers of edges in patterns.
+	 */
+	protected static final int[]	PATTERN_SIZES			= { 3, 6 };
+	/**
+	 * Numbers of edges in patterns used in the matching platform.
+	 */
+	protected static final int		PLATFORM_PATTERN_EDGES	= 4;
+	/**
+	 * Numbers of patterns in the matching platform.
+	 */
+	protected static final int[]	PLATFORM_PATTERNS		= { 1, 5 };
+	/**
+	 * Number of edges changed between sequence increments of the matching platform.
+	 */
+	protected static final int		PLATFORM_CHANGES		= 4;
+	/**
+	 * Numbers of nodes in graphs which are read or written.
+	 */
+	protected static final int[]	IO_SIZES				= { 100, 1000, 5000 };
+
+	/**
+	 * The file to write the results to.
+	 */
+	protected static String			output					= DEFAULT_OUTPUT;
+	/**
+	 * If not <code>null</code>, only benchmarks with names containing this string are run.
+	 */
+	protected static String			filter					= null;
+	/**
+	 * Accumulates information on the results of operations, so that the computation cannot be discarded.
+	 */
+	protected static int			sink					= 0;
+
+	/**
+	 * The results of the benchmarks. Created in {@link #doTesting()}, which is called from the constructor of
+	 * {@link Tester}, before the initialization of the fields of this class.
+	 */
+	protected List<Result>			results;
+
+	/**
+	 * @param args
+	 *            - the file to write the results to, and optionally a string which names of the benchmarks to run must
+	 *            contain.
+	 */
+	public static void main(String[] args)
+	{
+		if(args.length > 0)
+			output = args[0];
+		if(args.length > 1)
+			filter = args[1];
+		new BenchmarkTester();
+	}
+
+	@Override
+	protected void doTesting()
+	{
+		super.doTesting();
+
+		results = new ArrayList<Result>();
+		for(int nodes : MATCHING_SIZES)
+			for(int patternEdges : PATTERN_SIZES)
+				run(new QuickMatchingBenchmark(nodes, patternEdges));
+		for(int nodes : MATCHING_SIZES)
+			for(int patternEdges : PATTERN_SIZES)
+			{
+				run(new PersistentAddBenchmark(nodes, patternEdges));
+				run(new PersistentRemoveBenchmark(nodes, patternEdges));
+			}
+		for(int nodes : MATCHING_SIZES)
+			for(int patterns : PLATFORM_PATTERNS)
+				run(new PlatformBenchmark(nodes, patterns, PLATFORM_CHANGES));
+		for(int nodes : IO_SIZES)
+			run(new EdgeListReadingBenchmark(nodes));
+		for(int nodes : IO_SIZES)
+		{
+			run(new TextWritingBenchmark(nodes));
+			run(new TextReadingBenchmark(nodes));
+		}
+
+		try
+		{
+			writeResults();
+			log.li("results written to []", output);
+		} catch(IOException e)
+		{
+			log.le("writing results failed: []", e);
+		}
+	}
+
+	/**
+	 * Sets up and runs a benchmark, if its name passes the filter, and records the result.
+	 *
+	 * @param benchmark
+	 *            - the benchmark.
+	 */
+	protected void run(Benchmark benchmark)
+	{
+		if((filter != null) && !benchmark.getName().contains(filter))
+			return;
+		Random rand = new Random(SEED);
+		benchmark.setup(rand);
+		for(int i = 0; i < WARMUP; i++)
+		{
+			benchmark.prepare(rand);
+			consume(benchmark.operation());
+			benchmark.cleanup();
+		}
+
+		long[] times = new long[ITERATIONS];
+		long allocated = 0;
+		for(int i = 0; i < ITERATIONS; i++)
+		{
+			benchmark.prepare(rand);
+			long allocatedBefore = allocatedBytes();
+			long start = System.nanoTime();
+			Object result = benchmark.operation();
+			times[i] = System.nanoTime() - start;
+			long allocatedAfter = allocatedBytes();
+			if((allocated >= 0) && (allocatedBefore >= 0))
+				allocated += allocatedAfter - allocatedBefore;
+			else
+				allocated = -1;
+			consume(result);
+			benchmark.cleanup();
+		}
+		Result result = new Result(benchmark, times, allocated);
+		results.add(result);
+		log.li("[]: mean [] us, median [] us, [] bytes/op", benchmark, new Double(result.mean() / 1e3), new Double(
+				result.percentile(.5) / 1e3), new Long(result.allocatedPerOperation()));
+	}
+
+	/**
+	 * Writes all results in the output file, as a JSON object.
+	 *
+	 * @throws IOException
+	 *             - if writing fails.
+	 */
+	protected void writeResults() throws IOException
+	{
+		Writer writer = new OutputStreamWriter(new FileOutputStream(output), "UTF-8");
+		try
+		{
+			writer.write("{\n");
+			writer.write("  \"date\": " + quote(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ").format(new Date()))
+					+ ",\n");
+			writer.write("  \"java\": " + quote(System.getProperty("java.version")) + ",\n");
+			writer.write("  \"seed\": " + SEED + ",\n");
+			writer.write("  \"warmup\": " + WARMUP + ",\n");
+			writer.write("  \"results\": [\n");
+			for(int i = 0; i < results.size(); i++)
+				writer.write("    " + results.get(i).toJSON() + ((i < results.size() - 1) ? ",\n" : "\n"));
+			writer.write("  ]\n");
+			writer.write("}\n");
+		} finally
+		{
+			writer.close();
+		}
+	}
+
+	/**
+	 * Uses the result of an operation, so that the computation cannot be discarded.
+	 *
+	 * @param result
+	 *            - the result.
+	 */
+	protected static void consume(Object result)
+	{
+		if(result != null)
+			sink++;
+	}
+
+	/**
+	 * @return the number of bytes allocated so far by the current thread, or -1 if the JVM does not support the
+	 *         measurement.
+	 */
+	protected static long allocatedBytes()
+	{
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if((bean instanceof com.sun.management.ThreadMXBean)
+				&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported())
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return -1;
+	}
+
+	/**
+	 * @param benchmark
+	 *            - a benchmark.
+	 * @param parameter
+	 *            - the name of an integer parameter of the benchmark.
+	 * @return the value of the parameter.
+	 */
+	protected static int intParameter(Benchmark benchmark, String parameter)
+	{
+		return ((Integer) benchmark.getParameters().get(parameter)).intValue();
+	}
+
+	/**
+	 * @return a new, empty {@link SimpleGraph}, with logging turned off.
+	 */
+	protected static Graph newGraph()
+	{
+		return (Graph) new SimpleGraph().setUnitName("G").setLogLevel(Level.OFF);
+	}
+
+	/**
+	 * @param graph
+	 *            - a graph.
+	 * @return a new {@link TextGraphRepresentation} of the graph, with logging turned off.
+	 */
+	protected static TextGraphRepresentation newRepresentation(Graph graph)
+	{
+		return (TextGraphRepresentation) new TextGraphRepresentation(graph).setUnitName("repr").setLogLevel(
+				Level.OFF);
+	}
+
+	/**
+	 * @param string
+	 *            - a string.
+	 * @return the string as a JSON string literal.
+	 */
+	protected static String quote(String string)
+	{
+		StringBuilder builder = new StringBuilder("\"");
+		for(char c : string.toCharArray())
+			if((c == '"') || (c == '\\'))
+				builder.append('\\').append(c);
+			else if(c < ' ')
+				builder.append(String.format("\\u%04x", new Integer(c)));
+			else
+				builder.append(c);
+		return builder.append('"').toString();
+	}
+}
@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright (C) 2013 Andrei Olaru.
+ *
+ * This file is part of net.xqhs.Graphs.
+ *
+ * net.xqhs.Graphs is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ *
+ * net.xqhs.Graphs is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with net.xqhs.Graphs.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package testing.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import net.xqhs.graphs.graph.Edge;
+import net.xqhs.graphs.graph.Graph;
+import net.xqhs.graphs.graph.Node;
+import net.xqhs.graphs.graph.SimpleEdge;
+import net.xqhs.graphs.graph.SimpleNode;
+import net.xqhs.graphs.pattern.EdgeP;
+import net.xqhs.graphs.pattern.GraphPattern;
+import net.xqhs.graphs.pattern.NodeP;
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * Generator of random graphs and patterns, used by benchmarks. The generator remembers, in the order of their creation,
+ * the nodes and edges it has generated, and uses these lists (rather than the collections in the graph, whose order
+ * depends on hash codes) for further random choices, so that all generated structures are the same for the same seed.
+ *
+ * @author Andrei Olaru
+ */
+public class GraphGenerator
+{
+	/**
+	 * The random generator.
+	 */
+	protected Random		rand;
+	/**
+	 * The generated nodes.
+	 */
+	protected List<Node>	nodes	= new ArrayList<Node>();
+	/**
+	 * The generated edges.
+	 */
+	protected List<Edge>	edges	= new ArrayList<Edge>();
+
+	/**
+	 * Creates a new generator.
+	 *
+	 * @param random
+	 *            - the random generator to use.
+	 */
+	public GraphGenerator(Random random)
+	{
+		rand = random;
+	}
+
+	/**
+	 * @return the generated nodes, in the order of their creation.
+	 */
+	public List<Node> getNodes()
+	{
+		return nodes;
+	}
+
+	/**
+	 * @return the generated edges, in the order of their creation.
+	 */
+	public List<Edge> getEdges()
+	{
+		return edges;
+	}
+
+	/**
+	 * Adds random nodes and edges to a graph. There are no edges from a node to itself.
+	 *
+	 * @param graph
+	 *            - the graph to add to.
+	 * @param nNodes
+	 *            - the number of nodes.
+	 * @param nEdges
+	 *            - the number of edges.
+	 * @param nodeLabels
+	 *            - the number of distinct node labels; if not strictly positive, all nodes will have distinct labels.
+	 * @param edgeLabels
+	 *            - the number of distinct edge labels; if not strictly positive, all edges will be unlabeled.
+	 * @return the graph.
+	 */
+	public Graph randomGraph(Graph graph, int nNodes, int nEdges, int nodeLabels, int edgeLabels)
+	{
+		for(int i = 0; i < nNodes; i++)
+		{
+			Node node = new SimpleNode("n" + ((nodeLabels > 0) ? rand.nextInt(nodeLabels) : nodes.size()));
+			nodes.add(node);
+			graph.add(node);
+		}
+		for(int i = 0; i < nEdges; i++)
+		{
+			Edge edge = randomEdge(edgeLabels);
+			edges.add(edge);
+			graph.add(edge);
+		}
+		return graph;
+	}
+
+	/**
+	 * Adds a random tree to a graph: each node, except for the first, is the target of an edge from a random node
+	 * created before it. All nodes have distinct labels.
+	 * <p>
+	 * Unlike graphs created by {@link #randomGraph(Graph, int, int, int, int)}, the text representation of trees can
+	 * always be read back by {@link net.xqhs.graphs.representation.text.TextGraphRepresentation}, which does not
+	 * support references to nodes that only appear later in the representation.
+	 *
+	 * @param graph
+	 *            - the graph to add to.
+	 * @param nNodes
+	 *            - the number of nodes.
+	 * @param edgeLabels
+	 *            - the number of distinct edge labels; if not strictly positive, all edges will be unlabeled.
+	 * @return the graph.
+	 */
+	public Graph randomTree(Graph graph, int nNodes, int edgeLabels)
+	{
+		int first = nodes.size();
+		for(int i = 0; i < nNodes; i++)
+		{
+			Node node = new SimpleNode("n" + nodes.size());
+			if(i > 0)
+			{
+				Edge edge = new SimpleEdge(nodes.get(first + rand.nextInt(i)), node, (edgeLabels > 0) ? "e"
+						+ rand.nextInt(edgeLabels) : null);
+				edges.add(edge);
+				graph.add(edge);
+			}
+			nodes.add(node);
+			graph.add(node);
+		}
+		return graph;
+	}
+
+	/**
+	 * Creates a random edge between two distinct generated nodes. The edge is not added to any graph, nor to the list
+	 * of generated edges.
+	 *
+	 * @param edgeLabels
+	 *            - the number of distinct edge labels; if not strictly positive, the edge will be unlabeled.
+	 * @return the edge.
+	 */
+	public Edge randomEdge(int edgeLabels)
+	{
+		int from = rand.nextInt(nodes.size());
+		int to = rand.nextInt(nodes.size() - 1);
+		if(to >= from)
+			to++;
+		return new SimpleEdge(nodes.get(from), nodes.get(to), (edgeLabels > 0) ? "e" + rand.nextInt(edgeLabels)
+				: null);
+	}
+
+	/**
+	 * Creates a pattern by copying a random connected group of generated edges, so that the pattern has at least one
+	 * complete match in the generated graph. Some of the nodes of the pattern may be generic.
+	 *
+	 * @param nEdges
+	 *            - the number of edges in the pattern; the pattern may be smaller if the component containing the first
+	 *            chosen edge is smaller.
+	 * @param genericProbability
+	 *            - the probability for each node of the pattern to be generic.
+	 * @return the pattern.
+	 */
+	public GraphPattern randomPattern(int nEdges, double genericProbability)
+	{
+		Map<Node, List<Edge>> adjacency = new HashMap<Node, List<Edge>>();
+		for(Edge edge : edges)
+			for(Node node : new Node[] { edge.getFrom(), edge.getTo() })
+			{
+				if(!adjacency.containsKey(node))
+					adjacency.put(node, new ArrayList<Edge>());
+				adjacency.get(node).add(edge);
+			}
+		// edges are chosen from those adjacent to already chosen edges, in the order in which they were found
+		Set<Edge> chosen = new LinkedHashSet<Edge>();
+		Set<Edge> frontier = new LinkedHashSet<Edge>();
+		frontier.add(edges.get(rand.nextInt(edges.size())));
+		while((chosen.size() < nEdges) && !frontier.isEmpty())
+		{
+			List<Edge> candidates = new ArrayList<Edge>(frontier);
+			Edge edge = candidates.get(rand.nextInt(candidates.size()));
+			frontier.remove(edge);
+			chosen.add(edge);
+			for(Node node : new Node[] { edge.getFrom(), edge.getTo() })
+				for(Edge adjacent : adjacency.get(node))
+					if(!chosen.contains(adjacent))
+						frontier.add(adjacent);
+		}
+
+		GraphPattern pattern = (GraphPattern) new GraphPattern().setUnitName("pattern").setLogLevel(Level.OFF);
+		Map<Node, NodeP> patternNodes = new HashMap<Node, NodeP>();
+		for(Edge edge : chosen)
+		{
+			for(Node node : new Node[] { edge.getFrom(), edge.getTo() })
+				if(!patternNodes.containsKey(node))
+				{
+					NodeP nodeP = (rand.nextDouble() < genericProbability) ? new NodeP() : new NodeP(node.getLabel());
+					patternNodes.put(node, nodeP);
+					pattern.add(nodeP);
+				}
+			pattern.add(new EdgeP(patternNodes.get(edge.getFrom()), patternNodes.get(edge.getTo()), edge.getLabel()));
+		}
+		return pattern;
+	}
+
+	/**
+	 * Produces the representation of the generated edges as a list of edges, one per line, in the format read by
+	 * {@link net.xqhs.graphs.graph.SimpleGraph#readFrom(java.io.InputStream)}. Since nodes are identified by their
+	 * labels in this format, the labels of the generated nodes should be distinct.
+	 *
+	 * @return the representation.
+	 */
+	public String edgeList()
+	{
+		StringBuilder builder = new StringBuilder();
+		for(Edge edge : edges)
+		{
+			builder.append(edge.getFrom().getLabel());
+			if(edge.getLabel() != null)
+				builder.append(" -").append(edge.getLabel()).append("-> ");
+			else
+				builder.append(" -> ");
+			builder.append(edge.getTo().getLabel()).append('\n');
+		}
+		return builder.toString();
+	}
+}